@@ -0,0 +1,84 @@
+package datadog.trace.bootstrap;
+
+import java.lang.ref.WeakReference;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs periodic tasks of instrumentation helpers on a single agent thread. Helpers are injected
+ * into application class loaders, so tasks are only weakly referenced: a task is cancelled once it
+ * is collected, and the thread never keeps an application class loader alive. Callers must hold a
+ * strong reference to their task for as long as it should run.
+ */
+@Slf4j
+public final class AgentTaskScheduler {
+  private static final ThreadFactory THREAD_FACTORY =
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable r) {
+          // Threads inherit the access control context of their creator, which may hold the
+          // protection domains of application classes, so it is limited to this class.
+          return AccessController.doPrivileged(
+              new PrivilegedAction<Thread>() {
+                @Override
+                public Thread run() {
+                  final Thread thread = new Thread(r, "dd-task-scheduler");
+                  thread.setDaemon(true);
+                  thread.setContextClassLoader(null);
+                  return thread;
+                }
+              });
+        }
+      };
+
+  private AgentTaskScheduler() {}
+
+  /**
+   * Run the task at a fixed rate until it is collected.
+   *
+   * @param task weakly referenced task
+   */
+  public static void weakScheduleAtFixedRate(
+      final Runnable task, final long period, final TimeUnit unit) {
+    final WeakTask weakTask = new WeakTask(task);
+    weakTask.future = Holder.EXECUTOR.scheduleAtFixedRate(weakTask, period, period, unit);
+  }
+
+  private static final class Holder {
+    private static final ScheduledExecutorService EXECUTOR =
+        Executors.newSingleThreadScheduledExecutor(THREAD_FACTORY);
+  }
+
+  private static final class WeakTask implements Runnable {
+    private final WeakReference<Runnable> task;
+    private volatile ScheduledFuture<?> future;
+
+    private WeakTask(final Runnable task) {
+      this.task = new WeakReference<>(task);
+    }
+
+    @Override
+    public void run() {
+      final Runnable task = this.task.get();
+      if (task == null) {
+        final ScheduledFuture<?> future = this.future;
+        if (future != null) {
+          future.cancel(false);
+        }
+        return;
+      }
+      try {
+        task.run();
+      } catch (final Throwable e) {
+        // a failed run must not cancel the later ones
+        log.debug("Failed to run scheduled task {}", task, e);
+      }
+    }
+  }
+}
@@ -8,8 +8,14 @@ import java.util.Map;
  *
  * <p>For example, this can be used to track nested calls to super() in constructors by calling
  * #incrementCallDepth at the beginning of each constructor.
+ *
+ * <p>Advice on hot paths should prefer the slot based methods: a slot is a small integer assigned
+ * once per key (see {@link #slotFor(String)}), so tracking the depth is an array access on a
+ * thread local {@code int[]} instead of a hash lookup with a boxed counter.
  */
 public class CallDepthThreadLocalMap {
+  private static final int INITIAL_SLOTS = 16;
+
   private static final ThreadLocal<Map<Object, Integer>> TLS =
       new ThreadLocal<Map<Object, Integer>>() {
         @Override
@@ -18,6 +24,18 @@ public class CallDepthThreadLocalMap {
         }
       };
 
+  // guarded by itself, only used when advice is applied
+  private static final Map<String, Integer> SLOTS = new HashMap<>();
+  private static int nextSlot = 0;
+
+  private static final ThreadLocal<int[]> DEPTHS =
+      new ThreadLocal<int[]>() {
+        @Override
+        public int[] initialValue() {
+          return new int[INITIAL_SLOTS];
+        }
+      };
+
   public static int incrementCallDepth(final Object k) {
     final Map<Object, Integer> map = TLS.get();
     Integer depth = map.get(k);
@@ -33,4 +51,67 @@ public class CallDepthThreadLocalMap {
   public static void reset(final Object k) {
     TLS.get().remove(k);
   }
+
+  /**
+   * Get the slot of the given key, assigning a new one on first use. The same key always gets the
+   * same slot, regardless of the class loader asking for it. Slots are meant to be resolved when
+   * advice is applied, not on every call.
+   *
+   * @param key usually the name of the class whose calls are tracked
+   */
+  public static int slotFor(final String key) {
+    synchronized (SLOTS) {
+      Integer slot = SLOTS.get(key);
+      if (slot == null) {
+        do {
+          slot = nextSlot++;
+        } while (SLOTS.containsValue(slot));
+        SLOTS.put(key, slot);
+      }
+      return slot;
+    }
+  }
+
+  /**
+   * Assign a specific slot to the given key, used when reusing code which was instrumented by
+   * another JVM.
+   *
+   * @return true if the key now has the given slot
+   */
+  public static boolean reserveSlot(final String key, final int slot) {
+    synchronized (SLOTS) {
+      final Integer current = SLOTS.get(key);
+      if (current != null) {
+        return current == slot;
+      }
+      if (slot < 0 || SLOTS.containsValue(slot)) {
+        return false;
+      }
+      SLOTS.put(key, slot);
+      return true;
+    }
+  }
+
+  /** @return the call depth of the given slot before incrementing it, 0 for the outermost call */
+  public static int incrementCallDepth(final int slot) {
+    int[] depths = DEPTHS.get();
+    if (slot >= depths.length) {
+      depths = grow(depths, slot);
+    }
+    return depths[slot]++;
+  }
+
+  public static void reset(final int slot) {
+    final int[] depths = DEPTHS.get();
+    if (slot < depths.length) {
+      depths[slot] = 0;
+    }
+  }
+
+  private static int[] grow(final int[] depths, final int slot) {
+    final int[] grown = new int[Math.max(slot + 1, depths.length << 1)];
+    System.arraycopy(depths, 0, grown, 0, depths.length);
+    DEPTHS.set(grown);
+    return grown;
+  }
 }
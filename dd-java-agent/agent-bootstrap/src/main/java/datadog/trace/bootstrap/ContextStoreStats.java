@@ -0,0 +1,65 @@
+package datadog.trace.bootstrap;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.metrics.StripedCounter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts how often a field backed context store resolves context through the weak map fallback
+ * used for classes that could not get the injected field. Accesses through the field are not
+ * counted, to keep that path free of shared writes.
+ *
+ * <p>Stats are only recorded when the instrumentation profiler, which reports them, is enabled.
+ */
+public final class ContextStoreStats {
+  private static final ConcurrentMap<String, ContextStoreStats> STATS = new ConcurrentHashMap<>();
+
+  private final String storeName;
+  private final StripedCounter fallbackAccesses = new StripedCounter();
+
+  public static boolean isEnabled() {
+    return Config.get().isStartupProfilingEnabled();
+  }
+
+  /** @return the stats for the given context store, created on first use */
+  public static ContextStoreStats forStore(final String storeName) {
+    ContextStoreStats stats = STATS.get(storeName);
+    if (stats == null) {
+      final ContextStoreStats created = new ContextStoreStats(storeName);
+      stats = STATS.putIfAbsent(storeName, created);
+      if (stats == null) {
+        stats = created;
+      }
+    }
+    return stats;
+  }
+
+  public static Collection<ContextStoreStats> all() {
+    return new ArrayList<>(STATS.values());
+  }
+
+  private ContextStoreStats(final String storeName) {
+    this.storeName = storeName;
+  }
+
+  public String getStoreName() {
+    return storeName;
+  }
+
+  /** Record a context lookup or update resolved through the fallback map. */
+  public void recordFallbackAccess() {
+    fallbackAccesses.increment();
+  }
+
+  public long getFallbackAccesses() {
+    return fallbackAccesses.sum();
+  }
+
+  @Override
+  public String toString() {
+    return storeName + " fallback=" + getFallbackAccesses();
+  }
+}
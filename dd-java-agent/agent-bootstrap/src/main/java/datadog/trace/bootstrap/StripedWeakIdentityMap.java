@@ -0,0 +1,239 @@
+package datadog.trace.bootstrap;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Weak identity map split into independently locked stripes.
+ *
+ * <p>Reads never allocate, and only lock when keys of their stripe were collected, to expunge
+ * them. Writes lock a single stripe and expunge entries whose keys were collected from that stripe
+ * first. This removes the need for a background cleaner thread.
+ *
+ * <p>Keys are compared by identity. {@code null} values are not supported: a key mapped to {@code
+ * null} is indistinguishable from an absent key.
+ */
+public final class StripedWeakIdentityMap<K, V> implements WeakMap<K, V> {
+  private static final int STRIPE_BITS = 4;
+  private static final int STRIPES = 1 << STRIPE_BITS;
+  private static final int INITIAL_STRIPE_CAPACITY = 16;
+
+  private final Stripe<K, V>[] stripes;
+
+  @SuppressWarnings("unchecked")
+  public StripedWeakIdentityMap() {
+    stripes = new Stripe[STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      stripes[i] = new Stripe<>();
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (final Stripe<K, V> stripe : stripes) {
+      size += stripe.count;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(final K key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public V get(final K key) {
+    final int hash = hash(key);
+    return stripeFor(hash).get(key, hash);
+  }
+
+  @Override
+  public void put(final K key, final V value) {
+    final int hash = hash(key);
+    stripeFor(hash).put(key, hash, value, false);
+  }
+
+  @Override
+  public void putIfAbsent(final K key, final V value) {
+    final int hash = hash(key);
+    stripeFor(hash).put(key, hash, value, true);
+  }
+
+  /**
+   * @return an object that guards all keys sharing a stripe with the given key, for callers which
+   *     need to make compound operations atomic
+   */
+  public Object mutexFor(final K key) {
+    return stripeFor(hash(key));
+  }
+
+  /** Remove all entries whose keys have been collected. */
+  public void expungeStaleEntries() {
+    for (final Stripe<K, V> stripe : stripes) {
+      stripe.lock();
+      try {
+        stripe.expunge();
+      } finally {
+        stripe.unlock();
+      }
+    }
+  }
+
+  private Stripe<K, V> stripeFor(final int hash) {
+    return stripes[hash >>> (32 - STRIPE_BITS)];
+  }
+
+  private static int hash(final Object key) {
+    // Spread identity hash codes so both the high (stripe) and low (bucket) bits are usable.
+    return System.identityHashCode(key) * 0x9E3779B9;
+  }
+
+  @Override
+  public String toString() {
+    return "StripedWeakIdentityMap{size=" + size() + "}";
+  }
+
+  private static final class Entry<K, V> extends WeakReference<K> {
+    private final int hash;
+    private final Entry<K, V> next;
+    private volatile V value;
+
+    private Entry(
+        final K key,
+        final int hash,
+        final V value,
+        final Entry<K, V> next,
+        final ReferenceQueue<K> queue) {
+      super(key, queue);
+      this.hash = hash;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  /**
+   * A hash table with immutable chains: readers traverse without locking, writers rebuild the
+   * affected chain prefix under the stripe lock. Every write ends with a write to the volatile
+   * {@link #count} which readers read first, publishing table updates.
+   */
+  private static final class Stripe<K, V> extends ReentrantLock {
+    private final ReferenceQueue<K> queue = new ReferenceQueue<>();
+    private volatile Entry<K, V>[] table = newTable(INITIAL_STRIPE_CAPACITY);
+    private volatile int count = 0;
+
+    @SuppressWarnings("unchecked")
+    V get(final K key, final int hash) {
+      V result = null;
+      if (count != 0) {
+        final Entry<K, V>[] tab = table;
+        for (Entry<K, V> e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+          if (e.hash == hash && e.get() == key) {
+            result = e.value;
+            break;
+          }
+        }
+      }
+      // polling an empty queue only reads it, so reads don't write to the shared stripe
+      final Reference<? extends K> collected = queue.poll();
+      if (collected != null) {
+        lock();
+        try {
+          remove((Entry<K, V>) collected);
+          expunge();
+        } finally {
+          unlock();
+        }
+      }
+      return result;
+    }
+
+    void put(final K key, final int hash, final V value, final boolean onlyIfAbsent) {
+      lock();
+      try {
+        expunge();
+        if (count + 1 > table.length - (table.length >>> 2)) {
+          rehash();
+        }
+        final Entry<K, V>[] tab = table;
+        final int index = hash & (tab.length - 1);
+        final Entry<K, V> first = tab[index];
+        for (Entry<K, V> e = first; e != null; e = e.next) {
+          if (e.hash == hash && e.get() == key) {
+            if (!onlyIfAbsent || e.value == null) {
+              e.value = value;
+            }
+            return;
+          }
+        }
+        tab[index] = new Entry<>(key, hash, value, first, queue);
+        count = count + 1;
+      } finally {
+        unlock();
+      }
+    }
+
+    /** Must hold the lock. */
+    @SuppressWarnings("unchecked")
+    void expunge() {
+      Reference<? extends K> ref;
+      while ((ref = queue.poll()) != null) {
+        remove((Entry<K, V>) ref);
+      }
+    }
+
+    /** Must hold the lock. */
+    private void remove(final Entry<K, V> target) {
+      final Entry<K, V>[] tab = table;
+      final int index = target.hash & (tab.length - 1);
+      final Entry<K, V> first = tab[index];
+      Entry<K, V> e = first;
+      while (e != null && e != target) {
+        e = e.next;
+      }
+      if (e == null) {
+        // already dropped by a rehash or an earlier removal
+        return;
+      }
+      int removed = 1;
+      Entry<K, V> newFirst = target.next;
+      for (Entry<K, V> p = first; p != target; p = p.next) {
+        final K key = p.get();
+        if (key == null) {
+          removed++;
+        } else {
+          newFirst = new Entry<>(key, p.hash, p.value, newFirst, queue);
+        }
+      }
+      tab[index] = newFirst;
+      count = count - removed;
+    }
+
+    /** Must hold the lock. */
+    private void rehash() {
+      final Entry<K, V>[] oldTable = table;
+      final Entry<K, V>[] newTable = newTable(oldTable.length << 1);
+      final int mask = newTable.length - 1;
+      int newCount = 0;
+      for (final Entry<K, V> head : oldTable) {
+        for (Entry<K, V> e = head; e != null; e = e.next) {
+          final K key = e.get();
+          if (key != null) {
+            final int index = e.hash & mask;
+            newTable[index] = new Entry<>(key, e.hash, e.value, newTable[index], queue);
+            newCount++;
+          }
+        }
+      }
+      table = newTable;
+      count = newCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> Entry<K, V>[] newTable(final int capacity) {
+      return new Entry[capacity];
+    }
+  }
+}
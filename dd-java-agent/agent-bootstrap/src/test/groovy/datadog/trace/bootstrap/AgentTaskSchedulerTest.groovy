@@ -0,0 +1,64 @@
+package datadog.trace.bootstrap
+
+import datadog.trace.util.gc.GCUtils
+import spock.lang.Specification
+
+import java.lang.ref.WeakReference
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class AgentTaskSchedulerTest extends Specification {
+
+  def "tasks run periodically"() {
+    setup:
+    def latch = new CountDownLatch(3)
+    def task = new Runnable() {
+      @Override
+      void run() {
+        latch.countDown()
+      }
+    }
+
+    when:
+    AgentTaskScheduler.weakScheduleAtFixedRate(task, 10, TimeUnit.MILLISECONDS)
+
+    then:
+    latch.await(5, TimeUnit.SECONDS)
+  }
+
+  def "failing tasks keep running"() {
+    setup:
+    def latch = new CountDownLatch(2)
+    def task = new Runnable() {
+      @Override
+      void run() {
+        latch.countDown()
+        throw new IllegalStateException("test")
+      }
+    }
+
+    when:
+    AgentTaskScheduler.weakScheduleAtFixedRate(task, 10, TimeUnit.MILLISECONDS)
+
+    then:
+    latch.await(5, TimeUnit.SECONDS)
+  }
+
+  def "scheduled tasks are not kept alive by the scheduler"() {
+    setup:
+    def task = new Runnable() {
+      @Override
+      void run() {
+      }
+    }
+    def ref = new WeakReference<Runnable>(task)
+    AgentTaskScheduler.weakScheduleAtFixedRate(task, 10, TimeUnit.MILLISECONDS)
+
+    when:
+    task = null
+    GCUtils.awaitGC(ref)
+
+    then:
+    ref.get() == null
+  }
+}
@@ -32,4 +32,64 @@ class CallDepthThreadLocalMapTest extends Specification {
     CallDepthThreadLocalMap.incrementCallDepth(k1) == 1
     CallDepthThreadLocalMap.incrementCallDepth(k2) == 1
   }
+
+  def "test CallDepthThreadLocalMap slots"() {
+    setup:
+    def s1 = CallDepthThreadLocalMap.slotFor("test.slots.K1")
+    def s2 = CallDepthThreadLocalMap.slotFor("test.slots.K2")
+
+    expect:
+    s1 != s2
+    CallDepthThreadLocalMap.slotFor("test.slots.K1") == s1
+
+    CallDepthThreadLocalMap.incrementCallDepth(s1) == 0
+    CallDepthThreadLocalMap.incrementCallDepth(s2) == 0
+
+    CallDepthThreadLocalMap.incrementCallDepth(s1) == 1
+    CallDepthThreadLocalMap.incrementCallDepth(s2) == 1
+
+    when:
+    CallDepthThreadLocalMap.reset(s1)
+
+    then:
+    CallDepthThreadLocalMap.incrementCallDepth(s2) == 2
+    CallDepthThreadLocalMap.incrementCallDepth(s1) == 0
+
+    cleanup:
+    CallDepthThreadLocalMap.reset(s1)
+    CallDepthThreadLocalMap.reset(s2)
+  }
+
+  def "slots beyond the initial capacity are tracked per thread"() {
+    setup:
+    def slot = 1000
+
+    expect:
+    CallDepthThreadLocalMap.incrementCallDepth(slot) == 0
+    CallDepthThreadLocalMap.incrementCallDepth(slot) == 1
+
+    when:
+    def otherThreadDepth = null
+    def thread = Thread.start {
+      otherThreadDepth = CallDepthThreadLocalMap.incrementCallDepth(slot)
+    }
+    thread.join()
+
+    then:
+    otherThreadDepth == 0
+    CallDepthThreadLocalMap.incrementCallDepth(slot) == 2
+
+    cleanup:
+    CallDepthThreadLocalMap.reset(slot)
+  }
+
+  def "reserved slots are not reassigned"() {
+    expect:
+    CallDepthThreadLocalMap.reserveSlot("test.reserve.K1", 500)
+    CallDepthThreadLocalMap.reserveSlot("test.reserve.K1", 500)
+    !CallDepthThreadLocalMap.reserveSlot("test.reserve.K1", 501)
+    !CallDepthThreadLocalMap.reserveSlot("test.reserve.K2", 500)
+    CallDepthThreadLocalMap.slotFor("test.reserve.K1") == 500
+    CallDepthThreadLocalMap.slotFor("test.reserve.K2") != 500
+  }
 }
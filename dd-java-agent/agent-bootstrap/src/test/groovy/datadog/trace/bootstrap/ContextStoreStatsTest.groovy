@@ -0,0 +1,20 @@
+package datadog.trace.bootstrap
+
+import spock.lang.Specification
+
+class ContextStoreStatsTest extends Specification {
+
+  def "fallback accesses are counted per store"() {
+    setup:
+    def stats = ContextStoreStats.forStore("test-store")
+
+    when:
+    2.times { stats.recordFallbackAccess() }
+
+    then:
+    stats.fallbackAccesses == 2
+    ContextStoreStats.forStore("test-store").is(stats)
+    ContextStoreStats.all().contains(stats)
+    stats.toString() == "test-store fallback=2"
+  }
+}
@@ -0,0 +1,109 @@
+package datadog.trace.bootstrap
+
+import datadog.trace.util.gc.GCUtils
+import spock.lang.Retry
+import spock.lang.Specification
+
+import java.lang.ref.WeakReference
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class StripedWeakIdentityMapTest extends Specification {
+
+  def "keys are compared by identity"() {
+    setup:
+    def map = new StripedWeakIdentityMap<String, String>()
+    def key = new String("key")
+    def equalKey = new String("key")
+
+    when:
+    map.put(key, "value")
+
+    then:
+    map.get(key) == "value"
+    map.containsKey(key)
+    map.get(equalKey) == null
+    !map.containsKey(equalKey)
+    map.size() == 1
+  }
+
+  def "putIfAbsent keeps existing value"() {
+    setup:
+    def map = new StripedWeakIdentityMap<Object, String>()
+    def key = new Object()
+
+    when:
+    map.putIfAbsent(key, "first")
+    map.putIfAbsent(key, "second")
+
+    then:
+    map.get(key) == "first"
+
+    when:
+    map.put(key, "third")
+
+    then:
+    map.get(key) == "third"
+    map.size() == 1
+  }
+
+  def "map grows and keeps all entries"() {
+    setup:
+    def map = new StripedWeakIdentityMap<Object, Integer>()
+    def keys = (0..<10_000).collect { new Object() }
+
+    when:
+    keys.eachWithIndex { key, i -> map.put(key, i) }
+
+    then:
+    map.size() == keys.size()
+    keys.withIndex().every { key, i -> map.get(key) == i }
+  }
+
+  def "concurrent writers do not lose entries"() {
+    setup:
+    def map = new StripedWeakIdentityMap<Object, Integer>()
+    def keys = (0..<8_000).collect { new Object() }
+    def executor = Executors.newFixedThreadPool(8)
+    def latch = new CountDownLatch(8)
+
+    when:
+    8.times { t ->
+      executor.submit {
+        for (int i = t; i < keys.size(); i += 8) {
+          map.putIfAbsent(keys[i], i)
+        }
+        latch.countDown()
+      }
+    }
+    latch.await(10, TimeUnit.SECONDS)
+
+    then:
+    map.size() == keys.size()
+    keys.withIndex().every { key, i -> map.get(key) == i }
+
+    cleanup:
+    executor.shutdownNow()
+  }
+
+  @Retry
+  def "unreferenced keys are expunged by later operations"() {
+    setup:
+    def map = new StripedWeakIdentityMap<Object, String>()
+    def key = new Object()
+    map.put(key, "value")
+    def keyRef = new WeakReference(key)
+
+    when:
+    key = null
+    GCUtils.awaitGC(keyRef)
+    // Reads expunge the collected keys of their stripe, hit all stripes.
+    for (int i = 0; i < 64 * 64; i++) {
+      map.get(new Object())
+    }
+
+    then:
+    map.size() == 0
+  }
+}
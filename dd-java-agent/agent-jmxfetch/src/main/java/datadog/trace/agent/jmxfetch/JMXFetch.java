@@ -31,6 +31,14 @@ public class JMXFetch {
 
   // This is used by tests
   private static void run(final Config config) {
+    if (config.isRuntimeMetricsEnabled()) {
+      if (Config.LOGGING_WRITER_TYPE.equals(config.getWriterType())) {
+        log.info("Runtime metrics are not sent with the logging writer");
+      } else {
+        RuntimeMetrics.start(config, getStatsdHost(config));
+      }
+    }
+
     if (!config.isJmxFetchEnabled()) {
       log.info("JMXFetch is disabled");
       return;
@@ -38,6 +46,18 @@ public class JMXFetch {
 
     final List<String> internalMetricsConfigs = getInternalMetricFiles();
     final List<String> metricsConfigs = config.getJmxFetchMetricsConfigs();
+    // JVM metrics are already sent by the runtime metrics, JMXFetch is only needed for beans
+    final List<String> defaultConfigs;
+    if (config.isRuntimeMetricsEnabled()) {
+      if (internalMetricsConfigs.isEmpty()
+          && (metricsConfigs == null || metricsConfigs.isEmpty())) {
+        log.info("No JMXFetch metrics configured beyond runtime metrics, JMXFetch is not started");
+        return;
+      }
+      defaultConfigs = Collections.emptyList();
+    } else {
+      defaultConfigs = DEFAULT_CONFIGS;
+    }
     final Integer checkPeriod = config.getJmxFetchCheckPeriod();
     final Integer refreshBeansPeriod = config.getJmxFetchRefreshBeansPeriod();
     final Map<String, String> globalTags = config.getMergedJmxTags();
@@ -57,7 +77,7 @@ public class JMXFetch {
         logLevel);
     final AppConfig appConfig =
         AppConfig.create(
-            DEFAULT_CONFIGS,
+            defaultConfigs,
             internalMetricsConfigs,
             metricsConfigs,
             checkPeriod,
@@ -100,11 +120,13 @@ public class JMXFetch {
       return "console";
     }
 
-    final String host =
-        config.getJmxFetchStatsdHost() == null
-            ? config.getAgentHost()
-            : config.getJmxFetchStatsdHost();
-    return "statsd:" + host + ":" + config.getJmxFetchStatsdPort();
+    return "statsd:" + getStatsdHost(config) + ":" + config.getJmxFetchStatsdPort();
+  }
+
+  private static String getStatsdHost(final Config config) {
+    return config.getJmxFetchStatsdHost() == null
+        ? config.getAgentHost()
+        : config.getJmxFetchStatsdHost();
   }
 
   private static List<String> getInternalMetricFiles() {
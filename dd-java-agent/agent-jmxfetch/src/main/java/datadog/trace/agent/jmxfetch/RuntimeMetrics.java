@@ -0,0 +1,174 @@
+package datadog.trace.agent.jmxfetch;
+
+import datadog.trace.api.Config;
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends the JVM runtime metrics JMXFetch collects by default (heap and non heap memory, garbage
+ * collections, threads, loaded classes and buffer pools) by reading the platform MXBeans directly,
+ * under the same metric names. Metric names are built once, and metrics are sent in batched
+ * DogStatsD packets.
+ *
+ * <p>Garbage collection counts and times are sent as DogStatsD counts of the collections since the
+ * previous report, rather than as rates computed in process like JMXFetch does.
+ */
+@Slf4j
+public class RuntimeMetrics implements Runnable {
+  static final int DEFAULT_CHECK_PERIOD_MILLIS = 15000;
+
+  private static final String[] MINOR_COLLECTORS = {"Copy", "ParNew", "Scavenge", "Young"};
+
+  private final StatsDBatch batch;
+  private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+  private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+  private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+  private final List<GarbageCollectorMXBean> collectors =
+      ManagementFactory.getGarbageCollectorMXBeans();
+  private final List<BufferPoolMXBean> bufferPools =
+      ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+
+  private final boolean[] minorCollectors;
+  private final long[] previousCollectionCounts;
+  private final long[] previousCollectionTimes;
+  private final String[][] bufferPoolMetrics;
+
+  RuntimeMetrics(final StatsDBatch batch) {
+    this.batch = batch;
+    minorCollectors = new boolean[collectors.size()];
+    previousCollectionCounts = new long[collectors.size()];
+    previousCollectionTimes = new long[collectors.size()];
+    for (int i = 0; i < collectors.size(); i++) {
+      minorCollectors[i] = isMinorCollector(collectors.get(i).getName());
+      previousCollectionCounts[i] = Math.max(0, collectors.get(i).getCollectionCount());
+      previousCollectionTimes[i] = Math.max(0, collectors.get(i).getCollectionTime());
+    }
+    bufferPoolMetrics = new String[bufferPools.size()][];
+    for (int i = 0; i < bufferPools.size(); i++) {
+      final String prefix = "jvm.buffer_pool." + bufferPools.get(i).getName() + ".";
+      bufferPoolMetrics[i] = new String[] {prefix + "count", prefix + "used", prefix + "capacity"};
+    }
+  }
+
+  /** Start sending runtime metrics every check period on a daemon thread. */
+  public static void start(final Config config, final String host) {
+    final StatsDBatch batch;
+    try {
+      batch =
+          new StatsDBatch(
+              DatagramChannel.open(),
+              new InetSocketAddress(host, config.getJmxFetchStatsdPort()),
+              tags(config.getMergedJmxTags()));
+    } catch (final IOException e) {
+      log.warn("Failed to open the DogStatsD channel, runtime metrics won't be sent", e);
+      return;
+    }
+    final long period =
+        config.getJmxFetchCheckPeriod() == null
+            ? DEFAULT_CHECK_PERIOD_MILLIS
+            : config.getJmxFetchCheckPeriod();
+    final ScheduledExecutorService executor =
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "dd-runtime-metrics");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+    executor.scheduleAtFixedRate(new RuntimeMetrics(batch), 0, period, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void run() {
+    try {
+      collect();
+    } catch (final Throwable e) {
+      log.debug("Failed to collect runtime metrics", e);
+    }
+    batch.flush();
+  }
+
+  void collect() {
+    final MemoryUsage heap = memory.getHeapMemoryUsage();
+    batch.gauge("jvm.heap_memory", heap.getUsed());
+    batch.gauge("jvm.heap_memory_committed", heap.getCommitted());
+    batch.gauge("jvm.heap_memory_init", heap.getInit());
+    batch.gauge("jvm.heap_memory_max", heap.getMax());
+    final MemoryUsage nonHeap = memory.getNonHeapMemoryUsage();
+    batch.gauge("jvm.non_heap_memory", nonHeap.getUsed());
+    batch.gauge("jvm.non_heap_memory_committed", nonHeap.getCommitted());
+    batch.gauge("jvm.non_heap_memory_init", nonHeap.getInit());
+    batch.gauge("jvm.non_heap_memory_max", nonHeap.getMax());
+
+    batch.gauge("jvm.thread_count", threads.getThreadCount());
+    batch.gauge("jvm.loaded_classes", classLoading.getLoadedClassCount());
+
+    long minorCount = 0;
+    long minorTime = 0;
+    long majorCount = 0;
+    long majorTime = 0;
+    for (int i = 0; i < collectors.size(); i++) {
+      final GarbageCollectorMXBean collector = collectors.get(i);
+      // -1 if undefined for this collector
+      final long count = Math.max(0, collector.getCollectionCount());
+      final long time = Math.max(0, collector.getCollectionTime());
+      if (minorCollectors[i]) {
+        minorCount += count - previousCollectionCounts[i];
+        minorTime += time - previousCollectionTimes[i];
+      } else {
+        majorCount += count - previousCollectionCounts[i];
+        majorTime += time - previousCollectionTimes[i];
+      }
+      previousCollectionCounts[i] = count;
+      previousCollectionTimes[i] = time;
+    }
+    batch.count("jvm.gc.minor_collection_count", minorCount);
+    batch.count("jvm.gc.minor_collection_time", minorTime);
+    batch.count("jvm.gc.major_collection_count", majorCount);
+    batch.count("jvm.gc.major_collection_time", majorTime);
+
+    for (int i = 0; i < bufferPools.size(); i++) {
+      final BufferPoolMXBean bufferPool = bufferPools.get(i);
+      batch.gauge(bufferPoolMetrics[i][0], bufferPool.getCount());
+      batch.gauge(bufferPoolMetrics[i][1], bufferPool.getMemoryUsed());
+      batch.gauge(bufferPoolMetrics[i][2], bufferPool.getTotalCapacity());
+    }
+  }
+
+  static boolean isMinorCollector(final String name) {
+    for (final String minor : MINOR_COLLECTORS) {
+      if (name.contains(minor)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  static String tags(final Map<String, String> tags) {
+    final StringBuilder joined = new StringBuilder();
+    for (final Map.Entry<String, String> tag : tags.entrySet()) {
+      if (joined.length() > 0) {
+        joined.append(',');
+      }
+      joined.append(tag.getKey()).append(':').append(tag.getValue());
+    }
+    return joined.toString();
+  }
+}
@@ -0,0 +1,91 @@
+package datadog.trace.agent.jmxfetch;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes DogStatsD metrics into datagrams holding as many newline separated metrics as fit in
+ * {@link #MAX_PACKET_SIZE} bytes. The line and packet buffers are reused for every metric, so
+ * writing a metric doesn't allocate. Not thread safe.
+ */
+@Slf4j
+class StatsDBatch {
+  // Fits in the payload of a single ethernet frame
+  static final int MAX_PACKET_SIZE = 1432;
+
+  private final DatagramChannel channel;
+  private final InetSocketAddress address;
+  private final String tags;
+
+  private final StringBuilder line = new StringBuilder(128);
+  private final CharBuffer lineBuffer = CharBuffer.allocate(MAX_PACKET_SIZE);
+  private final ByteBuffer packet = ByteBuffer.allocate(MAX_PACKET_SIZE);
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+  /** @param tags tags sent with each metric, formatted as {@code key:value} */
+  StatsDBatch(final DatagramChannel channel, final InetSocketAddress address, final String tags) {
+    this.channel = channel;
+    this.address = address;
+    this.tags = tags.isEmpty() ? "" : "|#" + tags;
+  }
+
+  void gauge(final String name, final long value) {
+    write(name, value, 'g');
+  }
+
+  void count(final String name, final long delta) {
+    write(name, delta, 'c');
+  }
+
+  private void write(final String name, final long value, final char type) {
+    line.setLength(0);
+    line.append(name).append(':').append(value).append('|').append(type).append(tags).append('\n');
+    if (line.length() > MAX_PACKET_SIZE) {
+      log.debug("Metric {} is too long to be sent to DogStatsD", name);
+      return;
+    }
+    lineBuffer.clear();
+    lineBuffer.append(line);
+    lineBuffer.flip();
+    if (!encode()) {
+      flush();
+      lineBuffer.rewind();
+      if (!encode()) {
+        log.debug("Metric {} is too long to be sent to DogStatsD", name);
+      }
+    }
+  }
+
+  /** @return false if the line doesn't fit in the packet, which is then left unchanged */
+  private boolean encode() {
+    final int position = packet.position();
+    encoder.reset();
+    final CoderResult result = encoder.encode(lineBuffer, packet, true);
+    if (result.isOverflow()) {
+      packet.position(position);
+      return false;
+    }
+    return true;
+  }
+
+  /** Send the metrics written since the last flush. */
+  void flush() {
+    if (packet.position() == 0) {
+      return;
+    }
+    packet.flip();
+    try {
+      channel.send(packet, address);
+    } catch (final IOException e) {
+      log.debug("Failed to send runtime metrics to DogStatsD at {}", address, e);
+    }
+    packet.clear();
+  }
+}
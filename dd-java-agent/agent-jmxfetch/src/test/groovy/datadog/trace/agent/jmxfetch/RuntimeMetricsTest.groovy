@@ -0,0 +1,98 @@
+package datadog.trace.agent.jmxfetch
+
+import spock.lang.Specification
+
+import java.nio.channels.DatagramChannel
+import java.nio.charset.StandardCharsets
+
+class RuntimeMetricsTest extends Specification {
+  def listener = new DatagramSocket(0, InetAddress.getByName("localhost"))
+  def channel = DatagramChannel.open()
+  def batch = new StatsDBatch(channel, new InetSocketAddress("localhost", listener.localPort), "env:test,service:app")
+
+  def setup() {
+    listener.soTimeout = 1000
+  }
+
+  def cleanup() {
+    channel.close()
+    listener.close()
+  }
+
+  def "metrics are batched in packets"() {
+    when:
+    batch.gauge("jvm.thread_count", 12)
+    batch.count("jvm.gc.minor_collection_count", 3)
+    batch.flush()
+
+    then:
+    receive() == "jvm.thread_count:12|g|#env:test,service:app\njvm.gc.minor_collection_count:3|c|#env:test,service:app\n"
+  }
+
+  def "packets are sent when full"() {
+    setup:
+    def line = "jvm.heap_memory:1000|g|#env:test,service:app\n"
+    def perPacket = (int) (StatsDBatch.MAX_PACKET_SIZE / line.length())
+
+    when:
+    (perPacket + 1).times { batch.gauge("jvm.heap_memory", 1000) }
+    batch.flush()
+
+    then:
+    receive() == line * perPacket
+    receive() == line
+  }
+
+  def "runtime metrics are collected"() {
+    setup:
+    def metrics = new RuntimeMetrics(batch)
+
+    when:
+    metrics.run()
+    def received = receiveAll().split("\n").collect { it.substring(0, it.indexOf(':')) }
+
+    then:
+    received.containsAll([
+      "jvm.heap_memory",
+      "jvm.non_heap_memory",
+      "jvm.thread_count",
+      "jvm.loaded_classes",
+      "jvm.gc.minor_collection_count",
+      "jvm.gc.major_collection_time",
+      "jvm.buffer_pool.direct.used"
+    ])
+  }
+
+  def "collectors are classified"() {
+    expect:
+    RuntimeMetrics.isMinorCollector(name) == minor
+
+    where:
+    name                  | minor
+    "PS Scavenge"         | true
+    "ParNew"              | true
+    "Copy"                | true
+    "G1 Young Generation" | true
+    "PS MarkSweep"        | false
+    "MarkSweepCompact"    | false
+    "G1 Old Generation"   | false
+  }
+
+  def receiveAll() {
+    def received = receive()
+    listener.soTimeout = 100
+    try {
+      while (true) {
+        received += receive()
+      }
+    } catch (SocketTimeoutException e) {
+      return received
+    }
+  }
+
+  def receive() {
+    def packet = new DatagramPacket(new byte[StatsDBatch.MAX_PACKET_SIZE], StatsDBatch.MAX_PACKET_SIZE)
+    listener.receive(packet)
+    return new String(packet.data, 0, packet.length, StandardCharsets.UTF_8)
+  }
+}
@@ -22,18 +22,13 @@ public abstract class BaseDecorator {
   protected final float traceAnalyticsSampleRate;
 
   protected BaseDecorator() {
+    final Config config = Config.get();
     final String[] instrumentationNames = instrumentationNames();
     traceAnalyticsEnabled =
         instrumentationNames.length > 0
-            && Config.traceAnalyticsIntegrationEnabled(
+            && config.isTraceAnalyticsIntegrationEnabled(
                 new TreeSet<>(Arrays.asList(instrumentationNames)), traceAnalyticsDefault());
-    float rate = 1.0f;
-    for (final String name : instrumentationNames) {
-      rate =
-          Config.getFloatSettingFromEnvironment(
-              "integration." + name + ".analytics.sample-rate", rate);
-    }
-    traceAnalyticsSampleRate = rate;
+    traceAnalyticsSampleRate = config.getInstrumentationAnalyticsSampleRate(instrumentationNames);
   }
 
   protected abstract String[] instrumentationNames();
@@ -0,0 +1,44 @@
+package datadog.trace.agent.decorator;
+
+import datadog.trace.api.Config;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Values of {@code integration.<name>.consume.mode}, shared by all messaging integrations:
+ *
+ * <ul>
+ *   <li>{@value #RECORD}, the default: a span per consumed message,
+ *   <li>{@value #SAMPLED}: a span per sampled message, as given by {@code consume.sample-rate},
+ *   <li>{@value #BATCH}: a span per batch of consumed messages.
+ * </ul>
+ *
+ * Unknown values, and modes the integration doesn't support, fall back to {@value #RECORD} with a
+ * warning.
+ */
+@Slf4j
+public final class ConsumeMode {
+  public static final String RECORD = "record";
+  public static final String SAMPLED = "sampled";
+  public static final String BATCH = "batch";
+
+  private ConsumeMode() {}
+
+  /**
+   * @param supportedModes modes the integration supports besides {@value #RECORD}
+   * @return the configured mode of the integration, {@value #RECORD} if it doesn't support it
+   */
+  public static String get(final String integrationName, final String... supportedModes) {
+    final String setting = "integration." + integrationName + ".consume.mode";
+    final String value = Config.get().getSetting(setting, null);
+    if (value == null || RECORD.equalsIgnoreCase(value.trim())) {
+      return RECORD;
+    }
+    for (final String mode : supportedModes) {
+      if (mode.equalsIgnoreCase(value.trim())) {
+        return mode;
+      }
+    }
+    log.warn("Unsupported value '{}' for dd.{}, using '{}'", value, setting, RECORD);
+    return RECORD;
+  }
+}
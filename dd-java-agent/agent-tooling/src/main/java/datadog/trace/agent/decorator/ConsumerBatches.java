@@ -0,0 +1,209 @@
+package datadog.trace.agent.decorator;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.DDTags;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
+import datadog.trace.bootstrap.AgentTaskScheduler;
+import io.opentracing.Span;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates the messages a thread consumes from the same destination into a single span, for
+ * consumers configured with {@code integration.<name>.consume.mode=batch}, see {@link
+ * ConsumeMode}.
+ *
+ * <p>A batch is finished once it holds {@code consume.batch-size} messages, when the thread
+ * consumes from another destination, when its next message comes more than {@code
+ * consume.batch-millis} after the batch started, or when the integration flushes it (e.g. on an
+ * empty receive). Its end is the end of its last message. A thread that stops consuming, like an
+ * idle listener, doesn't come back to finish its batch, so batches open for longer than {@code
+ * consume.batch-millis} are also finished by a sweeper run on the agent's {@link
+ * AgentTaskScheduler}, which only holds it weakly. Only every n-th message, as given by {@code
+ * consume.batch-sample-rate}, is looked at for an upstream trace id, and at most {@value
+ * #MAX_UPSTREAM_TRACE_IDS} distinct ids are kept.
+ */
+public class ConsumerBatches {
+  static final int MAX_UPSTREAM_TRACE_IDS = 10;
+  private static final long MIN_SWEEP_MILLIS = 100;
+  // Datadog propagation header, the trace id is read without extracting a full context
+  private static final String TRACE_ID_KEY = "x-datadog-trace-id";
+
+  private final boolean enabled;
+  private final int batchSize;
+  private final long batchMillis;
+  private final int sampleInterval;
+
+  private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+  // batches of all threads, for the sweeper
+  private final Set<Batch> openBatches =
+      Collections.newSetFromMap(new ConcurrentHashMap<Batch, Boolean>());
+  // held here, the scheduler drops it once this class's class loader is collected
+  private final Sweeper sweeper = new Sweeper();
+
+  public ConsumerBatches(final String integrationName) {
+    final String prefix = "integration." + integrationName + ".consume.";
+    enabled = ConsumeMode.BATCH.equals(ConsumeMode.get(integrationName, ConsumeMode.BATCH));
+    batchSize = (int) Math.max(1, longSetting(prefix + "batch-size", 100));
+    batchMillis = longSetting(prefix + "batch-millis", 1000);
+    final float sampleRate = Config.get().getFloatSetting(prefix + "batch-sample-rate", 0.1f);
+    sampleInterval = sampleRate <= 0 ? 0 : Math.max(1, Math.round(1 / sampleRate));
+    if (enabled) {
+      AgentTaskScheduler.weakScheduleAtFixedRate(
+          sweeper, Math.max(MIN_SWEEP_MILLIS, batchMillis), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private static long longSetting(final String name, final long defaultValue) {
+    final String value = Config.get().getSetting(name, null);
+    try {
+      return value == null ? defaultValue : Long.parseLong(value.trim());
+    } catch (final NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param key destination the message was consumed from
+   * @return the thread's open batch for this destination, or null if a new one must be started
+   */
+  public Batch current(final Object key) {
+    final Batch batch = currentBatch.get();
+    if (batch == null) {
+      return null;
+    }
+    if ((key == null ? batch.key == null : key.equals(batch.key))
+        && !batch.finished
+        && !batch.isExpired(System.currentTimeMillis())) {
+      return batch;
+    }
+    flush();
+    return null;
+  }
+
+  /** @param span unfinished span covering the batch, finished by this class */
+  public Batch start(final Object key, final Span span) {
+    flush();
+    final Batch batch = new Batch(key, span);
+    currentBatch.set(batch);
+    openBatches.add(batch);
+    return batch;
+  }
+
+  /** Finish the thread's open batch, if any. */
+  public void flush() {
+    final Batch batch = currentBatch.get();
+    if (batch != null) {
+      currentBatch.remove();
+      batch.finish();
+    }
+  }
+
+  /** Finish the batches of all threads that are open for longer than {@code batch-millis}. */
+  void sweep() {
+    final long now = System.currentTimeMillis();
+    for (final Batch batch : openBatches) {
+      if (batch.isExpired(now)) {
+        // the owning thread drops it from its thread local on its next message
+        batch.finish();
+      }
+    }
+  }
+
+  private class Sweeper implements Runnable {
+    @Override
+    public void run() {
+      sweep();
+    }
+  }
+
+  public class Batch {
+    private final Object key;
+    private final Span span;
+    private final long startMillis;
+    private final Set<String> upstreamTraceIds = new LinkedHashSet<>();
+    private int messages;
+    private long bytes;
+    private int upstreamContexts;
+    private long endMicros;
+    // set under the batch's lock, the sweeper and the owning thread may both try to finish it
+    private volatile boolean finished;
+
+    private Batch(final Object key, final Span span) {
+      this.key = key;
+      this.span = span;
+      startMillis = System.currentTimeMillis();
+    }
+
+    public Span getSpan() {
+      return span;
+    }
+
+    private boolean isExpired(final long nowMillis) {
+      return nowMillis - startMillis > batchMillis;
+    }
+
+    /**
+     * Count a consumed message, the batch is finished when it's full. Messages that race with the
+     * sweeper finishing the batch are not counted.
+     *
+     * @param messageBytes size of the message body, 0 if unknown
+     * @param carrier headers of the message, only read if the message is sampled
+     */
+    public synchronized void add(final long messageBytes, final KeyedExtractAdapter carrier) {
+      if (finished) {
+        return;
+      }
+      if (carrier != null && sampleInterval > 0 && messages % sampleInterval == 0) {
+        final String traceId = carrier.get(TRACE_ID_KEY);
+        if (traceId != null) {
+          upstreamContexts++;
+          if (upstreamTraceIds.size() < MAX_UPSTREAM_TRACE_IDS) {
+            upstreamTraceIds.add(traceId);
+          }
+        }
+      }
+      messages++;
+      bytes += Math.max(0, messageBytes);
+      endMicros = System.currentTimeMillis() * 1000;
+      if (messages >= batchSize && currentBatch.get() == this) {
+        flush();
+      }
+    }
+
+    private synchronized void finish() {
+      if (finished) {
+        return;
+      }
+      finished = true;
+      openBatches.remove(this);
+      span.setTag(DDTags.MESSAGE_BATCH_SIZE, messages);
+      if (bytes > 0) {
+        span.setTag(DDTags.MESSAGE_BATCH_BYTES, bytes);
+      }
+      span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS, upstreamContexts);
+      if (!upstreamTraceIds.isEmpty()) {
+        final StringBuilder ids = new StringBuilder();
+        for (final String id : upstreamTraceIds) {
+          if (ids.length() > 0) {
+            ids.append(',');
+          }
+          ids.append(id);
+        }
+        span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_TRACE_IDS, ids.toString());
+      }
+      if (endMicros > 0) {
+        span.finish(endMicros);
+      } else {
+        span.finish();
+      }
+    }
+  }
+}
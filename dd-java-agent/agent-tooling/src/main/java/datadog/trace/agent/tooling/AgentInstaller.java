@@ -8,6 +8,9 @@ import static net.bytebuddy.matcher.ElementMatchers.nameStartsWith;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.not;
 
+import datadog.trace.agent.tooling.cache.TransformedClassCache;
+import datadog.trace.agent.tooling.profiler.InstrumentationProfiler;
+import datadog.trace.api.Config;
 import datadog.trace.bootstrap.WeakMap;
 import java.lang.instrument.Instrumentation;
 import java.util.Map;
@@ -39,6 +42,11 @@ public class AgentInstaller {
   }
 
   public static ResettableClassFileTransformer installBytebuddyAgent(final Instrumentation inst) {
+    final Config config = Config.get();
+    if (config.isStartupProfilingEnabled()) {
+      return installBytebuddyAgent(
+          inst, InstrumentationProfiler.install(config.getStartupProfilingReportDelay()));
+    }
     return installBytebuddyAgent(inst, new AgentBuilder.Listener[0]);
   }
 
@@ -116,23 +124,34 @@ public class AgentInstaller {
     for (final AgentBuilder.Listener listener : listeners) {
       agentBuilder = agentBuilder.with(listener);
     }
+    final TransformedClassCache classCache =
+        TransformedClassCache.install(Config.get().getClassCacheDir());
+    if (classCache != null) {
+      agentBuilder = agentBuilder.with(classCache);
+    }
     int numInstrumenters = 0;
     for (final Instrumenter instrumenter : ServiceLoader.load(Instrumenter.class)) {
       log.debug("Loading instrumentation {}", instrumenter.getClass().getName());
+      final AgentBuilder previous = agentBuilder;
       agentBuilder = instrumenter.instrument(agentBuilder);
+      // disabled instrumenters hand back the builder unchanged
+      if (classCache != null && agentBuilder != previous) {
+        classCache.registerInstrumenter(instrumenter.getClass().getName());
+      }
       numInstrumenters++;
     }
     log.debug("Installed {} instrumenter(s)", numInstrumenters);
+    if (classCache != null) {
+      classCache.activate();
+    }
 
     return agentBuilder.installOn(inst);
   }
 
   private static void registerWeakMapProvider() {
     if (!WeakMap.Provider.isProviderRegistered()) {
-      WeakMap.Provider.registerIfAbsent(new WeakMapSuppliers.WeakConcurrent());
+      WeakMap.Provider.registerIfAbsent(WeakMapSuppliers.forConfig(Config.get()));
     }
-    //    WeakMap.Provider.registerIfAbsent(new WeakMapSuppliers.WeakConcurrent.Inline());
-    //    WeakMap.Provider.registerIfAbsent(new WeakMapSuppliers.Guava());
   }
 
   @Slf4j
@@ -0,0 +1,72 @@
+package datadog.trace.agent.tooling;
+
+import static net.bytebuddy.matcher.ElementMatchers.named;
+
+import datadog.trace.agent.tooling.cache.TransformedClassCache;
+import datadog.trace.bootstrap.CallDepthThreadLocalMap;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.annotation.AnnotationDescription;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.method.ParameterDescription;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.implementation.bytecode.constant.IntegerConstant;
+
+/**
+ * Binds an {@code int} advice parameter to the {@link CallDepthThreadLocalMap} slot of the given
+ * class. The slot is resolved when the advice is applied and inlined as a constant, so the advice
+ * can track its call depth with {@link CallDepthThreadLocalMap#incrementCallDepth(int)} and {@link
+ * CallDepthThreadLocalMap#reset(int)} without any lookup:
+ *
+ * <pre>
+ * &#64;Advice.OnMethodEnter
+ * public static void enter(&#64;CallDepthSlot(Statement.class) final int callDepthSlot) {
+ *   if (CallDepthThreadLocalMap.incrementCallDepth(callDepthSlot) > 0) { ... }
+ * }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.PARAMETER)
+public @interface CallDepthSlot {
+
+  /** The class whose nested calls are tracked, it is never loaded by the agent. */
+  Class<?> value();
+
+  class Factory implements Advice.OffsetMapping.Factory<CallDepthSlot> {
+    public static final Factory INSTANCE = new Factory();
+
+    private static final MethodDescription.InDefinedShape VALUE =
+        new TypeDescription.ForLoadedType(CallDepthSlot.class)
+            .getDeclaredMethods()
+            .filter(named("value"))
+            .getOnly();
+
+    private static final TypeDescription.Generic INT = TypeDefinition.Sort.describe(int.class);
+
+    @Override
+    public Class<CallDepthSlot> getAnnotationType() {
+      return CallDepthSlot.class;
+    }
+
+    @Override
+    public Advice.OffsetMapping make(
+        final ParameterDescription.InDefinedShape target,
+        final AnnotationDescription.Loadable<CallDepthSlot> annotation,
+        final AdviceType adviceType) {
+      if (!target.getType().represents(int.class)) {
+        throw new IllegalStateException(
+            "@" + CallDepthSlot.class.getSimpleName() + " requires an int parameter: " + target);
+      }
+      final String key = annotation.getValue(VALUE).resolve(TypeDescription.class).getName();
+      final int slot = CallDepthThreadLocalMap.slotFor(key);
+      // the slot ends up in the transformed bytes, which may be cached
+      TransformedClassCache.recordCallDepthSlot(key, slot);
+      return new Advice.OffsetMapping.ForStackManipulation(
+          IntegerConstant.forValue(slot), INT, target.getType());
+    }
+  }
+}
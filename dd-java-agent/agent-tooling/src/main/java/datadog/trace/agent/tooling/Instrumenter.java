@@ -1,12 +1,16 @@
 package datadog.trace.agent.tooling;
 
 import static datadog.trace.agent.tooling.ByteBuddyElementMatchers.failSafe;
+import static datadog.trace.agent.tooling.profiler.InstrumentationProfiler.timed;
 import static net.bytebuddy.matcher.ElementMatchers.any;
 
+import datadog.trace.agent.tooling.cache.TransformedClassCache;
 import datadog.trace.agent.tooling.context.FieldBackedProvider;
 import datadog.trace.agent.tooling.context.InstrumentationContextProvider;
 import datadog.trace.agent.tooling.muzzle.Reference;
 import datadog.trace.agent.tooling.muzzle.ReferenceMatcher;
+import datadog.trace.agent.tooling.profiler.InstrumentationProfiler;
+import datadog.trace.agent.tooling.profiler.InstrumentationProfiler.Phase;
 import datadog.trace.api.Config;
 import java.security.ProtectionDomain;
 import java.util.Arrays;
@@ -17,6 +21,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import lombok.extern.slf4j.Slf4j;
 import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
 import net.bytebuddy.matcher.ElementMatcher;
@@ -52,7 +57,7 @@ public interface Instrumenter {
       instrumentationNames.add(instrumentationName);
       instrumentationPrimaryName = instrumentationName;
 
-      enabled = Config.integrationEnabled(instrumentationNames, defaultEnabled());
+      enabled = Config.get().isIntegrationEnabled(instrumentationNames, defaultEnabled());
       contextProvider = new FieldBackedProvider(this);
     }
 
@@ -63,19 +68,35 @@ public interface Instrumenter {
         return parentAgentBuilder;
       }
 
+      final String instrumenterName = getClass().getName();
       AgentBuilder.Identified.Extendable agentBuilder =
           parentAgentBuilder
               .type(
-                  failSafe(
-                      typeMatcher(),
-                      "Instrumentation type matcher unexpected exception: " + getClass().getName()),
-                  failSafe(
-                      classLoaderMatcher(),
-                      "Instrumentation class loader matcher unexpected exception: "
-                          + getClass().getName()))
-              .and(new MuzzleMatcher())
-              .and(new PostMatchHook())
+                  timed(
+                      instrumenterName,
+                      Phase.TYPE_MATCHING,
+                      failSafe(
+                          typeMatcher(),
+                          "Instrumentation type matcher unexpected exception: "
+                              + getClass().getName())),
+                  timed(
+                      instrumenterName,
+                      Phase.TYPE_MATCHING,
+                      failSafe(
+                          TransformedClassCache.classLoaderCondition(
+                              instrumenterName, classLoaderMatcher()),
+                          "Instrumentation class loader matcher unexpected exception: "
+                              + getClass().getName())))
+              .and(
+                  timed(
+                      instrumenterName,
+                      Phase.MUZZLE,
+                      TransformedClassCache.muzzleCondition(instrumenterName, new MuzzleMatcher())))
+              .and(new PostMatchHook(true))
               .transform(DDTransformers.defaultTransformers());
+      if (overridesPostMatch()) {
+        TransformedClassCache.postMatchHook(instrumenterName, new PostMatchHook(false));
+      }
       agentBuilder = injectHelperClasses(agentBuilder);
       agentBuilder = contextProvider.instrumentationTransformer(agentBuilder);
       agentBuilder = applyInstrumentationTransformers(agentBuilder);
@@ -87,7 +108,14 @@ public interface Instrumenter {
         AgentBuilder.Identified.Extendable agentBuilder) {
       final String[] helperClassNames = helperClassNames();
       if (helperClassNames.length > 0) {
-        agentBuilder = agentBuilder.transform(new HelperInjector(helperClassNames));
+        agentBuilder =
+            agentBuilder.transform(
+                TransformedClassCache.helperInjector(
+                    getClass().getName(),
+                    timed(
+                        getClass().getName(),
+                        Phase.HELPER_INJECTION,
+                        helperInjector(helperClassNames))));
       }
       return agentBuilder;
     }
@@ -97,10 +125,14 @@ public interface Instrumenter {
       for (final Map.Entry<? extends ElementMatcher, String> entry : transformers().entrySet()) {
         agentBuilder =
             agentBuilder.transform(
-                new AgentBuilder.Transformer.ForAdvice()
-                    .include(Utils.getAgentClassLoader())
-                    .withExceptionHandler(ExceptionHandlers.defaultExceptionHandler())
-                    .advice(entry.getKey(), entry.getValue()));
+                timed(
+                    getClass().getName(),
+                    Phase.ADVICE,
+                    new AgentBuilder.Transformer.ForAdvice(
+                            Advice.withCustomMapping().bind(CallDepthSlot.Factory.INSTANCE))
+                        .include(Utils.getAgentClassLoader())
+                        .withExceptionHandler(ExceptionHandlers.defaultExceptionHandler())
+                        .advice(entry.getKey(), entry.getValue())));
       }
       return agentBuilder;
     }
@@ -146,7 +178,31 @@ public interface Instrumenter {
       }
     }
 
+    private boolean overridesPostMatch() {
+      try {
+        return getClass()
+                .getMethod(
+                    "postMatch",
+                    TypeDescription.class,
+                    ClassLoader.class,
+                    JavaModule.class,
+                    Class.class,
+                    ProtectionDomain.class)
+                .getDeclaringClass()
+            != Default.class;
+      } catch (final NoSuchMethodException e) {
+        return true;
+      }
+    }
+
     private class PostMatchHook implements AgentBuilder.RawMatcher {
+      // false when replayed for a class served from the transformed class cache
+      private final boolean recordMatch;
+
+      private PostMatchHook(final boolean recordMatch) {
+        this.recordMatch = recordMatch;
+      }
+
       @Override
       public boolean matches(
           final TypeDescription typeDescription,
@@ -154,6 +210,11 @@ public interface Instrumenter {
           final JavaModule module,
           final Class<?> classBeingRedefined,
           final ProtectionDomain protectionDomain) {
+        if (recordMatch) {
+          final String instrumenterName = Instrumenter.Default.this.getClass().getName();
+          InstrumentationProfiler.recordMatch(instrumenterName);
+          TransformedClassCache.recordMatch(instrumenterName);
+        }
         postMatch(typeDescription, classLoader, module, classBeingRedefined, protectionDomain);
         return true;
       }
@@ -173,6 +234,15 @@ public interface Instrumenter {
       return new String[0];
     }
 
+    /**
+     * @param helperClassNames the names returned by {@link #helperClassNames()}
+     * @return the transformer injecting the helper classes. Instrumentations which need to adapt
+     *     the helper bytes to the user's classloader can override this.
+     */
+    protected HelperInjector helperInjector(final String[] helperClassNames) {
+      return new HelperInjector(helperClassNames);
+    }
+
     /** @return A type matcher used to match the classloader under transform */
     public ElementMatcher<ClassLoader> classLoaderMatcher() {
       return any();
@@ -212,7 +282,7 @@ public interface Instrumenter {
     }
 
     protected boolean defaultEnabled() {
-      return Config.getBooleanSettingFromEnvironment("integrations.enabled", true);
+      return Config.get().getBooleanSetting("integrations.enabled", true);
     }
   }
 }
@@ -3,6 +3,8 @@ package datadog.trace.agent.tooling;
 import com.blogspot.mydailyjava.weaklockfree.WeakConcurrentMap;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.MapMaker;
+import datadog.trace.api.Config;
+import datadog.trace.bootstrap.StripedWeakIdentityMap;
 import datadog.trace.bootstrap.WeakMap;
 import java.lang.ref.WeakReference;
 import java.util.Iterator;
@@ -13,7 +15,9 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 class WeakMapSuppliers {
   // Comparison with using WeakConcurrentMap vs Guava's implementation:
   // Cleaning:
@@ -30,6 +34,40 @@ class WeakMapSuppliers {
   // * `WeakConcurrentMap`: anecdotally used by other agents
   // * `Guava`: specifically agent use is unknown at the moment, but Guava is a well known library
   //            backed by big company with many-many users
+  //
+  // `Striped` is our own map from agent-bootstrap: it cleans inline like Guava, amortized over
+  // regular reads and writes, without the jar size or shading concerns, so it is the default.
+
+  /**
+   * @return the supplier selected by {@link Config#getWeakMapType()}, falling back to {@link
+   *     Striped} for unknown types
+   */
+  static WeakMap.Supplier forConfig(final Config config) {
+    final String type = config.getWeakMapType();
+    if (Config.WEAK_CONCURRENT_WEAK_MAP_TYPE.equalsIgnoreCase(type)) {
+      return new WeakConcurrent();
+    } else if (Config.WEAK_CONCURRENT_INLINE_WEAK_MAP_TYPE.equalsIgnoreCase(type)) {
+      return new WeakConcurrent.Inline();
+    } else if (Config.GUAVA_WEAK_MAP_TYPE.equalsIgnoreCase(type)) {
+      return new Guava();
+    }
+    if (!Config.STRIPED_WEAK_MAP_TYPE.equalsIgnoreCase(type)) {
+      log.warn("Unknown weak map type {}, using {}", type, Config.STRIPED_WEAK_MAP_TYPE);
+    }
+    return new Striped();
+  }
+
+  /**
+   * Provides instances of {@link StripedWeakIdentityMap}, which expunge collected keys on the
+   * calling thread, amortized over regular map operations, so no cleaner thread is needed.
+   */
+  static class Striped implements WeakMap.Supplier {
+
+    @Override
+    public <K, V> WeakMap<K, V> get() {
+      return new StripedWeakIdentityMap<>();
+    }
+  }
 
   /**
    * Provides instances of {@link WeakConcurrentMap} and retains weak reference to them to allow a
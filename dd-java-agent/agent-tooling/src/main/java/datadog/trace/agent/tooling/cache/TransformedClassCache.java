@@ -0,0 +1,745 @@
+package datadog.trace.agent.tooling.cache;
+
+import static net.bytebuddy.matcher.ElementMatchers.any;
+
+import datadog.trace.agent.tooling.DDJavaAgentInfo;
+import datadog.trace.agent.tooling.DDLocationStrategy;
+import datadog.trace.api.Config;
+import datadog.trace.bootstrap.CallDepthThreadLocalMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.description.type.TypeDefinition;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.pool.TypePool;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Opt-in on-disk cache of transformed class bytes that survives JVM restarts.
+ *
+ * <p>Entries are keyed by the SHA-1 of the original class bytes and live in a sub-directory
+ * specific to the agent version, the set of enabled instrumenters and the {@code dd.} settings
+ * (see {@link #fingerprint}). Only classes being loaded for the first time are served from or
+ * stored into the cache, retransformations always go through the agent builder.
+ *
+ * <p>A cache hit bypasses the agent builder entirely, so everything a transformation does besides
+ * producing bytes is stored along with them and replayed on a hit:
+ *
+ * <ul>
+ *   <li>the post match hooks and helper injectors of the instrumenters that applied to the class,
+ *   <li>the {@link CallDepthThreadLocalMap} slots inlined into the bytes, which are reserved again.
+ * </ul>
+ *
+ * <p>Which instrumenters apply also depends on the class loader, through their class loader
+ * matchers and muzzle checks. Their results are stored with the entry and evaluated again for the
+ * loading class loader on a hit, which is served only if they are all the same.
+ *
+ * <p>Type matchers look at the class bytes, and hierarchy matchers such as {@code
+ * safeHasSuperType} also at its supertypes, which may come from other jars. So the names and bytes
+ * of all supertypes, as located from the loading class loader, are hashed into the entry, and a
+ * hit is only served while that hash is the same.
+ */
+@Slf4j
+public class TransformedClassCache implements AgentBuilder.TransformerDecorator {
+  private static final int MAGIC = 0xDDCAC4E4;
+  private static final String ENTRY_SUFFIX = ".class.cache";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private static final int CLASS_LOADER_CONDITION = 0;
+  private static final int MUZZLE_CONDITION = 1;
+
+  private static final Set<String> REPORTING_SETTINGS =
+      new HashSet<>(
+          Arrays.asList(
+              settingName(Config.CLASS_CACHE_DIR),
+              settingName(Config.AGENT_HOST),
+              settingName(Config.TRACE_AGENT_PORT),
+              settingName(Config.AGENT_PORT_LEGACY),
+              settingName(Config.JMX_FETCH_STATSD_HOST),
+              settingName(Config.JMX_FETCH_STATSD_PORT),
+              settingName(Config.HEALTH_METRICS_STATSD_HOST),
+              settingName(Config.HEALTH_METRICS_STATSD_PORT),
+              settingName(Config.STARTUP_PROFILING_ENABLED),
+              settingName(Config.STARTUP_PROFILING_REPORT_DELAY)));
+
+  private static volatile TransformedClassCache INSTANCE = null;
+
+  private final File baseDirectory;
+  private final DDLocationStrategy locationStrategy = new DDLocationStrategy();
+  private final SortedSet<String> instrumenterNames = new TreeSet<>();
+
+  /** instrumenter-name -> what to replay and check again when a cached class is returned */
+  private final ConcurrentMap<String, Replay> replays = new ConcurrentHashMap<>();
+
+  /** internal names of classes with at least one entry in the cache directory */
+  private final Set<String> cachedClassNames =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+  private final ThreadLocal<Transformation> currentTransformation = new ThreadLocal<>();
+
+  private volatile File directory = null;
+
+  /**
+   * Install the cache so instrumenters added to the agent builder afterwards register their side
+   * effects with it.
+   *
+   * @param baseDirectory root of the cache, or {@code null} to leave caching disabled
+   * @return the cache, to be registered as transformer decorator, or {@code null} when disabled
+   */
+  public static synchronized TransformedClassCache install(final String baseDirectory) {
+    if (INSTANCE == null && baseDirectory != null && !baseDirectory.trim().isEmpty()) {
+      INSTANCE = new TransformedClassCache(new File(baseDirectory.trim()));
+    }
+    return INSTANCE;
+  }
+
+  /** @return the installed cache, or {@code null} when caching is disabled */
+  public static TransformedClassCache get() {
+    return INSTANCE;
+  }
+
+  /**
+   * Register a helper injecting transformer so it is replayed when a class transformed by the
+   * given instrumenter is served from the cache.
+   *
+   * @return the given injector
+   */
+  public static AgentBuilder.Transformer helperInjector(
+      final String instrumenter, final AgentBuilder.Transformer injector) {
+    final TransformedClassCache cache = INSTANCE;
+    if (cache != null) {
+      cache.addHelperInjector(instrumenter, injector);
+    }
+    return injector;
+  }
+
+  /**
+   * Register the post match hook of an instrumenter so it is replayed when a class transformed by
+   * that instrumenter is served from the cache.
+   *
+   * @return the given hook
+   */
+  public static AgentBuilder.RawMatcher postMatchHook(
+      final String instrumenter, final AgentBuilder.RawMatcher hook) {
+    final TransformedClassCache cache = INSTANCE;
+    if (cache != null) {
+      cache.addPostMatchHook(instrumenter, hook);
+    }
+    return hook;
+  }
+
+  /**
+   * Wrap the class loader matcher of an instrumenter so its result is stored with the classes
+   * transformed meanwhile, and checked again when they are served from the cache.
+   */
+  public static ElementMatcher<ClassLoader> classLoaderCondition(
+      final String instrumenter, final ElementMatcher<ClassLoader> matcher) {
+    final TransformedClassCache cache = INSTANCE;
+    return cache == null ? matcher : cache.conditionOnClassLoader(instrumenter, matcher);
+  }
+
+  /**
+   * Wrap the muzzle matcher of an instrumenter so its result is stored with the classes
+   * transformed meanwhile, and checked again when they are served from the cache.
+   */
+  public static AgentBuilder.RawMatcher muzzleCondition(
+      final String instrumenter, final AgentBuilder.RawMatcher matcher) {
+    final TransformedClassCache cache = INSTANCE;
+    return cache == null ? matcher : cache.conditionOnMuzzle(instrumenter, matcher);
+  }
+
+  /**
+   * Record that the given instrumenter matched the class currently being transformed on this
+   * thread.
+   */
+  public static void recordMatch(final String instrumenter) {
+    final TransformedClassCache cache = INSTANCE;
+    if (cache != null) {
+      cache.matched(instrumenter);
+    }
+  }
+
+  /**
+   * Record that a call depth slot was inlined into the class currently being transformed on this
+   * thread.
+   */
+  public static void recordCallDepthSlot(final String key, final int slot) {
+    final TransformedClassCache cache = INSTANCE;
+    if (cache != null) {
+      cache.callDepthSlotInlined(key, slot);
+    }
+  }
+
+  TransformedClassCache(final File baseDirectory) {
+    this.baseDirectory = baseDirectory;
+  }
+
+  void addHelperInjector(final String instrumenter, final AgentBuilder.Transformer injector) {
+    replay(instrumenter).helperInjectors.add(injector);
+  }
+
+  void addPostMatchHook(final String instrumenter, final AgentBuilder.RawMatcher hook) {
+    replay(instrumenter).postMatchHooks.add(hook);
+  }
+
+  ElementMatcher<ClassLoader> conditionOnClassLoader(
+      final String instrumenter, final ElementMatcher<ClassLoader> matcher) {
+    if (matcher.equals(any())) {
+      return matcher;
+    }
+    replay(instrumenter).classLoaderMatcher = matcher;
+    return new ConditionMatcher<>(this, instrumenter, CLASS_LOADER_CONDITION, matcher);
+  }
+
+  AgentBuilder.RawMatcher conditionOnMuzzle(
+      final String instrumenter, final AgentBuilder.RawMatcher matcher) {
+    replay(instrumenter).muzzleMatcher = matcher;
+    return new ConditionRawMatcher(this, instrumenter, matcher);
+  }
+
+  void matched(final String instrumenter) {
+    final Transformation transformation = currentTransformation.get();
+    if (transformation != null) {
+      transformation.instrumenters.add(instrumenter);
+    }
+  }
+
+  void callDepthSlotInlined(final String key, final int slot) {
+    final Transformation transformation = currentTransformation.get();
+    if (transformation != null) {
+      transformation.callDepthSlots.put(key, slot);
+    }
+  }
+
+  void conditionEvaluated(final String instrumenter, final int condition, final boolean result) {
+    final Transformation transformation = currentTransformation.get();
+    if (transformation != null) {
+      transformation.conditions.put(new Condition(instrumenter, condition), result);
+    }
+  }
+
+  private Replay replay(final String instrumenter) {
+    Replay replay = replays.get(instrumenter);
+    if (replay == null) {
+      final Replay created = new Replay();
+      replay = replays.putIfAbsent(instrumenter, created);
+      if (replay == null) {
+        replay = created;
+      }
+    }
+    return replay;
+  }
+
+  /** Record an instrumenter which contributed to the agent builder. */
+  public void registerInstrumenter(final String instrumenter) {
+    instrumenterNames.add(instrumenter);
+  }
+
+  /**
+   * Start serving from the cache once all instrumenters are registered.
+   *
+   * @return true if the cache directory is usable
+   */
+  public boolean activate() {
+    return activate(DDJavaAgentInfo.VERSION, Config.get());
+  }
+
+  boolean activate(final String agentVersion, final Config config) {
+    if (agentVersion == null || "unknown".equals(agentVersion)) {
+      log.warn("Agent version is unknown, transformed class cache is disabled");
+      return false;
+    }
+    final StringBuilder key = new StringBuilder();
+    for (final String instrumenter : instrumenterNames) {
+      key.append(instrumenter).append(',');
+    }
+    key.append(fingerprint(config));
+    final File dir =
+        new File(
+            baseDirectory,
+            agentVersion.replaceAll("[^a-zA-Z0-9._-]", "_")
+                + "-"
+                + sha1(key.toString().getBytes(UTF_8)).substring(0, 16));
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      log.warn("Unable to create transformed class cache directory {}", dir);
+      return false;
+    }
+
+    final String[] entries = dir.list();
+    if (entries != null) {
+      for (final String entry : entries) {
+        final int separator = entry.lastIndexOf('-');
+        if (entry.endsWith(ENTRY_SUFFIX) && separator > 0) {
+          cachedClassNames.add(entry.substring(0, separator).replace('.', '/'));
+        }
+      }
+    }
+    directory = dir;
+    log.debug(
+        "Transformed class cache {} active with {} cached class(es)",
+        dir,
+        cachedClassNames.size());
+    return true;
+  }
+
+  /**
+   * Settings which may shape transformed classes, in a stable order. That is all {@code dd.}
+   * settings, except those known to only configure where the tracer reports to, so instances
+   * differing only by these still share the cache.
+   */
+  static String fingerprint(final Config config) {
+    final StringBuilder fingerprint = new StringBuilder();
+    for (final Map.Entry<String, String> setting : config.getSettings().entrySet()) {
+      if (!REPORTING_SETTINGS.contains(setting.getKey())) {
+        fingerprint.append(setting.getKey()).append('=').append(setting.getValue()).append('\n');
+      }
+    }
+    return fingerprint.toString();
+  }
+
+  @Override
+  public ResettableClassFileTransformer decorate(
+      final ResettableClassFileTransformer classFileTransformer) {
+    return new CachingTransformer(classFileTransformer, this);
+  }
+
+  byte[] transform(
+      final ClassFileTransformer delegate,
+      final ClassLoader loader,
+      final String className,
+      final Class<?> classBeingRedefined,
+      final ProtectionDomain protectionDomain,
+      final byte[] classfileBuffer)
+      throws IllegalClassFormatException {
+    final File dir = directory;
+    if (dir == null || className == null || classBeingRedefined != null) {
+      return delegate.transform(
+          loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    }
+
+    String hash = null;
+    if (cachedClassNames.contains(className)) {
+      hash = sha1(classfileBuffer);
+      final Entry entry = read(entryFile(dir, className, hash));
+      if (entry != null
+          && entry.hierarchy.equals(hierarchy(loader, className, classfileBuffer))
+          && replaySideEffects(entry, className, loader, protectionDomain, classfileBuffer)) {
+        return entry.bytes;
+      }
+    }
+
+    final Transformation previous = currentTransformation.get();
+    final Transformation transformation = new Transformation();
+    currentTransformation.set(transformation);
+    final byte[] result;
+    try {
+      result =
+          delegate.transform(
+              loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    } finally {
+      currentTransformation.set(previous);
+    }
+
+    // A transformation without recorded instrumenters could have side effects we cannot replay.
+    if (result != null && !transformation.instrumenters.isEmpty()) {
+      final String hierarchy = hierarchy(loader, className, classfileBuffer);
+      if (hierarchy != null) {
+        if (hash == null) {
+          hash = sha1(classfileBuffer);
+        }
+        write(
+            dir,
+            className,
+            hash,
+            new Entry(
+                new ArrayList<>(transformation.instrumenters),
+                transformation.callDepthSlots,
+                transformation.conditions,
+                hierarchy,
+                result));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Hash the names and bytes of all supertypes of a class, located the way the agent builder
+   * locates them for type matching.
+   *
+   * @return the SHA-1 in hex, or {@code null} if the class or one of its supertypes can't be parsed
+   */
+  String hierarchy(final ClassLoader loader, final String className, final byte[] classfileBuffer) {
+    final ClassFileLocator locator = locationStrategy.classFileLocator(loader);
+    final MessageDigest digest = sha1Digest();
+    final Set<String> visited = new HashSet<>();
+    final Deque<TypeDescription> pending = new ArrayDeque<>();
+    try {
+      pending.push(describe(className, classfileBuffer));
+      while (!pending.isEmpty()) {
+        final TypeDescription type = pending.pop();
+        final List<String> supertypes = new ArrayList<>();
+        final TypeDefinition superClass = type.getSuperClass();
+        if (superClass != null) {
+          supertypes.add(superClass.asErasure().getName());
+        }
+        for (final TypeDescription superInterface : type.getInterfaces().asErasures()) {
+          supertypes.add(superInterface.getName());
+        }
+        for (final String supertype : supertypes) {
+          if (!visited.add(supertype)) {
+            continue;
+          }
+          digest.update(supertype.getBytes(UTF_8));
+          final ClassFileLocator.Resolution resolution = locator.locate(supertype);
+          if (resolution.isResolved()) {
+            final byte[] bytes = resolution.resolve();
+            digest.update((byte) 1);
+            digest.update(bytes);
+            pending.push(describe(supertype, bytes));
+          } else {
+            // a missing supertype matters too, it may show up with a new dependency
+            digest.update((byte) 0);
+          }
+        }
+      }
+    } catch (final Exception e) {
+      log.debug("Failed to resolve the hierarchy of {}, not caching it", className, e);
+      return null;
+    }
+    return hex(digest.digest());
+  }
+
+  private boolean replaySideEffects(
+      final Entry entry,
+      final String className,
+      final ClassLoader loader,
+      final ProtectionDomain protectionDomain,
+      final byte[] classfileBuffer) {
+    for (final String instrumenter : entry.instrumenters) {
+      if (!instrumenterNames.contains(instrumenter)) {
+        return false;
+      }
+    }
+    try {
+      for (final Map.Entry<Condition, Boolean> condition : entry.conditions.entrySet()) {
+        if (evaluate(condition.getKey(), loader, protectionDomain) != condition.getValue()) {
+          // the classpath around this class changed, so did the instrumenters applying to it
+          return false;
+        }
+      }
+      for (final Map.Entry<String, Integer> slot : entry.callDepthSlots.entrySet()) {
+        if (!CallDepthThreadLocalMap.reserveSlot(slot.getKey(), slot.getValue())) {
+          // the slot is already used for another key in this JVM
+          return false;
+        }
+      }
+      TypeDescription typeDescription = null;
+      for (final String instrumenter : entry.instrumenters) {
+        final Replay replay = replays.get(instrumenter);
+        if (replay == null) {
+          continue;
+        }
+        for (final AgentBuilder.RawMatcher hook : replay.postMatchHooks) {
+          if (typeDescription == null) {
+            typeDescription = describe(className, classfileBuffer);
+          }
+          hook.matches(typeDescription, loader, null, null, protectionDomain);
+        }
+        for (final AgentBuilder.Transformer injector : replay.helperInjectors) {
+          injector.transform(null, null, loader, null);
+        }
+      }
+      return true;
+    } catch (final Exception e) {
+      log.debug("Failed to replay side effects for cached class, transforming instead", e);
+      return false;
+    }
+  }
+
+  private boolean evaluate(
+      final Condition condition,
+      final ClassLoader loader,
+      final ProtectionDomain protectionDomain) {
+    final Replay replay = replays.get(condition.instrumenter);
+    if (replay == null) {
+      throw new IllegalStateException("No matcher registered for " + condition.instrumenter);
+    }
+    if (condition.type == CLASS_LOADER_CONDITION) {
+      return replay.classLoaderMatcher.matches(loader);
+    }
+    return replay.muzzleMatcher.matches(null, loader, null, null, protectionDomain);
+  }
+
+  private static TypeDescription describe(final String className, final byte[] classfileBuffer) {
+    final String typeName = className.replace('/', '.');
+    // post match hooks rarely look at the type, so it is only parsed when they do
+    return TypePool.Default.WithLazyResolution.of(
+            ClassFileLocator.Simple.of(typeName, classfileBuffer))
+        .describe(typeName)
+        .resolve();
+  }
+
+  private static File entryFile(final File dir, final String className, final String hash) {
+    return new File(dir, className.replace('/', '.') + "-" + hash + ENTRY_SUFFIX);
+  }
+
+  private static Entry read(final File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (final DataInputStream in =
+        new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        return null;
+      }
+      final int instrumenterCount = in.readInt();
+      final List<String> instrumenters = new ArrayList<>(instrumenterCount);
+      for (int i = 0; i < instrumenterCount; i++) {
+        instrumenters.add(in.readUTF());
+      }
+      final int slotCount = in.readInt();
+      final Map<String, Integer> callDepthSlots = new LinkedHashMap<>(slotCount);
+      for (int i = 0; i < slotCount; i++) {
+        callDepthSlots.put(in.readUTF(), in.readInt());
+      }
+      final int conditionCount = in.readInt();
+      final Map<Condition, Boolean> conditions = new LinkedHashMap<>(conditionCount);
+      for (int i = 0; i < conditionCount; i++) {
+        conditions.put(new Condition(in.readUTF(), in.readInt()), in.readBoolean());
+      }
+      final String hierarchy = in.readUTF();
+      final byte[] bytes = new byte[in.readInt()];
+      in.readFully(bytes);
+      return new Entry(instrumenters, callDepthSlots, conditions, hierarchy, bytes);
+    } catch (final IOException e) {
+      log.debug("Failed to read transformed class cache entry {}", file, e);
+      return null;
+    }
+  }
+
+  private void write(final File dir, final String className, final String hash, final Entry entry) {
+    final File target = entryFile(dir, className, hash);
+    File temp = null;
+    try {
+      // Write to a temporary file first so concurrently starting JVMs never see partial entries.
+      temp = File.createTempFile("entry", ".tmp", dir);
+      try (final DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(entry.instrumenters.size());
+        for (final String instrumenter : entry.instrumenters) {
+          out.writeUTF(instrumenter);
+        }
+        out.writeInt(entry.callDepthSlots.size());
+        for (final Map.Entry<String, Integer> slot : entry.callDepthSlots.entrySet()) {
+          out.writeUTF(slot.getKey());
+          out.writeInt(slot.getValue());
+        }
+        out.writeInt(entry.conditions.size());
+        for (final Map.Entry<Condition, Boolean> condition : entry.conditions.entrySet()) {
+          out.writeUTF(condition.getKey().instrumenter);
+          out.writeInt(condition.getKey().type);
+          out.writeBoolean(condition.getValue());
+        }
+        out.writeUTF(entry.hierarchy);
+        out.writeInt(entry.bytes.length);
+        out.write(entry.bytes);
+      }
+      if (temp.renameTo(target) || target.isFile()) {
+        cachedClassNames.add(className);
+      }
+    } catch (final IOException e) {
+      log.debug("Failed to write transformed class cache entry {}", target, e);
+    } finally {
+      if (temp != null && temp.exists()) {
+        temp.delete();
+      }
+    }
+  }
+
+  private static String settingName(final String setting) {
+    return "dd." + setting;
+  }
+
+  static String sha1(final byte[] bytes) {
+    return hex(sha1Digest().digest(bytes));
+  }
+
+  private static MessageDigest sha1Digest() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(final byte[] digest) {
+    final char[] chars = new char[digest.length * 2];
+    for (int i = 0; i < digest.length; i++) {
+      chars[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+      chars[i * 2 + 1] = HEX[digest[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  private static final class Replay {
+    private final List<AgentBuilder.RawMatcher> postMatchHooks = new CopyOnWriteArrayList<>();
+    private final List<AgentBuilder.Transformer> helperInjectors = new CopyOnWriteArrayList<>();
+    private volatile ElementMatcher<ClassLoader> classLoaderMatcher;
+    private volatile AgentBuilder.RawMatcher muzzleMatcher;
+  }
+
+  @EqualsAndHashCode
+  private static final class Condition {
+    private final String instrumenter;
+    private final int type;
+
+    private Condition(final String instrumenter, final int type) {
+      this.instrumenter = instrumenter;
+      this.type = type;
+    }
+  }
+
+  private static final class Transformation {
+    private final Set<String> instrumenters = new LinkedHashSet<>();
+    private final Map<String, Integer> callDepthSlots = new LinkedHashMap<>();
+    private final Map<Condition, Boolean> conditions = new LinkedHashMap<>();
+  }
+
+  private static final class Entry {
+    private final List<String> instrumenters;
+    private final Map<String, Integer> callDepthSlots;
+    private final Map<Condition, Boolean> conditions;
+    private final String hierarchy;
+    private final byte[] bytes;
+
+    private Entry(
+        final List<String> instrumenters,
+        final Map<String, Integer> callDepthSlots,
+        final Map<Condition, Boolean> conditions,
+        final String hierarchy,
+        final byte[] bytes) {
+      this.instrumenters = instrumenters;
+      this.callDepthSlots = callDepthSlots;
+      this.conditions = conditions;
+      this.hierarchy = hierarchy;
+      this.bytes = bytes;
+    }
+  }
+
+  private static class ConditionMatcher<T> extends ElementMatcher.Junction.AbstractBase<T> {
+    private final TransformedClassCache cache;
+    private final String instrumenter;
+    private final int condition;
+    private final ElementMatcher<T> matcher;
+
+    private ConditionMatcher(
+        final TransformedClassCache cache,
+        final String instrumenter,
+        final int condition,
+        final ElementMatcher<T> matcher) {
+      this.cache = cache;
+      this.instrumenter = instrumenter;
+      this.condition = condition;
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matches(final T target) {
+      final boolean result = matcher.matches(target);
+      cache.conditionEvaluated(instrumenter, condition, result);
+      return result;
+    }
+  }
+
+  private static class ConditionRawMatcher implements AgentBuilder.RawMatcher {
+    private final TransformedClassCache cache;
+    private final String instrumenter;
+    private final AgentBuilder.RawMatcher matcher;
+
+    private ConditionRawMatcher(
+        final TransformedClassCache cache,
+        final String instrumenter,
+        final AgentBuilder.RawMatcher matcher) {
+      this.cache = cache;
+      this.instrumenter = instrumenter;
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matches(
+        final TypeDescription typeDescription,
+        final ClassLoader classLoader,
+        final JavaModule module,
+        final Class<?> classBeingRedefined,
+        final ProtectionDomain protectionDomain) {
+      final boolean result =
+          matcher.matches(
+              typeDescription, classLoader, module, classBeingRedefined, protectionDomain);
+      cache.conditionEvaluated(instrumenter, MUZZLE_CONDITION, result);
+      return result;
+    }
+  }
+
+  private static class CachingTransformer extends ResettableClassFileTransformer.WithDelegation {
+    private final TransformedClassCache cache;
+
+    private CachingTransformer(
+        final ResettableClassFileTransformer classFileTransformer,
+        final TransformedClassCache cache) {
+      super(classFileTransformer);
+      this.cache = cache;
+    }
+
+    @Override
+    public byte[] transform(
+        final ClassLoader loader,
+        final String className,
+        final Class<?> classBeingRedefined,
+        final ProtectionDomain protectionDomain,
+        final byte[] classfileBuffer)
+        throws IllegalClassFormatException {
+      return cache.transform(
+          classFileTransformer,
+          loader,
+          className,
+          classBeingRedefined,
+          protectionDomain,
+          classfileBuffer);
+    }
+  }
+}
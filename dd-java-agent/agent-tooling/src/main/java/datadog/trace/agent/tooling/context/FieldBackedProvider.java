@@ -9,11 +9,13 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 import datadog.trace.agent.tooling.HelperInjector;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.agent.tooling.Utils;
+import datadog.trace.agent.tooling.cache.TransformedClassCache;
 import datadog.trace.api.Config;
 import datadog.trace.bootstrap.ContextStore;
+import datadog.trace.bootstrap.ContextStoreStats;
 import datadog.trace.bootstrap.FieldBackedContextStoreAppliedMarker;
 import datadog.trace.bootstrap.InstrumentationContext;
-import datadog.trace.bootstrap.WeakMap;
+import datadog.trace.bootstrap.StripedWeakIdentityMap;
 import java.lang.reflect.Method;
 import java.security.ProtectionDomain;
 import java.util.Arrays;
@@ -47,7 +49,8 @@ import net.bytebuddy.utility.JavaModule;
 
 /**
  * InstrumentationContextProvider which stores context in a field that is injected into a class and
- * falls back to global map if field was not injected.
+ * falls back to global {@link StripedWeakIdentityMap} if field was not injected. When profiling,
+ * how often each store falls back to the map is tracked in {@link ContextStoreStats}.
  *
  * <p>This is accomplished by
  *
@@ -145,6 +148,12 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
   /** Get transformer that forces helper injection onto bootstrap classloader. */
   private AgentBuilder.Transformer bootstrapHelperInjector(
       final Collection<DynamicType.Unloaded<?>> helpers) {
+    return TransformedClassCache.helperInjector(
+        instrumenter.getClass().getName(), newBootstrapHelperInjector(helpers));
+  }
+
+  private static AgentBuilder.Transformer newBootstrapHelperInjector(
+      final Collection<DynamicType.Unloaded<?>> helpers) {
     return new AgentBuilder.Transformer() {
       final HelperInjector injector = HelperInjector.forDynamicTypes(helpers);
 
@@ -342,7 +351,7 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
                 .type(
                     safeHasSuperType(named(entry.getKey())).and(not(isInterface())),
                     instrumenter.classLoaderMatcher())
-                .and(safeToInjectFieldsMatcher())
+                .and(safeToInjectFieldsMatcher(instrumenter.getClass().getName()))
                 .transform(
                     getTransformerForASMVisitor(
                         getFieldInjectionVisitor(entry.getKey(), entry.getValue())));
@@ -351,7 +360,7 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
     return builder;
   }
 
-  private static AgentBuilder.RawMatcher safeToInjectFieldsMatcher() {
+  private static AgentBuilder.RawMatcher safeToInjectFieldsMatcher(final String instrumenterName) {
     return new AgentBuilder.RawMatcher() {
       @Override
       public boolean matches(
@@ -367,9 +376,15 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
         given class, not inherited from its parents. It looks like current JVM implementation does exactly
         this but javadoc is not explicit about that.
         */
-        return classBeingRedefined == null
-            || Arrays.asList(classBeingRedefined.getInterfaces())
-                .contains(FieldBackedContextStoreAppliedMarker.class);
+        final boolean safe =
+            classBeingRedefined == null
+                || Arrays.asList(classBeingRedefined.getInterfaces())
+                    .contains(FieldBackedContextStoreAppliedMarker.class);
+        if (safe) {
+          // Injected fields rely on accessor interfaces this instrumenter injects into bootstrap.
+          TransformedClassCache.recordMatch(instrumenterName);
+        }
+        return safe;
       }
     };
   }
@@ -765,12 +780,16 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
   private static final class ContextStoreImplementationTemplate
       implements ContextStore<Object, Object> {
     private static final ContextStoreImplementationTemplate INSTANCE =
-        new ContextStoreImplementationTemplate(WeakMap.Provider.newWeakMap());
+        new ContextStoreImplementationTemplate(new StripedWeakIdentityMap<Object, Object>());
 
-    private final WeakMap map;
+    private final StripedWeakIdentityMap<Object, Object> map;
+    private final ContextStoreStats stats;
 
-    private ContextStoreImplementationTemplate(final WeakMap map) {
+    private ContextStoreImplementationTemplate(final StripedWeakIdentityMap<Object, Object> map) {
       this.map = map;
+      // getClass() is the generated class, whose name identifies the key and context classes
+      stats =
+          ContextStoreStats.isEnabled() ? ContextStoreStats.forStore(getClass().getName()) : null;
     }
 
     @Override
@@ -831,15 +850,22 @@ public class FieldBackedProvider implements InstrumentationContextProvider {
     }
 
     private Object mapGet(final Object key) {
+      if (stats != null) {
+        stats.recordFallbackAccess();
+      }
       return map.get(key);
     }
 
     private void mapPut(final Object key, final Object value) {
+      if (stats != null) {
+        stats.recordFallbackAccess();
+      }
       map.put(key, value);
     }
 
     private Object mapSynchronizeInstance(final Object key) {
-      return map;
+      // only keys sharing a stripe of the fallback map contend
+      return map.mutexFor(key);
     }
 
     public static ContextStore getContextStore(final Class keyClass, final Class contextClass) {
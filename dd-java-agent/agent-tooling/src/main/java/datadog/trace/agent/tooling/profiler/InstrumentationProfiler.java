@@ -0,0 +1,447 @@
+package datadog.trace.agent.tooling.profiler;
+
+import datadog.trace.bootstrap.ContextStoreStats;
+import java.lang.management.ManagementFactory;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Opt-in profiler recording how much class transformation time each instrumenter costs.
+ *
+ * <p>Matchers and transformers of an instrumenter are wrapped when it is added to the agent
+ * builder, so their time is attributed to it directly. As a listener, the profiler additionally
+ * measures the complete transformation of every type (which is where advice actually gets woven).
+ * The time already recorded by the wrapped matchers and transformers, and by the transformation of
+ * types loaded meanwhile, is subtracted from it, and the rest is split evenly between the
+ * instrumenters that applied to that type. Phases therefore don't overlap and add up to the total.
+ *
+ * <p>A report sorted by total cost is logged once the configured startup delay has passed. The
+ * same report is available afterwards through JMX. It also lists how often each context store was
+ * served by its fallback map rather than an injected field.
+ */
+@Slf4j
+public class InstrumentationProfiler
+    implements AgentBuilder.Listener, InstrumentationProfilerMBean {
+
+  public enum Phase {
+    TYPE_MATCHING("matching"),
+    MUZZLE("muzzle"),
+    HELPER_INJECTION("helpers"),
+    ADVICE("advice"),
+    TRANSFORMATION("transform");
+
+    private final String label;
+
+    Phase(final String label) {
+      this.label = label;
+    }
+  }
+
+  private static final Phase[] PHASES = Phase.values();
+
+  static final String MBEAN_NAME = "datadog.trace.agent:type=InstrumentationProfiler";
+
+  private static volatile InstrumentationProfiler INSTANCE = null;
+
+  private final ConcurrentMap<String, Timings> timings = new ConcurrentHashMap<>();
+
+  private final ThreadLocal<Deque<Frame>> frames =
+      new ThreadLocal<Deque<Frame>>() {
+        @Override
+        protected Deque<Frame> initialValue() {
+          return new ArrayDeque<>();
+        }
+      };
+
+  /**
+   * Install the profiler so instrumenters added to the agent builder afterwards get timed.
+   *
+   * @param reportDelaySeconds seconds after which startup is considered complete and the report
+   *     is logged
+   * @return the profiler, to be registered as agent builder listener
+   */
+  public static synchronized InstrumentationProfiler install(final long reportDelaySeconds) {
+    if (INSTANCE == null) {
+      final InstrumentationProfiler profiler = new InstrumentationProfiler();
+      profiler.scheduleReport(reportDelaySeconds);
+      INSTANCE = profiler;
+    }
+    return INSTANCE;
+  }
+
+  /** @return the installed profiler, or {@code null} when profiling is disabled */
+  public static InstrumentationProfiler get() {
+    return INSTANCE;
+  }
+
+  /** Wrap a matcher so its time is recorded against the given instrumenter and phase. */
+  public static <T> ElementMatcher<T> timed(
+      final String instrumenter, final Phase phase, final ElementMatcher<T> matcher) {
+    final InstrumentationProfiler profiler = INSTANCE;
+    return profiler == null
+        ? matcher
+        : new TimedMatcher<>(profiler, profiler.timingsFor(instrumenter), phase, matcher);
+  }
+
+  /** Wrap a raw matcher so its time is recorded against the given instrumenter and phase. */
+  public static AgentBuilder.RawMatcher timed(
+      final String instrumenter, final Phase phase, final AgentBuilder.RawMatcher matcher) {
+    final InstrumentationProfiler profiler = INSTANCE;
+    return profiler == null
+        ? matcher
+        : new TimedRawMatcher(profiler, profiler.timingsFor(instrumenter), phase, matcher);
+  }
+
+  /** Wrap a transformer so its time is recorded against the given instrumenter and phase. */
+  public static AgentBuilder.Transformer timed(
+      final String instrumenter, final Phase phase, final AgentBuilder.Transformer transformer) {
+    final InstrumentationProfiler profiler = INSTANCE;
+    return profiler == null
+        ? transformer
+        : new TimedTransformer(profiler, profiler.timingsFor(instrumenter), phase, transformer);
+  }
+
+  /**
+   * Record that the given instrumenter matched the type currently being transformed on this
+   * thread, so it gets a share of the transformation time of that type.
+   */
+  public static void recordMatch(final String instrumenter) {
+    final InstrumentationProfiler profiler = INSTANCE;
+    if (profiler != null) {
+      final Frame frame = profiler.frames.get().peek();
+      if (frame != null) {
+        frame.matched.add(profiler.timingsFor(instrumenter));
+      }
+    }
+  }
+
+  /**
+   * Record time spent in a phase nested in the transformation of the current type, so it isn't
+   * counted again as transformation time.
+   */
+  void record(final Timings timing, final Phase phase, final long elapsedNanos) {
+    timing.record(phase, elapsedNanos);
+    final Frame frame = frames.get().peek();
+    if (frame != null) {
+      frame.nestedNanos += elapsedNanos;
+    }
+  }
+
+  Timings timingsFor(final String instrumenter) {
+    Timings result = timings.get(instrumenter);
+    if (result == null) {
+      final Timings created = new Timings(instrumenter);
+      result = timings.putIfAbsent(instrumenter, created);
+      if (result == null) {
+        result = created;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String getReport() {
+    final List<Timings> sorted = new ArrayList<>(timings.values());
+    Collections.sort(
+        sorted,
+        new Comparator<Timings>() {
+          @Override
+          public int compare(final Timings left, final Timings right) {
+            final long leftTotal = left.totalNanos();
+            final long rightTotal = right.totalNanos();
+            return leftTotal < rightTotal ? 1 : leftTotal == rightTotal ? 0 : -1;
+          }
+        });
+
+    final StringBuilder report = new StringBuilder();
+    report
+        .append("Instrumentation profile: ")
+        .append(sorted.size())
+        .append(" instrumenter(s), ")
+        .append(toMillis(getTotalNanos()))
+        .append(" ms total\n");
+    report.append(String.format("%10s", "total ms"));
+    for (final Phase phase : PHASES) {
+      report.append(String.format(" %12s", phase.label + " ms"));
+    }
+    report.append("  instrumenter\n");
+    for (final Timings timing : sorted) {
+      report.append(String.format("%10s", toMillis(timing.totalNanos())));
+      for (final Phase phase : PHASES) {
+        report.append(String.format(" %12s", toMillis(timing.nanos.get(phase.ordinal()))));
+      }
+      report.append("  ").append(timing.instrumenter);
+      report.append(" (").append(timing.counts.get(Phase.TRANSFORMATION.ordinal()));
+      report.append(" types)\n");
+    }
+
+    final Collection<ContextStoreStats> stores = ContextStoreStats.all();
+    if (!stores.isEmpty()) {
+      report.append(String.format("%12s  context store\n", "fallback"));
+      for (final ContextStoreStats store : stores) {
+        report.append(
+            String.format("%12d  %s\n", store.getFallbackAccesses(), store.getStoreName()));
+      }
+    }
+    return report.toString();
+  }
+
+  @Override
+  public long getTotalNanos() {
+    long total = 0;
+    for (final Timings timing : timings.values()) {
+      total += timing.totalNanos();
+    }
+    return total;
+  }
+
+  @Override
+  public void reset() {
+    timings.clear();
+  }
+
+  private static String toMillis(final long nanos) {
+    return String.format("%.3f", nanos / 1_000_000.0);
+  }
+
+  private void scheduleReport(final long reportDelaySeconds) {
+    final Thread reporter =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                try {
+                  Thread.sleep(TimeUnit.SECONDS.toMillis(reportDelaySeconds));
+                } catch (final InterruptedException e) {
+                  return;
+                }
+                // The platform MBeanServer is not touched before this point to avoid initializing
+                // JMX (and java.util.logging) while the application is still starting up.
+                registerMBean();
+                log.info(getReport());
+              }
+            },
+            "dd-instrumentation-profiler");
+    reporter.setDaemon(true);
+    reporter.setPriority(Thread.MIN_PRIORITY);
+    reporter.start();
+  }
+
+  private void registerMBean() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (final Exception e) {
+      log.warn("Failed to register instrumentation profiler MBean", e);
+    }
+  }
+
+  @Override
+  public void onDiscovery(
+      final String typeName,
+      final ClassLoader classLoader,
+      final JavaModule module,
+      final boolean loaded) {
+    frames.get().push(new Frame(typeName, System.nanoTime()));
+  }
+
+  @Override
+  public void onTransformation(
+      final TypeDescription typeDescription,
+      final ClassLoader classLoader,
+      final JavaModule module,
+      final boolean loaded,
+      final DynamicType dynamicType) {}
+
+  @Override
+  public void onIgnored(
+      final TypeDescription typeDescription,
+      final ClassLoader classLoader,
+      final JavaModule module,
+      final boolean loaded) {}
+
+  @Override
+  public void onError(
+      final String typeName,
+      final ClassLoader classLoader,
+      final JavaModule module,
+      final boolean loaded,
+      final Throwable throwable) {}
+
+  @Override
+  public void onComplete(
+      final String typeName,
+      final ClassLoader classLoader,
+      final JavaModule module,
+      final boolean loaded) {
+    final Deque<Frame> stack = frames.get();
+    final Frame frame = stack.peek();
+    if (frame == null || !frame.typeName.equals(typeName)) {
+      return;
+    }
+    stack.pop();
+    final long elapsed = System.nanoTime() - frame.startNanos;
+    final Frame enclosing = stack.peek();
+    if (enclosing != null) {
+      // this type was loaded while transforming the enclosing one
+      enclosing.nestedNanos += elapsed;
+    }
+    final int matched = frame.matched.size();
+    if (matched > 0) {
+      final long share = Math.max(0, elapsed - frame.nestedNanos) / matched;
+      for (final Timings timing : frame.matched) {
+        timing.record(Phase.TRANSFORMATION, share);
+      }
+    }
+  }
+
+  static final class Timings {
+    final String instrumenter;
+    final AtomicLongArray nanos = new AtomicLongArray(PHASES.length);
+    final AtomicLongArray counts = new AtomicLongArray(PHASES.length);
+
+    Timings(final String instrumenter) {
+      this.instrumenter = instrumenter;
+    }
+
+    void record(final Phase phase, final long elapsedNanos) {
+      nanos.addAndGet(phase.ordinal(), elapsedNanos);
+      counts.incrementAndGet(phase.ordinal());
+    }
+
+    long totalNanos() {
+      long total = 0;
+      for (int i = 0; i < nanos.length(); i++) {
+        total += nanos.get(i);
+      }
+      return total;
+    }
+  }
+
+  private static final class Frame {
+    private final String typeName;
+    private final long startNanos;
+    private final List<Timings> matched = new ArrayList<>(2);
+    private long nestedNanos = 0;
+
+    private Frame(final String typeName, final long startNanos) {
+      this.typeName = typeName;
+      this.startNanos = startNanos;
+    }
+  }
+
+  private static class TimedMatcher<T> extends ElementMatcher.Junction.AbstractBase<T> {
+    private final InstrumentationProfiler profiler;
+    private final Timings timings;
+    private final Phase phase;
+    private final ElementMatcher<T> matcher;
+
+    private TimedMatcher(
+        final InstrumentationProfiler profiler,
+        final Timings timings,
+        final Phase phase,
+        final ElementMatcher<T> matcher) {
+      this.profiler = profiler;
+      this.timings = timings;
+      this.phase = phase;
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matches(final T target) {
+      final long start = System.nanoTime();
+      try {
+        return matcher.matches(target);
+      } finally {
+        profiler.record(timings, phase, System.nanoTime() - start);
+      }
+    }
+  }
+
+  private static class TimedRawMatcher implements AgentBuilder.RawMatcher {
+    private final InstrumentationProfiler profiler;
+    private final Timings timings;
+    private final Phase phase;
+    private final AgentBuilder.RawMatcher matcher;
+
+    private TimedRawMatcher(
+        final InstrumentationProfiler profiler,
+        final Timings timings,
+        final Phase phase,
+        final AgentBuilder.RawMatcher matcher) {
+      this.profiler = profiler;
+      this.timings = timings;
+      this.phase = phase;
+      this.matcher = matcher;
+    }
+
+    @Override
+    public boolean matches(
+        final TypeDescription typeDescription,
+        final ClassLoader classLoader,
+        final JavaModule module,
+        final Class<?> classBeingRedefined,
+        final ProtectionDomain protectionDomain) {
+      final long start = System.nanoTime();
+      try {
+        return matcher.matches(
+            typeDescription, classLoader, module, classBeingRedefined, protectionDomain);
+      } finally {
+        profiler.record(timings, phase, System.nanoTime() - start);
+      }
+    }
+  }
+
+  private static class TimedTransformer implements AgentBuilder.Transformer {
+    private final InstrumentationProfiler profiler;
+    private final Timings timings;
+    private final Phase phase;
+    private final AgentBuilder.Transformer transformer;
+
+    private TimedTransformer(
+        final InstrumentationProfiler profiler,
+        final Timings timings,
+        final Phase phase,
+        final AgentBuilder.Transformer transformer) {
+      this.profiler = profiler;
+      this.timings = timings;
+      this.phase = phase;
+      this.transformer = transformer;
+    }
+
+    @Override
+    public DynamicType.Builder<?> transform(
+        final DynamicType.Builder<?> builder,
+        final TypeDescription typeDescription,
+        final ClassLoader classLoader,
+        final JavaModule module) {
+      final long start = System.nanoTime();
+      try {
+        return transformer.transform(builder, typeDescription, classLoader, module);
+      } finally {
+        profiler.record(timings, phase, System.nanoTime() - start);
+      }
+    }
+  }
+}
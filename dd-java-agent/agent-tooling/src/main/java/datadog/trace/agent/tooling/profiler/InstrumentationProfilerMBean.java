@@ -0,0 +1,14 @@
+package datadog.trace.agent.tooling.profiler;
+
+/** JMX view of the {@link InstrumentationProfiler}. */
+public interface InstrumentationProfilerMBean {
+
+  /** @return human readable report of instrumenter costs, most expensive first */
+  String getReport();
+
+  /** @return total nanoseconds recorded across all instrumenters and phases */
+  long getTotalNanos();
+
+  /** Discard all recorded timings. */
+  void reset();
+}
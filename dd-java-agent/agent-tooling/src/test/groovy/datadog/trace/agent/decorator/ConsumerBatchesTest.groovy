@@ -0,0 +1,161 @@
+package datadog.trace.agent.decorator
+
+import datadog.trace.api.DDTags
+import datadog.trace.api.propagation.KeyedExtractAdapter
+import io.opentracing.Span
+import spock.lang.Specification
+
+import static datadog.trace.agent.test.utils.TraceUtils.withSystemProperty
+
+class ConsumerBatchesTest extends Specification {
+
+  def "batches are #enabled for mode #mode"() {
+    expect:
+    newBatches(mode).enabled == enabled
+
+    where:
+    mode      | enabled
+    null      | false
+    "record"  | false
+    "sampled" | false
+    "unknown" | false
+    "batch"   | true
+    "BATCH"   | true
+  }
+
+  def "batch is continued for the same destination until full"() {
+    setup:
+    def batches = newBatches("batch", "3")
+    def span = Mock(Span)
+
+    when:
+    def batch = batches.start("queue", span)
+    batch.add(10, null)
+    batch.add(20, null)
+
+    then:
+    batches.current("queue") == batch
+    0 * span.finish(_)
+
+    when:
+    batch.add(30, null)
+
+    then:
+    1 * span.setTag(DDTags.MESSAGE_BATCH_SIZE, 3)
+    1 * span.setTag(DDTags.MESSAGE_BATCH_BYTES, 60)
+    1 * span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS, 0)
+    1 * span.finish(_)
+    batches.current("queue") == null
+  }
+
+  def "batch is finished when the destination changes or it is flushed"() {
+    setup:
+    def batches = newBatches("batch")
+    def span = Mock(Span)
+    def other = Mock(Span)
+
+    when:
+    batches.start("queue", span).add(0, null)
+    def next = batches.current("other")
+
+    then:
+    next == null
+    1 * span.finish(_)
+
+    when:
+    batches.start("other", other)
+    batches.flush()
+
+    then:
+    1 * other.finish()
+    batches.current("other") == null
+  }
+
+  def "expired batches of idle threads are finished by the sweeper"() {
+    setup:
+    def batches = newBatches("batch", "100", null, "10")
+    def span = Mock(Span)
+    def batch = batches.start("queue", span)
+    batch.add(10, null)
+    Thread.sleep(20)
+
+    when:
+    batches.sweep()
+    batches.sweep()
+    batch.add(20, null)
+
+    then:
+    1 * span.setTag(DDTags.MESSAGE_BATCH_SIZE, 1)
+    1 * span.setTag(DDTags.MESSAGE_BATCH_BYTES, 10)
+    1 * span.finish(_)
+    batches.current("queue") == null
+  }
+
+  def "open batches are not swept"() {
+    setup:
+    def batches = newBatches("batch")
+    def span = Mock(Span)
+    def batch = batches.start("queue", span)
+
+    when:
+    batch.add(10, null)
+    batches.sweep()
+
+    then:
+    0 * span.finish(*_)
+    batches.current("queue") == batch
+  }
+
+  def "upstream trace ids are read from sampled messages only"() {
+    setup:
+    def batches = newBatches("batch", "100", "0.5")
+    def span = Mock(Span)
+    def carrier = Mock(KeyedExtractAdapter)
+
+    when:
+    def batch = batches.start("queue", span)
+    4.times {
+      batch.add(0, carrier)
+    }
+    batches.flush()
+
+    then:
+    2 * carrier.get("x-datadog-trace-id") >>> ["123", "456"]
+    1 * span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS, 2)
+    1 * span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_TRACE_IDS, "123,456")
+    0 * span.setTag(DDTags.MESSAGE_BATCH_BYTES, _)
+  }
+
+  def "upstream trace ids are bounded"() {
+    setup:
+    def batches = newBatches("batch", "100", "1")
+    def span = Mock(Span)
+    def count = 0
+    def carrier = Stub(KeyedExtractAdapter) {
+      get(_) >> { String.valueOf(count++) }
+    }
+
+    when:
+    def batch = batches.start("queue", span)
+    20.times {
+      batch.add(0, carrier)
+    }
+    batches.flush()
+
+    then:
+    1 * span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS, 20)
+    1 * span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_TRACE_IDS, (0..<ConsumerBatches.MAX_UPSTREAM_TRACE_IDS).join(","))
+  }
+
+  def newBatches(String mode, String batchSize = null, String sampleRate = null, String batchMillis = null) {
+    return withSystemProperty("dd.integration.test.consume.mode", mode) {
+      withSystemProperty("dd.integration.test.consume.batch-size", batchSize) {
+        withSystemProperty("dd.integration.test.consume.batch-sample-rate", sampleRate) {
+          withSystemProperty("dd.integration.test.consume.batch-millis", batchMillis) {
+            new ConsumerBatches("test")
+          }
+        }
+      }
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package datadog.trace.agent.test
 
 import datadog.trace.agent.tooling.Instrumenter
+import datadog.trace.api.Config
 import net.bytebuddy.agent.builder.AgentBuilder
 import net.bytebuddy.description.type.TypeDescription
 import net.bytebuddy.matcher.ElementMatcher
@@ -18,6 +19,11 @@ class DefaultInstrumenterTest extends Specification {
   def setup() {
     assert System.getenv().findAll { it.key.startsWith("DD_") }.isEmpty()
     assert System.getProperties().findAll { it.key.toString().startsWith("dd.") }.isEmpty()
+    Config.reload()
+  }
+
+  def cleanupSpec() {
+    Config.reload()
   }
 
   def "default enabled"() {
@@ -57,6 +63,7 @@ class DefaultInstrumenterTest extends Specification {
   def "default disabled can override to enabled"() {
     setup:
     System.setProperty("dd.integration.test.enabled", "$enabled")
+    Config.reload()
     def target = new TestDefaultInstrumenter("test") {
       @Override
       protected boolean defaultEnabled() {
@@ -76,6 +83,7 @@ class DefaultInstrumenterTest extends Specification {
   def "configure default sys prop as #value"() {
     setup:
     System.setProperty("dd.integrations.enabled", value)
+    Config.reload()
     def target = new TestDefaultInstrumenter("test")
     target.instrument(new AgentBuilder.Default())
 
@@ -93,6 +101,7 @@ class DefaultInstrumenterTest extends Specification {
   def "configure default env var as #value"() {
     setup:
     environmentVariables.set("DD_INTEGRATIONS_ENABLED", value)
+    Config.reload()
     def target = new TestDefaultInstrumenter("test")
     target.instrument(new AgentBuilder.Default())
 
@@ -111,6 +120,7 @@ class DefaultInstrumenterTest extends Specification {
     setup:
     System.setProperty("dd.integrations.enabled", "false")
     System.setProperty("dd.integration.${value}.enabled", "true")
+    Config.reload()
     def target = new TestDefaultInstrumenter(name, altName)
     target.instrument(new AgentBuilder.Default())
 
@@ -133,6 +143,7 @@ class DefaultInstrumenterTest extends Specification {
     setup:
     environmentVariables.set("DD_INTEGRATIONS_ENABLED", "false")
     environmentVariables.set("DD_INTEGRATION_${value}_ENABLED", "true")
+    Config.reload()
     def target = new TestDefaultInstrumenter(name, altName)
     target.instrument(new AgentBuilder.Default())
 
@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling
 
+import datadog.trace.api.Config
 import datadog.trace.bootstrap.WeakMap
 import datadog.trace.util.gc.GCUtils
 import spock.lang.Retry
@@ -18,6 +19,8 @@ class WeakConcurrentSupplierTest extends Specification {
   def weakInlineSupplier = new WeakMapSuppliers.WeakConcurrent.Inline()
   @Shared
   def guavaSupplier = new WeakMapSuppliers.Guava()
+  @Shared
+  def stripedSupplier = new WeakMapSuppliers.Striped()
 
   def "Calling newWeakMap on #name creates independent maps"() {
     setup:
@@ -39,6 +42,7 @@ class WeakConcurrentSupplierTest extends Specification {
     "WeakConcurrent" | weakConcurrentSupplier
     "WeakInline"     | weakInlineSupplier
     "Guava"          | guavaSupplier
+    "Striped"        | stripedSupplier
   }
 
   def "Unreferenced supplier gets cleaned up on #name"() {
@@ -60,6 +64,7 @@ class WeakConcurrentSupplierTest extends Specification {
     "WeakConcurrent" | { -> new WeakMapSuppliers.WeakConcurrent() }
     "WeakInline"     | { -> new WeakMapSuppliers.WeakConcurrent.Inline() }
     "Guava"          | { -> new WeakMapSuppliers.Guava() }
+    "Striped"        | { -> new WeakMapSuppliers.Striped() }
   }
 
   def "Unreferenced map gets cleaned up on #name"() {
@@ -81,6 +86,7 @@ class WeakConcurrentSupplierTest extends Specification {
     "WeakConcurrent" | weakConcurrentSupplier
     "WeakInline"     | weakInlineSupplier
     "Guava"          | guavaSupplier
+    "Striped"        | stripedSupplier
   }
 
   def "Unreferenced keys get cleaned up on #name"() {
@@ -117,6 +123,13 @@ class WeakConcurrentSupplierTest extends Specification {
         map.get("test")
       }
     }
+    // Striped expunges collected keys of a stripe on any read of that stripe. Keys of the reads
+    // below land on random stripes, one of 16, so a few dozen reads cover the collected key's one.
+    if (name == "Striped") {
+      for (int i = 0; i < 0x100 && map.size() != 0; i++) {
+        map.get(new Object())
+      }
+    }
 
     then:
     map.size() == 0
@@ -128,5 +141,24 @@ class WeakConcurrentSupplierTest extends Specification {
     // Guava's cleanup process depends on concurrency level,
     // and in order to be able to test it we need to set concurrency to 1
     "Guava"          | guavaSupplier.get(1)
+    "Striped"        | stripedSupplier.get()
+  }
+
+  def "Config selects #type supplier"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(Config.WEAK_MAP_TYPE, type)
+    def config = Config.get(properties)
+
+    expect:
+    supplierClass.isInstance(WeakMapSuppliers.forConfig(config))
+
+    where:
+    type                   | supplierClass
+    "Striped"              | WeakMapSuppliers.Striped
+    "WeakConcurrent"       | WeakMapSuppliers.WeakConcurrent
+    "WeakConcurrentInline" | WeakMapSuppliers.WeakConcurrent.Inline
+    "guava"                | WeakMapSuppliers.Guava
+    "unknown"              | WeakMapSuppliers.Striped
   }
 }
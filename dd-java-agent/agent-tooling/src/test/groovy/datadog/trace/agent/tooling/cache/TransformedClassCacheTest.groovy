@@ -0,0 +1,254 @@
+package datadog.trace.agent.tooling.cache
+
+import datadog.trace.api.Config
+import datadog.trace.bootstrap.CallDepthThreadLocalMap
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.matcher.ElementMatcher
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+import java.lang.instrument.ClassFileTransformer
+
+class TransformedClassCacheTest extends Specification {
+  @Rule
+  TemporaryFolder folder = new TemporaryFolder()
+  @Rule
+  TemporaryFolder classes = new TemporaryFolder()
+
+  def original = classBytes(Sub)
+  def transformed = "transformed".bytes
+
+  def "transformed bytes are served from cache after restart"() {
+    setup:
+    def delegate = Mock(ClassFileTransformer)
+    def firstRun = newCache()
+
+    when:
+    def result = firstRun.transform(delegate, null, "foo/Bar", null, null, original)
+
+    then:
+    1 * delegate.transform(null, "foo/Bar", null, null, original) >> {
+      firstRun.matched("test.Instrumenter")
+      transformed
+    }
+    result == transformed
+
+    when:
+    def secondRun = newCache()
+    result = secondRun.transform(delegate, null, "foo/Bar", null, null, original)
+
+    then:
+    0 * delegate.transform(*_)
+    result == transformed
+  }
+
+  def "changed class bytes are not served from cache"() {
+    setup:
+    def delegate = Mock(ClassFileTransformer)
+    newCache().transform(delegate, null, "foo/Bar", null, null, original)
+
+    when:
+    newCache().transform(delegate, null, "foo/Bar", null, null, classBytes(Base))
+
+    then:
+    1 * delegate.transform(null, "foo/Bar", null, null, classBytes(Base))
+  }
+
+  def "classes are not served from cache when their supertypes changed"() {
+    setup:
+    def firstRun = newCache()
+    firstRun.transform(matching(firstRun), loaderWith(Base), "foo/Bar", null, null, original)
+    def delegate = Mock(ClassFileTransformer)
+
+    when:
+    newCache().transform(delegate, loaderWith(supertype), "foo/Bar", null, null, original)
+
+    then:
+    (hit ? 0 : 1) * delegate.transform(*_) >> transformed
+
+    where:
+    supertype | hit
+    Base      | true
+    Other     | false
+  }
+
+  def "retransformations and unattributed transformations bypass the cache"() {
+    setup:
+    def delegate = Mock(ClassFileTransformer)
+    def cache = newCache()
+
+    when:
+    cache.transform(delegate, null, "foo/Bar", Object, null, original)
+    cache.transform(delegate, null, "foo/Baz", null, null, original)
+
+    then:
+    1 * delegate.transform(null, "foo/Bar", Object, null, original) >> transformed
+    1 * delegate.transform(null, "foo/Baz", null, null, original) >> transformed
+    folder.root.listFiles()[0].list().length == 0
+  }
+
+  def "helper injectors and post match hooks are replayed on cache hit"() {
+    setup:
+    def loader = new URLClassLoader(new URL[0])
+    def firstRun = newCache()
+    firstRun.transform(matching(firstRun), loader, "foo/Bar", null, null, original)
+    def injector = Mock(AgentBuilder.Transformer)
+    def hook = Mock(AgentBuilder.RawMatcher)
+    def cache = newCache()
+    cache.addHelperInjector("test.Instrumenter", injector)
+    cache.addPostMatchHook("test.Instrumenter", hook)
+    def delegate = Mock(ClassFileTransformer)
+
+    when:
+    def result = cache.transform(delegate, loader, "foo/Bar", null, null, original)
+
+    then:
+    1 * hook.matches(_, loader, null, null, null)
+    1 * injector.transform(null, null, loader, null)
+    0 * delegate.transform(*_)
+    result == transformed
+  }
+
+  def "class loader and muzzle results must be the same on cache hit"() {
+    setup:
+    def firstRun = newCache()
+    def delegate = Stub(ClassFileTransformer) {
+      transform(*_) >> {
+        firstRun.conditionOnClassLoader("test.Instrumenter", loaderMatcher(true)).matches(null)
+        firstRun.conditionOnMuzzle("test.Instrumenter", muzzle(true)).matches(null, null, null, null, null)
+        firstRun.matched("test.Instrumenter")
+        transformed
+      }
+    }
+    firstRun.transform(delegate, null, "foo/Bar", null, null, original)
+    def cache = newCache()
+    cache.conditionOnClassLoader("test.Instrumenter", loaderMatcher(loaderResult))
+    cache.conditionOnMuzzle("test.Instrumenter", muzzle(muzzleResult))
+    def secondRun = Mock(ClassFileTransformer)
+
+    when:
+    cache.transform(secondRun, null, "foo/Bar", null, null, original)
+
+    then:
+    (hit ? 0 : 1) * secondRun.transform(*_) >> transformed
+
+    where:
+    loaderResult | muzzleResult | hit
+    true         | true         | true
+    false        | true         | false
+    true         | false        | false
+  }
+
+  def "config changes start a new cache"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty("trace.methods", "foo.Bar[baz]")
+    def firstRun = newCache()
+    firstRun.transform(matching(firstRun), null, "foo/Bar", null, null, original)
+    def cache = new TransformedClassCache(folder.root)
+    cache.registerInstrumenter("test.Instrumenter")
+    assert cache.activate("1.2.3", Config.get(properties))
+    def delegate = Mock(ClassFileTransformer)
+
+    when:
+    cache.transform(delegate, null, "foo/Bar", null, null, original)
+
+    then:
+    1 * delegate.transform(*_) >> transformed
+    folder.root.list().length == 2
+  }
+
+  def "reporting settings are not part of the fingerprint"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(setting, "other")
+
+    expect:
+    (TransformedClassCache.fingerprint(Config.get(properties)) == TransformedClassCache.fingerprint(Config.get())) == same
+
+    where:
+    setting                      | same
+    Config.AGENT_HOST            | true
+    Config.TRACE_AGENT_PORT      | true
+    Config.TRACE_METHODS         | false
+    Config.TRACE_ANNOTATIONS     | false
+  }
+
+  def "cached call depth slots must be available in this JVM"() {
+    setup:
+    def key = "test.CallDepthKey" + System.nanoTime()
+    def firstRun = newCache()
+    def firstDelegate = Stub(ClassFileTransformer) {
+      transform(*_) >> {
+        firstRun.matched("test.Instrumenter")
+        firstRun.callDepthSlotInlined(key, slot)
+        transformed
+      }
+    }
+    firstRun.transform(firstDelegate, null, "foo/Bar", null, null, original)
+    def delegate = Mock(ClassFileTransformer)
+    CallDepthThreadLocalMap.reserveSlot(reservedKey(key), slot)
+
+    when:
+    newCache().transform(delegate, null, "foo/Bar", null, null, original)
+
+    then:
+    (hit ? 0 : 1) * delegate.transform(*_) >> transformed
+
+    where:
+    slot | hit   | reservedKey
+    1000 | true  | { it }
+    1001 | false | { it + ".other" }
+  }
+
+  /** @return a class loader finding the bytes of the given class for {@link Base} */
+  def loaderWith(Class<?> supertype) {
+    def dir = classes.newFolder()
+    def file = new File(dir, Base.name.replace('.', '/') + ".class")
+    file.parentFile.mkdirs()
+    file.bytes = classBytes(supertype)
+    return new URLClassLoader([dir.toURI().toURL()] as URL[], (ClassLoader) null)
+  }
+
+  static byte[] classBytes(Class<?> type) {
+    return type.getResourceAsStream("/" + type.name.replace('.', '/') + ".class").bytes
+  }
+
+  static class Base {}
+
+  static class Sub extends Base {}
+
+  static class Other implements Serializable {}
+
+  def newCache() {
+    def cache = new TransformedClassCache(folder.root)
+    cache.registerInstrumenter("test.Instrumenter")
+    assert cache.activate("1.2.3", Config.get())
+    return cache
+  }
+
+  def matching(TransformedClassCache cache) {
+    return Stub(ClassFileTransformer) {
+      transform(*_) >> {
+        cache.matched("test.Instrumenter")
+        transformed
+      }
+    }
+  }
+
+  def loaderMatcher(boolean result) {
+    return new ElementMatcher<ClassLoader>() {
+      @Override
+      boolean matches(ClassLoader target) {
+        return result
+      }
+    }
+  }
+
+  def muzzle(boolean result) {
+    return Stub(AgentBuilder.RawMatcher) {
+      matches(*_) >> result
+    }
+  }
+}
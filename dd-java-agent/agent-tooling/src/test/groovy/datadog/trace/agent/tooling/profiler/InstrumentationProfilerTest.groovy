@@ -0,0 +1,104 @@
+package datadog.trace.agent.tooling.profiler
+
+import net.bytebuddy.agent.builder.AgentBuilder
+import net.bytebuddy.description.type.TypeDescription
+import net.bytebuddy.matcher.ElementMatcher
+import spock.lang.Specification
+
+import static datadog.trace.agent.tooling.profiler.InstrumentationProfiler.Phase.MUZZLE
+import static datadog.trace.agent.tooling.profiler.InstrumentationProfiler.Phase.TRANSFORMATION
+import static datadog.trace.agent.tooling.profiler.InstrumentationProfiler.Phase.TYPE_MATCHING
+
+class InstrumentationProfilerTest extends Specification {
+
+  def "timed wrappers are no-ops when profiler is not installed"() {
+    setup:
+    def matcher = Mock(ElementMatcher)
+    def rawMatcher = Mock(AgentBuilder.RawMatcher)
+
+    expect:
+    InstrumentationProfiler.get() == null
+    InstrumentationProfiler.timed("test", TYPE_MATCHING, matcher).is(matcher)
+    InstrumentationProfiler.timed("test", MUZZLE, rawMatcher).is(rawMatcher)
+  }
+
+  def "report is sorted by total time"() {
+    setup:
+    def profiler = new InstrumentationProfiler()
+    profiler.timingsFor("cheap").record(TYPE_MATCHING, 1_000)
+    profiler.timingsFor("expensive").record(TYPE_MATCHING, 5_000_000)
+    profiler.timingsFor("expensive").record(MUZZLE, 1_000_000)
+
+    when:
+    def report = profiler.getReport()
+
+    then:
+    report.startsWith("Instrumentation profile: 2 instrumenter(s), 6.001 ms total")
+    report.indexOf("expensive") < report.indexOf("cheap")
+    profiler.totalNanos == 6_001_000
+
+    when:
+    profiler.reset()
+
+    then:
+    profiler.totalNanos == 0
+  }
+
+  def "transformation time is split between matched instrumenters"() {
+    setup:
+    def profiler = new InstrumentationProfiler()
+    def first = profiler.timingsFor("first")
+    def second = profiler.timingsFor("second")
+    def frames = profiler.frames.get()
+
+    when:
+    profiler.onDiscovery("some.Type", null, null, false)
+    frames.peek().matched.add(first)
+    frames.peek().matched.add(second)
+    profiler.onDiscovery("other.Type", null, null, false)
+    profiler.onComplete("other.Type", null, null, false)
+    profiler.onComplete("some.Type", null, null, false)
+
+    then:
+    frames.isEmpty()
+    first.counts.get(TRANSFORMATION.ordinal()) == 1
+    second.counts.get(TRANSFORMATION.ordinal()) == 1
+    first.nanos.get(TRANSFORMATION.ordinal()) == second.nanos.get(TRANSFORMATION.ordinal())
+  }
+
+  def "nested phases are not counted again as transformation"() {
+    setup:
+    def profiler = new InstrumentationProfiler()
+    def timings = profiler.timingsFor("matched")
+    def frames = profiler.frames.get()
+
+    when:
+    profiler.onDiscovery("some.Type", null, null, false)
+    frames.peek().matched.add(timings)
+    // more than the whole transformation can take in this test
+    profiler.record(timings, TYPE_MATCHING, 60_000_000_000)
+    profiler.onComplete("some.Type", null, null, false)
+
+    then:
+    timings.nanos.get(TYPE_MATCHING.ordinal()) == 60_000_000_000
+    timings.nanos.get(TRANSFORMATION.ordinal()) == 0
+    timings.totalNanos() == 60_000_000_000
+  }
+
+  def "timed matcher records time and delegates"() {
+    setup:
+    def profiler = new InstrumentationProfiler()
+    InstrumentationProfiler.Timings timings = profiler.timingsFor("test")
+    def delegate = Mock(ElementMatcher)
+    def matcher = new InstrumentationProfiler.TimedMatcher(profiler, timings, TYPE_MATCHING, delegate)
+    def type = Mock(TypeDescription)
+
+    when:
+    def result = matcher.matches(type)
+
+    then:
+    1 * delegate.matches(type) >> true
+    result
+    timings.counts.get(TYPE_MATCHING.ordinal()) == 1
+  }
+}
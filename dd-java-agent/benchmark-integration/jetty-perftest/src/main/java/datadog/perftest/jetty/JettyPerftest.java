@@ -5,6 +5,7 @@ import datadog.trace.api.Trace;
 import io.opentracing.Span;
 import io.opentracing.util.GlobalTracer;
 import java.io.IOException;
+import javax.servlet.AsyncContext;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -16,11 +17,16 @@ import org.eclipse.jetty.servlet.ServletContextHandler;
 public class JettyPerftest {
   private static final int PORT = 8080;
   private static final String PATH = "/work";
+  // Endpoints doing no work, so their throughput measures the overhead of servlet tracing alone
+  private static final String SYNC_PATH = "/servlet";
+  private static final String ASYNC_PATH = "/servlet-async";
   private static final Server jettyServer = new Server(PORT);
   private static final ServletContextHandler servletContext = new ServletContextHandler();
 
   public static void main(final String[] args) throws Exception {
     servletContext.addServlet(PerfServlet.class, PATH);
+    servletContext.addServlet(EmptyServlet.class, SYNC_PATH);
+    servletContext.addServlet(AsyncEmptyServlet.class, ASYNC_PATH).setAsyncSupported(true);
     jettyServer.setHandler(servletContext);
     jettyServer.start();
 
@@ -69,4 +75,30 @@ public class JettyPerftest {
       }
     }
   }
+
+  @WebServlet
+  public static class EmptyServlet extends HttpServlet {
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
+      response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+  }
+
+  /** Completes the request from a container thread once the service method has returned. */
+  @WebServlet(asyncSupported = true)
+  public static class AsyncEmptyServlet extends HttpServlet {
+    @Override
+    protected void doGet(final HttpServletRequest request, final HttpServletResponse response) {
+      final AsyncContext context = request.startAsync();
+      context.start(
+          new Runnable() {
+            @Override
+            public void run() {
+              ((HttpServletResponse) context.getResponse())
+                  .setStatus(HttpServletResponse.SC_NO_CONTENT);
+              context.complete();
+            }
+          });
+    }
+  }
 }
@@ -0,0 +1,59 @@
+package datadog.benchmark;
+
+import datadog.trace.bootstrap.CallDepthThreadLocalMap;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Call depth tracking as done by JDBC advice, where driver implementations commonly delegate from
+ * one {@code execute*} method to another so only the outermost call gets a span.
+ */
+@Threads(4)
+public class CallDepthBenchmark {
+  private static final int NESTING = 3;
+
+  @State(Scope.Benchmark)
+  public static class Slots {
+    final int statement = CallDepthThreadLocalMap.slotFor(Statement.class.getName());
+    final int preparedStatement =
+        CallDepthThreadLocalMap.slotFor(PreparedStatement.class.getName());
+  }
+
+  @Benchmark
+  public int classKeyedNestedCalls() {
+    return executeByClass(PreparedStatement.class, NESTING) + executeByClass(Statement.class, 1);
+  }
+
+  @Benchmark
+  public int slotNestedCalls(final Slots slots) {
+    return executeBySlot(slots.preparedStatement, NESTING) + executeBySlot(slots.statement, 1);
+  }
+
+  private static int executeByClass(final Class<?> key, final int nesting) {
+    final int depth = CallDepthThreadLocalMap.incrementCallDepth(key);
+    int result = depth;
+    if (nesting > 1) {
+      result += executeByClass(key, nesting - 1);
+    }
+    if (depth == 0) {
+      CallDepthThreadLocalMap.reset(key);
+    }
+    return result;
+  }
+
+  private static int executeBySlot(final int slot, final int nesting) {
+    final int depth = CallDepthThreadLocalMap.incrementCallDepth(slot);
+    int result = depth;
+    if (nesting > 1) {
+      result += executeBySlot(slot, nesting - 1);
+    }
+    if (depth == 0) {
+      CallDepthThreadLocalMap.reset(slot);
+    }
+    return result;
+  }
+}
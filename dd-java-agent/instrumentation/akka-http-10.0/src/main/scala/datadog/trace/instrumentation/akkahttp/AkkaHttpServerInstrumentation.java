@@ -10,6 +10,7 @@ import akka.http.scaladsl.model.HttpResponse;
 import akka.stream.Materializer;
 import com.google.auto.service.AutoService;
 import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import datadog.trace.context.TraceScope;
 import io.opentracing.Scope;
 import io.opentracing.Span;
@@ -206,7 +207,7 @@ public final class AkkaHttpServerInstrumentation extends Instrumenter.Default {
     }
   }
 
-  public static class AkkaHttpServerHeaders implements TextMap {
+  public static class AkkaHttpServerHeaders implements TextMap, KeyedExtractAdapter {
     private final HttpRequest request;
 
     public AkkaHttpServerHeaders(final HttpRequest request) {
@@ -224,6 +225,42 @@ public final class AkkaHttpServerInstrumentation extends Instrumenter.Default {
       return javaMap.entrySet().iterator();
     }
 
+    @Override
+    public String get(final String key) {
+      for (final HttpHeader header : request.getHeaders()) {
+        if (header.name().equalsIgnoreCase(key)) {
+          return header.value();
+        }
+      }
+      return null;
+    }
+
+    @Override
+    public Iterable<String> keys() {
+      return new Iterable<String>() {
+        @Override
+        public Iterator<String> iterator() {
+          final Iterator<HttpHeader> headers = request.getHeaders().iterator();
+          return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+              return headers.hasNext();
+            }
+
+            @Override
+            public String next() {
+              return headers.next().name();
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+
     @Override
     public void put(final String name, final String value) {
       throw new IllegalStateException("akka http server headers can only be extracted");
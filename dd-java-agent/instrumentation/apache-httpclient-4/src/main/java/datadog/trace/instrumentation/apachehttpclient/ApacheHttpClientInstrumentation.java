@@ -10,6 +10,7 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 
 import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.CallDepthSlot;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.bootstrap.CallDepthThreadLocalMap;
 import io.opentracing.Scope;
@@ -84,8 +85,9 @@ public class ApacheHttpClientInstrumentation extends Instrumenter.Default {
                 optional = true,
                 typing = Assigner.Typing.DYNAMIC,
                 readOnly = false)
-            Object handler2) {
-      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(HttpClient.class);
+            Object handler2,
+        @CallDepthSlot(HttpClient.class) final int callDepthSlot) {
+      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(callDepthSlot);
       if (callDepth > 0) {
         return null;
       }
@@ -116,7 +118,8 @@ public class ApacheHttpClientInstrumentation extends Instrumenter.Default {
     public static void methodExit(
         @Advice.Enter final Scope scope,
         @Advice.Return final Object result,
-        @Advice.Thrown final Throwable throwable) {
+        @Advice.Thrown final Throwable throwable,
+        @CallDepthSlot(HttpClient.class) final int callDepthSlot) {
       if (scope != null) {
         try {
           final Span span = scope.span();
@@ -129,7 +132,7 @@ public class ApacheHttpClientInstrumentation extends Instrumenter.Default {
           DECORATE.beforeFinish(span);
         } finally {
           scope.close();
-          CallDepthThreadLocalMap.reset(HttpClient.class);
+          CallDepthThreadLocalMap.reset(callDepthSlot);
         }
       }
     }
@@ -0,0 +1,52 @@
+package datadog.trace.instrumentation.grpc.server;
+
+import datadog.trace.api.propagation.KeyedExtractAdapter;
+import io.grpc.Metadata;
+import io.opentracing.propagation.TextMap;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public final class GrpcExtractAdapter implements TextMap, KeyedExtractAdapter {
+  private final Metadata metadata;
+
+  public GrpcExtractAdapter(final Metadata metadata) {
+    this.metadata = metadata;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    final List<Map.Entry<String, String>> entries = new ArrayList<>();
+    for (final String key : keys()) {
+      entries.add(new AbstractMap.SimpleImmutableEntry<>(key, get(key)));
+    }
+    return entries.iterator();
+  }
+
+  @Override
+  public String get(final String key) {
+    if (key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
+      return null;
+    }
+    try {
+      return metadata.get(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER));
+    } catch (final IllegalArgumentException e) {
+      // not a valid metadata key, e.g. a configured header tag with upper case characters
+      return null;
+    }
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    // binary keys are returned too, get returns null for them
+    return metadata.keys();
+  }
+
+  @Override
+  public void put(final String key, final String value) {
+    throw new UnsupportedOperationException(
+        "GrpcExtractAdapter should only be used with Tracer.extract()");
+  }
+}
@@ -32,6 +32,7 @@ public class GrpcServerBuilderInstrumentation extends Instrumenter.Default {
     return new String[] {
       "datadog.trace.instrumentation.grpc.server.TracingServerInterceptor",
       "datadog.trace.instrumentation.grpc.server.TracingServerInterceptor$TracingServerCallListener",
+      "datadog.trace.instrumentation.grpc.server.GrpcExtractAdapter",
       "datadog.trace.agent.decorator.BaseDecorator",
       "datadog.trace.agent.decorator.ServerDecorator",
       packageName + ".GrpcServerDecorator",
@@ -14,9 +14,6 @@ import io.opentracing.Span;
 import io.opentracing.SpanContext;
 import io.opentracing.Tracer;
 import io.opentracing.propagation.Format;
-import io.opentracing.propagation.TextMapExtractAdapter;
-import java.util.HashMap;
-import java.util.Map;
 
 public class TracingServerInterceptor implements ServerInterceptor {
 
@@ -32,15 +29,8 @@ public class TracingServerInterceptor implements ServerInterceptor {
       final Metadata headers,
       final ServerCallHandler<ReqT, RespT> next) {
 
-    final Map<String, String> headerMap = new HashMap<>();
-    for (final String key : headers.keys()) {
-      if (!key.endsWith(Metadata.BINARY_HEADER_SUFFIX)) {
-        final String value = headers.get(Metadata.Key.of(key, Metadata.ASCII_STRING_MARSHALLER));
-        headerMap.put(key, value);
-      }
-    }
     final SpanContext spanContext =
-        tracer.extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headerMap));
+        tracer.extract(Format.Builtin.TEXT_MAP, new GrpcExtractAdapter(headers));
 
     final Tracer.SpanBuilder spanBuilder =
         tracer
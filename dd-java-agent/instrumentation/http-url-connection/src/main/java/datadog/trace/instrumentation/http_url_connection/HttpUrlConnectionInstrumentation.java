@@ -9,6 +9,7 @@ import static net.bytebuddy.matcher.ElementMatchers.named;
 import static net.bytebuddy.matcher.ElementMatchers.not;
 
 import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.CallDepthSlot;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.bootstrap.CallDepthThreadLocalMap;
 import datadog.trace.bootstrap.ContextStore;
@@ -72,7 +73,8 @@ public class HttpUrlConnectionInstrumentation extends Instrumenter.Default {
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static HttpUrlState methodEnter(
         @Advice.This final HttpURLConnection thiz,
-        @Advice.FieldValue("connected") final boolean connected) {
+        @Advice.FieldValue("connected") final boolean connected,
+        @CallDepthSlot(HttpURLConnection.class) final int callDepthSlot) {
 
       final ContextStore<HttpURLConnection, HttpUrlState> contextStore =
           InstrumentationContext.get(HttpURLConnection.class, HttpUrlState.class);
@@ -92,7 +94,7 @@ public class HttpUrlConnectionInstrumentation extends Instrumenter.Default {
           return null;
         }
 
-        final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(HttpURLConnection.class);
+        final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(callDepthSlot);
         if (callDepth > 0) {
           return null;
         }
@@ -114,7 +116,8 @@ public class HttpUrlConnectionInstrumentation extends Instrumenter.Default {
         @Advice.Enter final HttpUrlState state,
         @Advice.FieldValue("responseCode") final int responseCode,
         @Advice.Thrown final Throwable throwable,
-        @Advice.Origin("#m") final String methodName) {
+        @Advice.Origin("#m") final String methodName,
+        @CallDepthSlot(HttpURLConnection.class) final int callDepthSlot) {
 
       if (state == null) {
         return;
@@ -130,7 +133,7 @@ public class HttpUrlConnectionInstrumentation extends Instrumenter.Default {
         }
       }
 
-      CallDepthThreadLocalMap.reset(HttpURLConnection.class);
+      CallDepthThreadLocalMap.reset(callDepthSlot);
     }
   }
 
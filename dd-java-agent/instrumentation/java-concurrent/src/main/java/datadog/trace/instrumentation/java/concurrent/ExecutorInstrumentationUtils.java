@@ -1,11 +1,13 @@
 package datadog.trace.instrumentation.java.concurrent;
 
+import datadog.trace.api.Config;
 import datadog.trace.bootstrap.ContextStore;
 import datadog.trace.bootstrap.WeakMap;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.CallableWrapper;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.State;
 import datadog.trace.context.TraceScope;
+import datadog.trace.context.UnregisteredCaptureScope;
 import io.opentracing.Scope;
 import io.opentracing.util.GlobalTracer;
 import java.util.concurrent.Executor;
@@ -19,18 +21,38 @@ public class ExecutorInstrumentationUtils {
       WeakMap.Provider.newWeakMap();
 
   /**
-   * Checks if given task should get state attached.
+   * Continuations carried by tasks are not tracked by their trace with a weak reference. Tasks
+   * which are dropped without being run, cancelled or rejected then keep their trace from being
+   * reported.
+   */
+  private static final boolean UNREGISTERED_CONTINUATIONS =
+      Config.get().getBooleanSetting(
+          "integration.java_concurrent.unregistered-continuations.enabled", false);
+
+  /**
+   * Get the scope to propagate to tasks. Tasks submitted without one are left untouched: they are
+   * neither wrapped nor get state attached.
+   *
+   * @return the active scope if it propagates across async boundaries, null otherwise
+   */
+  public static TraceScope activeAsyncScope() {
+    final Scope scope = GlobalTracer.get().scopeManager().active();
+    if (scope instanceof TraceScope && ((TraceScope) scope).isAsyncPropagating()) {
+      return (TraceScope) scope;
+    }
+    return null;
+  }
+
+  /**
+   * Checks if given task should get state attached, once there is an async propagating scope.
    *
    * @param task task object
    * @param executor executor this task was scheduled on
    * @return true iff given task object should be wrapped
    */
   public static boolean shouldAttachStateToTask(final Object task, final Executor executor) {
-    final Scope scope = GlobalTracer.get().scopeManager().active();
-    return (scope instanceof TraceScope
-        && ((TraceScope) scope).isAsyncPropagating()
-        && task != null
-        && !ExecutorInstrumentationUtils.isExecutorDisabledForThisTask(executor, task));
+    return task != null
+        && !ExecutorInstrumentationUtils.isExecutorDisabledForThisTask(executor, task);
   }
 
   /**
@@ -45,7 +67,10 @@ public class ExecutorInstrumentationUtils {
   public static <T> State setupState(
       final ContextStore<T, State> contextStore, final T task, final TraceScope scope) {
     final State state = contextStore.putIfAbsent(task, State.FACTORY);
-    final TraceScope.Continuation continuation = scope.capture();
+    final TraceScope.Continuation continuation =
+        UNREGISTERED_CONTINUATIONS && scope instanceof UnregisteredCaptureScope
+            ? ((UnregisteredCaptureScope) scope).captureUnregistered()
+            : scope.capture();
     if (state.setContinuation(continuation)) {
       log.debug("created continuation {} from scope {}, state: {}", continuation, scope, state);
     } else {
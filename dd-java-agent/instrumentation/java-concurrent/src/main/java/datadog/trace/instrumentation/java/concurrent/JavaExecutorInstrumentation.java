@@ -12,8 +12,6 @@ import datadog.trace.bootstrap.instrumentation.java.concurrent.CallableWrapper;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.RunnableWrapper;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.State;
 import datadog.trace.context.TraceScope;
-import io.opentracing.Scope;
-import io.opentracing.util.GlobalTracer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -86,7 +84,10 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
     public static State enterJobSubmit(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope == null || task == null) {
+        return null;
+      }
       final Runnable newTask = RunnableWrapper.wrapIfNeeded(task);
       // It is important to check potentially wrapped task if we can instrument task in this
       // executor. Some executors do not support wrapped tasks.
@@ -94,7 +95,7 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
         task = newTask;
         final ContextStore<Runnable, State> contextStore =
             InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, (TraceScope) scope);
+        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, scope);
       }
       return null;
     }
@@ -114,11 +115,11 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
     public static State enterJobSubmit(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) final ForkJoinTask task) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
-      if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor)) {
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope != null && ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor)) {
         final ContextStore<ForkJoinTask, State> contextStore =
             InstrumentationContext.get(ForkJoinTask.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, task, (TraceScope) scope);
+        return ExecutorInstrumentationUtils.setupState(contextStore, task, scope);
       }
       return null;
     }
@@ -138,7 +139,10 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
     public static State enterJobSubmit(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) Runnable task) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope == null || task == null) {
+        return null;
+      }
       final Runnable newTask = RunnableWrapper.wrapIfNeeded(task);
       // It is important to check potentially wrapped task if we can instrument task in this
       // executor. Some executors do not support wrapped tasks.
@@ -146,7 +150,7 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
         task = newTask;
         final ContextStore<Runnable, State> contextStore =
             InstrumentationContext.get(Runnable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, (TraceScope) scope);
+        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, scope);
       }
       return null;
     }
@@ -172,7 +176,10 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
     public static State enterJobSubmit(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) Callable task) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope == null || task == null) {
+        return null;
+      }
       final Callable newTask = CallableWrapper.wrapIfNeeded(task);
       // It is important to check potentially wrapped task if we can instrument task in this
       // executor. Some executors do not support wrapped tasks.
@@ -180,7 +187,7 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
         task = newTask;
         final ContextStore<Callable, State> contextStore =
             InstrumentationContext.get(Callable.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, (TraceScope) scope);
+        return ExecutorInstrumentationUtils.setupState(contextStore, newTask, scope);
       }
       return null;
     }
@@ -206,10 +213,8 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
     public static Collection<?> submitEnter(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) Collection<? extends Callable<?>> tasks) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
-      if (scope instanceof TraceScope
-          && ((TraceScope) scope).isAsyncPropagating()
-          && tasks != null) {
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope != null && tasks != null) {
         final Collection<Callable<?>> wrappedTasks = new ArrayList<>(tasks.size());
         for (final Callable<?> task : tasks) {
           if (task != null) {
@@ -220,7 +225,7 @@ public final class JavaExecutorInstrumentation extends AbstractExecutorInstrumen
               wrappedTasks.add(newTask);
               final ContextStore<Callable, State> contextStore =
                   InstrumentationContext.get(Callable.class, State.class);
-              ExecutorInstrumentationUtils.setupState(contextStore, newTask, (TraceScope) scope);
+              ExecutorInstrumentationUtils.setupState(contextStore, newTask, scope);
             }
           }
         }
@@ -10,8 +10,6 @@ import datadog.trace.bootstrap.ContextStore;
 import datadog.trace.bootstrap.InstrumentationContext;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.State;
 import datadog.trace.context.TraceScope;
-import io.opentracing.Scope;
-import io.opentracing.util.GlobalTracer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -60,11 +58,11 @@ public final class ScalaExecutorInstrumentation extends AbstractExecutorInstrume
     public static State enterJobSubmit(
         @Advice.This final Executor executor,
         @Advice.Argument(value = 0, readOnly = false) final ForkJoinTask task) {
-      final Scope scope = GlobalTracer.get().scopeManager().active();
-      if (ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor)) {
+      final TraceScope scope = ExecutorInstrumentationUtils.activeAsyncScope();
+      if (scope != null && ExecutorInstrumentationUtils.shouldAttachStateToTask(task, executor)) {
         final ContextStore<ForkJoinTask, State> contextStore =
             InstrumentationContext.get(ForkJoinTask.class, State.class);
-        return ExecutorInstrumentationUtils.setupState(contextStore, task, (TraceScope) scope);
+        return ExecutorInstrumentationUtils.setupState(contextStore, task, scope);
       }
       return null;
     }
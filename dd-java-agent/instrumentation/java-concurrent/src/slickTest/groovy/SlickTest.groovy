@@ -31,7 +31,7 @@ class SlickTest extends AgentTestRunner {
         span(1) {
           operationName "${SlickUtils.Driver()}.query"
           serviceName SlickUtils.Driver()
-          resourceName SlickUtils.TestQuery()
+          resourceName "SELECT ?"
           spanType DDSpanTypes.SQL
           childOf span(0)
           errored false
@@ -34,6 +34,9 @@ public final class ConnectionInstrumentation extends Instrumenter.Default {
   public String[] helperClassNames() {
     return new String[] {
       packageName + ".JDBCMaps",
+      packageName + ".JDBCMaps$SqlStatement",
+      packageName + ".SqlNormalizer",
+      packageName + ".SqlNormalizer$BoundedCache",
     };
   }
 
@@ -51,7 +54,7 @@ public final class ConnectionInstrumentation extends Instrumenter.Default {
     @Advice.OnMethodExit(suppress = Throwable.class)
     public static void addDBInfo(
         @Advice.Argument(0) final String sql, @Advice.Return final PreparedStatement statement) {
-      JDBCMaps.preparedStatements.put(statement, sql);
+      JDBCMaps.preparedStatements.put(statement, new JDBCMaps.SqlStatement(sql));
     }
   }
 }
@@ -0,0 +1,95 @@
+package datadog.trace.instrumentation.jdbc;
+
+import static datadog.trace.agent.tooling.ByteBuddyElementMatchers.safeHasSuperType;
+import static java.util.Collections.singletonMap;
+import static net.bytebuddy.matcher.ElementMatchers.isInterface;
+import static net.bytebuddy.matcher.ElementMatchers.named;
+import static net.bytebuddy.matcher.ElementMatchers.not;
+import static net.bytebuddy.matcher.ElementMatchers.returns;
+import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.CallDepthSlot;
+import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.bootstrap.CallDepthThreadLocalMap;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+
+/**
+ * Stores the DBInfo of connections made by a driver, so that the physical connections of a pool
+ * don't each have their metadata read when their first statement is executed.
+ */
+@AutoService(Instrumenter.class)
+public final class DriverInstrumentation extends Instrumenter.Default {
+
+  public DriverInstrumentation() {
+    super("jdbc");
+  }
+
+  @Override
+  public ElementMatcher<TypeDescription> typeMatcher() {
+    return not(isInterface()).and(safeHasSuperType(named("java.sql.Driver")));
+  }
+
+  @Override
+  public String[] helperClassNames() {
+    return new String[] {
+      packageName + ".JDBCMaps",
+      packageName + ".JDBCMaps$DBInfo",
+      packageName + ".JDBCMaps$SqlStatement",
+      packageName + ".SqlNormalizer",
+      packageName + ".SqlNormalizer$BoundedCache",
+      packageName + ".JDBCUtils",
+    };
+  }
+
+  @Override
+  public Map<? extends ElementMatcher<? super MethodDescription>, String> transformers() {
+    return singletonMap(
+        named("connect")
+            .and(takesArguments(2))
+            .and(takesArgument(0, String.class))
+            .and(takesArgument(1, Properties.class))
+            .and(returns(named("java.sql.Connection"))),
+        DriverConnectAdvice.class.getName());
+  }
+
+  public static class DriverConnectAdvice {
+    @Advice.OnMethodExit(suppress = Throwable.class)
+    public static void addDBInfo(
+        @Advice.Argument(0) final String url,
+        @Advice.Argument(1) final Properties properties,
+        @Advice.Return final Connection connection,
+        @CallDepthSlot(Statement.class) final int statementSlot,
+        @CallDepthSlot(PreparedStatement.class) final int preparedStatementSlot) {
+      // connect returns null when the driver doesn't accept the url
+      if (connection == null || url == null || JDBCMaps.connectionInfo.get(connection) != null) {
+        return;
+      }
+      // Some drivers run queries to read the metadata, these must not be traced.
+      final boolean outerStatement =
+          CallDepthThreadLocalMap.incrementCallDepth(statementSlot) == 0;
+      final boolean outerPreparedStatement =
+          CallDepthThreadLocalMap.incrementCallDepth(preparedStatementSlot) == 0;
+      try {
+        JDBCMaps.connectionInfo.put(
+            connection, JDBCUtils.connectionInfo(url, properties, connection));
+      } finally {
+        if (outerStatement) {
+          CallDepthThreadLocalMap.reset(statementSlot);
+        }
+        if (outerPreparedStatement) {
+          CallDepthThreadLocalMap.reset(preparedStatementSlot);
+        }
+      }
+    }
+  }
+}
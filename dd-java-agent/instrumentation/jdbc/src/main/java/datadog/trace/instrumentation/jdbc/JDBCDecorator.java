@@ -6,9 +6,7 @@ import datadog.trace.api.DDTags;
 import io.opentracing.Span;
 import io.opentracing.tag.Tags;
 import java.sql.Connection;
-import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
-import java.sql.SQLException;
 
 public class JDBCDecorator extends DatabaseClientDecorator<JDBCMaps.DBInfo> {
   public static final JDBCDecorator DECORATE = new JDBCDecorator();
@@ -51,33 +49,13 @@ public class JDBCDecorator extends DatabaseClientDecorator<JDBCMaps.DBInfo> {
   public Span onConnection(final Span span, final Connection connection) {
     JDBCMaps.DBInfo dbInfo = JDBCMaps.connectionInfo.get(connection);
     /**
-     * Logic to get the DBInfo from a JDBC Connection, if the connection was never seen before, the
-     * connectionInfo map will return null and will attempt to extract DBInfo from the connection.
-     * If the DBInfo can't be extracted, then the connection will be stored with the DEFAULT DBInfo
-     * as the value in the connectionInfo map to avoid retry overhead.
+     * Connections made through an instrumented driver are already known. Otherwise the DBInfo is
+     * read from the metadata of the connection the first time it is seen, and stored even if it
+     * can't be extracted (as the DEFAULT DBInfo) to avoid retry overhead.
      */
-    {
-      if (dbInfo == null) {
-        try {
-          final DatabaseMetaData metaData = connection.getMetaData();
-          final String url = metaData.getURL();
-          if (url != null) {
-            // Remove end of url to prevent passwords from leaking:
-            final String sanitizedURL = url.replaceAll("[?;].*", "");
-            final String type = url.split(":", -1)[1];
-            String user = metaData.getUserName();
-            if (user != null && user.trim().equals("")) {
-              user = null;
-            }
-            dbInfo = new JDBCMaps.DBInfo(sanitizedURL, type, user);
-          } else {
-            dbInfo = JDBCMaps.DBInfo.DEFAULT;
-          }
-        } catch (final SQLException se) {
-          dbInfo = JDBCMaps.DBInfo.DEFAULT;
-        }
-        JDBCMaps.connectionInfo.put(connection, dbInfo);
-      }
+    if (dbInfo == null) {
+      dbInfo = JDBCUtils.connectionInfo(connection);
+      JDBCMaps.connectionInfo.put(connection, dbInfo);
     }
 
     if (dbInfo != null) {
@@ -87,19 +65,23 @@ public class JDBCDecorator extends DatabaseClientDecorator<JDBCMaps.DBInfo> {
     return super.onConnection(span, dbInfo);
   }
 
+  /**
+   * The statement is normalized before being tagged: its {@code db.statement} tag becomes the
+   * resource name of the span.
+   */
   @Override
   public Span onStatement(final Span span, final String statement) {
-    final String resourceName = statement == null ? JDBCMaps.DB_QUERY : statement;
+    final String resourceName = SqlNormalizer.resourceName(statement);
     span.setTag(DDTags.RESOURCE_NAME, resourceName);
     Tags.COMPONENT.set(span, "java-jdbc-statement");
-    return super.onStatement(span, statement);
+    return super.onStatement(span, statement == null ? null : resourceName);
   }
 
   public Span onPreparedStatement(final Span span, final PreparedStatement statement) {
-    final String sql = JDBCMaps.preparedStatements.get(statement);
-    final String resourceName = sql == null ? JDBCMaps.DB_QUERY : sql;
+    final JDBCMaps.SqlStatement sql = JDBCMaps.preparedStatements.get(statement);
+    final String resourceName = sql == null ? JDBCMaps.DB_QUERY : sql.getResourceName();
     span.setTag(DDTags.RESOURCE_NAME, resourceName);
     Tags.COMPONENT.set(span, "java-jdbc-prepared_statement");
-    return super.onStatement(span, sql);
+    return super.onStatement(span, sql == null ? null : resourceName);
   }
 }
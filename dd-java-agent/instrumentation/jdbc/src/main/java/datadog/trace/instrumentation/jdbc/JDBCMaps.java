@@ -5,6 +5,8 @@ import static datadog.trace.bootstrap.WeakMap.Provider.newWeakMap;
 import datadog.trace.bootstrap.WeakMap;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import lombok.Data;
 
 /**
@@ -14,7 +16,10 @@ import lombok.Data;
  */
 public class JDBCMaps {
   public static final WeakMap<Connection, DBInfo> connectionInfo = newWeakMap();
-  public static final WeakMap<PreparedStatement, String> preparedStatements = newWeakMap();
+  // DBInfo of connections made by a driver, by user and url
+  // see JDBCUtils.connectionInfo(String, Properties, Connection)
+  public static final Map<String, DBInfo> urlInfo = new ConcurrentHashMap<>();
+  public static final WeakMap<PreparedStatement, SqlStatement> preparedStatements = newWeakMap();
 
   public static final String DB_QUERY = "DB Query";
 
@@ -25,4 +30,27 @@ public class JDBCMaps {
     private final String type;
     private final String user;
   }
+
+  /** SQL of a prepared statement, normalized on its first execution. */
+  public static class SqlStatement {
+    private final String sql;
+    private volatile String resourceName;
+
+    public SqlStatement(final String sql) {
+      this.sql = sql;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public String getResourceName() {
+      String resourceName = this.resourceName;
+      if (resourceName == null) {
+        resourceName = SqlNormalizer.resourceName(sql);
+        this.resourceName = resourceName;
+      }
+      return resourceName;
+    }
+  }
 }
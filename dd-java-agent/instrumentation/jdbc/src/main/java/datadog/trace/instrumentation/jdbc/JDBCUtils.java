@@ -2,9 +2,14 @@ package datadog.trace.instrumentation.jdbc;
 
 import datadog.trace.bootstrap.ExceptionLogger;
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Properties;
 
 public abstract class JDBCUtils {
+  // Connections are usually made to a handful of urls, this only guards against unbounded growth.
+  static final int MAX_CACHED_URLS = 256;
 
   /**
    * @param statement
@@ -33,4 +38,68 @@ public abstract class JDBCUtils {
     }
     return connection;
   }
+
+  /**
+   * Get the DBInfo of a connection made by a driver. The metadata of the connection is only read
+   * for the first connection to a url with a given user, so that a pool filling up or reconnecting
+   * after a failover doesn't query the metadata of each of its physical connections.
+   *
+   * @param url the url the driver connected to
+   * @param properties the connection properties given to the driver, may be null
+   */
+  public static JDBCMaps.DBInfo connectionInfo(
+      final String url, final Properties properties, final Connection connection) {
+    final String user = properties == null ? null : properties.getProperty("user");
+    final String key = user == null ? url : user + '@' + url;
+    JDBCMaps.DBInfo dbInfo = JDBCMaps.urlInfo.get(key);
+    if (dbInfo == null) {
+      dbInfo = connectionInfo(connection);
+      if (dbInfo != JDBCMaps.DBInfo.DEFAULT && JDBCMaps.urlInfo.size() < MAX_CACHED_URLS) {
+        JDBCMaps.urlInfo.put(key, dbInfo);
+      }
+    }
+    return dbInfo;
+  }
+
+  /**
+   * Get the DBInfo of a connection from its metadata.
+   *
+   * @return the DBInfo, {@link JDBCMaps.DBInfo#DEFAULT} if the metadata can't be read
+   */
+  public static JDBCMaps.DBInfo connectionInfo(final Connection connection) {
+    try {
+      final DatabaseMetaData metaData = connection.getMetaData();
+      final String url = metaData.getURL();
+      if (url == null) {
+        return JDBCMaps.DBInfo.DEFAULT;
+      }
+      String user = metaData.getUserName();
+      if (user != null && user.trim().equals("")) {
+        user = null;
+      }
+      return parseDBInfo(url, user);
+    } catch (final SQLException se) {
+      return JDBCMaps.DBInfo.DEFAULT;
+    }
+  }
+
+  /**
+   * Parse a JDBC url like {@code jdbc:<type>:<rest>}. Everything from the first {@code ?} or
+   * {@code ;} is dropped from the url to prevent passwords from leaking.
+   */
+  public static JDBCMaps.DBInfo parseDBInfo(final String url, final String user) {
+    int end = 0;
+    while (end < url.length() && url.charAt(end) != '?' && url.charAt(end) != ';') {
+      end++;
+    }
+    final int typeStart = url.indexOf(':') + 1;
+    if (typeStart == 0) {
+      return new JDBCMaps.DBInfo(url.substring(0, end), JDBCMaps.DBInfo.DEFAULT.getType(), user);
+    }
+    int typeEnd = url.indexOf(':', typeStart);
+    if (typeEnd < 0) {
+      typeEnd = url.length();
+    }
+    return new JDBCMaps.DBInfo(url.substring(0, end), url.substring(typeStart, typeEnd), user);
+  }
 }
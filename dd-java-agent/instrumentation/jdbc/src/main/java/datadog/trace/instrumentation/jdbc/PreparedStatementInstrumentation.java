@@ -12,6 +12,7 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
 
 import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.CallDepthSlot;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.bootstrap.CallDepthThreadLocalMap;
 import io.opentracing.Scope;
@@ -47,6 +48,9 @@ public final class PreparedStatementInstrumentation extends Instrumenter.Default
       packageName + ".JDBCDecorator",
       packageName + ".JDBCMaps",
       packageName + ".JDBCMaps$DBInfo",
+      packageName + ".JDBCMaps$SqlStatement",
+      packageName + ".SqlNormalizer",
+      packageName + ".SqlNormalizer$BoundedCache",
       packageName + ".JDBCUtils",
     };
   }
@@ -61,8 +65,10 @@ public final class PreparedStatementInstrumentation extends Instrumenter.Default
   public static class PreparedStatementAdvice {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
-    public static Scope startSpan(@Advice.This final PreparedStatement statement) {
-      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(PreparedStatement.class);
+    public static Scope startSpan(
+        @Advice.This final PreparedStatement statement,
+        @CallDepthSlot(PreparedStatement.class) final int callDepthSlot) {
+      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(callDepthSlot);
       if (callDepth > 0) {
         return null;
       }
@@ -83,12 +89,14 @@ public final class PreparedStatementInstrumentation extends Instrumenter.Default
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void stopSpan(
-        @Advice.Enter final Scope scope, @Advice.Thrown final Throwable throwable) {
+        @Advice.Enter final Scope scope,
+        @Advice.Thrown final Throwable throwable,
+        @CallDepthSlot(PreparedStatement.class) final int callDepthSlot) {
       if (scope != null) {
         DECORATE.onError(scope.span(), throwable);
         DECORATE.beforeFinish(scope.span());
         scope.close();
-        CallDepthThreadLocalMap.reset(PreparedStatement.class);
+        CallDepthThreadLocalMap.reset(callDepthSlot);
       }
     }
   }
@@ -0,0 +1,238 @@
+package datadog.trace.instrumentation.jdbc;
+
+import datadog.trace.api.Config;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Normalizes SQL for use as a resource name: literals are replaced by {@code ?}, comments are
+ * dropped and whitespace is collapsed, so statements differing only by their inlined values share a
+ * resource. Quoted identifiers and bind markers are kept as they are.
+ *
+ * <p>Normalized statements are kept in a bounded cache, since applications tend to run the same
+ * statements over and over. Lookups don't take a lock, as every JDBC call goes through it. Normalization can be disabled with {@code
+ * integration.jdbc.sql-normalization.enabled=false}.
+ */
+public final class SqlNormalizer {
+  static final int CACHE_SIZE = 512;
+  // Longer statements are normalized every time, to bound the memory held by the cache.
+  static final int MAX_CACHED_LENGTH = 2048;
+
+  private static final boolean ENABLED =
+      Config.get().getBooleanSetting("integration.jdbc.sql-normalization.enabled", true);
+
+  private static final BoundedCache CACHE = new BoundedCache(CACHE_SIZE);
+
+  private SqlNormalizer() {}
+
+  /** @return the resource name of the statement, {@link JDBCMaps#DB_QUERY} if it's unknown */
+  public static String resourceName(final String sql) {
+    if (sql == null) {
+      return JDBCMaps.DB_QUERY;
+    }
+    if (!ENABLED) {
+      return sql;
+    }
+    if (sql.length() > MAX_CACHED_LENGTH) {
+      return normalize(sql);
+    }
+    String normalized = CACHE.get(sql);
+    if (normalized == null) {
+      normalized = normalize(sql);
+      CACHE.put(sql, normalized);
+    }
+    return normalized;
+  }
+
+  /** Normalize the statement in a single pass. */
+  public static String normalize(final String sql) {
+    final int length = sql.length();
+    final StringBuilder normalized = new StringBuilder(length);
+    boolean whitespace = false;
+    int i = 0;
+    while (i < length) {
+      final char c = sql.charAt(i);
+      final char next = i + 1 < length ? sql.charAt(i + 1) : 0;
+
+      if (Character.isWhitespace(c)) {
+        whitespace = true;
+        i++;
+        continue;
+      }
+      if (c == '-' && next == '-') {
+        whitespace = true;
+        i = skipLineComment(sql, i + 2);
+        continue;
+      }
+      if (c == '/' && next == '*') {
+        whitespace = true;
+        i = skipBlockComment(sql, i + 2);
+        continue;
+      }
+
+      if (whitespace && normalized.length() > 0) {
+        normalized.append(' ');
+      }
+      whitespace = false;
+
+      if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+        normalized.append('?');
+      } else if (c == '"' || c == '`') {
+        final int end = skipQuoted(sql, i, c);
+        normalized.append(sql, i, end);
+        i = end;
+      } else if (isDigit(c) || (c == '.' && isDigit(next))) {
+        i = skipNumber(sql, i);
+        normalized.append('?');
+      } else if (isIdentifierPart(c)) {
+        final int end = skipIdentifier(sql, i);
+        if (end == i + 1 && end < length && sql.charAt(end) == '\'' && isLiteralPrefix(c)) {
+          // N'...', X'...', B'...' or E'...' literal
+          i = skipQuoted(sql, end, '\'');
+          normalized.append('?');
+        } else {
+          normalized.append(sql, i, end);
+          i = end;
+        }
+      } else {
+        normalized.append(c);
+        i++;
+      }
+    }
+    return normalized.toString();
+  }
+
+  private static int skipLineComment(final String sql, int i) {
+    while (i < sql.length() && sql.charAt(i) != '\n') {
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipBlockComment(final String sql, final int i) {
+    final int end = sql.indexOf("*/", i);
+    return end < 0 ? sql.length() : end + 2;
+  }
+
+  /** @return the index after the closing quote, a doubled quote being an escaped one */
+  private static int skipQuoted(final String sql, final int start, final char quote) {
+    int i = start + 1;
+    while (i < sql.length()) {
+      if (sql.charAt(i) == quote) {
+        if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  private static int skipNumber(final String sql, int i) {
+    final int length = sql.length();
+    if (sql.charAt(i) == '0' && i + 1 < length && (sql.charAt(i + 1) | 0x20) == 'x') {
+      i += 2;
+      while (i < length && Character.digit(sql.charAt(i), 16) >= 0) {
+        i++;
+      }
+      return i;
+    }
+    while (i < length && (isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+      i++;
+    }
+    if (i < length && (sql.charAt(i) | 0x20) == 'e') {
+      int exponent = i + 1;
+      if (exponent < length && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+        exponent++;
+      }
+      if (exponent < length && isDigit(sql.charAt(exponent))) {
+        i = exponent;
+        while (i < length && isDigit(sql.charAt(i))) {
+          i++;
+        }
+      }
+    }
+    return i;
+  }
+
+  private static int skipIdentifier(final String sql, int i) {
+    while (i < sql.length() && isIdentifierPart(sql.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  private static boolean isDigit(final char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isIdentifierPart(final char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '@';
+  }
+
+  private static boolean isLiteralPrefix(final char c) {
+    switch (c | 0x20) {
+      case 'n':
+      case 'x':
+      case 'b':
+      case 'e':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Concurrent cache split into segments by hash. A segment is cleared once it is full, so that an
+   * application running more distinct statements than the cache holds only loses the statements of
+   * one segment at a time.
+   */
+  static final class BoundedCache {
+    static final int SEGMENTS = 16;
+
+    private final ConcurrentHashMap<String, String>[] segments;
+    // counts can be above the actual sizes while a segment is cleared, never below
+    private final AtomicIntegerArray sizes = new AtomicIntegerArray(SEGMENTS);
+    private final int maxSegmentSize;
+
+    @SuppressWarnings("unchecked")
+    BoundedCache(final int maxSize) {
+      segments = new ConcurrentHashMap[SEGMENTS];
+      for (int i = 0; i < SEGMENTS; i++) {
+        segments[i] = new ConcurrentHashMap<>();
+      }
+      maxSegmentSize = Math.max(1, maxSize / SEGMENTS);
+    }
+
+    String get(final String key) {
+      return segments[segment(key)].get(key);
+    }
+
+    void put(final String key, final String value) {
+      final int segment = segment(key);
+      if (sizes.get(segment) >= maxSegmentSize) {
+        sizes.set(segment, 0);
+        segments[segment].clear();
+      }
+      if (segments[segment].putIfAbsent(key, value) == null) {
+        sizes.incrementAndGet(segment);
+      }
+    }
+
+    int size() {
+      int size = 0;
+      for (final ConcurrentHashMap<String, String> segment : segments) {
+        size += segment.size();
+      }
+      return size;
+    }
+
+    private static int segment(final String key) {
+      final int hash = key.hashCode();
+      return (hash ^ (hash >>> 16)) & (SEGMENTS - 1);
+    }
+  }
+}
@@ -12,6 +12,7 @@ import static net.bytebuddy.matcher.ElementMatchers.not;
 import static net.bytebuddy.matcher.ElementMatchers.takesArgument;
 
 import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.CallDepthSlot;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.bootstrap.CallDepthThreadLocalMap;
 import io.opentracing.Scope;
@@ -47,6 +48,9 @@ public final class StatementInstrumentation extends Instrumenter.Default {
       packageName + ".JDBCDecorator",
       packageName + ".JDBCMaps",
       packageName + ".JDBCMaps$DBInfo",
+      packageName + ".JDBCMaps$SqlStatement",
+      packageName + ".SqlNormalizer",
+      packageName + ".SqlNormalizer$BoundedCache",
       packageName + ".JDBCUtils",
     };
   }
@@ -62,8 +66,10 @@ public final class StatementInstrumentation extends Instrumenter.Default {
 
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Scope startSpan(
-        @Advice.Argument(0) final String sql, @Advice.This final Statement statement) {
-      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(Statement.class);
+        @Advice.Argument(0) final String sql,
+        @Advice.This final Statement statement,
+        @CallDepthSlot(Statement.class) final int callDepthSlot) {
+      final int callDepth = CallDepthThreadLocalMap.incrementCallDepth(callDepthSlot);
       if (callDepth > 0) {
         return null;
       }
@@ -84,12 +90,14 @@ public final class StatementInstrumentation extends Instrumenter.Default {
 
     @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
     public static void stopSpan(
-        @Advice.Enter final Scope scope, @Advice.Thrown final Throwable throwable) {
+        @Advice.Enter final Scope scope,
+        @Advice.Thrown final Throwable throwable,
+        @CallDepthSlot(Statement.class) final int callDepthSlot) {
       if (scope != null) {
         DECORATE.onError(scope.span(), throwable);
         DECORATE.beforeFinish(scope.span());
         scope.close();
-        CallDepthThreadLocalMap.reset(Statement.class);
+        CallDepthThreadLocalMap.reset(callDepthSlot);
       }
     }
   }
@@ -0,0 +1,22 @@
+import datadog.trace.instrumentation.jdbc.JDBCMaps
+import datadog.trace.instrumentation.jdbc.JDBCUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class JDBCUtilsTest extends Specification {
+
+  @Unroll
+  def "parse #url"() {
+    expect:
+    JDBCUtils.parseDBInfo(url, "user") == new JDBCMaps.DBInfo(instance, type, "user")
+
+    where:
+    url                                                  | instance                               | type
+    "jdbc:h2:mem:test"                                   | "jdbc:h2:mem:test"                     | "h2"
+    "jdbc:derby:memory:test;create=true"                 | "jdbc:derby:memory:test"               | "derby"
+    "jdbc:postgresql://host:5432/db?password=secret"     | "jdbc:postgresql://host:5432/db"       | "postgresql"
+    "jdbc:sqlserver://host;user=sa;password=secret"      | "jdbc:sqlserver://host"                | "sqlserver"
+    "jdbc:oracle"                                        | "jdbc:oracle"                          | "oracle"
+    "unknown"                                            | "unknown"                              | JDBCMaps.DBInfo.DEFAULT.type
+  }
+}
@@ -0,0 +1,60 @@
+import datadog.trace.instrumentation.jdbc.JDBCMaps
+import datadog.trace.instrumentation.jdbc.SqlNormalizer
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class SqlNormalizerTest extends Specification {
+
+  @Unroll
+  def "normalize #sql"() {
+    expect:
+    SqlNormalizer.normalize(sql) == normalized
+
+    where:
+    sql                                                          | normalized
+    "SELECT 3"                                                   | "SELECT ?"
+    "SELECT 3;"                                                  | "SELECT ?;"
+    "SELECT * FROM users WHERE id = 42 AND name = 'bob'"         | "SELECT * FROM users WHERE id = ? AND name = ?"
+    "SELECT * FROM users WHERE name = 'O''Brien'"                | "SELECT * FROM users WHERE name = ?"
+    "SELECT 1.5, .5, 1e10, 2.5E-3, 0x1F FROM t"                  | "SELECT ?, ?, ?, ?, ? FROM t"
+    "SELECT -1"                                                  | "SELECT -?"
+    "SELECT N'unicode', X'0F' FROM t"                            | "SELECT ?, ? FROM t"
+    "SELECT a\n  FROM\tt   WHERE b=?"                            | "SELECT a FROM t WHERE b=?"
+    "  SELECT a FROM t  "                                        | "SELECT a FROM t"
+    "SELECT a -- trailing comment\nFROM t"                       | "SELECT a FROM t"
+    "SELECT /* hint 1 */ a FROM t"                               | "SELECT a FROM t"
+    "SELECT \"col 1\", `col2` FROM \"Table3\""                   | "SELECT \"col 1\", `col2` FROM \"Table3\""
+    "CREATE TABLE PS_H2_C3P0 (id INTEGER not NULL, PRIMARY KEY ( id ))" | "CREATE TABLE PS_H2_C3P0 (id INTEGER not NULL, PRIMARY KEY ( id ))"
+    "SELECT * FROM t WHERE a = \$1 AND b = :name"                | "SELECT * FROM t WHERE a = \$1 AND b = :name"
+    "SELECT 'unterminated"                                       | "SELECT ?"
+    "SELECT a FROM t /* unterminated"                            | "SELECT a FROM t"
+    ""                                                           | ""
+  }
+
+  def "resource name of an unknown statement"() {
+    expect:
+    SqlNormalizer.resourceName(null) == JDBCMaps.DB_QUERY
+  }
+
+  def "resource names are cached"() {
+    setup:
+    def sql = "SELECT * FROM cached WHERE id = " + System.nanoTime()
+
+    expect:
+    SqlNormalizer.resourceName(sql) == "SELECT * FROM cached WHERE id = ?"
+    SqlNormalizer.resourceName(new String(sql)).is(SqlNormalizer.resourceName(sql))
+  }
+
+  def "cache is bounded"() {
+    setup:
+    def cache = new SqlNormalizer.BoundedCache(32)
+
+    when:
+    (1..1000).each { cache.put("statement" + it, "normalized" + it) }
+    cache.put("last", "normalized")
+
+    then:
+    cache.size() <= 32
+    cache.get("last") == "normalized"
+  }
+}
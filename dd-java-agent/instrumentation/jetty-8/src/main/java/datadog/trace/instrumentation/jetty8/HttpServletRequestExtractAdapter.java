@@ -1,5 +1,7 @@
 package datadog.trace.instrumentation.jetty8;
 
+import datadog.trace.api.propagation.EnumerationKeys;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.opentracing.propagation.TextMap;
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -17,17 +19,28 @@ import javax.servlet.http.HttpServletRequest;
  * @author Pavol Loffay
  */
 // FIXME:  This code is duplicated in several places.  Extract to a common dependency.
-public class HttpServletRequestExtractAdapter implements TextMap {
+public class HttpServletRequestExtractAdapter implements TextMap, KeyedExtractAdapter {
 
-  private final Map<String, List<String>> headers;
+  private final HttpServletRequest httpServletRequest;
 
   public HttpServletRequestExtractAdapter(final HttpServletRequest httpServletRequest) {
-    headers = servletHeadersToMultiMap(httpServletRequest);
+    this.httpServletRequest = httpServletRequest;
   }
 
   @Override
   public Iterator<Map.Entry<String, String>> iterator() {
-    return new MultivaluedMapFlatIterator<>(headers.entrySet());
+    return new MultivaluedMapFlatIterator<>(
+        servletHeadersToMultiMap(httpServletRequest).entrySet());
+  }
+
+  @Override
+  public String get(final String key) {
+    return httpServletRequest.getHeader(key);
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return new EnumerationKeys(httpServletRequest.getHeaderNames());
   }
 
   @Override
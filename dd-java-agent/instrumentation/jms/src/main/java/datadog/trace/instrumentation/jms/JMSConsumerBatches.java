@@ -0,0 +1,105 @@
+package datadog.trace.instrumentation.jms;
+
+import static datadog.trace.instrumentation.jms.JMSDecorator.CONSUMER_DECORATE;
+
+import datadog.trace.agent.decorator.ConsumerBatches;
+import io.opentracing.Span;
+import io.opentracing.propagation.Format;
+import io.opentracing.util.GlobalTracer;
+import java.util.concurrent.TimeUnit;
+import javax.jms.BytesMessage;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Batch spans of the consumer and listener instrumentations. Kept out of {@link JMSDecorator} so
+ * the producer instrumentation doesn't need the {@link ConsumerBatches} helpers.
+ */
+@Slf4j
+public class JMSConsumerBatches {
+  public static final JMSConsumerBatches CONSUMER_BATCHES = new JMSConsumerBatches();
+
+  private final ConsumerBatches batches = new ConsumerBatches("jms");
+
+  public boolean isEnabled() {
+    return batches.isEnabled();
+  }
+
+  /** Finish the thread's batch span, if any. */
+  public void flush() {
+    batches.flush();
+  }
+
+  /** Count a message returned by a consumer in the thread's batch span. */
+  public void consumeInBatch(
+      final String operationName,
+      final Object consumer,
+      final Message message,
+      final long startMillis) {
+    addToBatch(operationName, consumer, message, startMillis, false);
+  }
+
+  /** Count a message given to a listener in the thread's batch span. */
+  public void receiveInBatch(
+      final String operationName,
+      final Object listener,
+      final Message message,
+      final long startMillis) {
+    addToBatch(operationName, listener, message, startMillis, true);
+  }
+
+  private void addToBatch(
+      final String operationName,
+      final Object origin,
+      final Message message,
+      final long startMillis,
+      final boolean received) {
+    Destination destination = null;
+    try {
+      destination = message.getJMSDestination();
+    } catch (final JMSException e) {
+      log.debug("Unable to read the destination of a consumed message", e);
+    }
+    final MessagePropertyTextMap carrier = new MessagePropertyTextMap(message);
+    ConsumerBatches.Batch batch = batches.current(destination);
+    if (batch == null) {
+      // only the first message of a batch has its context extracted
+      final Span span =
+          GlobalTracer.get()
+              .buildSpan(operationName)
+              .asChildOf(GlobalTracer.get().extract(Format.Builtin.TEXT_MAP, carrier))
+              .withTag("span.origin.type", origin.getClass().getName())
+              .withStartTimestamp(TimeUnit.MILLISECONDS.toMicros(startMillis))
+              .start();
+      CONSUMER_DECORATE.afterStart(span);
+      if (received) {
+        CONSUMER_DECORATE.onReceive(span, message);
+      } else {
+        CONSUMER_DECORATE.onConsume(span, message);
+      }
+      batch = batches.start(destination, span);
+    }
+    batch.add(bodySize(message), carrier);
+  }
+
+  /**
+   * @return length of the body of bytes messages, or of the text of text messages, 0 for other
+   *     message types
+   */
+  private static long bodySize(final Message message) {
+    try {
+      if (message instanceof BytesMessage) {
+        return ((BytesMessage) message).getBodyLength();
+      } else if (message instanceof TextMessage) {
+        final String text = ((TextMessage) message).getText();
+        return text == null ? 0 : text.length();
+      }
+    } catch (final JMSException e) {
+      log.debug("Unable to read the body size of a consumed message", e);
+    }
+    return 0;
+  }
+}
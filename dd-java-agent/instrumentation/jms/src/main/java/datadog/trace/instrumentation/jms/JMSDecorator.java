@@ -68,7 +68,11 @@ public abstract class JMSDecorator extends ClientDecorator {
   }
 
   public void onReceive(final Scope scope, final Message message) {
-    scope.span().setTag(DDTags.RESOURCE_NAME, "Received from " + toResourceName(message, null));
+    onReceive(scope.span(), message);
+  }
+
+  public void onReceive(final Span span, final Message message) {
+    span.setTag(DDTags.RESOURCE_NAME, "Received from " + toResourceName(message, null));
   }
 
   public void onProduce(final Scope scope, final Message message, final Destination destination) {
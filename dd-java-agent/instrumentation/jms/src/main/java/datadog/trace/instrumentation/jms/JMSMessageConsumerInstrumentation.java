@@ -1,6 +1,7 @@
 package datadog.trace.instrumentation.jms;
 
 import static datadog.trace.agent.tooling.ByteBuddyElementMatchers.safeHasSuperType;
+import static datadog.trace.instrumentation.jms.JMSConsumerBatches.CONSUMER_BATCHES;
 import static datadog.trace.instrumentation.jms.JMSDecorator.CONSUMER_DECORATE;
 import static net.bytebuddy.matcher.ElementMatchers.isInterface;
 import static net.bytebuddy.matcher.ElementMatchers.isPublic;
@@ -43,9 +44,14 @@ public final class JMSMessageConsumerInstrumentation extends Instrumenter.Defaul
     return new String[] {
       "datadog.trace.agent.decorator.BaseDecorator",
       "datadog.trace.agent.decorator.ClientDecorator",
+      "datadog.trace.agent.decorator.ConsumeMode",
+      "datadog.trace.agent.decorator.ConsumerBatches",
+      "datadog.trace.agent.decorator.ConsumerBatches$Batch",
+      "datadog.trace.agent.decorator.ConsumerBatches$Sweeper",
       packageName + ".JMSDecorator",
       packageName + ".JMSDecorator$1",
       packageName + ".JMSDecorator$2",
+      packageName + ".JMSConsumerBatches",
       packageName + ".MessagePropertyTextMap",
     };
   }
@@ -76,6 +82,16 @@ public final class JMSMessageConsumerInstrumentation extends Instrumenter.Defaul
         @Advice.Origin final Method method,
         @Advice.Return final Message message,
         @Advice.Thrown final Throwable throwable) {
+      if (CONSUMER_BATCHES.isEnabled() && throwable == null) {
+        if (message == null) {
+          // nothing left to receive, the receive loop's batch is complete
+          CONSUMER_BATCHES.flush();
+        } else {
+          CONSUMER_BATCHES.consumeInBatch("jms.consume", consumer, message, startTime);
+        }
+        return;
+      }
+
       Tracer.SpanBuilder spanBuilder =
           GlobalTracer.get()
               .buildSpan("jms.consume")
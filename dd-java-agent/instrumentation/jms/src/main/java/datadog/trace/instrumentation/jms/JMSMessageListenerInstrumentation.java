@@ -1,6 +1,7 @@
 package datadog.trace.instrumentation.jms;
 
 import static datadog.trace.agent.tooling.ByteBuddyElementMatchers.safeHasSuperType;
+import static datadog.trace.instrumentation.jms.JMSConsumerBatches.CONSUMER_BATCHES;
 import static datadog.trace.instrumentation.jms.JMSDecorator.CONSUMER_DECORATE;
 import static java.util.Collections.singletonMap;
 import static net.bytebuddy.matcher.ElementMatchers.isInterface;
@@ -41,9 +42,14 @@ public final class JMSMessageListenerInstrumentation extends Instrumenter.Defaul
     return new String[] {
       "datadog.trace.agent.decorator.BaseDecorator",
       "datadog.trace.agent.decorator.ClientDecorator",
+      "datadog.trace.agent.decorator.ConsumeMode",
+      "datadog.trace.agent.decorator.ConsumerBatches",
+      "datadog.trace.agent.decorator.ConsumerBatches$Batch",
+      "datadog.trace.agent.decorator.ConsumerBatches$Sweeper",
       packageName + ".JMSDecorator",
       packageName + ".JMSDecorator$1",
       packageName + ".JMSDecorator$2",
+      packageName + ".JMSConsumerBatches",
       packageName + ".MessagePropertyTextMap",
     };
   }
@@ -60,6 +66,11 @@ public final class JMSMessageListenerInstrumentation extends Instrumenter.Defaul
     @Advice.OnMethodEnter(suppress = Throwable.class)
     public static Scope startSpan(
         @Advice.Argument(0) final Message message, @Advice.This final MessageListener listener) {
+      if (CONSUMER_BATCHES.isEnabled()) {
+        CONSUMER_BATCHES.receiveInBatch(
+            "jms.onMessage", listener, message, System.currentTimeMillis());
+        return null;
+      }
 
       final SpanContext extractedContext =
           GlobalTracer.get().extract(Format.Builtin.TEXT_MAP, new MessagePropertyTextMap(message));
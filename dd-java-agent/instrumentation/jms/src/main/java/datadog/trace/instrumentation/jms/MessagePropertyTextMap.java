@@ -1,6 +1,8 @@
 package datadog.trace.instrumentation.jms;
 
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.opentracing.propagation.TextMap;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -10,7 +12,7 @@ import javax.jms.Message;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public class MessagePropertyTextMap implements TextMap {
+public class MessagePropertyTextMap implements TextMap, KeyedExtractAdapter {
   static final String DASH = "__dash__";
 
   private final Message message;
@@ -39,6 +41,60 @@ public class MessagePropertyTextMap implements TextMap {
     return map.entrySet().iterator();
   }
 
+  @Override
+  public String get(final String key) {
+    try {
+      Object value = message.getObjectProperty(key.replace("-", DASH));
+      if (value == null) {
+        // property names are case sensitive, match the lower case keys of the tracer like HTTP
+        // headers
+        final Enumeration<?> enumeration = message.getPropertyNames();
+        while (value == null && enumeration != null && enumeration.hasMoreElements()) {
+          final String name = (String) enumeration.nextElement();
+          if (name.replace(DASH, "-").equalsIgnoreCase(key)) {
+            value = message.getObjectProperty(name);
+          }
+        }
+      }
+      return value instanceof String ? (String) value : null;
+    } catch (final JMSException e) {
+      log.debug("Failure getting jms property: {}", key, e);
+      return null;
+    }
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    final Enumeration<?> enumeration;
+    try {
+      enumeration = message.getPropertyNames();
+    } catch (final JMSException e) {
+      log.debug("Failure getting jms property names", e);
+      return Collections.emptyList();
+    }
+    return new Iterable<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return enumeration != null && enumeration.hasMoreElements();
+          }
+
+          @Override
+          public String next() {
+            return ((String) enumeration.nextElement()).replace(DASH, "-");
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
+  }
+
   @Override
   public void put(final String key, final String value) {
     final String propName = key.replace("-", DASH);
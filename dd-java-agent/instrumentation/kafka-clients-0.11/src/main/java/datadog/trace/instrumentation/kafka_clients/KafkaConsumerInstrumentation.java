@@ -36,12 +36,14 @@ public final class KafkaConsumerInstrumentation extends Instrumenter.Default {
     return new String[] {
       "datadog.trace.agent.decorator.BaseDecorator",
       "datadog.trace.agent.decorator.ClientDecorator",
+      "datadog.trace.agent.decorator.ConsumeMode",
       packageName + ".KafkaDecorator",
       packageName + ".KafkaDecorator$1",
       packageName + ".KafkaDecorator$2",
       packageName + ".TextMapExtractAdapter",
       packageName + ".TracingIterable",
       packageName + ".TracingIterable$TracingIterator",
+      packageName + ".TracingIterable$BatchTracingIterator",
     };
   }
 
@@ -80,8 +82,7 @@ public final class KafkaConsumerInstrumentation extends Instrumenter.Default {
     @Advice.OnMethodExit(suppress = Throwable.class)
     public static void wrap(@Advice.Return(readOnly = false) Iterator<ConsumerRecord> iterator) {
       if (iterator != null) {
-        iterator =
-            new TracingIterable.TracingIterator(iterator, "kafka.consume", CONSUMER_DECORATE);
+        iterator = TracingIterable.wrap(iterator, "kafka.consume", CONSUMER_DECORATE);
       }
     }
   }
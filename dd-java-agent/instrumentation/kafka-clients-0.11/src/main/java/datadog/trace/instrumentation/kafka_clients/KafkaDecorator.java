@@ -1,6 +1,8 @@
 package datadog.trace.instrumentation.kafka_clients;
 
 import datadog.trace.agent.decorator.ClientDecorator;
+import datadog.trace.agent.decorator.ConsumeMode;
+import datadog.trace.api.Config;
 import datadog.trace.api.DDSpanTypes;
 import datadog.trace.api.DDTags;
 import io.opentracing.Scope;
@@ -36,6 +38,23 @@ public abstract class KafkaDecorator extends ClientDecorator {
         }
       };
 
+  // in batch mode a span is created per partition of a poll() batch
+  private final boolean consumeBatches;
+  // only records with an offset divisible by this are traced, 0 to trace none
+  private final long recordSampleInterval;
+
+  protected KafkaDecorator() {
+    final String consumeMode = ConsumeMode.get("kafka", ConsumeMode.SAMPLED, ConsumeMode.BATCH);
+    consumeBatches = ConsumeMode.BATCH.equals(consumeMode);
+    if (ConsumeMode.SAMPLED.equals(consumeMode)) {
+      final float sampleRate =
+          Config.get().getFloatSetting("integration.kafka.consume.sample-rate", 0.1f);
+      recordSampleInterval = sampleRate <= 0 ? 0 : Math.max(1, Math.round(1 / sampleRate));
+    } else {
+      recordSampleInterval = 1;
+    }
+  }
+
   @Override
   protected String[] instrumentationNames() {
     return new String[] {"kafka"};
@@ -64,6 +83,29 @@ public abstract class KafkaDecorator extends ClientDecorator {
     }
   }
 
+  public boolean consumeBatches() {
+    return consumeBatches;
+  }
+
+  /** Sampling is based on the offset so redeliveries of a record are traced consistently. */
+  public boolean shouldTrace(final ConsumerRecord record) {
+    return recordSampleInterval == 1
+        || (recordSampleInterval > 0 && record.offset() % recordSampleInterval == 0);
+  }
+
+  public void onConsumeBatch(
+      final Scope scope,
+      final int records,
+      final long bytes,
+      final long maxLagMillis,
+      final int upstreamContexts) {
+    final Span span = scope.span();
+    span.setTag(DDTags.MESSAGE_BATCH_SIZE, records);
+    span.setTag(DDTags.MESSAGE_BATCH_BYTES, bytes);
+    span.setTag(DDTags.MESSAGE_BATCH_MAX_LAG, maxLagMillis);
+    span.setTag(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS, upstreamContexts);
+  }
+
   public void onProduce(final Scope scope, final ProducerRecord record) {
     if (record != null) {
       final Span span = scope.span();
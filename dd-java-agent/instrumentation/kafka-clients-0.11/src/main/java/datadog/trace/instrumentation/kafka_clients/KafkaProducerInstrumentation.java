@@ -38,6 +38,7 @@ public final class KafkaProducerInstrumentation extends Instrumenter.Default {
     return new String[] {
       "datadog.trace.agent.decorator.BaseDecorator",
       "datadog.trace.agent.decorator.ClientDecorator",
+      "datadog.trace.agent.decorator.ConsumeMode",
       packageName + ".KafkaDecorator",
       packageName + ".KafkaDecorator$1",
       packageName + ".KafkaDecorator$2",
@@ -1,5 +1,6 @@
 package datadog.trace.instrumentation.kafka_clients;
 
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.opentracing.propagation.TextMap;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
@@ -8,19 +9,64 @@ import java.util.Map;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 
-public class TextMapExtractAdapter implements TextMap {
+public class TextMapExtractAdapter implements TextMap, KeyedExtractAdapter {
 
-  private final Map<String, String> map = new HashMap<>();
+  private final Headers headers;
 
   public TextMapExtractAdapter(final Headers headers) {
+    this.headers = headers;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    final Map<String, String> map = new HashMap<>();
     for (final Header header : headers) {
       map.put(header.key(), new String(header.value(), StandardCharsets.UTF_8));
     }
+    return map.entrySet().iterator();
   }
 
   @Override
-  public Iterator<Map.Entry<String, String>> iterator() {
-    return map.entrySet().iterator();
+  public String get(final String key) {
+    Header header = headers.lastHeader(key);
+    if (header == null) {
+      // header keys are case sensitive, match the lower case keys of the tracer like HTTP headers
+      for (final Header candidate : headers) {
+        if (candidate.key().equalsIgnoreCase(key)) {
+          header = candidate;
+        }
+      }
+    }
+    if (header == null || header.value() == null) {
+      return null;
+    }
+    return new String(header.value(), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return new Iterable<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        final Iterator<Header> iterator = headers.iterator();
+        return new Iterator<String>() {
+          @Override
+          public boolean hasNext() {
+            return iterator.hasNext();
+          }
+
+          @Override
+          public String next() {
+            return iterator.next().key();
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    };
   }
 
   @Override
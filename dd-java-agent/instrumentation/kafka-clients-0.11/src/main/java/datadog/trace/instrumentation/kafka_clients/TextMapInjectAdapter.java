@@ -1,12 +1,13 @@
 package datadog.trace.instrumentation.kafka_clients;
 
+import datadog.trace.api.propagation.BinaryInjectAdapter;
 import io.opentracing.propagation.TextMap;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
 import org.apache.kafka.common.header.Headers;
 
-public class TextMapInjectAdapter implements TextMap {
+public class TextMapInjectAdapter implements TextMap, BinaryInjectAdapter {
 
   private final Headers headers;
 
@@ -23,4 +24,9 @@ public class TextMapInjectAdapter implements TextMap {
   public void put(final String key, final String value) {
     headers.remove(key).add(key, value.getBytes(StandardCharsets.UTF_8));
   }
+
+  @Override
+  public void put(final String key, final byte[] value) {
+    headers.remove(key).add(key, value);
+  }
 }
@@ -24,9 +24,26 @@ public class TracingIterable implements Iterable<ConsumerRecord> {
 
   @Override
   public Iterator<ConsumerRecord> iterator() {
-    return new TracingIterator(delegateIterable.iterator(), operationName, decorator);
+    return wrap(delegateIterable.iterator(), operationName, decorator);
   }
 
+  /** @return an iterator tracing records as configured by the consume mode of the decorator */
+  public static Iterator<ConsumerRecord> wrap(
+      final Iterator<ConsumerRecord> delegateIterator,
+      final String operationName,
+      final KafkaDecorator decorator) {
+    if (decorator.consumeBatches()) {
+      return new BatchTracingIterator(delegateIterator, operationName, decorator);
+    }
+    return new TracingIterator(delegateIterator, operationName, decorator);
+  }
+
+  private static SpanContext extract(final ConsumerRecord record) {
+    return GlobalTracer.get()
+        .extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(record.headers()));
+  }
+
+  /** Creates a span for each (sampled) record, active until the next record is requested. */
   @Slf4j
   public static class TracingIterator implements Iterator<ConsumerRecord> {
     private final Iterator<ConsumerRecord> delegateIterator;
@@ -64,12 +81,9 @@ public class TracingIterable implements Iterable<ConsumerRecord> {
       final ConsumerRecord next = delegateIterator.next();
 
       try {
-        if (next != null) {
-          final SpanContext spanContext =
-              GlobalTracer.get()
-                  .extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(next.headers()));
+        if (next != null && decorator.shouldTrace(next)) {
           currentScope =
-              GlobalTracer.get().buildSpan(operationName).asChildOf(spanContext).startActive(true);
+              GlobalTracer.get().buildSpan(operationName).asChildOf(extract(next)).startActive(true);
           decorator.afterStart(currentScope);
           decorator.onConsume(currentScope, next);
         }
@@ -84,4 +98,110 @@ public class TracingIterable implements Iterable<ConsumerRecord> {
       delegateIterator.remove();
     }
   }
+
+  /**
+   * Creates a span for each run of records of the same topic partition, which is how records of a
+   * poll() are iterated. The span is a child of the first record's context and stays active until
+   * a record of another partition is requested or the iteration ends.
+   */
+  @Slf4j
+  public static class BatchTracingIterator implements Iterator<ConsumerRecord> {
+    // Datadog propagation header, only checked for presence to count upstream contexts
+    private static final String TRACE_ID_HEADER = "x-datadog-trace-id";
+
+    private final Iterator<ConsumerRecord> delegateIterator;
+    private final String operationName;
+    private final KafkaDecorator decorator;
+
+    private Scope currentScope;
+    private String topic;
+    private int partition;
+    private long startMillis;
+    private int records;
+    private long bytes;
+    private long maxLagMillis;
+    private int upstreamContexts;
+
+    public BatchTracingIterator(
+        final Iterator<ConsumerRecord> delegateIterator,
+        final String operationName,
+        final KafkaDecorator decorator) {
+      this.delegateIterator = delegateIterator;
+      this.operationName = operationName;
+      this.decorator = decorator;
+    }
+
+    @Override
+    public boolean hasNext() {
+      final boolean hasNext = delegateIterator.hasNext();
+      if (!hasNext) {
+        closeBatch();
+      }
+      return hasNext;
+    }
+
+    @Override
+    public ConsumerRecord next() {
+      final ConsumerRecord next = delegateIterator.next();
+
+      try {
+        if (next != null) {
+          if (currentScope == null || !sameBatch(next)) {
+            closeBatch();
+            startBatch(next);
+          }
+          addToBatch(next);
+        }
+      } catch (final Exception e) {
+        log.debug("Error during decoration", e);
+      }
+      return next;
+    }
+
+    @Override
+    public void remove() {
+      delegateIterator.remove();
+    }
+
+    private boolean sameBatch(final ConsumerRecord record) {
+      return partition == record.partition()
+          && (topic == null ? record.topic() == null : topic.equals(record.topic()));
+    }
+
+    private void startBatch(final ConsumerRecord record) {
+      topic = record.topic();
+      partition = record.partition();
+      startMillis = System.currentTimeMillis();
+      records = 0;
+      bytes = 0;
+      maxLagMillis = 0;
+      upstreamContexts = 0;
+      currentScope =
+          GlobalTracer.get().buildSpan(operationName).asChildOf(extract(record)).startActive(true);
+      decorator.afterStart(currentScope);
+      decorator.onConsume(currentScope, record);
+    }
+
+    private void addToBatch(final ConsumerRecord record) {
+      records++;
+      bytes += Math.max(0, record.serializedKeySize()) + Math.max(0, record.serializedValueSize());
+      if (record.timestamp() >= 0) {
+        maxLagMillis = Math.max(maxLagMillis, startMillis - record.timestamp());
+      }
+      if (record.headers().lastHeader(TRACE_ID_HEADER) != null) {
+        upstreamContexts++;
+      }
+    }
+
+    private void closeBatch() {
+      if (currentScope != null) {
+        try {
+          decorator.onConsumeBatch(currentScope, records, bytes, maxLagMillis, upstreamContexts);
+        } finally {
+          currentScope.close();
+          currentScope = null;
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,122 @@
+import datadog.trace.agent.test.AgentTestRunner
+import datadog.trace.api.DDSpanTypes
+import datadog.trace.api.DDTags
+import datadog.trace.instrumentation.kafka_clients.KafkaDecorator
+import datadog.trace.instrumentation.kafka_clients.TracingIterable
+import io.opentracing.tag.Tags
+import org.apache.kafka.clients.consumer.ConsumerRecord
+
+import static datadog.trace.agent.test.utils.TraceUtils.withSystemProperty
+
+class KafkaConsumeModeTest extends AgentTestRunner {
+
+  def "batch mode creates one span per topic partition"() {
+    setup:
+    def decorator = newDecorator("batch")
+    def records = [
+      new ConsumerRecord("topic", 0, 10, null, "a"),
+      new ConsumerRecord("topic", 0, 11, null, "b"),
+      new ConsumerRecord("topic", 0, 12, null, "c"),
+      new ConsumerRecord("topic", 1, 5, null, "d")
+    ]
+
+    when:
+    def iterator = TracingIterable.wrap(records.iterator(), "kafka.consume", decorator)
+    while (iterator.hasNext()) {
+      iterator.next()
+    }
+
+    then:
+    assertTraces(2) {
+      trace(0, 1) {
+        span(0) {
+          operationName "kafka.consume"
+          resourceName "Consume Topic topic"
+          spanType DDSpanTypes.MESSAGE_CONSUMER
+          parent()
+          tags {
+            "component" "java-kafka"
+            "span.kind" "consumer"
+            "partition" 0
+            "offset" 10
+            defaultTags()
+          }
+        }
+      }
+      trace(1, 1) {
+        span(0) {
+          operationName "kafka.consume"
+          resourceName "Consume Topic topic"
+          spanType DDSpanTypes.MESSAGE_CONSUMER
+          parent()
+          tags {
+            "component" "java-kafka"
+            "span.kind" "consumer"
+            "partition" 1
+            "offset" 5
+            defaultTags()
+          }
+        }
+      }
+    }
+    TEST_WRITER[0][0].metrics[DDTags.MESSAGE_BATCH_SIZE] == 3
+    TEST_WRITER[0][0].metrics[DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS] == 0
+    TEST_WRITER[1][0].metrics[DDTags.MESSAGE_BATCH_SIZE] == 1
+  }
+
+  def "sampled mode traces records with rate #rate"() {
+    setup:
+    def decorator = newDecorator("sampled", "$rate")
+    def records = (0..7).collect { new ConsumerRecord("topic", 0, it, null, "value") }
+
+    when:
+    def iterator = TracingIterable.wrap(records.iterator(), "kafka.consume", decorator)
+    while (iterator.hasNext()) {
+      iterator.next()
+    }
+
+    then:
+    TEST_WRITER.waitForTraces(traces)
+    TEST_WRITER.size() == traces
+    TEST_WRITER.collect { it[0].tags["offset"] } == (0..7).findAll { it % interval == 0 }
+
+    where:
+    rate | traces | interval
+    1    | 8      | 1
+    0.5  | 4      | 2
+    0.25 | 2      | 4
+  }
+
+  def "sampled mode with rate 0 traces nothing"() {
+    setup:
+    def decorator = newDecorator("sampled", "0")
+    def records = (0..3).collect { new ConsumerRecord("topic", 0, it, null, "value") }
+
+    when:
+    def iterator = TracingIterable.wrap(records.iterator(), "kafka.consume", decorator)
+    while (iterator.hasNext()) {
+      iterator.next()
+    }
+
+    then:
+    TEST_WRITER.size() == 0
+  }
+
+  def newDecorator(String mode, String sampleRate = null) {
+    return withSystemProperty("dd.integration.kafka.consume.mode", mode) {
+      withSystemProperty("dd.integration.kafka.consume.sample-rate", sampleRate) {
+        new KafkaDecorator() {
+          @Override
+          protected String spanKind() {
+            return Tags.SPAN_KIND_CONSUMER
+          }
+
+          @Override
+          protected String spanType() {
+            return DDSpanTypes.MESSAGE_CONSUMER
+          }
+        }
+      }
+    }
+  }
+}
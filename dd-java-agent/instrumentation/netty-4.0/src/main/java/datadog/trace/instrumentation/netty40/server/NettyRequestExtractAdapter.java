@@ -1,12 +1,13 @@
 package datadog.trace.instrumentation.netty40.server;
 
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.opentracing.propagation.TextMap;
 import java.util.Iterator;
 import java.util.Map;
 
-public class NettyRequestExtractAdapter implements TextMap {
+public class NettyRequestExtractAdapter implements TextMap, KeyedExtractAdapter {
   private final HttpHeaders headers;
 
   NettyRequestExtractAdapter(final HttpRequest request) {
@@ -18,6 +19,16 @@ public class NettyRequestExtractAdapter implements TextMap {
     return headers.iterator();
   }
 
+  @Override
+  public String get(final String key) {
+    return headers.get(key);
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return headers.names();
+  }
+
   @Override
   public void put(final String key, final String value) {
     throw new UnsupportedOperationException("This class should be used only with Tracer.inject()!");
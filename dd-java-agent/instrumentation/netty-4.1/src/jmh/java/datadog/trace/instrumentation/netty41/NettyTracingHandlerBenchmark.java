@@ -0,0 +1,135 @@
+package datadog.trace.instrumentation.netty41;
+
+import datadog.opentracing.DDSpan;
+import datadog.opentracing.DDTracer;
+import datadog.trace.common.writer.Writer;
+import datadog.trace.instrumentation.netty41.client.HttpClientRequestTracingHandler;
+import datadog.trace.instrumentation.netty41.client.HttpClientResponseTracingHandler;
+import datadog.trace.instrumentation.netty41.client.HttpClientTracingHandler;
+import datadog.trace.instrumentation.netty41.server.HttpServerRequestTracingHandler;
+import datadog.trace.instrumentation.netty41.server.HttpServerResponseTracingHandler;
+import datadog.trace.instrumentation.netty41.server.HttpServerTracingHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.opentracing.util.GlobalTracer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the combined tracing handlers with the separate request and response handlers, by
+ * passing a request and its response through an {@link EmbeddedChannel}.
+ */
+public class NettyTracingHandlerBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class TracerState {
+    @Setup
+    public void registerTracer() {
+      if (!GlobalTracer.isRegistered()) {
+        GlobalTracer.register(new DDTracer(new DiscardingWriter()));
+      }
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ChannelState {
+    public EmbeddedChannel serverSplit;
+    public EmbeddedChannel serverCombined;
+    public EmbeddedChannel clientSplit;
+    public EmbeddedChannel clientCombined;
+
+    public HttpRequest serverRequest;
+    public HttpRequest clientRequest;
+    public HttpResponse response;
+
+    @Setup
+    public void setup(final TracerState tracer) {
+      serverSplit =
+          new TestChannel(
+              new HttpServerRequestTracingHandler(), new HttpServerResponseTracingHandler());
+      serverCombined = new TestChannel(new HttpServerTracingHandler());
+      clientSplit =
+          new TestChannel(
+              new HttpClientRequestTracingHandler(), new HttpClientResponseTracingHandler());
+      clientCombined = new TestChannel(new HttpClientTracingHandler());
+
+      serverRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/benchmark");
+      serverRequest.headers().set("x-datadog-trace-id", "1234");
+      serverRequest.headers().set("x-datadog-parent-id", "5678");
+      serverRequest.headers().set("x-datadog-sampling-priority", "1");
+      clientRequest = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/benchmark");
+      response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+    }
+  }
+
+  @Benchmark
+  public Object serverSplitHandlers(final ChannelState state) {
+    return serverExchange(state.serverSplit, state);
+  }
+
+  @Benchmark
+  public Object serverCombinedHandler(final ChannelState state) {
+    return serverExchange(state.serverCombined, state);
+  }
+
+  @Benchmark
+  public Object clientSplitHandlers(final ChannelState state) {
+    return clientExchange(state.clientSplit, state);
+  }
+
+  @Benchmark
+  public Object clientCombinedHandler(final ChannelState state) {
+    return clientExchange(state.clientCombined, state);
+  }
+
+  private static Object serverExchange(final EmbeddedChannel channel, final ChannelState state) {
+    channel.writeInbound(state.serverRequest);
+    channel.readInbound();
+    channel.writeOutbound(state.response);
+    return channel.readOutbound();
+  }
+
+  private static Object clientExchange(final EmbeddedChannel channel, final ChannelState state) {
+    channel.writeOutbound(state.clientRequest);
+    channel.readOutbound();
+    channel.writeInbound(state.response);
+    return channel.readInbound();
+  }
+
+  /** The decorators expect an inet address, which embedded channels don't have. */
+  static class TestChannel extends EmbeddedChannel {
+    private static final SocketAddress REMOTE_ADDRESS = new InetSocketAddress("127.0.0.1", 8080);
+
+    TestChannel(final ChannelHandler... handlers) {
+      super(handlers);
+    }
+
+    @Override
+    public SocketAddress remoteAddress() {
+      return REMOTE_ADDRESS;
+    }
+  }
+
+  static class DiscardingWriter implements Writer {
+    @Override
+    public void write(final List<DDSpan> trace) {}
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void close() {}
+  }
+}
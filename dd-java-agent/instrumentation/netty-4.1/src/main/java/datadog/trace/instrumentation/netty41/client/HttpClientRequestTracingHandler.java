@@ -16,6 +16,7 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapter {
+  private final NettyResponseInjectAdapter injectAdapter = new NettyResponseInjectAdapter();
 
   @Override
   public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise prm) {
@@ -24,15 +25,33 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
       return;
     }
 
-    TraceScope scope = null;
-    final TraceScope.Continuation continuation =
-        ctx.channel().attr(AttributeKeys.PARENT_CONNECT_CONTINUATION_ATTRIBUTE_KEY).getAndRemove();
-    if (continuation != null) {
-      scope = continuation.activate();
+    final TraceScope scope = activateParent(ctx);
+
+    final Span span = startSpan(ctx, (HttpRequest) msg, injectAdapter);
+    ctx.channel().attr(AttributeKeys.CLIENT_ATTRIBUTE_KEY).set(span);
+    write(ctx, msg, prm, span);
+
+    if (null != scope) {
+      scope.close();
     }
+  }
 
-    final HttpRequest request = (HttpRequest) msg;
+  /** @return the scope of the span active when the channel was connected, or null */
+  static TraceScope activateParent(final ChannelHandlerContext ctx) {
+    final TraceScope.Continuation continuation =
+        ctx.channel().attr(AttributeKeys.PARENT_CONNECT_CONTINUATION_ATTRIBUTE_KEY).getAndRemove();
+    return continuation == null ? null : continuation.activate();
+  }
 
+  /**
+   * Start the span of a request and inject it into the request headers.
+   *
+   * @param injectAdapter adapter of the channel, reused for each of its requests
+   */
+  static Span startSpan(
+      final ChannelHandlerContext ctx,
+      final HttpRequest request,
+      final NettyResponseInjectAdapter injectAdapter) {
     final Span span = GlobalTracer.get().buildSpan("netty.client.request").start();
     DECORATE.afterStart(span);
     DECORATE.onRequest(span, request);
@@ -40,13 +59,22 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
 
     // AWS calls are often signed, so we can't add headers without breaking the signature.
     if (!request.headers().contains("amz-sdk-invocation-id")) {
-      GlobalTracer.get()
-          .inject(
-              span.context(), Format.Builtin.HTTP_HEADERS, new NettyResponseInjectAdapter(request));
+      try {
+        GlobalTracer.get()
+            .inject(
+                span.context(),
+                Format.Builtin.HTTP_HEADERS,
+                injectAdapter.withHeaders(request.headers()));
+      } finally {
+        injectAdapter.withHeaders(null);
+      }
     }
+    return span;
+  }
 
-    ctx.channel().attr(AttributeKeys.CLIENT_ATTRIBUTE_KEY).set(span);
-
+  /** Write the request, finishing its span if the pipeline fails. */
+  static void write(
+      final ChannelHandlerContext ctx, final Object msg, final ChannelPromise prm, final Span span) {
     try {
       ctx.write(msg, prm);
     } catch (final Throwable throwable) {
@@ -55,9 +83,5 @@ public class HttpClientRequestTracingHandler extends ChannelOutboundHandlerAdapt
       span.finish();
       throw throwable;
     }
-
-    if (null != scope) {
-      scope.close();
-    }
   }
 }
@@ -21,7 +21,11 @@ public class HttpClientResponseTracingHandler extends ChannelInboundHandlerAdapt
       ctx.fireChannelRead(msg);
       return;
     }
+    channelRead(ctx, msg, span);
+  }
 
+  /** Pass a response message on with the span of its request active, finishing it on responses. */
+  static void channelRead(final ChannelHandlerContext ctx, final Object msg, final Span span) {
     try (final Scope scope = GlobalTracer.get().scopeManager().activate(span, false)) {
       final boolean finishSpan = msg instanceof HttpResponse;
 
@@ -1,12 +1,49 @@
 package datadog.trace.instrumentation.netty41.client;
 
-import io.netty.channel.CombinedChannelDuplexHandler;
+import datadog.trace.context.TraceScope;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.opentracing.Span;
 
-public class HttpClientTracingHandler
-    extends CombinedChannelDuplexHandler<
-        HttpClientResponseTracingHandler, HttpClientRequestTracingHandler> {
+/**
+ * Traces requests of channels using an {@code HttpClientCodec}. Unlike the separate request and
+ * response handlers, which are added to pipelines with a separate encoder and decoder, it keeps the
+ * span of the current request in a field instead of a channel attribute. Netty calls a handler
+ * from the event loop of its channel only, so the field needs no synchronization.
+ */
+public class HttpClientTracingHandler extends ChannelDuplexHandler {
+  private final NettyResponseInjectAdapter injectAdapter = new NettyResponseInjectAdapter();
 
-  public HttpClientTracingHandler() {
-    super(new HttpClientResponseTracingHandler(), new HttpClientRequestTracingHandler());
+  private Span span;
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise prm) {
+    if (!(msg instanceof HttpRequest)) {
+      ctx.write(msg, prm);
+      return;
+    }
+
+    final TraceScope scope = HttpClientRequestTracingHandler.activateParent(ctx);
+
+    final Span span =
+        HttpClientRequestTracingHandler.startSpan(ctx, (HttpRequest) msg, injectAdapter);
+    this.span = span;
+    HttpClientRequestTracingHandler.write(ctx, msg, prm, span);
+
+    if (null != scope) {
+      scope.close();
+    }
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    final Span span = this.span;
+    if (span == null) {
+      ctx.fireChannelRead(msg);
+      return;
+    }
+    HttpClientResponseTracingHandler.channelRead(ctx, msg, span);
   }
 }
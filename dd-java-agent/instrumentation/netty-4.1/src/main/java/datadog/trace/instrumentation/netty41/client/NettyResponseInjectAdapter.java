@@ -1,18 +1,31 @@
 package datadog.trace.instrumentation.netty41.client;
 
+import datadog.trace.api.propagation.BinaryInjectAdapter;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
+import io.netty.util.AsciiString;
 import io.opentracing.propagation.TextMap;
 import java.util.Iterator;
 import java.util.Map;
 
-public class NettyResponseInjectAdapter implements TextMap {
-  private final HttpHeaders headers;
+/**
+ * Writes headers of a request. Tracing handlers keep one adapter per channel and point it to the
+ * headers of each request, see {@link #withHeaders(HttpHeaders)}.
+ */
+public class NettyResponseInjectAdapter implements TextMap, BinaryInjectAdapter {
+  private HttpHeaders headers;
+
+  NettyResponseInjectAdapter() {}
 
   NettyResponseInjectAdapter(final HttpRequest request) {
     this.headers = request.headers();
   }
 
+  NettyResponseInjectAdapter withHeaders(final HttpHeaders headers) {
+    this.headers = headers;
+    return this;
+  }
+
   @Override
   public Iterator<Map.Entry<String, String>> iterator() {
     throw new UnsupportedOperationException("This class should be used only with Tracer.inject()!");
@@ -22,4 +35,10 @@ public class NettyResponseInjectAdapter implements TextMap {
   public void put(final String key, final String value) {
     headers.set(key, value);
   }
+
+  @Override
+  public void put(final String key, final byte[] value) {
+    // Wraps without copying, the bytes are written to the wire as they are.
+    headers.set(key, new AsciiString(value, false));
+  }
 }
@@ -15,6 +15,7 @@ import io.opentracing.util.GlobalTracer;
 import java.net.InetSocketAddress;
 
 public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapter {
+  private final NettyRequestExtractAdapter extractAdapter = new NettyRequestExtractAdapter();
 
   @Override
   public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
@@ -22,12 +23,30 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
       ctx.fireChannelRead(msg); // superclass does not throw
       return;
     }
-    final HttpRequest request = (HttpRequest) msg;
+    final Scope scope = startSpan(ctx, (HttpRequest) msg, extractAdapter);
+    ctx.channel().attr(AttributeKeys.SERVER_ATTRIBUTE_KEY).set(scope.span());
+    fireChannelRead(ctx, msg, scope);
+  }
+
+  /**
+   * Start the span of a request and activate it while the request is read.
+   *
+   * @param extractAdapter adapter of the channel, reused for each of its requests
+   */
+  static Scope startSpan(
+      final ChannelHandlerContext ctx,
+      final HttpRequest request,
+      final NettyRequestExtractAdapter extractAdapter) {
     final InetSocketAddress remoteAddress = (InetSocketAddress) ctx.channel().remoteAddress();
 
-    final SpanContext extractedContext =
-        GlobalTracer.get()
-            .extract(Format.Builtin.HTTP_HEADERS, new NettyRequestExtractAdapter(request));
+    final SpanContext extractedContext;
+    try {
+      extractedContext =
+          GlobalTracer.get()
+              .extract(Format.Builtin.HTTP_HEADERS, extractAdapter.withHeaders(request.headers()));
+    } finally {
+      extractAdapter.withHeaders(null);
+    }
 
     final Scope scope =
         GlobalTracer.get()
@@ -42,9 +61,13 @@ public class HttpServerRequestTracingHandler extends ChannelInboundHandlerAdapte
     if (scope instanceof TraceScope) {
       ((TraceScope) scope).setAsyncPropagation(true);
     }
+    return scope;
+  }
 
-    ctx.channel().attr(AttributeKeys.SERVER_ATTRIBUTE_KEY).set(span);
-
+  /** Pass the request on with its span active, finishing the span if the pipeline fails. */
+  static void fireChannelRead(
+      final ChannelHandlerContext ctx, final Object msg, final Scope scope) {
+    final Span span = scope.span();
     try {
       ctx.fireChannelRead(msg);
     } catch (final Throwable throwable) {
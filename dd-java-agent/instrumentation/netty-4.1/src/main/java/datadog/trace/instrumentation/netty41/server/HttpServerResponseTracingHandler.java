@@ -19,11 +19,17 @@ public class HttpServerResponseTracingHandler extends ChannelOutboundHandlerAdap
       ctx.write(msg, prm);
       return;
     }
+    write(ctx, (HttpResponse) msg, prm, span);
+  }
 
-    final HttpResponse response = (HttpResponse) msg;
-
+  /** Write the response and finish the span of its request. */
+  static void write(
+      final ChannelHandlerContext ctx,
+      final HttpResponse response,
+      final ChannelPromise prm,
+      final Span span) {
     try {
-      ctx.write(msg, prm);
+      ctx.write(response, prm);
     } catch (final Throwable throwable) {
       DECORATE.onError(span, throwable);
       Tags.HTTP_STATUS.set(span, 500);
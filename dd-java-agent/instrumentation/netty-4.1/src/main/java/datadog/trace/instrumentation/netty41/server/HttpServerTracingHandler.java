@@ -1,12 +1,44 @@
 package datadog.trace.instrumentation.netty41.server;
 
-import io.netty.channel.CombinedChannelDuplexHandler;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.opentracing.Scope;
+import io.opentracing.Span;
 
-public class HttpServerTracingHandler
-    extends CombinedChannelDuplexHandler<
-        HttpServerRequestTracingHandler, HttpServerResponseTracingHandler> {
+/**
+ * Traces requests of channels using an {@code HttpServerCodec}. Unlike the separate request and
+ * response handlers, which are added to pipelines with a separate decoder and encoder, it keeps the
+ * span of the current request in a field instead of a channel attribute. Netty calls a handler
+ * from the event loop of its channel only, so the field needs no synchronization.
+ */
+public class HttpServerTracingHandler extends ChannelDuplexHandler {
+  private final NettyRequestExtractAdapter extractAdapter = new NettyRequestExtractAdapter();
 
-  public HttpServerTracingHandler() {
-    super(new HttpServerRequestTracingHandler(), new HttpServerResponseTracingHandler());
+  private Span span;
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (!(msg instanceof HttpRequest)) {
+      ctx.fireChannelRead(msg); // superclass does not throw
+      return;
+    }
+    final Scope scope =
+        HttpServerRequestTracingHandler.startSpan(ctx, (HttpRequest) msg, extractAdapter);
+    span = scope.span();
+    HttpServerRequestTracingHandler.fireChannelRead(ctx, msg, scope);
+  }
+
+  @Override
+  public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise prm) {
+    final Span span = this.span;
+    if (span == null || !(msg instanceof HttpResponse)) {
+      ctx.write(msg, prm);
+      return;
+    }
+    this.span = null;
+    HttpServerResponseTracingHandler.write(ctx, (HttpResponse) msg, prm, span);
   }
 }
@@ -1,23 +1,45 @@
 package datadog.trace.instrumentation.netty41.server;
 
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.netty.handler.codec.http.HttpHeaders;
 import io.netty.handler.codec.http.HttpRequest;
 import io.opentracing.propagation.TextMap;
 import java.util.Iterator;
 import java.util.Map;
 
-public class NettyRequestExtractAdapter implements TextMap {
-  private final HttpHeaders headers;
+/**
+ * Reads the headers of a request by name. Tracing handlers keep one adapter per channel and point
+ * it to the headers of each request, see {@link #withHeaders(HttpHeaders)}.
+ */
+public class NettyRequestExtractAdapter implements TextMap, KeyedExtractAdapter {
+  private HttpHeaders headers;
+
+  NettyRequestExtractAdapter() {}
 
   NettyRequestExtractAdapter(final HttpRequest request) {
     this.headers = request.headers();
   }
 
+  NettyRequestExtractAdapter withHeaders(final HttpHeaders headers) {
+    this.headers = headers;
+    return this;
+  }
+
   @Override
   public Iterator<Map.Entry<String, String>> iterator() {
     return headers.iteratorAsString();
   }
 
+  @Override
+  public String get(final String key) {
+    return headers.get(key);
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return headers.names();
+  }
+
   @Override
   public void put(final String key, final String value) {
     throw new UnsupportedOperationException("This class should be used only with Tracer.inject()!");
@@ -12,6 +12,7 @@ import com.google.auto.service.AutoService;
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.api.DDSpanTypes;
 import datadog.trace.api.DDTags;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import datadog.trace.context.TraceScope;
 import io.opentracing.Scope;
 import io.opentracing.Span;
@@ -138,7 +139,7 @@ public final class PlayInstrumentation extends Instrumenter.Default {
     }
   }
 
-  public static class PlayHeaders implements TextMap {
+  public static class PlayHeaders implements TextMap, KeyedExtractAdapter {
     private final Request request;
 
     public PlayHeaders(final Request request) {
@@ -157,6 +158,39 @@ public final class PlayInstrumentation extends Instrumenter.Default {
       return javaMap.entrySet().iterator();
     }
 
+    @Override
+    public String get(final String key) {
+      final Option<String> value = request.headers().get(key);
+      return value.isDefined() ? value.get() : null;
+    }
+
+    @Override
+    public Iterable<String> keys() {
+      return new Iterable<String>() {
+        @Override
+        public Iterator<String> iterator() {
+          final scala.collection.Iterator<String> scalaIterator =
+              request.headers().keys().iterator();
+          return new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+              return scalaIterator.hasNext();
+            }
+
+            @Override
+            public String next() {
+              return scalaIterator.next();
+            }
+
+            @Override
+            public void remove() {
+              throw new UnsupportedOperationException();
+            }
+          };
+        }
+      };
+    }
+
     @Override
     public void put(final String s, final String s1) {
       throw new IllegalStateException("play headers can only be extracted");
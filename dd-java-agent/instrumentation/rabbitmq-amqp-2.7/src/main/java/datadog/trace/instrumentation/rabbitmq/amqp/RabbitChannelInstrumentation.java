@@ -58,6 +58,10 @@ public class RabbitChannelInstrumentation extends Instrumenter.Default {
   @Override
   public String[] helperClassNames() {
     return new String[] {
+      "datadog.trace.agent.decorator.ConsumeMode",
+      "datadog.trace.agent.decorator.ConsumerBatches",
+      "datadog.trace.agent.decorator.ConsumerBatches$Batch",
+      "datadog.trace.agent.decorator.ConsumerBatches$Sweeper",
       packageName + ".TextMapInjectAdapter",
       packageName + ".TextMapExtractAdapter",
       packageName + ".TracedDelegatingConsumer",
@@ -1,26 +1,48 @@
 package datadog.trace.instrumentation.rabbitmq.amqp;
 
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.opentracing.propagation.TextMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
 // TextMap works with <String,String>, but the type we're given is <String,Object>
-public class TextMapExtractAdapter implements TextMap {
+public class TextMapExtractAdapter implements TextMap, KeyedExtractAdapter {
 
-  private final Map<String, String> map = new HashMap<>();
+  private final Map<String, Object> headers;
 
   public TextMapExtractAdapter(final Map<String, Object> headers) {
+    this.headers = headers;
+  }
+
+  @Override
+  public Iterator<Map.Entry<String, String>> iterator() {
+    final Map<String, String> map = new HashMap<>();
     for (final Map.Entry<String, Object> entry : headers.entrySet()) {
       if (entry != null && entry.getValue() != null) {
         map.put(entry.getKey(), entry.getValue().toString());
       }
     }
+    return map.entrySet().iterator();
   }
 
   @Override
-  public Iterator<Map.Entry<String, String>> iterator() {
-    return map.entrySet().iterator();
+  public String get(final String key) {
+    Object value = headers.get(key);
+    if (value == null) {
+      // header keys are case sensitive, match the lower case keys of the tracer like HTTP headers
+      for (final Map.Entry<String, Object> entry : headers.entrySet()) {
+        if (entry.getKey().equalsIgnoreCase(key)) {
+          value = entry.getValue();
+        }
+      }
+    }
+    return value == null ? null : value.toString();
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return headers.keySet();
   }
 
   @Override
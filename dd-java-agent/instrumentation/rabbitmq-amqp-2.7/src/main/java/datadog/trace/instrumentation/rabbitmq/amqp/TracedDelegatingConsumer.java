@@ -6,6 +6,7 @@ import com.rabbitmq.client.AMQP;
 import com.rabbitmq.client.Consumer;
 import com.rabbitmq.client.Envelope;
 import com.rabbitmq.client.ShutdownSignalException;
+import datadog.trace.agent.decorator.ConsumerBatches;
 import datadog.trace.api.DDSpanTypes;
 import datadog.trace.api.DDTags;
 import io.opentracing.Scope;
@@ -27,6 +28,8 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class TracedDelegatingConsumer implements Consumer {
+  static final ConsumerBatches CONSUMER_BATCHES = new ConsumerBatches("rabbitmq");
+
   private final String queue;
   private final Consumer delegate;
 
@@ -67,6 +70,11 @@ public class TracedDelegatingConsumer implements Consumer {
       final AMQP.BasicProperties properties,
       final byte[] body)
       throws IOException {
+    if (CONSUMER_BATCHES.isEnabled()) {
+      deliverInBatch(consumerTag, envelope, properties, body);
+      return;
+    }
+
     Scope scope = NoopScopeManager.NoopScope.INSTANCE;
     try {
       final Map<String, Object> headers = properties.getHeaders();
@@ -76,33 +84,10 @@ public class TracedDelegatingConsumer implements Consumer {
               : GlobalTracer.get()
                   .extract(Format.Builtin.TEXT_MAP, new TextMapExtractAdapter(headers));
 
-      String queueName = queue;
-      if (queue == null || queue.isEmpty()) {
-        queueName = "<default>";
-      } else if (queue.startsWith("amq.gen-")) {
-        queueName = "<generated>";
-      }
-
-      final Tracer.SpanBuilder spanBuilder =
-          GlobalTracer.get()
-              .buildSpan("amqp.command")
-              .asChildOf(parentContext)
-              .withTag(DDTags.SERVICE_NAME, "rabbitmq")
-              .withTag(DDTags.RESOURCE_NAME, "basic.deliver " + queueName)
-              .withTag(DDTags.SPAN_TYPE, DDSpanTypes.MESSAGE_CONSUMER)
-              .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER)
-              .withTag(Tags.COMPONENT.getKey(), "rabbitmq-amqp")
-              .withTag("amqp.command", "basic.deliver")
+      scope =
+          spanBuilder(parentContext, envelope)
               .withTag("message.size", body == null ? 0 : body.length)
-              .withTag("span.origin.type", delegate.getClass().getName());
-
-      if (envelope != null) {
-        spanBuilder
-            .withTag("amqp.exchange", envelope.getExchange())
-            .withTag("amqp.routing_key", envelope.getRoutingKey());
-      }
-
-      scope = spanBuilder.startActive(true);
+              .startActive(true);
 
     } catch (final Exception e) {
       log.debug("Instrumentation error in tracing consumer", e);
@@ -122,4 +107,72 @@ public class TracedDelegatingConsumer implements Consumer {
       }
     }
   }
+
+  /**
+   * Deliver the message without a span of its own, it is counted in the batch span of the thread
+   * instead.
+   */
+  private void deliverInBatch(
+      final String consumerTag,
+      final Envelope envelope,
+      final AMQP.BasicProperties properties,
+      final byte[] body)
+      throws IOException {
+    ConsumerBatches.Batch batch = null;
+    try {
+      final Map<String, Object> headers = properties.getHeaders();
+      final TextMapExtractAdapter carrier =
+          headers == null ? null : new TextMapExtractAdapter(headers);
+      batch = CONSUMER_BATCHES.current(queue);
+      if (batch == null) {
+        // only the first message of a batch has its context extracted
+        final SpanContext parentContext =
+            carrier == null ? null : GlobalTracer.get().extract(Format.Builtin.TEXT_MAP, carrier);
+        batch = CONSUMER_BATCHES.start(queue, spanBuilder(parentContext, envelope).start());
+      }
+      batch.add(body == null ? 0 : body.length, carrier);
+    } catch (final Exception e) {
+      log.debug("Instrumentation error in tracing consumer", e);
+    }
+
+    try {
+      delegate.handleDelivery(consumerTag, envelope, properties, body);
+    } catch (final Throwable throwable) {
+      if (batch != null) {
+        final Span span = batch.getSpan();
+        Tags.ERROR.set(span, true);
+        span.log(Collections.singletonMap(ERROR_OBJECT, throwable));
+      }
+      throw throwable;
+    }
+  }
+
+  private Tracer.SpanBuilder spanBuilder(
+      final SpanContext parentContext, final Envelope envelope) {
+    String queueName = queue;
+    if (queue == null || queue.isEmpty()) {
+      queueName = "<default>";
+    } else if (queue.startsWith("amq.gen-")) {
+      queueName = "<generated>";
+    }
+
+    final Tracer.SpanBuilder spanBuilder =
+        GlobalTracer.get()
+            .buildSpan("amqp.command")
+            .asChildOf(parentContext)
+            .withTag(DDTags.SERVICE_NAME, "rabbitmq")
+            .withTag(DDTags.RESOURCE_NAME, "basic.deliver " + queueName)
+            .withTag(DDTags.SPAN_TYPE, DDSpanTypes.MESSAGE_CONSUMER)
+            .withTag(Tags.SPAN_KIND.getKey(), Tags.SPAN_KIND_CONSUMER)
+            .withTag(Tags.COMPONENT.getKey(), "rabbitmq-amqp")
+            .withTag("amqp.command", "basic.deliver")
+            .withTag("span.origin.type", delegate.getClass().getName());
+
+    if (envelope != null) {
+      spanBuilder
+          .withTag("amqp.exchange", envelope.getExchange())
+          .withTag("amqp.routing_key", envelope.getRoutingKey());
+    }
+    return spanBuilder;
+  }
 }
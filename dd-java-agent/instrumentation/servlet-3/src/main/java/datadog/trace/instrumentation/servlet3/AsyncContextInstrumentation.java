@@ -33,7 +33,14 @@ public final class AsyncContextInstrumentation extends Instrumenter.Default {
 
   @Override
   public String[] helperClassNames() {
-    return new String[] {packageName + ".HttpServletRequestInjectAdapter"};
+    return new String[] {
+      "datadog.trace.agent.decorator.BaseDecorator",
+      "datadog.trace.agent.decorator.ServerDecorator",
+      "datadog.trace.agent.decorator.HttpServerDecorator",
+      packageName + ".HttpServletRequestInjectAdapter",
+      packageName + ".Servlet3Decorator",
+      packageName + ".ServletRequestState",
+    };
   }
 
   @Override
@@ -50,7 +57,7 @@ public final class AsyncContextInstrumentation extends Instrumenter.Default {
   /**
    * When a request is dispatched, we want new request to have propagation headers from its parent
    * request. The parent request's span is later closed by {@code
-   * TagSettingAsyncListener#onStartAsync}
+   * ServletRequestState#onStartAsync}
    */
   public static class DispatchAdvice {
 
@@ -63,10 +70,10 @@ public final class AsyncContextInstrumentation extends Instrumenter.Default {
       }
 
       final ServletRequest request = context.getRequest();
-      final Object spanAttr = request.getAttribute(SERVLET_SPAN);
-      if (spanAttr instanceof Span) {
+      final ServletRequestState state = ServletRequestState.get(request);
+      if (state != null) {
         request.removeAttribute(SERVLET_SPAN);
-        final Span span = (Span) spanAttr;
+        final Span span = state.getSpan();
         // Override propagation headers by injecting attributes from the current span
         // into the new request
         if (request instanceof HttpServletRequest) {
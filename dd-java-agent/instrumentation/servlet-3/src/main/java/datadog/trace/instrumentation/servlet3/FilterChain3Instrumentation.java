@@ -30,7 +30,7 @@ public final class FilterChain3Instrumentation extends Instrumenter.Default {
       packageName + ".HttpServletRequestExtractAdapter",
       packageName + ".HttpServletRequestExtractAdapter$MultivaluedMapFlatIterator",
       packageName + ".Servlet3Decorator",
-      packageName + ".TagSettingAsyncListener"
+      packageName + ".ServletRequestState"
     };
   }
 
@@ -1,5 +1,7 @@
 package datadog.trace.instrumentation.servlet3;
 
+import datadog.trace.api.propagation.EnumerationKeys;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import io.opentracing.propagation.TextMap;
 import java.util.AbstractMap;
 import java.util.ArrayList;
@@ -18,17 +20,34 @@ import javax.servlet.http.HttpServletRequest;
  * @author Pavol Loffay
  */
 // FIXME:  This code is duplicated in several places.  Extract to a common dependency.
-public class HttpServletRequestExtractAdapter implements TextMap {
+public class HttpServletRequestExtractAdapter implements TextMap, KeyedExtractAdapter {
 
-  private final Map<String, List<String>> headers;
+  private final HttpServletRequest httpServletRequest;
 
   public HttpServletRequestExtractAdapter(final HttpServletRequest httpServletRequest) {
-    headers = servletHeadersToMultiMap(httpServletRequest);
+    this.httpServletRequest = httpServletRequest;
   }
 
   @Override
   public Iterator<Map.Entry<String, String>> iterator() {
-    return new MultivaluedMapFlatIterator<>(headers.entrySet());
+    return new MultivaluedMapFlatIterator<>(
+        servletHeadersToMultiMap(httpServletRequest).entrySet());
+  }
+
+  @Override
+  public String get(final String key) {
+    // Attributes override headers, see servletHeadersToMultiMap.
+    final Object attribute = httpServletRequest.getAttribute(key);
+    if (attribute instanceof String) {
+      return (String) attribute;
+    }
+    return httpServletRequest.getHeader(key);
+  }
+
+  @Override
+  public Iterable<String> keys() {
+    return new EnumerationKeys(
+        httpServletRequest.getHeaderNames(), httpServletRequest.getAttributeNames());
   }
 
   @Override
@@ -0,0 +1,132 @@
+package datadog.trace.instrumentation.servlet3;
+
+import static datadog.trace.instrumentation.servlet3.Servlet3Decorator.DECORATE;
+
+import datadog.trace.api.DDTags;
+import io.opentracing.Scope;
+import io.opentracing.Span;
+import io.opentracing.tag.Tags;
+import java.io.IOException;
+import java.security.Principal;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Tracing state of a request, stored in its {@link #ATTRIBUTE} attribute.
+ *
+ * <p>The span is finished exactly once: when the traced service method returns, or when the async
+ * processing it started ends. Only in the latter case is the state registered as a listener of the
+ * {@link javax.servlet.AsyncContext}.
+ */
+public class ServletRequestState implements AsyncListener {
+  public static final String ATTRIBUTE = "datadog.servlet.span";
+
+  private static final AtomicIntegerFieldUpdater<ServletRequestState> FINISHED =
+      AtomicIntegerFieldUpdater.newUpdater(ServletRequestState.class, "finished");
+
+  private final HttpServletRequest request;
+  private final Scope scope;
+  private volatile int finished;
+
+  public ServletRequestState(final HttpServletRequest request, final Scope scope) {
+    this.request = request;
+    this.scope = scope;
+  }
+
+  /** @return the state of a request whose span isn't finished yet, or null */
+  public static ServletRequestState get(final ServletRequest request) {
+    final Object state = request.getAttribute(ATTRIBUTE);
+    if (state instanceof ServletRequestState && !((ServletRequestState) state).isFinished()) {
+      return (ServletRequestState) state;
+    }
+    return null;
+  }
+
+  public Scope getScope() {
+    return scope;
+  }
+
+  public Span getSpan() {
+    return scope.span();
+  }
+
+  public boolean isFinished() {
+    return finished != 0;
+  }
+
+  /**
+   * Finish the span with the response, if it isn't finished yet.
+   *
+   * @param throwable thrown by the service method or reported by the async processing, or null
+   */
+  public void finish(final HttpServletResponse response, final Throwable throwable) {
+    if (!begin()) {
+      return;
+    }
+    final Span span = scope.span();
+    DECORATE.onResponse(span, response);
+    if (throwable != null) {
+      if (response.getStatus() == HttpServletResponse.SC_OK) {
+        // exception is thrown in filter chain, but status code is incorrect
+        Tags.HTTP_STATUS.set(span, 500);
+      }
+      DECORATE.onError(span, throwable);
+    }
+    DECORATE.beforeFinish(span);
+    span.finish(); // Finish the span manually since finishSpanOnClose was false
+  }
+
+  private void timeout(final long timeout) {
+    if (!begin()) {
+      return;
+    }
+    final Span span = scope.span();
+    Tags.ERROR.set(span, Boolean.TRUE);
+    span.setTag("timeout", timeout);
+    DECORATE.beforeFinish(span);
+    span.finish();
+  }
+
+  /** Claim the span for finishing and set the user of the request, now that it's authenticated. */
+  private boolean begin() {
+    if (!FINISHED.compareAndSet(this, 0, 1)) {
+      return false;
+    }
+    try {
+      final Principal principal = request.getUserPrincipal();
+      if (principal != null) {
+        scope.span().setTag(DDTags.USER_NAME, principal.getName());
+      }
+    } catch (final RuntimeException e) {
+      // Some containers throw if the request is already recycled, the user is optional.
+    }
+    return true;
+  }
+
+  @Override
+  public void onComplete(final AsyncEvent event) throws IOException {
+    finish((HttpServletResponse) event.getSuppliedResponse(), null);
+  }
+
+  @Override
+  public void onTimeout(final AsyncEvent event) throws IOException {
+    timeout(event.getAsyncContext().getTimeout());
+  }
+
+  @Override
+  public void onError(final AsyncEvent event) throws IOException {
+    if (event.getThrowable() != null) {
+      finish((HttpServletResponse) event.getSuppliedResponse(), event.getThrowable());
+    }
+  }
+
+  /** Finish current span on dispatch. The dispatched request gets a new state in Servlet3Advice. */
+  @Override
+  public void onStartAsync(final AsyncEvent event) throws IOException {
+    onComplete(event);
+  }
+}
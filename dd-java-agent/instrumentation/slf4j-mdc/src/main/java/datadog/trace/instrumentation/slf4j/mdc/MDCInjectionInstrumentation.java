@@ -5,21 +5,35 @@ import static net.bytebuddy.matcher.ElementMatchers.isTypeInitializer;
 import static net.bytebuddy.matcher.ElementMatchers.named;
 
 import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.HelperInjector;
 import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.agent.tooling.Utils;
 import datadog.trace.api.Config;
-import datadog.trace.api.CorrelationIdentifier;
 import datadog.trace.api.GlobalTracer;
 import datadog.trace.context.ScopeListener;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.security.ProtectionDomain;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import net.bytebuddy.asm.Advice;
 import net.bytebuddy.description.method.MethodDescription;
 import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.jar.asm.ClassReader;
+import net.bytebuddy.jar.asm.ClassVisitor;
+import net.bytebuddy.jar.asm.ClassWriter;
+import net.bytebuddy.jar.asm.MethodVisitor;
+import net.bytebuddy.jar.asm.Opcodes;
+import net.bytebuddy.jar.asm.Type;
 import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.utility.JavaModule;
 
+/**
+ * Registers a {@link MDCScopeListener} once the MDC is initialized. The listener is bound to the
+ * MDC when it is injected, see {@link #bindToMdc(byte[])}.
+ */
+@Slf4j
 @AutoService(Instrumenter.class)
 public class MDCInjectionInstrumentation extends Instrumenter.Default {
   public static final String MDC_INSTRUMENTATION_NAME = "mdc";
@@ -28,14 +42,15 @@ public class MDCInjectionInstrumentation extends Instrumenter.Default {
   // mdcClassName = org.slf4j.MDC
   private static final String mdcClassName = "org.TMP.MDC".replaceFirst("TMP", "slf4j");
 
+  private volatile HelperInjector helperInjector;
+
   public MDCInjectionInstrumentation() {
     super(MDC_INSTRUMENTATION_NAME);
   }
 
   @Override
   protected boolean defaultEnabled() {
-    return Config.getBooleanSettingFromEnvironment(
-        Config.LOGS_INJECTION_ENABLED, Config.DEFAULT_LOGS_INJECTION_ENABLED);
+    return Config.get().isLogsInjectionEnabled();
   }
 
   @Override
@@ -51,7 +66,15 @@ public class MDCInjectionInstrumentation extends Instrumenter.Default {
       final Class<?> classBeingRedefined,
       final ProtectionDomain protectionDomain) {
     if (classBeingRedefined != null) {
-      MDCAdvice.mdcClassInitialized(classBeingRedefined);
+      // The type initializer already ran, register the listener once the helper is injected
+      try {
+        helperInjector.transform(null, typeDescription, classLoader, module);
+        final Class<?> listenerClass =
+            Class.forName(MDCScopeListener.class.getName(), true, classLoader);
+        GlobalTracer.get().addScopeListener((ScopeListener) listenerClass.newInstance());
+      } catch (final Exception e) {
+        log.debug("Failed to add MDC span listener", e);
+      }
     }
   }
 
@@ -62,52 +85,73 @@ public class MDCInjectionInstrumentation extends Instrumenter.Default {
 
   @Override
   public String[] helperClassNames() {
-    return new String[] {MDCAdvice.class.getName() + "$MDCScopeListener"};
+    return new String[] {packageName + ".MDCScopeListener"};
   }
 
-  public static class MDCAdvice {
-    @Advice.OnMethodExit(suppress = Throwable.class)
-    public static void mdcClassInitialized(@Advice.Origin final Class mdcClass) {
+  @Override
+  protected HelperInjector helperInjector(final String[] helperClassNames) {
+    final Map<String, byte[]> helpers = new LinkedHashMap<>(helperClassNames.length);
+    final ClassFileLocator locator = ClassFileLocator.ForClassLoader.of(Utils.getAgentClassLoader());
+    for (final String helperClassName : helperClassNames) {
       try {
-        final Method putMethod = mdcClass.getMethod("put", String.class, String.class);
-        final Method removeMethod = mdcClass.getMethod("remove", String.class);
-        GlobalTracer.get().addScopeListener(new MDCScopeListener(putMethod, removeMethod));
-      } catch (final NoSuchMethodException e) {
-        org.slf4j.LoggerFactory.getLogger(mdcClass).debug("Failed to add MDC span listener", e);
+        helpers.put(helperClassName, bindToMdc(locator.locate(helperClassName).resolve()));
+      } catch (final IOException e) {
+        throw new IllegalStateException("Failed to read helper " + helperClassName, e);
       }
     }
+    helperInjector = new HelperInjector(helpers);
+    return helperInjector;
+  }
 
-    @Slf4j
-    public static class MDCScopeListener implements ScopeListener {
-      private final Method putMethod;
-      private final Method removeMethod;
-
-      public MDCScopeListener(final Method putMethod, final Method removeMethod) {
-        this.putMethod = putMethod;
-        this.removeMethod = removeMethod;
-      }
-
-      @Override
-      public void afterScopeActivated() {
-        try {
-          putMethod.invoke(
-              null, CorrelationIdentifier.getTraceIdKey(), CorrelationIdentifier.getTraceId());
-          putMethod.invoke(
-              null, CorrelationIdentifier.getSpanIdKey(), CorrelationIdentifier.getSpanId());
-        } catch (final Exception e) {
-          log.debug("Exception setting mdc context", e);
-        }
-      }
+  /**
+   * Replace the calls to the MDC placeholders of {@link MDCScopeListener} with direct calls to the
+   * MDC, so scope activations don't go through reflection.
+   */
+  static byte[] bindToMdc(final byte[] listenerBytes) {
+    final String listenerName = Type.getInternalName(MDCScopeListener.class);
+    final String mdcName = mdcClassName.replace('.', '/');
+    final ClassReader reader = new ClassReader(listenerBytes);
+    final ClassWriter writer = new ClassWriter(reader, 0);
+    reader.accept(
+        new ClassVisitor(Opcodes.ASM7, writer) {
+          @Override
+          public MethodVisitor visitMethod(
+              final int access,
+              final String name,
+              final String descriptor,
+              final String signature,
+              final String[] exceptions) {
+            return new MethodVisitor(
+                Opcodes.ASM7, super.visitMethod(access, name, descriptor, signature, exceptions)) {
+              @Override
+              public void visitMethodInsn(
+                  final int opcode,
+                  final String owner,
+                  final String name,
+                  final String descriptor,
+                  final boolean isInterface) {
+                if (opcode == Opcodes.INVOKESTATIC && owner.equals(listenerName)) {
+                  if (name.equals(MDCScopeListener.PUT_METHOD)) {
+                    super.visitMethodInsn(opcode, mdcName, "put", descriptor, false);
+                    return;
+                  } else if (name.equals(MDCScopeListener.REMOVE_METHOD)) {
+                    super.visitMethodInsn(opcode, mdcName, "remove", descriptor, false);
+                    return;
+                  }
+                }
+                super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+              }
+            };
+          }
+        },
+        0);
+    return writer.toByteArray();
+  }
 
-      @Override
-      public void afterScopeClosed() {
-        try {
-          removeMethod.invoke(null, CorrelationIdentifier.getTraceIdKey());
-          removeMethod.invoke(null, CorrelationIdentifier.getSpanIdKey());
-        } catch (final Exception e) {
-          log.debug("Exception removing mdc context", e);
-        }
-      }
+  public static class MDCAdvice {
+    @Advice.OnMethodExit(suppress = Throwable.class)
+    public static void mdcClassInitialized() {
+      GlobalTracer.get().addScopeListener(new MDCScopeListener());
     }
   }
 }
@@ -0,0 +1,48 @@
+package datadog.trace.instrumentation.slf4j.mdc;
+
+import datadog.trace.api.CorrelationIdentifier;
+import datadog.trace.api.GlobalTracer;
+import datadog.trace.api.Tracer;
+import datadog.trace.context.ScopeListener;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copies the ids of the active span into the MDC.
+ *
+ * <p>This class is a template: {@link MDCInjectionInstrumentation} rewrites the calls to {@link
+ * #mdcPut} and {@link #mdcRemove} into direct calls to {@code org.slf4j.MDC} before injecting it
+ * into the classloader of the MDC. The MDC cannot be referenced here because the agent's own slf4j
+ * is relocated.
+ */
+@Slf4j
+public class MDCScopeListener implements ScopeListener {
+  static final String PUT_METHOD = "mdcPut";
+  static final String REMOVE_METHOD = "mdcRemove";
+
+  @Override
+  public void afterScopeActivated() {
+    try {
+      final Tracer tracer = GlobalTracer.get();
+      mdcPut(CorrelationIdentifier.getTraceIdKey(), tracer.getTraceId());
+      mdcPut(CorrelationIdentifier.getSpanIdKey(), tracer.getSpanId());
+    } catch (final Exception e) {
+      log.debug("Exception setting mdc context", e);
+    }
+  }
+
+  @Override
+  public void afterScopeClosed() {
+    try {
+      mdcRemove(CorrelationIdentifier.getTraceIdKey());
+      mdcRemove(CorrelationIdentifier.getSpanIdKey());
+    } catch (final Exception e) {
+      log.debug("Exception removing mdc context", e);
+    }
+  }
+
+  /** Replaced by {@code org.slf4j.MDC.put(String, String)}. */
+  static void mdcPut(final String key, final String value) {}
+
+  /** Replaced by {@code org.slf4j.MDC.remove(String)}. */
+  static void mdcRemove(final String key) {}
+}
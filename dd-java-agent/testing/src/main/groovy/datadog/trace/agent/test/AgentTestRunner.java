@@ -9,6 +9,7 @@ import datadog.trace.agent.test.asserts.ListWriterAssert;
 import datadog.trace.agent.test.utils.GlobalTracerUtils;
 import datadog.trace.agent.tooling.AgentInstaller;
 import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.api.Config;
 import datadog.trace.api.GlobalTracer;
 import datadog.trace.common.writer.ListWriter;
 import datadog.trace.common.writer.Writer;
@@ -144,6 +145,8 @@ public abstract class AgentTestRunner extends Specification {
       Thread.currentThread().setContextClassLoader(AgentTestRunner.class.getClassLoader());
       assert ServiceLoader.load(Instrumenter.class).iterator().hasNext()
           : "No instrumentation found";
+      // instrumenters read the config, pick up the settings of the test class
+      Config.reload();
       activeTransformer = AgentInstaller.installBytebuddyAgent(INSTRUMENTATION, TEST_LISTENER);
     } finally {
       Thread.currentThread().setContextClassLoader(contextLoader);
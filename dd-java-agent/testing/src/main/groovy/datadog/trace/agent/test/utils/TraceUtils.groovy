@@ -42,10 +42,12 @@ class TraceUtils {
     } else {
       System.setProperty(name, value)
     }
+    Config.reload()
     try {
       return r.call()
     } finally {
       System.clearProperty(name)
+      Config.reload()
     }
   }
 
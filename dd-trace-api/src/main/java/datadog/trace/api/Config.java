@@ -6,7 +6,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.regex.Pattern;
 import lombok.Getter;
@@ -21,16 +23,23 @@ import lombok.extern.slf4j.Slf4j;
  *
  * <p>System properties are {@link Config#PREFIX}'ed. Environment variables are the same as the
  * system property, but uppercased with '.' -> '_'.
+ *
+ * <p>Settings are read once, when the config is built: the {@link #PREFIX}'ed system properties and
+ * the DD_ environment variables are also kept in a snapshot from which per-integration settings
+ * are read, so instrumentation doesn't read the environment. {@link #reload()} builds the config
+ * again.
  */
 @Slf4j
-@ToString(includeFieldNames = true)
+@ToString(includeFieldNames = true, exclude = {"systemPropertiesSnapshot", "environmentSnapshot"})
 public class Config {
   /** Config keys below */
   private static final String PREFIX = "dd.";
 
   private static final Pattern ENV_REPLACEMENT = Pattern.compile("[^a-zA-Z0-9_]");
 
-  private static final Config INSTANCE = new Config();
+  private static final String ENV_PREFIX = "DD_";
+
+  private static volatile Config INSTANCE = new Config();
 
   public static final String SERVICE_NAME = "service.name";
   public static final String SERVICE = "service";
@@ -58,17 +67,41 @@ public class Config {
   public static final String JMX_FETCH_REFRESH_BEANS_PERIOD = "jmxfetch.refresh-beans-period";
   public static final String JMX_FETCH_STATSD_HOST = "jmxfetch.statsd.host";
   public static final String JMX_FETCH_STATSD_PORT = "jmxfetch.statsd.port";
+  public static final String RUNTIME_METRICS_ENABLED = "trace.runtime.metrics.enabled";
   public static final String APP_CUSTOM_LOG_MANAGER = "app.customlogmanager";
+  public static final String STARTUP_PROFILING_ENABLED = "trace.startup.profiling.enabled";
+  public static final String STARTUP_PROFILING_REPORT_DELAY =
+      "trace.startup.profiling.report.delay";
+  public static final String CLASS_CACHE_DIR = "trace.class.cache.dir";
+  public static final String WEAK_MAP_TYPE = "trace.weak.map.type";
+  public static final String STATS_COMPUTATION_ENABLED = "trace.stats.computation.enabled";
+  public static final String HEALTH_METRICS_ENABLED = "trace.health.metrics.enabled";
+  public static final String HEALTH_METRICS_STATSD_HOST = "trace.health.metrics.statsd.host";
+  public static final String HEALTH_METRICS_STATSD_PORT = "trace.health.metrics.statsd.port";
+  public static final String CLOCK_TICK_MICROS = "trace.clock.tick.micros";
+  public static final String TRACE_INTERCEPTORS_ASYNC = "trace.interceptors.async";
+  public static final String TRACE_INTERCEPTORS_PARALLELISM = "trace.interceptors.parallelism";
+  public static final String TRACE_TAG_VALUE_MAX_LENGTH = "trace.tag.value.max.length";
+  public static final String TRACE_SPAN_TAGS_MAX = "trace.span.tags.max";
+  public static final String TRACE_SPANS_MAX = "trace.spans.max";
 
   public static final String RUNTIME_ID_TAG = "runtime-id";
   public static final String LANGUAGE_TAG_KEY = "language";
   public static final String LANGUAGE_TAG_VALUE = "jvm";
   public static final String DEFAULT_SERVICE_NAME = "unnamed-java-app";
 
+  private static final boolean DEFAULT_TRACE_ANALYTICS_ENABLED = false;
+
   public static final String DD_AGENT_WRITER_TYPE = "DDAgentWriter";
   public static final String LOGGING_WRITER_TYPE = "LoggingWriter";
   public static final String DEFAULT_AGENT_WRITER_TYPE = DD_AGENT_WRITER_TYPE;
 
+  public static final String STRIPED_WEAK_MAP_TYPE = "Striped";
+  public static final String WEAK_CONCURRENT_WEAK_MAP_TYPE = "WeakConcurrent";
+  public static final String WEAK_CONCURRENT_INLINE_WEAK_MAP_TYPE = "WeakConcurrentInline";
+  public static final String GUAVA_WEAK_MAP_TYPE = "Guava";
+  public static final String DEFAULT_WEAK_MAP_TYPE = STRIPED_WEAK_MAP_TYPE;
+
   public static final String DEFAULT_AGENT_HOST = "localhost";
   public static final int DEFAULT_TRACE_AGENT_PORT = 8126;
 
@@ -85,8 +118,29 @@ public class Config {
 
   public static final int DEFAULT_JMX_FETCH_STATSD_PORT = 8125;
 
+  private static final boolean DEFAULT_RUNTIME_METRICS_ENABLED = false;
+
   private static final boolean DEFAULT_APP_CUSTOM_LOG_MANAGER = false;
 
+  private static final boolean DEFAULT_STARTUP_PROFILING_ENABLED = false;
+  private static final int DEFAULT_STARTUP_PROFILING_REPORT_DELAY = 60;
+
+  private static final boolean DEFAULT_STATS_COMPUTATION_ENABLED = false;
+
+  private static final boolean DEFAULT_HEALTH_METRICS_ENABLED = false;
+  public static final int DEFAULT_HEALTH_METRICS_STATSD_PORT = 8125;
+
+  // 0 reads the system clock for every timestamp
+  private static final int DEFAULT_CLOCK_TICK_MICROS = 0;
+
+  private static final boolean DEFAULT_TRACE_INTERCEPTORS_ASYNC = false;
+  private static final int DEFAULT_TRACE_INTERCEPTORS_PARALLELISM = 2;
+
+  // 0 disables the limit
+  private static final int DEFAULT_TRACE_TAG_VALUE_MAX_LENGTH = 0;
+  private static final int DEFAULT_TRACE_SPAN_TAGS_MAX = 0;
+  private static final int DEFAULT_TRACE_SPANS_MAX = 0;
+
   /**
    * this is a random UUID that gets generated on JVM start up and is attached to every root span
    * and every JMX metric that is sent out.
@@ -113,13 +167,38 @@ public class Config {
   @Getter private final Integer jmxFetchRefreshBeansPeriod;
   @Getter private final String jmxFetchStatsdHost;
   @Getter private final Integer jmxFetchStatsdPort;
+  @Getter private final boolean runtimeMetricsEnabled;
   @Getter private final boolean logsInjectionEnabled;
   @Getter private final boolean appCustomLogManager;
+  @Getter private final boolean startupProfilingEnabled;
+  @Getter private final Integer startupProfilingReportDelay;
+  @Getter private final String classCacheDir;
+  @Getter private final String weakMapType;
+  @Getter private final boolean statsComputationEnabled;
+  @Getter private final boolean healthMetricsEnabled;
+  @Getter private final String healthMetricsStatsdHost;
+  @Getter private final Integer healthMetricsStatsdPort;
+  @Getter private final Integer clockTickMicros;
+  @Getter private final boolean traceAnalyticsEnabled;
+  @Getter private final boolean traceInterceptorsAsync;
+  @Getter private final Integer traceInterceptorsParallelism;
+  @Getter private final Integer traceTagValueMaxLength;
+  @Getter private final Integer traceSpanTagsMax;
+  @Getter private final Integer traceSpansMax;
+
+  private final Map<String, String> systemPropertiesSnapshot;
+  private final Map<String, String> environmentSnapshot;
 
-  // Read order: System Properties -> Env Variables, [-> default value]
   // Visible for testing
   Config() {
-    runtimeId = UUID.randomUUID().toString();
+    this(UUID.randomUUID().toString());
+  }
+
+  // Read order: System Properties -> Env Variables, [-> default value]
+  private Config(final String runtimeId) {
+    this.runtimeId = runtimeId;
+    systemPropertiesSnapshot = snapshotSystemProperties();
+    environmentSnapshot = snapshotEnvironment();
 
     serviceName = getSettingFromEnvironment(SERVICE_NAME, DEFAULT_SERVICE_NAME);
     writerType = getSettingFromEnvironment(WRITER_TYPE, DEFAULT_AGENT_WRITER_TYPE);
@@ -159,17 +238,67 @@ public class Config {
     jmxFetchStatsdHost = getSettingFromEnvironment(JMX_FETCH_STATSD_HOST, null);
     jmxFetchStatsdPort =
         getIntegerSettingFromEnvironment(JMX_FETCH_STATSD_PORT, DEFAULT_JMX_FETCH_STATSD_PORT);
+    runtimeMetricsEnabled =
+        getBooleanSettingFromEnvironment(RUNTIME_METRICS_ENABLED, DEFAULT_RUNTIME_METRICS_ENABLED);
 
     logsInjectionEnabled =
         getBooleanSettingFromEnvironment(LOGS_INJECTION_ENABLED, DEFAULT_LOGS_INJECTION_ENABLED);
 
     appCustomLogManager =
         getBooleanSettingFromEnvironment(APP_CUSTOM_LOG_MANAGER, DEFAULT_APP_CUSTOM_LOG_MANAGER);
+
+    startupProfilingEnabled =
+        getBooleanSettingFromEnvironment(
+            STARTUP_PROFILING_ENABLED, DEFAULT_STARTUP_PROFILING_ENABLED);
+    startupProfilingReportDelay =
+        getIntegerSettingFromEnvironment(
+            STARTUP_PROFILING_REPORT_DELAY, DEFAULT_STARTUP_PROFILING_REPORT_DELAY);
+
+    classCacheDir = getSettingFromEnvironment(CLASS_CACHE_DIR, null);
+
+    weakMapType = getSettingFromEnvironment(WEAK_MAP_TYPE, DEFAULT_WEAK_MAP_TYPE);
+
+    statsComputationEnabled =
+        getBooleanSettingFromEnvironment(
+            STATS_COMPUTATION_ENABLED, DEFAULT_STATS_COMPUTATION_ENABLED);
+
+    healthMetricsEnabled =
+        getBooleanSettingFromEnvironment(HEALTH_METRICS_ENABLED, DEFAULT_HEALTH_METRICS_ENABLED);
+    healthMetricsStatsdHost = getSettingFromEnvironment(HEALTH_METRICS_STATSD_HOST, null);
+    healthMetricsStatsdPort =
+        getIntegerSettingFromEnvironment(
+            HEALTH_METRICS_STATSD_PORT, DEFAULT_HEALTH_METRICS_STATSD_PORT);
+
+    clockTickMicros =
+        getIntegerSettingFromEnvironment(CLOCK_TICK_MICROS, DEFAULT_CLOCK_TICK_MICROS);
+
+    traceAnalyticsEnabled =
+        getBooleanSettingFromEnvironment(TRACE_ANALYTICS_ENABLED, DEFAULT_TRACE_ANALYTICS_ENABLED);
+
+    traceInterceptorsAsync =
+        getBooleanSettingFromEnvironment(
+            TRACE_INTERCEPTORS_ASYNC, DEFAULT_TRACE_INTERCEPTORS_ASYNC);
+    traceInterceptorsParallelism =
+        getIntegerSettingFromEnvironment(
+            TRACE_INTERCEPTORS_PARALLELISM, DEFAULT_TRACE_INTERCEPTORS_PARALLELISM);
+
+    traceTagValueMaxLength =
+        getIntegerSettingFromEnvironment(
+            TRACE_TAG_VALUE_MAX_LENGTH, DEFAULT_TRACE_TAG_VALUE_MAX_LENGTH);
+    traceSpanTagsMax =
+        getIntegerSettingFromEnvironment(TRACE_SPAN_TAGS_MAX, DEFAULT_TRACE_SPAN_TAGS_MAX);
+    traceSpansMax = getIntegerSettingFromEnvironment(TRACE_SPANS_MAX, DEFAULT_TRACE_SPANS_MAX);
   }
 
   // Read order: Properties -> Parent
   private Config(final Properties properties, final Config parent) {
     runtimeId = parent.runtimeId;
+    final Map<String, String> systemProperties = new HashMap<>(parent.systemPropertiesSnapshot);
+    for (final String name : properties.stringPropertyNames()) {
+      systemProperties.put(PREFIX + name, properties.getProperty(name));
+    }
+    systemPropertiesSnapshot = Collections.unmodifiableMap(systemProperties);
+    environmentSnapshot = parent.environmentSnapshot;
 
     serviceName = properties.getProperty(SERVICE_NAME, parent.serviceName);
     writerType = properties.getProperty(WRITER_TYPE, parent.writerType);
@@ -213,12 +342,57 @@ public class Config {
     jmxFetchStatsdHost = properties.getProperty(JMX_FETCH_STATSD_HOST, parent.jmxFetchStatsdHost);
     jmxFetchStatsdPort =
         getPropertyIntegerValue(properties, JMX_FETCH_STATSD_PORT, parent.jmxFetchStatsdPort);
+    runtimeMetricsEnabled =
+        getPropertyBooleanValue(properties, RUNTIME_METRICS_ENABLED, parent.runtimeMetricsEnabled);
 
     logsInjectionEnabled =
         getBooleanSettingFromEnvironment(LOGS_INJECTION_ENABLED, DEFAULT_LOGS_INJECTION_ENABLED);
 
     appCustomLogManager =
         getBooleanSettingFromEnvironment(APP_CUSTOM_LOG_MANAGER, DEFAULT_APP_CUSTOM_LOG_MANAGER);
+
+    startupProfilingEnabled =
+        getPropertyBooleanValue(
+            properties, STARTUP_PROFILING_ENABLED, parent.startupProfilingEnabled);
+    startupProfilingReportDelay =
+        getPropertyIntegerValue(
+            properties, STARTUP_PROFILING_REPORT_DELAY, parent.startupProfilingReportDelay);
+
+    classCacheDir = properties.getProperty(CLASS_CACHE_DIR, parent.classCacheDir);
+
+    weakMapType = properties.getProperty(WEAK_MAP_TYPE, parent.weakMapType);
+
+    statsComputationEnabled =
+        getPropertyBooleanValue(
+            properties, STATS_COMPUTATION_ENABLED, parent.statsComputationEnabled);
+
+    healthMetricsEnabled =
+        getPropertyBooleanValue(properties, HEALTH_METRICS_ENABLED, parent.healthMetricsEnabled);
+    healthMetricsStatsdHost =
+        properties.getProperty(HEALTH_METRICS_STATSD_HOST, parent.healthMetricsStatsdHost);
+    healthMetricsStatsdPort =
+        getPropertyIntegerValue(
+            properties, HEALTH_METRICS_STATSD_PORT, parent.healthMetricsStatsdPort);
+
+    clockTickMicros =
+        getPropertyIntegerValue(properties, CLOCK_TICK_MICROS, parent.clockTickMicros);
+
+    traceAnalyticsEnabled =
+        getPropertyBooleanValue(properties, TRACE_ANALYTICS_ENABLED, parent.traceAnalyticsEnabled);
+
+    traceInterceptorsAsync =
+        getPropertyBooleanValue(
+            properties, TRACE_INTERCEPTORS_ASYNC, parent.traceInterceptorsAsync);
+    traceInterceptorsParallelism =
+        getPropertyIntegerValue(
+            properties, TRACE_INTERCEPTORS_PARALLELISM, parent.traceInterceptorsParallelism);
+
+    traceTagValueMaxLength =
+        getPropertyIntegerValue(
+            properties, TRACE_TAG_VALUE_MAX_LENGTH, parent.traceTagValueMaxLength);
+    traceSpanTagsMax =
+        getPropertyIntegerValue(properties, TRACE_SPAN_TAGS_MAX, parent.traceSpanTagsMax);
+    traceSpansMax = getPropertyIntegerValue(properties, TRACE_SPANS_MAX, parent.traceSpansMax);
   }
 
   public Map<String, String> getMergedSpanTags() {
@@ -260,6 +434,10 @@ public class Config {
     return Collections.unmodifiableMap(result);
   }
 
+  /**
+   * Reads the system properties and environment variables on every call: instrumentation should
+   * use {@link #isIntegrationEnabled(SortedSet, boolean)} instead.
+   */
   public static boolean integrationEnabled(
       final SortedSet<String> integrationNames, final boolean defaultEnabled) {
     // If default is enabled, we want to enable individually,
@@ -277,6 +455,10 @@ public class Config {
     return anyEnabled;
   }
 
+  /**
+   * Reads the system properties and environment variables on every call: instrumentation should
+   * use {@link #isTraceAnalyticsIntegrationEnabled(SortedSet, boolean)} instead.
+   */
   public static boolean traceAnalyticsIntegrationEnabled(
       final SortedSet<String> integrationNames, final boolean defaultEnabled) {
     // If default is enabled, we want to enable individually,
@@ -295,6 +477,108 @@ public class Config {
     return anyEnabled;
   }
 
+  public boolean isIntegrationEnabled(
+      final SortedSet<String> integrationNames, final boolean defaultEnabled) {
+    return isEnabled(integrationNames, ".enabled", defaultEnabled);
+  }
+
+  public boolean isTraceAnalyticsIntegrationEnabled(
+      final SortedSet<String> integrationNames, final boolean defaultEnabled) {
+    return isEnabled(integrationNames, ".analytics.enabled", defaultEnabled);
+  }
+
+  /** @return the analytics sample rate of the last integration it is set for, 1 if none */
+  public float getInstrumentationAnalyticsSampleRate(final String... integrationNames) {
+    float rate = 1.0f;
+    for (final String name : integrationNames) {
+      rate = getFloatSetting("integration." + name + ".analytics.sample-rate", rate);
+    }
+    return rate;
+  }
+
+  private boolean isEnabled(
+      final SortedSet<String> integrationNames,
+      final String settingSuffix,
+      final boolean defaultEnabled) {
+    // If default is enabled, we want to enable individually,
+    // if default is disabled, we want to disable individually.
+    boolean anyEnabled = defaultEnabled;
+    for (final String name : integrationNames) {
+      final boolean configEnabled =
+          getBooleanSetting("integration." + name + settingSuffix, defaultEnabled);
+      if (defaultEnabled) {
+        anyEnabled &= configEnabled;
+      } else {
+        anyEnabled |= configEnabled;
+      }
+    }
+    return anyEnabled;
+  }
+
+  /**
+   * Like {@link #getSettingFromEnvironment(String, String)}, but reads the system properties and
+   * environment variables as they were when this config was built.
+   */
+  public String getSetting(final String name, final String defaultValue) {
+    final String completeName = PREFIX + name;
+    String value = systemPropertiesSnapshot.get(completeName);
+    if (value == null) {
+      value = environmentSnapshot.get(propertyToEnvironmentName(completeName));
+    }
+    return value == null ? defaultValue : value;
+  }
+
+  /** Calls {@link #getSetting(String, String)} and converts the result to a Boolean. */
+  public Boolean getBooleanSetting(final String name, final Boolean defaultValue) {
+    final String value = getSetting(name, null);
+    return value == null || value.trim().isEmpty() ? defaultValue : Boolean.valueOf(value);
+  }
+
+  /** Calls {@link #getSetting(String, String)} and converts the result to a Float. */
+  public Float getFloatSetting(final String name, final Float defaultValue) {
+    final String value = getSetting(name, null);
+    try {
+      return value == null ? defaultValue : Float.valueOf(value);
+    } catch (final NumberFormatException e) {
+      log.warn("Invalid configuration for " + name, e);
+      return defaultValue;
+    }
+  }
+
+  /**
+   * @return the settings this config was built from, sorted and keyed by system property name.
+   *     Environment variables are keyed by the system property name they stand for, lower case.
+   */
+  public SortedMap<String, String> getSettings() {
+    final SortedMap<String, String> settings = new TreeMap<>();
+    for (final Map.Entry<String, String> entry : environmentSnapshot.entrySet()) {
+      settings.put(entry.getKey().toLowerCase().replace('_', '.'), entry.getValue());
+    }
+    settings.putAll(systemPropertiesSnapshot);
+    return settings;
+  }
+
+  private static Map<String, String> snapshotSystemProperties() {
+    final Properties properties = System.getProperties();
+    final Map<String, String> snapshot = new HashMap<>();
+    for (final String name : properties.stringPropertyNames()) {
+      if (name.startsWith(PREFIX)) {
+        snapshot.put(name, properties.getProperty(name));
+      }
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
+  private static Map<String, String> snapshotEnvironment() {
+    final Map<String, String> snapshot = new HashMap<>();
+    for (final Map.Entry<String, String> entry : System.getenv().entrySet()) {
+      if (entry.getKey().startsWith(ENV_PREFIX)) {
+        snapshot.put(entry.getKey(), entry.getValue());
+      }
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+
   /**
    * Helper method that takes the name, adds a "dd." prefix then checks for System Properties of
    * that name. If none found, the name is converted to an Environment Variable and used to check
@@ -436,6 +720,18 @@ public class Config {
     return INSTANCE;
   }
 
+  /**
+   * Build the config again from the current system properties and environment variables, keeping
+   * the runtime id. Components which already read their settings keep them.
+   *
+   * @return the new config
+   */
+  public static Config reload() {
+    final Config config = new Config(INSTANCE.runtimeId);
+    INSTANCE = config;
+    return config;
+  }
+
   public static Config get(final Properties properties) {
     if (properties == null || properties.isEmpty()) {
       return INSTANCE;
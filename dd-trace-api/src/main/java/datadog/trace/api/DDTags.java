@@ -14,6 +14,13 @@ public class DDTags {
   public static final String ERROR_TYPE = "error.type"; // string representing the type of the error
   public static final String ERROR_STACK = "error.stack"; // human readable version of the stack
 
+  // metrics of spans covering a batch of consumed messages
+  public static final String MESSAGE_BATCH_SIZE = "message.batch.size";
+  public static final String MESSAGE_BATCH_BYTES = "message.batch.bytes";
+  public static final String MESSAGE_BATCH_MAX_LAG = "message.batch.max_lag_ms";
+  public static final String MESSAGE_BATCH_UPSTREAM_CONTEXTS = "message.batch.upstream_contexts";
+  public static final String MESSAGE_BATCH_UPSTREAM_TRACE_IDS = "message.batch.upstream_trace_ids";
+
   public static final String ANALYTICS_SAMPLE_RATE = "_dd1.sr.eausr";
   @Deprecated public static final String EVENT_SAMPLE_RATE = ANALYTICS_SAMPLE_RATE;
 }
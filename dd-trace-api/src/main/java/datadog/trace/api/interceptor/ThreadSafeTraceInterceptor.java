@@ -0,0 +1,8 @@
+package datadog.trace.api.interceptor;
+
+/**
+ * Marks a {@link TraceInterceptor} whose {@link #onTraceComplete} can be called for several
+ * traces at the same time. When interceptors run in the writer rather than on the application
+ * thread finishing the trace, the traces of a flush are then split across several threads.
+ */
+public interface ThreadSafeTraceInterceptor extends TraceInterceptor {}
@@ -0,0 +1,65 @@
+package datadog.trace.api.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for hot paths that spreads increments over several cache-line padded cells, picked by
+ * the current thread's id, so concurrent writers rarely contend. Reads sum all cells and are only
+ * as accurate as a snapshot of concurrently updated values can be.
+ *
+ * <p>Shared by the agent bootstrap and the tracer; Java 7 has no {@code LongAdder}.
+ */
+public final class StripedCounter {
+  // 8 longs = 64 bytes, so neighbouring cells never share a cache line
+  private static final int PADDING = 8;
+  private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+  private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+  public void increment() {
+    cells.incrementAndGet(index());
+  }
+
+  public void add(final long delta) {
+    cells.addAndGet(index(), delta);
+  }
+
+  public long sum() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.get(i * PADDING);
+    }
+    return sum;
+  }
+
+  /** @return the current sum, resetting the counter to zero */
+  public long sumThenReset() {
+    long sum = 0;
+    for (int i = 0; i < STRIPES; i++) {
+      sum += cells.getAndSet(i * PADDING, 0);
+    }
+    return sum;
+  }
+
+  private static int index() {
+    final long id = Thread.currentThread().getId();
+    // thread ids are sequential, spread them before masking
+    final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+    return ((hash ^ (hash >>> 16)) & (STRIPES - 1)) * PADDING;
+  }
+
+  /** @return the power of two at least twice the number of processors, at most 64 */
+  static int stripes(final int processors) {
+    final int target = Math.min(64, processors * 2);
+    int stripes = 1;
+    while (stripes < target) {
+      stripes <<= 1;
+    }
+    return stripes;
+  }
+
+  @Override
+  public String toString() {
+    return Long.toString(sum());
+  }
+}
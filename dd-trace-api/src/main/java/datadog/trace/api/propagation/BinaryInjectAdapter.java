@@ -0,0 +1,18 @@
+package datadog.trace.api.propagation;
+
+/**
+ * Inject adapter for carriers which store header values as bytes, so the tracer can hand over
+ * values it encoded once instead of having them re-encoded on every injection.
+ *
+ * <p>Adapters implementing this interface should also implement {@code
+ * io.opentracing.propagation.TextMap}, which is used by tracers unaware of this interface.
+ */
+public interface BinaryInjectAdapter {
+
+  /**
+   * @param key header name
+   * @param value US-ASCII (or UTF-8 for non ASCII origins) encoded value, shared between
+   *     injections so it must not be modified
+   */
+  void put(String key, byte[] value);
+}
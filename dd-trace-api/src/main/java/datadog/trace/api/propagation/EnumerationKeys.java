@@ -0,0 +1,50 @@
+package datadog.trace.api.propagation;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Keys of a {@link KeyedExtractAdapter} read from one or more enumerations, such as servlet header
+ * names, one after the other and without copying them. Can only be iterated once.
+ */
+public final class EnumerationKeys implements Iterable<String> {
+  private final Iterator<Enumeration<?>> enumerations;
+
+  /** @param enumerations enumerations of keys, {@code null} ones are skipped */
+  public EnumerationKeys(final Enumeration<?>... enumerations) {
+    this.enumerations = Arrays.asList(enumerations).iterator();
+  }
+
+  @Override
+  public Iterator<String> iterator() {
+    return new Iterator<String>() {
+      private Enumeration<?> current = null;
+
+      @Override
+      public boolean hasNext() {
+        while (current == null || !current.hasMoreElements()) {
+          if (!enumerations.hasNext()) {
+            return false;
+          }
+          current = enumerations.next();
+        }
+        return true;
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return String.valueOf(current.nextElement());
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+}
@@ -0,0 +1,25 @@
+package datadog.trace.api.propagation;
+
+/**
+ * Extract adapter which gives access to single values of a carrier, so the tracer can look up the
+ * few keys it knows about instead of iterating over a copy of every header.
+ *
+ * <p>Adapters implementing this interface should also implement {@code
+ * io.opentracing.propagation.TextMap}, which is used by tracers unaware of this interface.
+ */
+public interface KeyedExtractAdapter {
+
+  /**
+   * @param key a key returned by {@link #keys()}, or a lower case key the tracer knows about.
+   *     Carriers with case sensitive keys must fall back to matching lower case keys case
+   *     insensitively, the way HTTP headers are matched.
+   * @return the value of the key, or {@code null} if absent
+   */
+  String get(String key);
+
+  /**
+   * @return the keys present in the carrier. Only used to find keys with a known prefix, like
+   *     baggage items, so implementations should neither read the values nor copy the keys.
+   */
+  Iterable<String> keys();
+}
@@ -0,0 +1,17 @@
+package datadog.trace.context;
+
+/**
+ * Internal extension of {@link TraceScope} for the scopes of the Datadog tracer, checked with
+ * {@code instanceof} by the agent. It is not part of the public API: other implementations of
+ * {@link TraceScope} don't need to implement it.
+ */
+public interface UnregisteredCaptureScope extends TraceScope {
+  /**
+   * Like {@link #capture()}, but the trace doesn't track the returned Continuation with a weak
+   * reference. This is cheaper, but the Continuation must be activated or closed: if it is dropped
+   * instead, the trace is never reported.
+   *
+   * <p>Should be called on the parent thread.
+   */
+  Continuation captureUnregistered();
+}
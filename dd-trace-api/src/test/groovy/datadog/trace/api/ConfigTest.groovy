@@ -7,9 +7,13 @@ import spock.lang.Specification
 
 import static datadog.trace.api.Config.AGENT_HOST
 import static datadog.trace.api.Config.AGENT_PORT_LEGACY
+import static datadog.trace.api.Config.CLOCK_TICK_MICROS
 import static datadog.trace.api.Config.DEFAULT_JMX_FETCH_STATSD_PORT
 import static datadog.trace.api.Config.GLOBAL_TAGS
 import static datadog.trace.api.Config.HEADER_TAGS
+import static datadog.trace.api.Config.HEALTH_METRICS_ENABLED
+import static datadog.trace.api.Config.HEALTH_METRICS_STATSD_HOST
+import static datadog.trace.api.Config.HEALTH_METRICS_STATSD_PORT
 import static datadog.trace.api.Config.HTTP_CLIENT_HOST_SPLIT_BY_DOMAIN
 import static datadog.trace.api.Config.JMX_FETCH_CHECK_PERIOD
 import static datadog.trace.api.Config.JMX_FETCH_ENABLED
@@ -25,12 +29,23 @@ import static datadog.trace.api.Config.PREFIX
 import static datadog.trace.api.Config.PRIORITY_SAMPLING
 import static datadog.trace.api.Config.RUNTIME_CONTEXT_FIELD_INJECTION
 import static datadog.trace.api.Config.RUNTIME_ID_TAG
+import static datadog.trace.api.Config.RUNTIME_METRICS_ENABLED
 import static datadog.trace.api.Config.SERVICE
 import static datadog.trace.api.Config.SERVICE_MAPPING
 import static datadog.trace.api.Config.SERVICE_NAME
 import static datadog.trace.api.Config.SPAN_TAGS
+import static datadog.trace.api.Config.STARTUP_PROFILING_ENABLED
+import static datadog.trace.api.Config.STARTUP_PROFILING_REPORT_DELAY
+import static datadog.trace.api.Config.STATS_COMPUTATION_ENABLED
 import static datadog.trace.api.Config.TRACE_AGENT_PORT
+import static datadog.trace.api.Config.TRACE_ANALYTICS_ENABLED
+import static datadog.trace.api.Config.TRACE_INTERCEPTORS_ASYNC
+import static datadog.trace.api.Config.TRACE_INTERCEPTORS_PARALLELISM
 import static datadog.trace.api.Config.TRACE_RESOLVER_ENABLED
+import static datadog.trace.api.Config.TRACE_SPANS_MAX
+import static datadog.trace.api.Config.TRACE_SPAN_TAGS_MAX
+import static datadog.trace.api.Config.TRACE_TAG_VALUE_MAX_LENGTH
+import static datadog.trace.api.Config.WEAK_MAP_TYPE
 import static datadog.trace.api.Config.WRITER_TYPE
 
 class ConfigTest extends Specification {
@@ -72,6 +87,21 @@ class ConfigTest extends Specification {
     config.jmxFetchRefreshBeansPeriod == null
     config.jmxFetchStatsdHost == null
     config.jmxFetchStatsdPort == DEFAULT_JMX_FETCH_STATSD_PORT
+    config.runtimeMetricsEnabled == false
+    config.startupProfilingEnabled == false
+    config.startupProfilingReportDelay == 60
+    config.weakMapType == "Striped"
+    config.statsComputationEnabled == false
+    config.healthMetricsEnabled == false
+    config.healthMetricsStatsdHost == null
+    config.healthMetricsStatsdPort == 8125
+    config.clockTickMicros == 0
+    config.traceAnalyticsEnabled == false
+    config.traceInterceptorsAsync == false
+    config.traceInterceptorsParallelism == 2
+    config.traceTagValueMaxLength == 0
+    config.traceSpanTagsMax == 0
+    config.traceSpansMax == 0
     config.toString().contains("unnamed-java-app")
   }
 
@@ -98,6 +128,21 @@ class ConfigTest extends Specification {
     System.setProperty(PREFIX + JMX_FETCH_REFRESH_BEANS_PERIOD, "200")
     System.setProperty(PREFIX + JMX_FETCH_STATSD_HOST, "statsd host")
     System.setProperty(PREFIX + JMX_FETCH_STATSD_PORT, "321")
+    System.setProperty(PREFIX + RUNTIME_METRICS_ENABLED, "true")
+    System.setProperty(PREFIX + STARTUP_PROFILING_ENABLED, "true")
+    System.setProperty(PREFIX + STARTUP_PROFILING_REPORT_DELAY, "10")
+    System.setProperty(PREFIX + WEAK_MAP_TYPE, "Guava")
+    System.setProperty(PREFIX + STATS_COMPUTATION_ENABLED, "true")
+    System.setProperty(PREFIX + HEALTH_METRICS_ENABLED, "true")
+    System.setProperty(PREFIX + HEALTH_METRICS_STATSD_HOST, "metrics host")
+    System.setProperty(PREFIX + HEALTH_METRICS_STATSD_PORT, "654")
+    System.setProperty(PREFIX + CLOCK_TICK_MICROS, "100")
+    System.setProperty(PREFIX + TRACE_ANALYTICS_ENABLED, "true")
+    System.setProperty(PREFIX + TRACE_INTERCEPTORS_ASYNC, "true")
+    System.setProperty(PREFIX + TRACE_INTERCEPTORS_PARALLELISM, "4")
+    System.setProperty(PREFIX + TRACE_TAG_VALUE_MAX_LENGTH, "5000")
+    System.setProperty(PREFIX + TRACE_SPAN_TAGS_MAX, "128")
+    System.setProperty(PREFIX + TRACE_SPANS_MAX, "1000")
 
     when:
     def config = new Config()
@@ -122,6 +167,21 @@ class ConfigTest extends Specification {
     config.jmxFetchRefreshBeansPeriod == 200
     config.jmxFetchStatsdHost == "statsd host"
     config.jmxFetchStatsdPort == 321
+    config.runtimeMetricsEnabled == true
+    config.startupProfilingEnabled == true
+    config.startupProfilingReportDelay == 10
+    config.weakMapType == "Guava"
+    config.statsComputationEnabled == true
+    config.healthMetricsEnabled == true
+    config.healthMetricsStatsdHost == "metrics host"
+    config.healthMetricsStatsdPort == 654
+    config.clockTickMicros == 100
+    config.traceAnalyticsEnabled == true
+    config.traceInterceptorsAsync == true
+    config.traceInterceptorsParallelism == 4
+    config.traceTagValueMaxLength == 5000
+    config.traceSpanTagsMax == 128
+    config.traceSpansMax == 1000
   }
 
   def "specify overrides via env vars"() {
@@ -323,6 +383,7 @@ class ConfigTest extends Specification {
 
     expect:
     Config.integrationEnabled(integrationNames, defaultEnabled) == expected
+    new Config().isIntegrationEnabled(integrationNames, defaultEnabled) == expected
 
     where:
     names                          | defaultEnabled | expected
@@ -357,6 +418,7 @@ class ConfigTest extends Specification {
 
     expect:
     Config.traceAnalyticsIntegrationEnabled(integrationNames, defaultEnabled) == expected
+    new Config().isTraceAnalyticsIntegrationEnabled(integrationNames, defaultEnabled) == expected
 
     where:
     names                          | defaultEnabled | expected
@@ -406,6 +468,55 @@ class ConfigTest extends Specification {
     defaultValue = 10.0
   }
 
+  def "settings are read from the snapshot taken when the config is built"() {
+    setup:
+    environmentVariables.set("DD_INTEGRATION_SNAPSHOT_ENV_ENABLED", "false")
+    System.setProperty("dd.integration.snapshot-prop.analytics.sample-rate", "0.5")
+    def config = new Config()
+
+    when:
+    environmentVariables.set("DD_INTEGRATION_SNAPSHOT_ENV_ENABLED", "true")
+    System.setProperty("dd.integration.snapshot-prop.analytics.sample-rate", "0.8")
+
+    then:
+    !config.isIntegrationEnabled(new TreeSet<>(["snapshot-env"]), true)
+    config.getInstrumentationAnalyticsSampleRate("other", "snapshot-prop") == 0.5f
+    config.getInstrumentationAnalyticsSampleRate("other") == 1.0f
+    config.getSetting("integration.snapshot-env.enabled", null) == "false"
+    config.getBooleanSetting("missing", true)
+  }
+
+  def "properties override the snapshot"() {
+    setup:
+    System.setProperty("dd.integration.snapshot.enabled", "false")
+    Properties properties = new Properties()
+    properties.setProperty("integration.snapshot.enabled", "true")
+
+    when:
+    def config = Config.get(properties)
+
+    then:
+    config.isIntegrationEnabled(new TreeSet<>(["snapshot"]), false)
+  }
+
+  def "reload reads the settings again"() {
+    setup:
+    def previous = Config.get()
+    System.setProperty(PREFIX + TRACE_ANALYTICS_ENABLED, "true")
+
+    when:
+    def config = Config.reload()
+
+    then:
+    Config.get().is(config)
+    config.traceAnalyticsEnabled
+    config.runtimeId == previous.runtimeId
+
+    cleanup:
+    System.clearProperty(PREFIX + TRACE_ANALYTICS_ENABLED)
+    Config.reload()
+  }
+
   def "verify mapping configs on tracer"() {
     setup:
     System.setProperty(PREFIX + SERVICE_MAPPING, mapString)
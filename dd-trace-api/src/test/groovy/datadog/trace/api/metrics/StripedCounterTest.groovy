@@ -0,0 +1,47 @@
+package datadog.trace.api.metrics
+
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class StripedCounterTest extends Specification {
+
+  def "striped counter sums increments from all threads"() {
+    setup:
+    def counter = new StripedCounter()
+    def executor = Executors.newFixedThreadPool(8)
+    def start = new CountDownLatch(1)
+
+    when:
+    8.times {
+      executor.submit {
+        start.await()
+        1000.times { counter.increment() }
+      }
+    }
+    start.countDown()
+    executor.shutdown()
+    executor.awaitTermination(10, TimeUnit.SECONDS)
+    counter.add(5)
+
+    then:
+    counter.sum() == 8005
+    counter.toString() == "8005"
+    counter.sumThenReset() == 8005
+    counter.sum() == 0
+  }
+
+  def "stripes are a power of two"() {
+    expect:
+    StripedCounter.stripes(processors) == stripes
+
+    where:
+    processors | stripes
+    1          | 2
+    3          | 8
+    4          | 8
+    100        | 64
+  }
+}
@@ -0,0 +1,76 @@
+package datadog.trace.common.stats;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+public class LatencySketchBenchmark {
+  private static final int DURATIONS = 1024;
+
+  @State(Scope.Benchmark)
+  public static class SharedSketch {
+    public LatencySketch sketch = new LatencySketch();
+  }
+
+  @State(Scope.Thread)
+  public static class Durations {
+    public long[] durations = new long[DURATIONS];
+    public int next = 0;
+
+    @Setup
+    public void setup() {
+      // log-normal around 1ms, like request latencies
+      final Random random = new Random(42);
+      for (int i = 0; i < DURATIONS; i++) {
+        durations[i] = (long) (TimeUnit.MILLISECONDS.toNanos(1) * Math.exp(random.nextGaussian()));
+      }
+    }
+
+    long next() {
+      return durations[next++ & (DURATIONS - 1)];
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class MergedSketches {
+    public LatencySketch target = new LatencySketch();
+    public LatencySketch source = new LatencySketch();
+
+    @Setup
+    public void setup(final Durations durations) {
+      for (int i = 0; i < DURATIONS; i++) {
+        source.add(durations.next());
+      }
+    }
+  }
+
+  @Benchmark
+  public void testAdd(final SharedSketch state, final Durations durations) {
+    state.sketch.add(durations.next());
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void testConcurrentAdd(final SharedSketch state, final Durations durations) {
+    state.sketch.add(durations.next());
+  }
+
+  @Benchmark
+  public void testMerge(final MergedSketches state) {
+    state.target.merge(state.source);
+  }
+
+  @Benchmark
+  public Object testQuantile(final MergedSketches state) {
+    return state.source.getValueAtQuantile(0.99);
+  }
+
+  @Benchmark
+  public Object testEncode(final MergedSketches state) {
+    return state.source.encode();
+  }
+}
@@ -0,0 +1,52 @@
+package datadog.trace.common.util;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+public class ClockBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class Source {
+    // 0 reads the system clocks
+    @Param({"0", "100", "1000"})
+    public int tickMicros;
+
+    public Clock.TimeSource timeSource;
+
+    @Setup
+    public void setup() {
+      timeSource =
+          tickMicros <= 0
+              ? Clock.SYSTEM
+              : new CachedTimeSource(TimeUnit.MICROSECONDS.toNanos(tickMicros));
+      Clock.setTimeSource(timeSource);
+    }
+
+    @TearDown
+    public void tearDown() {
+      Clock.setTimeSource(Clock.SYSTEM);
+    }
+  }
+
+  @Benchmark
+  public long testNanoTicks(final Source state) {
+    return Clock.currentNanoTicks();
+  }
+
+  @Benchmark
+  public long testMicroTime(final Source state) {
+    return Clock.currentMicroTime();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long testConcurrentNanoTicks(final Source state) {
+    return Clock.currentNanoTicks();
+  }
+}
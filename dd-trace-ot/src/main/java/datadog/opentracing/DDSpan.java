@@ -14,8 +14,6 @@ import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.common.util.Clock;
 import io.opentracing.Span;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.lang.ref.WeakReference;
 import java.math.BigInteger;
 import java.util.HashMap;
@@ -137,9 +135,8 @@ public class DDSpan implements Span, MutableSpan {
     setTag(DDTags.ERROR_MSG, error.getMessage());
     setTag(DDTags.ERROR_TYPE, error.getClass().getName());
 
-    final StringWriter errorString = new StringWriter();
-    error.printStackTrace(new PrintWriter(errorString));
-    setTag(DDTags.ERROR_STACK, errorString.toString());
+    // rendered when the tag is first read, usually when the span is serialized
+    context().setTag(DDTags.ERROR_STACK, new ErrorStack(error, context().getTracer().getSpanLimits()));
   }
 
   private boolean extractError(final Map<String, ?> map) {
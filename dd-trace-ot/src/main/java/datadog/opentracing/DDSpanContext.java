@@ -2,11 +2,16 @@ package datadog.opentracing;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import datadog.opentracing.decorators.AbstractDecorator;
+import datadog.opentracing.propagation.InjectedHeaders;
 import datadog.trace.api.DDTags;
 import datadog.trace.api.sampling.PrioritySampling;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -45,6 +50,8 @@ public class DDSpanContext implements io.opentracing.SpanContext {
 
   /** Tags are associated to the current span, they will not propagate to the children span */
   private final Map<String, Object> tags = new ConcurrentHashMap<>();
+  /** Read-only view of the tags, deferred values like the error stack are rendered when read */
+  private final Map<String, Object> tagsView = new TagsView(tags);
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -67,6 +74,8 @@ public class DDSpanContext implements io.opentracing.SpanContext {
   private final String origin;
   /** Metrics on the span */
   private final AtomicReference<Map<String, Number>> metrics = new AtomicReference<>();
+  /** Propagation headers, encoded on first injection */
+  private volatile InjectedHeaders injectedHeaders;
 
   // Additional Metadata
   private final String threadName = Thread.currentThread().getName();
@@ -87,6 +96,84 @@ public class DDSpanContext implements io.opentracing.SpanContext {
       final Map<String, Object> tags,
       final PendingTrace trace,
       final DDTracer tracer) {
+    this(
+        traceId,
+        spanId,
+        parentId,
+        serviceName,
+        operationName,
+        resourceName,
+        samplingPriority,
+        origin,
+        baggageItems,
+        errorFlag,
+        spanType,
+        trace,
+        tracer);
+    if (tags != null) {
+      this.tags.putAll(tags);
+    }
+    putContextTags();
+  }
+
+  /**
+   * Create a context whose tags are copied straight from a span builder, without an intermediate
+   * map. Null values are skipped, the others are bounded by the {@link SpanLimits} of the tracer.
+   */
+  DDSpanContext(
+      final String traceId,
+      final String spanId,
+      final String parentId,
+      final String serviceName,
+      final String operationName,
+      final String resourceName,
+      final int samplingPriority,
+      final String origin,
+      final Map<String, String> baggageItems,
+      final boolean errorFlag,
+      final String spanType,
+      final String[] tagKeys,
+      final Object[] tagValues,
+      final int tagCount,
+      final PendingTrace trace,
+      final DDTracer tracer) {
+    this(
+        traceId,
+        spanId,
+        parentId,
+        serviceName,
+        operationName,
+        resourceName,
+        samplingPriority,
+        origin,
+        baggageItems,
+        errorFlag,
+        spanType,
+        trace,
+        tracer);
+    final SpanLimits limits = tracer.getSpanLimits();
+    for (int i = 0; i < tagCount; i++) {
+      if (tagValues[i] != null && limits.canAddTag(this.tags.size())) {
+        this.tags.put(tagKeys[i], limits.limitTagValue(tagValues[i]));
+      }
+    }
+    putContextTags();
+  }
+
+  private DDSpanContext(
+      final String traceId,
+      final String spanId,
+      final String parentId,
+      final String serviceName,
+      final String operationName,
+      final String resourceName,
+      final int samplingPriority,
+      final String origin,
+      final Map<String, String> baggageItems,
+      final boolean errorFlag,
+      final String spanType,
+      final PendingTrace trace,
+      final DDTracer tracer) {
 
     assert tracer != null;
     assert trace != null;
@@ -106,10 +193,6 @@ public class DDSpanContext implements io.opentracing.SpanContext {
       this.baggageItems = baggageItems;
     }
 
-    if (tags != null) {
-      this.tags.putAll(tags);
-    }
-
     this.serviceName = serviceName;
     this.operationName = operationName;
     this.resourceName = resourceName;
@@ -120,12 +203,15 @@ public class DDSpanContext implements io.opentracing.SpanContext {
     if (samplingPriority != PrioritySampling.UNSET) {
       setSamplingPriority(samplingPriority);
     }
+  }
 
+  /** Tags set by the context itself, which override the tags it was created with. */
+  private void putContextTags() {
     if (origin != null) {
-      this.tags.put(ORIGIN_KEY, origin);
+      tags.put(ORIGIN_KEY, origin);
     }
-    this.tags.put(DDTags.THREAD_NAME, threadName);
-    this.tags.put(DDTags.THREAD_ID, threadId);
+    tags.put(DDTags.THREAD_NAME, threadName);
+    tags.put(DDTags.THREAD_ID, threadId);
   }
 
   public String getTraceId() {
@@ -256,6 +342,15 @@ public class DDSpanContext implements io.opentracing.SpanContext {
     }
   }
 
+  @JsonIgnore
+  public InjectedHeaders getInjectedHeaders() {
+    return injectedHeaders;
+  }
+
+  public void setInjectedHeaders(final InjectedHeaders injectedHeaders) {
+    this.injectedHeaders = injectedHeaders;
+  }
+
   public void setBaggageItem(final String key, final String value) {
     baggageItems.put(key, value);
   }
@@ -298,17 +393,20 @@ public class DDSpanContext implements io.opentracing.SpanContext {
     metrics.get().put(key, value);
   }
   /**
-   * Add a tag to the span. Tags are not propagated to the children
+   * Add a tag to the span. Tags are not propagated to the children. The tag is truncated or dropped
+   * if it goes over the {@link SpanLimits} of the tracer.
    *
    * @param tag the tag-name
-   * @param value the value of the tag. tags with null values are ignored.
+   * @param tagValue the value of the tag. tags with null values are ignored.
    */
-  public synchronized void setTag(final String tag, final Object value) {
-    if (value == null || (value instanceof String && ((String) value).isEmpty())) {
+  public synchronized void setTag(final String tag, final Object tagValue) {
+    if (tagValue == null || (tagValue instanceof String && ((String) tagValue).isEmpty())) {
       tags.remove(tag);
       return;
     }
 
+    final SpanLimits limits = tracer.getSpanLimits();
+    final Object value = limits.limitTagValue(tagValue);
     boolean addTag = true;
 
     // Call decorators
@@ -326,13 +424,13 @@ public class DDSpanContext implements io.opentracing.SpanContext {
       }
     }
 
-    if (addTag) {
+    if (addTag && (tags.containsKey(tag) || limits.canAddTag(tags.size()))) {
       tags.put(tag, value);
     }
   }
 
-  public synchronized Map<String, Object> getTags() {
-    return Collections.unmodifiableMap(tags);
+  public Map<String, Object> getTags() {
+    return tagsView;
   }
 
   @Override
@@ -361,4 +459,65 @@ public class DDSpanContext implements io.opentracing.SpanContext {
     }
     return s.toString();
   }
+
+  private static Object rendered(final Object value) {
+    return value instanceof ErrorStack ? value.toString() : value;
+  }
+
+  private static final class TagsView extends AbstractMap<String, Object> {
+    private final Map<String, Object> tags;
+    private final Set<Entry<String, Object>> entrySet =
+        new AbstractSet<Entry<String, Object>>() {
+          @Override
+          public Iterator<Entry<String, Object>> iterator() {
+            final Iterator<Entry<String, Object>> entries = tags.entrySet().iterator();
+            return new Iterator<Entry<String, Object>>() {
+              @Override
+              public boolean hasNext() {
+                return entries.hasNext();
+              }
+
+              @Override
+              public Entry<String, Object> next() {
+                final Entry<String, Object> entry = entries.next();
+                return new SimpleImmutableEntry<>(entry.getKey(), rendered(entry.getValue()));
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return tags.size();
+          }
+        };
+
+    private TagsView(final Map<String, Object> tags) {
+      this.tags = tags;
+    }
+
+    @Override
+    public Object get(final Object key) {
+      return rendered(tags.get(key));
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+      return tags.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+      return tags.size();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      return entrySet;
+    }
+  }
 }
@@ -10,11 +10,14 @@ import datadog.opentracing.scopemanager.ScopeContext;
 import datadog.trace.api.Config;
 import datadog.trace.api.interceptor.MutableSpan;
 import datadog.trace.api.interceptor.TraceInterceptor;
+import datadog.trace.api.propagation.BinaryInjectAdapter;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.common.sampling.RateByServiceSampler;
 import datadog.trace.common.sampling.Sampler;
 import datadog.trace.common.writer.DDAgentWriter;
 import datadog.trace.common.writer.DDApi;
+import datadog.trace.common.writer.InterceptorPipeline;
 import datadog.trace.common.writer.Writer;
 import datadog.trace.context.ScopeListener;
 import io.opentracing.References;
@@ -27,6 +30,7 @@ import io.opentracing.propagation.TextMap;
 import java.io.Closeable;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -67,6 +71,9 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
   /** number of spans in a pending trace before they get flushed */
   @Getter private final int partialFlushMinSpans;
 
+  /** Bounds on the size of spans and traces */
+  @Getter private final SpanLimits spanLimits;
+
   /**
    * JVM shutdown callback, keeping a reference to it to remove this if DDTracer gets destroyed
    * earlier
@@ -86,11 +93,17 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
             }
           });
 
+  /** True if the writer runs the interceptors on the traces it flushes */
+  private final boolean writerRunsInterceptors;
+
   private final DatadogHttpCodec.Injector injector;
   private final DatadogHttpCodec.Extractor extractor;
 
   private final AtomicInteger traceCount;
 
+  /** Tag storage of the last span started on each thread, free for the next builder to take */
+  private static final ThreadLocal<BuilderTags> FREE_BUILDER_TAGS = new ThreadLocal<>();
+
   /** By default, report to local agent and collect all traces. */
   public DDTracer() {
     this(Config.get());
@@ -122,7 +135,8 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
         config.getMergedSpanTags(),
         config.getServiceMapping(),
         config.getHeaderTags(),
-        config.getPartialFlushMinSpans());
+        config.getPartialFlushMinSpans(),
+        SpanLimits.forConfig(config));
     log.debug("Using config: {}", config);
   }
 
@@ -156,7 +170,8 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
         config.getMergedSpanTags(),
         config.getServiceMapping(),
         config.getHeaderTags(),
-        config.getPartialFlushMinSpans());
+        config.getPartialFlushMinSpans(),
+        SpanLimits.forConfig(config));
   }
 
   /**
@@ -214,6 +229,28 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
       final Map<String, String> serviceNameMappings,
       final Map<String, String> taggedHeaders,
       final int partialFlushMinSpans) {
+    this(
+        serviceName,
+        writer,
+        sampler,
+        runtimeTags,
+        defaultSpanTags,
+        serviceNameMappings,
+        taggedHeaders,
+        partialFlushMinSpans,
+        SpanLimits.forConfig(Config.get()));
+  }
+
+  public DDTracer(
+      final String serviceName,
+      final Writer writer,
+      final Sampler sampler,
+      final Map<String, String> runtimeTags,
+      final Map<String, String> defaultSpanTags,
+      final Map<String, String> serviceNameMappings,
+      final Map<String, String> taggedHeaders,
+      final int partialFlushMinSpans,
+      final SpanLimits spanLimits) {
     assert runtimeTags != null;
     assert defaultSpanTags != null;
     assert serviceNameMappings != null;
@@ -227,6 +264,7 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     this.runtimeTags = runtimeTags;
     this.serviceNameMappings = serviceNameMappings;
     this.partialFlushMinSpans = partialFlushMinSpans;
+    this.spanLimits = spanLimits;
 
     shutdownCallback = new ShutdownHook(this);
     try {
@@ -239,13 +277,21 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     extractor = new DatadogHttpCodec.Extractor(taggedHeaders);
 
     if (this.writer instanceof DDAgentWriter) {
-      final DDApi api = ((DDAgentWriter) this.writer).getApi();
+      final DDAgentWriter agentWriter = (DDAgentWriter) this.writer;
+      final DDApi api = agentWriter.getApi();
       traceCount = api.getTraceCounter();
       if (sampler instanceof DDApi.ResponseListener) {
         api.addResponseListener((DDApi.ResponseListener) this.sampler);
       }
+      final InterceptorPipeline interceptorPipeline = agentWriter.getInterceptorPipeline();
+      if (interceptorPipeline != null) {
+        interceptorPipeline.setInterceptors(interceptors);
+        interceptorPipeline.setSampler(sampler);
+      }
+      writerRunsInterceptors = interceptorPipeline != null;
     } else {
       traceCount = new AtomicInteger(0);
+      writerRunsInterceptors = false;
     }
 
     registerClassLoader(ClassLoader.getSystemClassLoader());
@@ -326,6 +372,11 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     return active == null ? null : active.span();
   }
 
+  /**
+   * Each call returns a new builder, but the storage behind its tags is reused: a builder takes the
+   * storage freed by the last span started on its thread and frees its own once its span is
+   * started.
+   */
   @Override
   public DDSpanBuilder buildSpan(final String operationName) {
     return new DDSpanBuilder(operationName, scopeManager);
@@ -333,7 +384,9 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
 
   @Override
   public <T> void inject(final SpanContext spanContext, final Format<T> format, final T carrier) {
-    if (carrier instanceof TextMap) {
+    if (carrier instanceof BinaryInjectAdapter) {
+      injector.inject((DDSpanContext) spanContext, (BinaryInjectAdapter) carrier);
+    } else if (carrier instanceof TextMap) {
       injector.inject((DDSpanContext) spanContext, (TextMap) carrier);
     } else {
       log.debug("Unsupported format for propagation - {}", format.getClass().getName());
@@ -342,7 +395,9 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
 
   @Override
   public <T> SpanContext extract(final Format<T> format, final T carrier) {
-    if (carrier instanceof TextMap) {
+    if (carrier instanceof KeyedExtractAdapter) {
+      return extractor.extract((KeyedExtractAdapter) carrier);
+    } else if (carrier instanceof TextMap) {
       return extractor.extract((TextMap) carrier);
     } else {
       log.debug("Unsupported format for propagation - {}", format.getClass().getName());
@@ -354,12 +409,21 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
    * We use the sampler to know if the trace has to be reported/written. The sampler is called on
    * the first span (root span) of the trace. If the trace is marked as a sample, we report it.
    *
+   * <p>When the writer runs the interceptors, the trace is written as it is: the interceptors, the
+   * sampler and the stats of the writer run later on the writer thread, in that order. The trace is
+   * counted either way, as the count covers all the finished traces.
+   *
    * @param trace a list of the spans related to the same trace
    */
   void write(final Collection<DDSpan> trace) {
     if (trace.isEmpty()) {
       return;
     }
+    if (writerRunsInterceptors) {
+      incrementTraceCount();
+      writer.write(new ArrayList<>(trace));
+      return;
+    }
     final ArrayList<DDSpan> writtenTrace;
     if (interceptors.isEmpty()) {
       writtenTrace = new ArrayList<>(trace);
@@ -453,7 +517,10 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     private final String operationName;
 
     // Builder attributes
-    private final Map<String, Object> tags = new HashMap<String, Object>(defaultSpanTags);
+    // Tags are copied straight into the span context, default span tags are only merged in at
+    // start. The storage is freed when the span is started, so tags set on this builder afterwards
+    // start from scratch and never reach another builder.
+    private BuilderTags tags;
     private long timestampMicro;
     private SpanContext parent;
     private String serviceName;
@@ -474,7 +541,12 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     }
 
     private DDSpan startSpan() {
-      final DDSpan span = new DDSpan(timestampMicro, buildSpanContext());
+      final DDSpan span;
+      try {
+        span = new DDSpan(timestampMicro, buildSpanContext());
+      } finally {
+        freeTags();
+      }
       if (sampler instanceof RateByServiceSampler) {
         ((RateByServiceSampler) sampler).initializeSamplingPriority(span);
       }
@@ -584,13 +656,36 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
     // Private methods
     private DDSpanBuilder withTag(final String tag, final Object value) {
       if (value == null || (value instanceof String && ((String) value).isEmpty())) {
-        tags.remove(tag);
+        tags().put(tag, null);
       } else {
-        tags.put(tag, value);
+        tags().put(tag, value);
       }
       return this;
     }
 
+    /** @return the tags of this builder, taking the storage freed on this thread if any */
+    private BuilderTags tags() {
+      if (tags == null) {
+        tags = FREE_BUILDER_TAGS.get();
+        if (tags == null) {
+          tags = new BuilderTags();
+        } else {
+          FREE_BUILDER_TAGS.set(null);
+        }
+      }
+      return tags;
+    }
+
+    private void freeTags() {
+      final BuilderTags tags = this.tags;
+      if (tags != null) {
+        this.tags = null;
+        if (tags.clear()) {
+          FREE_BUILDER_TAGS.set(tags);
+        }
+      }
+    }
+
     private String generateNewId() {
       // TODO: expand the range of numbers generated to be from 1 to uint 64 MAX
       // Ensure the generated ID is in a valid range:
@@ -613,6 +708,11 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
       final String origin;
 
       final DDSpanContext context;
+      final BuilderTags tags = tags();
+      for (final Map.Entry<String, String> defaultTag : defaultSpanTags.entrySet()) {
+        tags.putIfAbsent(defaultTag.getKey(), defaultTag.getValue());
+      }
+
       SpanContext parentContext = parent;
       if (parentContext == null && !ignoreScope) {
         // use the Scope as parent unless overridden or ignored.
@@ -653,7 +753,10 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
 
         // Get header tags and set origin whether propagating or not.
         if (parentContext instanceof TagContext) {
-          tags.putAll(((TagContext) parentContext).getTags());
+          for (final Map.Entry<String, String> headerTag :
+              ((TagContext) parentContext).getTags().entrySet()) {
+            tags.put(headerTag.getKey(), headerTag.getValue());
+          }
           origin = ((TagContext) parentContext).getOrigin();
         } else {
           origin = null;
@@ -687,25 +790,28 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
               baggage,
               errorFlag,
               spanType,
-              tags,
+              tags.keys,
+              tags.values,
+              tags.count,
               parentTrace,
               DDTracer.this);
 
       // Apply Decorators to handle any tags that may have been set via the builder.
-      for (final Map.Entry<String, Object> tag : tags.entrySet()) {
-        if (tag.getValue() == null) {
-          context.setTag(tag.getKey(), null);
+      for (int i = 0; i < tags.count; i++) {
+        final String tag = tags.keys[i];
+        final Object value = tags.values[i];
+        if (value == null) {
           continue;
         }
 
         boolean addTag = true;
 
         // Call decorators
-        final List<AbstractDecorator> decorators = getSpanContextDecorators(tag.getKey());
+        final List<AbstractDecorator> decorators = getSpanContextDecorators(tag);
         if (decorators != null) {
           for (final AbstractDecorator decorator : decorators) {
             try {
-              addTag &= decorator.shouldSetTag(context, tag.getKey(), tag.getValue());
+              addTag &= decorator.shouldSetTag(context, tag, value);
             } catch (final Throwable ex) {
               log.debug(
                   "Could not decorate the span decorator={}: {}",
@@ -716,7 +822,7 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
         }
 
         if (!addTag) {
-          context.setTag(tag.getKey(), null);
+          context.setTag(tag, null);
         }
       }
 
@@ -739,4 +845,60 @@ public class DDTracer implements io.opentracing.Tracer, Closeable, datadog.trace
       }
     }
   }
+
+  /**
+   * Tags set on a span builder, in arrays rather than a map since spans have few tags. A null value
+   * removes the tag.
+   */
+  private static final class BuilderTags {
+    private static final int INITIAL_CAPACITY = 8;
+    // larger storage is left to the GC rather than kept for the next builder
+    private static final int MAX_FREED_CAPACITY = 64;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private int count = 0;
+
+    private void put(final String tag, final Object value) {
+      final int index = indexOf(tag);
+      if (index >= 0) {
+        values[index] = value;
+      } else {
+        add(tag, value);
+      }
+    }
+
+    private void putIfAbsent(final String tag, final Object value) {
+      if (indexOf(tag) < 0) {
+        add(tag, value);
+      }
+    }
+
+    private int indexOf(final String tag) {
+      for (int i = 0; i < count; i++) {
+        if (keys[i].equals(tag)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private void add(final String tag, final Object value) {
+      if (count == keys.length) {
+        keys = Arrays.copyOf(keys, count * 2);
+        values = Arrays.copyOf(values, count * 2);
+      }
+      keys[count] = tag;
+      values[count] = value;
+      count++;
+    }
+
+    /** @return true if the storage is worth reusing */
+    private boolean clear() {
+      Arrays.fill(keys, 0, count, null);
+      Arrays.fill(values, 0, count, null);
+      count = 0;
+      return keys.length <= MAX_FREED_CAPACITY;
+    }
+  }
 }
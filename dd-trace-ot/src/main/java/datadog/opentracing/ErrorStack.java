@@ -0,0 +1,205 @@
+package datadog.opentracing;
+
+import datadog.trace.api.DDTags;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deferred value of the {@link DDTags#ERROR_STACK} tag. The stack trace of the error is rendered
+ * the first time the tag is read, usually when the span is serialized, rather than when the error
+ * is set, and at most {@link #MAX_DEPTH} frames are rendered for each throwable of the cause chain.
+ * {@link DDSpanContext#getTags()} only ever exposes the rendered String, which is truncated to the
+ * tag value length limit of the tracer like other tag values.
+ *
+ * <p>The same failure tends to repeat, so the rendered frames of each throwable are kept in a
+ * bounded LRU cache keyed by the exception type and the contents of its stack trace, and the cache
+ * holds no throwables. Beyond {@link #MAX_RENDERS_PER_SECOND} cache misses, only the top frame of
+ * each throwable is rendered until the next second.
+ */
+final class ErrorStack {
+  static final int MAX_DEPTH = 128;
+  static final int RATE_LIMITED_DEPTH = 1;
+  static final int MAX_RENDERS_PER_SECOND = 100;
+  static final int CACHE_SIZE = 128;
+
+  private static final Map<Fingerprint, String> CACHE =
+      Collections.synchronizedMap(new LruCache(CACHE_SIZE));
+
+  private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private static final AtomicLong WINDOW_START = new AtomicLong(System.nanoTime());
+  private static final AtomicInteger WINDOW_RENDERS = new AtomicInteger(0);
+
+  private final SpanLimits limits;
+  // released once rendered
+  private volatile Throwable error;
+  private volatile String rendered;
+
+  ErrorStack(final Throwable error) {
+    this(error, SpanLimits.NONE);
+  }
+
+  ErrorStack(final Throwable error, final SpanLimits limits) {
+    this.error = error;
+    this.limits = limits;
+  }
+
+  /** @return the rendered stack trace */
+  @Override
+  public String toString() {
+    String rendered = this.rendered;
+    if (rendered == null) {
+      synchronized (this) {
+        rendered = this.rendered;
+        if (rendered == null) {
+          rendered = (String) limits.limitTagValue(render(error, MAX_DEPTH, true));
+          this.rendered = rendered;
+          error = null;
+        }
+      }
+    }
+    return rendered;
+  }
+
+  private static boolean tryAcquireRender() {
+    final long now = System.nanoTime();
+    final long start = WINDOW_START.get();
+    if (now - start >= WINDOW_NANOS && WINDOW_START.compareAndSet(start, now)) {
+      WINDOW_RENDERS.set(0);
+    }
+    return WINDOW_RENDERS.incrementAndGet() <= MAX_RENDERS_PER_SECOND;
+  }
+
+  static String render(final Throwable error, final int maxDepth) {
+    return render(error, maxDepth, false);
+  }
+
+  /**
+   * Render the stack trace like {@link Throwable#printStackTrace()} does, without suppressed
+   * exceptions and with at most {@code maxDepth} frames for each throwable.
+   *
+   * @param cached whether frames are taken from and added to the cache, subject to the render rate
+   *     limit
+   */
+  private static String render(final Throwable error, final int maxDepth, final boolean cached) {
+    final StringBuilder stack = new StringBuilder();
+    final Set<Throwable> seen =
+        Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+    StackTraceElement[] enclosingFrames = null;
+    Throwable throwable = error;
+    while (throwable != null) {
+      if (!seen.add(throwable)) {
+        stack.append("\t[CIRCULAR REFERENCE:").append(throwable).append("]\n");
+        break;
+      }
+      if (enclosingFrames != null) {
+        stack.append("Caused by: ");
+      }
+      // the message is not part of the fingerprint, so the first line is always rendered
+      stack.append(throwable).append('\n');
+
+      final StackTraceElement[] frames = throwable.getStackTrace();
+      // frames in common with the enclosing throwable are only counted
+      int unique = frames.length;
+      if (enclosingFrames != null) {
+        int enclosing = enclosingFrames.length;
+        while (unique > 0
+            && enclosing > 0
+            && frames[unique - 1].equals(enclosingFrames[enclosing - 1])) {
+          unique--;
+          enclosing--;
+        }
+      }
+
+      if (cached) {
+        final Fingerprint fingerprint =
+            new Fingerprint(throwable.getClass().getName(), frames, unique);
+        String rendered = CACHE.get(fingerprint);
+        if (rendered == null) {
+          if (tryAcquireRender()) {
+            rendered = renderFrames(frames, unique, maxDepth);
+            CACHE.put(fingerprint, rendered);
+          } else {
+            rendered = renderFrames(frames, unique, RATE_LIMITED_DEPTH);
+          }
+        }
+        stack.append(rendered);
+      } else {
+        stack.append(renderFrames(frames, unique, maxDepth));
+      }
+
+      enclosingFrames = frames;
+      throwable = throwable.getCause();
+    }
+    return stack.toString();
+  }
+
+  private static String renderFrames(
+      final StackTraceElement[] frames, final int unique, final int maxDepth) {
+    final StringBuilder rendered = new StringBuilder();
+    final int depth = Math.min(unique, maxDepth);
+    for (int i = 0; i < depth; i++) {
+      rendered.append("\tat ").append(frames[i]).append('\n');
+    }
+    if (depth < frames.length) {
+      rendered.append("\t... ").append(frames.length - depth).append(" more\n");
+    }
+    return rendered.toString();
+  }
+
+  /** Exception type and stack trace contents of a throwable, without the throwable itself. */
+  static final class Fingerprint {
+    private final String type;
+    private final StackTraceElement[] frames;
+    // number of frames not shared with the enclosing throwable
+    private final int unique;
+    private final int hash;
+
+    Fingerprint(final String type, final StackTraceElement[] frames, final int unique) {
+      this.type = type;
+      this.frames = frames;
+      this.unique = unique;
+      hash = 31 * (31 * type.hashCode() + Arrays.hashCode(frames)) + unique;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Fingerprint)) {
+        return false;
+      }
+      final Fingerprint other = (Fingerprint) o;
+      return hash == other.hash
+          && unique == other.unique
+          && type.equals(other.type)
+          && Arrays.equals(frames, other.frames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  static class LruCache extends LinkedHashMap<Fingerprint, String> {
+    private final int maxSize;
+
+    LruCache(final int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<Fingerprint, String> eldest) {
+      return size() > maxSize;
+    }
+  }
+}
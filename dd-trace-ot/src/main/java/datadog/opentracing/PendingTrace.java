@@ -1,6 +1,7 @@
 package datadog.opentracing;
 
 import datadog.opentracing.scopemanager.ContinuableScope;
+import datadog.trace.common.metrics.HealthMetrics;
 import datadog.trace.common.util.Clock;
 import java.io.Closeable;
 import java.lang.ref.Reference;
@@ -58,6 +59,9 @@ public class PendingTrace extends ConcurrentLinkedDeque<DDSpan> {
   /** Ensure a trace is never written multiple times */
   private final AtomicBoolean isWritten = new AtomicBoolean(false);
 
+  /** Finished spans kept in the trace, including the ones already written by partial flushes */
+  private final AtomicInteger keptSpanCount = new AtomicInteger(0);
+
   PendingTrace(
       final DDTracer tracer, final String traceId, final Map<String, String> serviceNameMappings) {
     this.tracer = tracer;
@@ -146,6 +150,13 @@ public class PendingTrace extends ConcurrentLinkedDeque<DDSpan> {
     }
 
     if (!isWritten.get()) {
+      final int keptSpans = keptSpanCount.getAndIncrement();
+      if (span != getRootSpan() && !tracer.getSpanLimits().canAddSpan(keptSpans)) {
+        log.debug("{} - dropped, the trace has too many spans.", span);
+        expireSpan(span);
+        return;
+      }
+
       if (serviceNameMappings.containsKey(span.getServiceName())) {
         span.setServiceName(serviceNameMappings.get(span.getServiceName()));
       }
@@ -181,6 +192,21 @@ public class PendingTrace extends ConcurrentLinkedDeque<DDSpan> {
     }
   }
 
+  /**
+   * Count a continuation as pending without tracking it with a weak reference, so that it can't be
+   * garbage collected without the trace knowing. It must be released by {@link
+   * #releaseContinuation(ContinuableScope.Continuation)}.
+   */
+  public void retainContinuation(final ContinuableScope.Continuation continuation) {
+    final int count = pendingReferenceCount.incrementAndGet();
+    log.debug("traceId: {} -- retained continuation {}. count = {}", traceId, continuation, count);
+  }
+
+  public void releaseContinuation(final ContinuableScope.Continuation continuation) {
+    log.debug("traceId: {} -- released continuation {}", traceId, continuation);
+    expireReference();
+  }
+
   public void cancelContinuation(final ContinuableScope.Continuation continuation) {
     synchronized (continuation) {
       if (continuation.ref == null) {
@@ -241,6 +267,7 @@ public class PendingTrace extends ConcurrentLinkedDeque<DDSpan> {
         // preserve throughput count.
         // Don't report the trace because the data comes from buggy uses of the api and is suspect.
         tracer.incrementTraceCount();
+        HealthMetrics.get().onCollect();
       }
       count++;
       expireReference();
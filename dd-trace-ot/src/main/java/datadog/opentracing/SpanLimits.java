@@ -0,0 +1,82 @@
+package datadog.opentracing;
+
+import datadog.trace.api.Config;
+import datadog.trace.common.metrics.HealthMetrics;
+
+/**
+ * Bounds on the size of the spans and traces of a tracer, so that a misbehaving integration or
+ * endpoint can't make the tracer hold on to an unbounded amount of memory. Limits of 0 or less are
+ * disabled.
+ *
+ * <ul>
+ *   <li>String tag values longer than {@link #getMaxTagValueLength()} are truncated, as is the
+ *       error stack once rendered.
+ *   <li>Tags set on a span which already has {@link #getMaxTagsPerSpan()} tags are dropped.
+ *   <li>Spans finished in a trace which already kept {@link #getMaxSpansPerTrace()} spans are
+ *       dropped, except the root span.
+ * </ul>
+ *
+ * <p>Truncated and dropped tags and spans are counted in the {@link HealthMetrics}.
+ */
+public class SpanLimits {
+  public static final SpanLimits NONE = new SpanLimits(0, 0, 0);
+
+  private final int maxTagValueLength;
+  private final int maxTagsPerSpan;
+  private final int maxSpansPerTrace;
+
+  public SpanLimits(
+      final int maxTagValueLength, final int maxTagsPerSpan, final int maxSpansPerTrace) {
+    this.maxTagValueLength = maxTagValueLength;
+    this.maxTagsPerSpan = maxTagsPerSpan;
+    this.maxSpansPerTrace = maxSpansPerTrace;
+  }
+
+  public static SpanLimits forConfig(final Config config) {
+    return new SpanLimits(
+        config.getTraceTagValueMaxLength(),
+        config.getTraceSpanTagsMax(),
+        config.getTraceSpansMax());
+  }
+
+  public int getMaxTagValueLength() {
+    return maxTagValueLength;
+  }
+
+  public int getMaxTagsPerSpan() {
+    return maxTagsPerSpan;
+  }
+
+  public int getMaxSpansPerTrace() {
+    return maxSpansPerTrace;
+  }
+
+  /** @return the value, truncated if it is a string longer than the limit */
+  Object limitTagValue(final Object value) {
+    if (maxTagValueLength > 0
+        && value instanceof String
+        && ((String) value).length() > maxTagValueLength) {
+      HealthMetrics.get().onTagTruncated();
+      return ((String) value).substring(0, maxTagValueLength);
+    }
+    return value;
+  }
+
+  /** @return true if a tag can be added to a span which has this number of tags */
+  boolean canAddTag(final int tags) {
+    if (maxTagsPerSpan > 0 && tags >= maxTagsPerSpan) {
+      HealthMetrics.get().onTagDropped();
+      return false;
+    }
+    return true;
+  }
+
+  /** @return true if a span can be added to a trace which already kept this number of spans */
+  boolean canAddSpan(final int spans) {
+    if (maxSpansPerTrace > 0 && spans >= maxSpansPerTrace) {
+      HealthMetrics.get().onSpanDropped();
+      return false;
+    }
+    return true;
+  }
+}
@@ -1,5 +1,6 @@
 package datadog.opentracing.decorators;
 
+import datadog.trace.api.DDTags;
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,6 +13,10 @@ public class DDDecoratorsFactory {
         new DBTypeDecorator(),
         new ErrorFlag(),
         new AnalyticsSampleRateDecorator(),
+        new NumericTagAsMetric(DDTags.MESSAGE_BATCH_SIZE),
+        new NumericTagAsMetric(DDTags.MESSAGE_BATCH_BYTES),
+        new NumericTagAsMetric(DDTags.MESSAGE_BATCH_MAX_LAG),
+        new NumericTagAsMetric(DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS),
         new OperationDecorator(),
         new PeerServiceDecorator(),
         new ResourceNameDecorator(),
@@ -0,0 +1,20 @@
+package datadog.opentracing.decorators;
+
+import datadog.opentracing.DDSpanContext;
+
+/** Store numeric values of a tag as a metric of the span, other values are kept as tags. */
+public class NumericTagAsMetric extends AbstractDecorator {
+  public NumericTagAsMetric(final String tag) {
+    super();
+    setMatchingTag(tag);
+  }
+
+  @Override
+  public boolean shouldSetTag(final DDSpanContext context, final String tag, final Object value) {
+    if (value instanceof Number) {
+      context.setMetric(tag, (Number) value);
+      return false;
+    }
+    return true;
+  }
+}
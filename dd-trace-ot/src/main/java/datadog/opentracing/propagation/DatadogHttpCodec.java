@@ -1,6 +1,8 @@
 package datadog.opentracing.propagation;
 
 import datadog.opentracing.DDSpanContext;
+import datadog.trace.api.propagation.BinaryInjectAdapter;
+import datadog.trace.api.propagation.KeyedExtractAdapter;
 import datadog.trace.api.sampling.PrioritySampling;
 import io.opentracing.SpanContext;
 import io.opentracing.propagation.TextMap;
@@ -30,20 +32,55 @@ public class DatadogHttpCodec {
   public static class Injector {
 
     public void inject(final DDSpanContext context, final TextMap carrier) {
-      carrier.put(TRACE_ID_KEY, String.valueOf(context.getTraceId()));
-      carrier.put(SPAN_ID_KEY, String.valueOf(context.getSpanId()));
-      if (context.lockSamplingPriority()) {
-        carrier.put(SAMPLING_PRIORITY_KEY, String.valueOf(context.getSamplingPriority()));
+      headersOf(context).injectInto(carrier);
+      log.debug("{} - Parent context injected", context.getTraceId());
+    }
+
+    public void inject(final DDSpanContext context, final BinaryInjectAdapter carrier) {
+      headersOf(context).injectInto(carrier);
+      log.debug("{} - Parent context injected", context.getTraceId());
+    }
+
+    private InjectedHeaders headersOf(final DDSpanContext context) {
+      final boolean withSamplingPriority = context.lockSamplingPriority();
+      InjectedHeaders headers = context.getInjectedHeaders();
+      if (headers == null
+          || !headers.isValidFor(withSamplingPriority, context.getBaggageItems())) {
+        headers = encode(context, withSamplingPriority);
+        context.setInjectedHeaders(headers);
       }
+      return headers;
+    }
+
+    private InjectedHeaders encode(
+        final DDSpanContext context, final boolean withSamplingPriority) {
+      final Map<String, String> baggage =
+          context.getBaggageItems().isEmpty()
+              ? Collections.<String, String>emptyMap()
+              : new HashMap<>(context.getBaggageItems());
       final String origin = context.getOrigin();
+
+      final int size = 2 + (withSamplingPriority ? 1 : 0) + (origin != null ? 1 : 0);
+      final String[] keys = new String[size + baggage.size()];
+      final String[] values = new String[keys.length];
+      int i = 0;
+      keys[i] = TRACE_ID_KEY;
+      values[i++] = context.getTraceId();
+      keys[i] = SPAN_ID_KEY;
+      values[i++] = context.getSpanId();
+      if (withSamplingPriority) {
+        keys[i] = SAMPLING_PRIORITY_KEY;
+        values[i++] = String.valueOf(context.getSamplingPriority());
+      }
       if (origin != null) {
-        carrier.put(ORIGIN_KEY, origin);
+        keys[i] = ORIGIN_KEY;
+        values[i++] = origin;
       }
-
-      for (final Map.Entry<String, String> entry : context.baggageItems()) {
-        carrier.put(OT_BAGGAGE_PREFIX + entry.getKey(), encode(entry.getValue()));
+      for (final Map.Entry<String, String> entry : baggage.entrySet()) {
+        keys[i] = OT_BAGGAGE_PREFIX + entry.getKey();
+        values[i++] = encode(entry.getValue());
       }
-      log.debug("{} - Parent context injected", context.getTraceId());
+      return new InjectedHeaders(keys, values, withSamplingPriority, baggage);
     }
 
     private String encode(final String value) {
@@ -107,6 +144,60 @@ public class DatadogHttpCodec {
         }
       }
 
+      return buildContext(traceId, spanId, samplingPriority, origin, baggage, tags);
+    }
+
+    /**
+     * Extract looking up only the keys this codec knows about, carrier keys are only iterated to
+     * find baggage items.
+     */
+    public SpanContext extract(final KeyedExtractAdapter carrier) {
+      final String traceIdValue = carrier.get(TRACE_ID_KEY);
+      final String traceId = traceIdValue == null ? "0" : validateUInt64BitsID(traceIdValue);
+      final String spanIdValue = carrier.get(SPAN_ID_KEY);
+      final String spanId = spanIdValue == null ? "0" : validateUInt64BitsID(spanIdValue);
+      final String samplingPriorityValue = carrier.get(SAMPLING_PRIORITY_KEY);
+      final int samplingPriority =
+          samplingPriorityValue == null
+              ? PrioritySampling.UNSET
+              : Integer.parseInt(samplingPriorityValue);
+      final String origin = carrier.get(ORIGIN_KEY);
+
+      Map<String, String> baggage = Collections.emptyMap();
+      for (final String key : carrier.keys()) {
+        if (key.regionMatches(true, 0, OT_BAGGAGE_PREFIX, 0, OT_BAGGAGE_PREFIX.length())) {
+          // look up the key as the carrier returned it, case sensitive carriers need it as is
+          final String val = carrier.get(key);
+          if (val != null) {
+            if (baggage.isEmpty()) {
+              baggage = new HashMap<>();
+            }
+            baggage.put(key.toLowerCase().replace(OT_BAGGAGE_PREFIX, ""), decode(val));
+          }
+        }
+      }
+
+      Map<String, String> tags = Collections.emptyMap();
+      for (final Map.Entry<String, String> taggedHeader : taggedHeaders.entrySet()) {
+        final String val = carrier.get(taggedHeader.getKey());
+        if (val != null) {
+          if (tags.isEmpty()) {
+            tags = new HashMap<>();
+          }
+          tags.put(taggedHeader.getValue(), decode(val));
+        }
+      }
+
+      return buildContext(traceId, spanId, samplingPriority, origin, baggage, tags);
+    }
+
+    private SpanContext buildContext(
+        final String traceId,
+        final String spanId,
+        final int samplingPriority,
+        final String origin,
+        final Map<String, String> baggage,
+        final Map<String, String> tags) {
       SpanContext context = null;
       if (!"0".equals(traceId)) {
         final ExtractedContext ctx =
@@ -0,0 +1,64 @@
+package datadog.opentracing.propagation;
+
+import datadog.trace.api.propagation.BinaryInjectAdapter;
+import io.opentracing.propagation.TextMap;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+/**
+ * Propagation headers of a span context, encoded once and cached on the context so later
+ * injections into other carriers reuse them.
+ */
+public final class InjectedHeaders {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final String[] keys;
+  private final String[] values;
+  private final boolean withSamplingPriority;
+  private final Map<String, String> baggage;
+
+  private volatile byte[][] encodedValues;
+
+  /** @param baggage snapshot of the baggage the values were encoded from */
+  InjectedHeaders(
+      final String[] keys,
+      final String[] values,
+      final boolean withSamplingPriority,
+      final Map<String, String> baggage) {
+    this.keys = keys;
+    this.values = values;
+    this.withSamplingPriority = withSamplingPriority;
+    this.baggage = baggage;
+  }
+
+  /**
+   * Baggage is shared by all spans of a trace and can change at any time, the sampling priority
+   * can be set until it is locked, ids and origin never change.
+   *
+   * @return true if these headers are still up to date
+   */
+  boolean isValidFor(final boolean withSamplingPriority, final Map<String, String> baggage) {
+    return this.withSamplingPriority == withSamplingPriority
+        && (this.baggage.isEmpty() ? baggage.isEmpty() : this.baggage.equals(baggage));
+  }
+
+  void injectInto(final TextMap carrier) {
+    for (int i = 0; i < keys.length; i++) {
+      carrier.put(keys[i], values[i]);
+    }
+  }
+
+  void injectInto(final BinaryInjectAdapter carrier) {
+    byte[][] encoded = encodedValues;
+    if (encoded == null) {
+      encoded = new byte[values.length][];
+      for (int i = 0; i < values.length; i++) {
+        encoded[i] = values[i].getBytes(UTF_8);
+      }
+      encodedValues = encoded;
+    }
+    for (int i = 0; i < keys.length; i++) {
+      carrier.put(keys[i], encoded[i]);
+    }
+  }
+}
@@ -5,15 +5,20 @@ import datadog.opentracing.DDSpanContext;
 import datadog.opentracing.PendingTrace;
 import datadog.trace.context.ScopeListener;
 import datadog.trace.context.TraceScope;
+import datadog.trace.context.UnregisteredCaptureScope;
 import io.opentracing.Scope;
 import java.io.Closeable;
 import java.lang.ref.WeakReference;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public class ContinuableScope implements Scope, TraceScope {
+public class ContinuableScope implements Scope, UnregisteredCaptureScope {
+  private static final AtomicIntegerFieldUpdater<Continuation> RETAINED =
+      AtomicIntegerFieldUpdater.newUpdater(Continuation.class, "retained");
+
   /** ScopeManager holding the thread-local to this scope. */
   private final ContextualScopeManager scopeManager;
   /**
@@ -59,7 +64,7 @@ public class ContinuableScope implements Scope, TraceScope {
   @Override
   public void close() {
     if (null != continuation) {
-      spanUnderScope.context().getTrace().cancelContinuation(continuation);
+      continuation.cancel();
     }
 
     if (openCount.decrementAndGet() == 0 && finishOnClose) {
@@ -107,8 +112,23 @@ public class ContinuableScope implements Scope, TraceScope {
    */
   @Override
   public Continuation capture() {
+    return capture(true);
+  }
+
+  /**
+   * The continuation returned must be closed or activated or the trace will not finish, even if
+   * the continuation is garbage collected.
+   *
+   * @return The new continuation, or null if this scope is not async propagating.
+   */
+  @Override
+  public Continuation captureUnregistered() {
+    return capture(false);
+  }
+
+  private Continuation capture(final boolean register) {
     if (isAsyncPropagating()) {
-      return new Continuation();
+      return new Continuation(register);
     } else {
       return null;
     }
@@ -124,12 +144,31 @@ public class ContinuableScope implements Scope, TraceScope {
 
     private final AtomicBoolean used = new AtomicBoolean(false);
     private final PendingTrace trace;
+    /** Unregistered continuations are only counted by the trace, see {@link #cancel()}. */
+    private final boolean registered;
+    /** 1 while an unregistered continuation is pending in its trace. */
+    volatile int retained;
 
-    private Continuation() {
+    private Continuation(final boolean register) {
       openCount.incrementAndGet();
       final DDSpanContext context = (DDSpanContext) spanUnderScope.context();
       trace = context.getTrace();
-      trace.registerContinuation(this);
+      registered = register;
+      if (register) {
+        trace.registerContinuation(this);
+      } else {
+        retained = 1;
+        trace.retainContinuation(this);
+      }
+    }
+
+    /** Stop the trace from waiting for this continuation, may be called more than once. */
+    private void cancel() {
+      if (registered) {
+        trace.cancelContinuation(this);
+      } else if (RETAINED.compareAndSet(this, 1, 0)) {
+        trace.releaseContinuation(this);
+      }
     }
 
     @Override
@@ -155,7 +194,7 @@ public class ContinuableScope implements Scope, TraceScope {
     @Override
     public void close(final boolean closeContinuationScope) {
       if (used.compareAndSet(false, true)) {
-        trace.cancelContinuation(this);
+        cancel();
         if (closeContinuationScope) {
           ContinuableScope.this.close();
         } else {
@@ -0,0 +1,255 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.api.metrics.StripedCounter;
+import datadog.trace.common.writer.WriterQueue;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Metrics about the tracer itself: how many traces are written, dropped and sent, and how much
+ * sending them costs. Recording a metric only increments a striped counter, so it is always on;
+ * the metrics are exported through JMX and DogStatsD by the {@link HealthMetricsReporter} when
+ * health metrics are enabled.
+ *
+ * <p>There is one instance per JVM, shared by every tracer and writer, so the counters are totals
+ * over all of them and the queue depth is that of all the writer queues still open.
+ */
+@Slf4j
+public class HealthMetrics implements HealthMetricsMBean {
+  static final String MBEAN_NAME = "datadog.trace:type=HealthMetrics";
+
+  private static final HealthMetrics INSTANCE = new HealthMetrics();
+
+  final StripedCounter tracesEnqueued = new StripedCounter();
+  final StripedCounter tracesDropped = new StripedCounter();
+  final StripedCounter tracesSent = new StripedCounter();
+  final StripedCounter tracesFailed = new StripedCounter();
+  final StripedCounter tracesCollected = new StripedCounter();
+  final StripedCounter sendErrors = new StripedCounter();
+  final StripedCounter interceptorErrors = new StripedCounter();
+  final StripedCounter tagsTruncated = new StripedCounter();
+  final StripedCounter tagsDropped = new StripedCounter();
+  final StripedCounter spansDropped = new StripedCounter();
+  final Histogram spansPerTrace = new Histogram();
+  final Histogram payloadBytes = new Histogram();
+  final Histogram serializeNanos = new Histogram();
+  final Histogram sendNanos = new Histogram();
+  final ConcurrentMap<Integer, StripedCounter> responses = new ConcurrentHashMap<>();
+  final ConcurrentMap<String, Histogram> interceptorNanos = new ConcurrentHashMap<>();
+
+  private final Set<WriterQueue<?>> queues =
+      Collections.newSetFromMap(new ConcurrentHashMap<WriterQueue<?>, Boolean>());
+
+  public static HealthMetrics get() {
+    return INSTANCE;
+  }
+
+  // Visible for testing
+  HealthMetrics() {}
+
+  /** Add the depth of this queue to the writer queue depth, until it is no longer monitored. */
+  public void monitorQueue(final WriterQueue<?> queue) {
+    queues.add(queue);
+  }
+
+  public void unmonitorQueue(final WriterQueue<?> queue) {
+    queues.remove(queue);
+  }
+
+  public void onEnqueue(final int spans) {
+    tracesEnqueued.increment();
+    spansPerTrace.record(spans);
+  }
+
+  public void onDrop() {
+    tracesDropped.increment();
+  }
+
+  public void onCollect() {
+    tracesCollected.increment();
+  }
+
+  public void onSerialize(final int bytes, final long nanos) {
+    payloadBytes.record(bytes);
+    serializeNanos.record(nanos);
+  }
+
+  public void onSend(final int traces, final int status, final long nanos) {
+    sendNanos.record(nanos);
+    response(status).increment();
+    if (status == 200) {
+      tracesSent.add(traces);
+    } else {
+      tracesFailed.add(traces);
+    }
+  }
+
+  public void onSendError(final int traces, final long nanos) {
+    sendNanos.record(nanos);
+    sendErrors.increment();
+    tracesFailed.add(traces);
+  }
+
+  /** @param nanos time the interceptor took on the traces of a flush */
+  public void onIntercept(final String interceptor, final long nanos) {
+    Histogram histogram = interceptorNanos.get(interceptor);
+    if (histogram == null) {
+      final Histogram newHistogram = new Histogram();
+      histogram = interceptorNanos.putIfAbsent(interceptor, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    histogram.record(nanos);
+  }
+
+  public void onInterceptError() {
+    interceptorErrors.increment();
+  }
+
+  public void onTagTruncated() {
+    tagsTruncated.increment();
+  }
+
+  public void onTagDropped() {
+    tagsDropped.increment();
+  }
+
+  public void onSpanDropped() {
+    spansDropped.increment();
+  }
+
+  private StripedCounter response(final int status) {
+    StripedCounter counter = responses.get(status);
+    if (counter == null) {
+      final StripedCounter newCounter = new StripedCounter();
+      counter = responses.putIfAbsent(status, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    return counter;
+  }
+
+  void registerMBean() {
+    try {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName name = new ObjectName(MBEAN_NAME);
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+    } catch (final Exception e) {
+      log.warn("Failed to register tracer health metrics MBean", e);
+    }
+  }
+
+  @Override
+  public long getTracesEnqueued() {
+    return tracesEnqueued.sum();
+  }
+
+  @Override
+  public long getTracesDropped() {
+    return tracesDropped.sum();
+  }
+
+  @Override
+  public long getTracesSent() {
+    return tracesSent.sum();
+  }
+
+  @Override
+  public long getTracesFailed() {
+    return tracesFailed.sum();
+  }
+
+  @Override
+  public long getTracesCollected() {
+    return tracesCollected.sum();
+  }
+
+  @Override
+  public int getQueueDepth() {
+    int depth = 0;
+    for (final WriterQueue<?> queue : queues) {
+      depth += queue.size();
+    }
+    return depth;
+  }
+
+  @Override
+  public long getSpansEnqueued() {
+    return spansPerTrace.getTotal();
+  }
+
+  @Override
+  public long getPayloads() {
+    return payloadBytes.getCount();
+  }
+
+  @Override
+  public long getPayloadBytesTotal() {
+    return payloadBytes.getTotal();
+  }
+
+  @Override
+  public long getSerializeNanosTotal() {
+    return serializeNanos.getTotal();
+  }
+
+  @Override
+  public long getSendNanosTotal() {
+    return sendNanos.getTotal();
+  }
+
+  @Override
+  public long getSendErrors() {
+    return sendErrors.sum();
+  }
+
+  @Override
+  public Map<Integer, Long> getResponses() {
+    final Map<Integer, Long> counts = new TreeMap<>();
+    for (final Map.Entry<Integer, StripedCounter> entry : responses.entrySet()) {
+      counts.put(entry.getKey(), entry.getValue().sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public Map<String, Long> getInterceptorNanosTotal() {
+    final Map<String, Long> totals = new TreeMap<>();
+    for (final Map.Entry<String, Histogram> entry : interceptorNanos.entrySet()) {
+      totals.put(entry.getKey(), entry.getValue().getTotal());
+    }
+    return totals;
+  }
+
+  @Override
+  public long getInterceptorErrors() {
+    return interceptorErrors.sum();
+  }
+
+  @Override
+  public long getTagsTruncated() {
+    return tagsTruncated.sum();
+  }
+
+  @Override
+  public long getTagsDropped() {
+    return tagsDropped.sum();
+  }
+
+  @Override
+  public long getSpansDropped() {
+    return spansDropped.sum();
+  }
+}
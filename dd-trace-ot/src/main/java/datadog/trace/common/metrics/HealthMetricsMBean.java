@@ -0,0 +1,58 @@
+package datadog.trace.common.metrics;
+
+import java.util.Map;
+
+/** JMX view of the {@link HealthMetrics}. All counts are cumulative since the tracer started. */
+public interface HealthMetricsMBean {
+
+  /** @return traces added to the writer queue */
+  long getTracesEnqueued();
+
+  /** @return traces discarded because the writer queue was full */
+  long getTracesDropped();
+
+  /** @return traces accepted by the agent */
+  long getTracesSent();
+
+  /** @return traces rejected by the agent or which couldn't be sent to it */
+  long getTracesFailed();
+
+  /** @return traces discarded by the span cleaner because spans were never finished */
+  long getTracesCollected();
+
+  /** @return traces currently waiting in the writer queue */
+  int getQueueDepth();
+
+  /** @return spans of the enqueued traces */
+  long getSpansEnqueued();
+
+  /** @return payloads serialized for the agent */
+  long getPayloads();
+
+  long getPayloadBytesTotal();
+
+  long getSerializeNanosTotal();
+
+  long getSendNanosTotal();
+
+  /** @return payloads which couldn't be sent because of an I/O error */
+  long getSendErrors();
+
+  /** @return agent responses by http status code */
+  Map<Integer, Long> getResponses();
+
+  /** @return time spent by each trace interceptor run by the writer, by interceptor class */
+  Map<String, Long> getInterceptorNanosTotal();
+
+  /** @return traces left unchanged because a trace interceptor run by the writer failed */
+  long getInterceptorErrors();
+
+  /** @return tag values truncated because they were longer than the span limits allow */
+  long getTagsTruncated();
+
+  /** @return tags dropped because the span already had as many tags as the span limits allow */
+  long getTagsDropped();
+
+  /** @return spans dropped because the trace already had as many spans as the span limits allow */
+  long getSpansDropped();
+}
@@ -0,0 +1,117 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.api.metrics.StripedCounter;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically sends the {@link HealthMetrics} to DogStatsD: counters as the count since the
+ * previous report, histograms as the average and maximum of the values recorded since then. The
+ * metrics MBean is registered on the first report rather than at startup, to avoid initializing
+ * JMX while the application is still starting.
+ */
+public class HealthMetricsReporter implements Runnable, Closeable {
+  public static final long REPORT_INTERVAL_SECONDS = 10;
+
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final HealthMetrics metrics;
+  private final StatsDClient statsd;
+
+  private boolean registered = false;
+
+  private long tracesEnqueued = 0;
+  private long tracesDropped = 0;
+  private long tracesSent = 0;
+  private long tracesFailed = 0;
+  private long tracesCollected = 0;
+  private long sendErrors = 0;
+  private long interceptorErrors = 0;
+  private long tagsTruncated = 0;
+  private long tagsDropped = 0;
+  private long spansDropped = 0;
+  private final Map<Histogram, long[]> histograms = new HashMap<>();
+  private final Map<Integer, Long> responses = new HashMap<>();
+
+  public HealthMetricsReporter(final HealthMetrics metrics, final StatsDClient statsd) {
+    this.metrics = metrics;
+    this.statsd = statsd;
+  }
+
+  @Override
+  public synchronized void run() {
+    if (!registered) {
+      metrics.registerMBean();
+      registered = true;
+    }
+
+    tracesEnqueued = reportCount("queue.enqueued.traces", metrics.tracesEnqueued, tracesEnqueued);
+    tracesDropped = reportCount("queue.dropped.traces", metrics.tracesDropped, tracesDropped);
+    tracesSent = reportCount("api.sent.traces", metrics.tracesSent, tracesSent);
+    tracesFailed = reportCount("api.failed.traces", metrics.tracesFailed, tracesFailed);
+    tracesCollected =
+        reportCount("cleaner.collected.traces", metrics.tracesCollected, tracesCollected);
+    sendErrors = reportCount("api.errors", metrics.sendErrors, sendErrors);
+    interceptorErrors =
+        reportCount("interceptor.errors", metrics.interceptorErrors, interceptorErrors);
+    tagsTruncated = reportCount("span.tags.truncated", metrics.tagsTruncated, tagsTruncated);
+    tagsDropped = reportCount("span.tags.dropped", metrics.tagsDropped, tagsDropped);
+    spansDropped = reportCount("trace.spans.dropped", metrics.spansDropped, spansDropped);
+    statsd.gauge("queue.depth", metrics.getQueueDepth());
+
+    reportHistogram("queue.enqueued.spans_per_trace", metrics.spansPerTrace, 1);
+    reportHistogram("api.payload.bytes", metrics.payloadBytes, 1);
+    reportHistogram("api.serialize.time_ms", metrics.serializeNanos, NANOS_PER_MILLI);
+    reportHistogram("api.send.time_ms", metrics.sendNanos, NANOS_PER_MILLI);
+    for (final Map.Entry<String, Histogram> entry : metrics.interceptorNanos.entrySet()) {
+      reportHistogram(
+          "interceptor.time_ms",
+          entry.getValue(),
+          NANOS_PER_MILLI,
+          "interceptor:" + entry.getKey());
+    }
+
+    for (final Map.Entry<Integer, StripedCounter> entry : metrics.responses.entrySet()) {
+      final long count = entry.getValue().sum();
+      final Long previous = responses.get(entry.getKey());
+      final long delta = previous == null ? count : count - previous;
+      if (delta != 0) {
+        statsd.count("api.responses", delta, "status:" + entry.getKey());
+      }
+      responses.put(entry.getKey(), count);
+    }
+  }
+
+  private long reportCount(final String name, final StripedCounter counter, final long previous) {
+    final long count = counter.sum();
+    statsd.count(name, count - previous);
+    return count;
+  }
+
+  private void reportHistogram(
+      final String name, final Histogram histogram, final double scale, final String... tags) {
+    final long max = histogram.resetMax();
+    final long count = histogram.getCount();
+    final long total = histogram.getTotal();
+    long[] previous = histograms.get(histogram);
+    if (previous == null) {
+      previous = new long[2];
+      histograms.put(histogram, previous);
+    }
+    final long countDelta = count - previous[0];
+    final long totalDelta = total - previous[1];
+    previous[0] = count;
+    previous[1] = total;
+    if (countDelta > 0) {
+      statsd.gauge(name + ".avg", totalDelta / scale / countDelta, tags);
+      statsd.gauge(name + ".max", max / scale, tags);
+    }
+  }
+
+  @Override
+  public void close() {
+    statsd.close();
+  }
+}
@@ -0,0 +1,40 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.api.metrics.StripedCounter;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Distribution of recorded values, kept as count, total and maximum. The count and total are
+ * cumulative, the maximum is the one since it was last reset by a report.
+ */
+public final class Histogram {
+  private final StripedCounter count = new StripedCounter();
+  private final StripedCounter total = new StripedCounter();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(final long value) {
+    count.increment();
+    total.add(value);
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotal() {
+    return total.sum();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /** @return the maximum recorded since the last reset */
+  long resetMax() {
+    return max.getAndSet(0);
+  }
+}
@@ -0,0 +1,82 @@
+package datadog.trace.common.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Minimal DogStatsD client sending each metric in its own UDP datagram. Sending never blocks on
+ * the agent, and failures are only logged: metrics are lost if the agent isn't listening.
+ */
+@Slf4j
+public class StatsDClient implements Closeable {
+  private final InetSocketAddress address;
+  private final String prefix;
+  private final String constantTags;
+  private final DatagramSocket socket;
+
+  /**
+   * @param prefix prepended to the name of each metric, followed by a dot
+   * @param constantTags tags sent with each metric
+   */
+  public StatsDClient(
+      final String host, final int port, final String prefix, final String... constantTags)
+      throws SocketException {
+    address = new InetSocketAddress(host, port);
+    this.prefix = prefix + ".";
+    this.constantTags = join(constantTags);
+    socket = new DatagramSocket();
+  }
+
+  public void count(final String name, final long delta, final String... tags) {
+    send(name, Long.toString(delta), "c", tags);
+  }
+
+  public void gauge(final String name, final long value, final String... tags) {
+    send(name, Long.toString(value), "g", tags);
+  }
+
+  public void gauge(final String name, final double value, final String... tags) {
+    send(name, Double.toString(value), "g", tags);
+  }
+
+  private void send(final String name, final String value, final String type, final String[] tags) {
+    final StringBuilder message =
+        new StringBuilder(prefix).append(name).append(':').append(value).append('|').append(type);
+    final String metricTags = join(tags);
+    if (!constantTags.isEmpty() || !metricTags.isEmpty()) {
+      message.append("|#").append(constantTags);
+      if (!constantTags.isEmpty() && !metricTags.isEmpty()) {
+        message.append(',');
+      }
+      message.append(metricTags);
+    }
+    final byte[] bytes = message.toString().getBytes(StandardCharsets.UTF_8);
+    try {
+      socket.send(new DatagramPacket(bytes, bytes.length, address));
+    } catch (final IOException e) {
+      log.debug("Failed to send metric {} to DogStatsD at {}", name, address, e);
+    }
+  }
+
+  private static String join(final String[] tags) {
+    if (tags.length == 0) {
+      return "";
+    }
+    final StringBuilder joined = new StringBuilder(tags[0]);
+    for (int i = 1; i < tags.length; i++) {
+      joined.append(',').append(tags[i]);
+    }
+    return joined.toString();
+  }
+
+  @Override
+  public void close() {
+    socket.close();
+  }
+}
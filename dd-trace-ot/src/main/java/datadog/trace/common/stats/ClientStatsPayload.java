@@ -0,0 +1,71 @@
+package datadog.trace.common.stats;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import datadog.opentracing.DDTraceOTInfo;
+import java.util.List;
+
+/**
+ * Stats buckets sent to the agent's stats endpoint, serialized as the agent's ClientStatsPayload.
+ * The hostname is left empty for the agent to fill in with its own.
+ */
+public class ClientStatsPayload {
+  private final String env;
+  private final String version;
+  private final String runtimeId;
+  private final long sequence;
+  private final List<StatsBucket> buckets;
+
+  public ClientStatsPayload(
+      final String env,
+      final String version,
+      final String runtimeId,
+      final long sequence,
+      final List<StatsBucket> buckets) {
+    this.env = env == null ? "" : env;
+    this.version = version == null ? "" : version;
+    this.runtimeId = runtimeId == null ? "" : runtimeId;
+    this.sequence = sequence;
+    this.buckets = buckets;
+  }
+
+  @JsonGetter("Hostname")
+  public String getHostname() {
+    return "";
+  }
+
+  @JsonGetter("Env")
+  public String getEnv() {
+    return env;
+  }
+
+  @JsonGetter("Version")
+  public String getVersion() {
+    return version;
+  }
+
+  @JsonGetter("Lang")
+  public String getLang() {
+    return "java";
+  }
+
+  @JsonGetter("TracerVersion")
+  public String getTracerVersion() {
+    return DDTraceOTInfo.VERSION;
+  }
+
+  @JsonGetter("RuntimeID")
+  public String getRuntimeId() {
+    return runtimeId;
+  }
+
+  /** @return the number of payloads sent before this one, for the agent to spot missing ones */
+  @JsonGetter("Sequence")
+  public long getSequence() {
+    return sequence;
+  }
+
+  @JsonGetter("Stats")
+  public List<StatsBucket> getBuckets() {
+    return buckets;
+  }
+}
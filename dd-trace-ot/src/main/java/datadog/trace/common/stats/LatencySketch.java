@@ -0,0 +1,489 @@
+package datadog.trace.common.stats;
+
+import java.io.ByteArrayOutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Mergeable sketch of span durations. Durations are counted in logarithmic bins, each covering
+ * values within {@link #RELATIVE_ACCURACY} of each other, so the sketch has a bounded size whatever
+ * the number of durations added to it.
+ *
+ * <p>Bins are stored in pages of {@link #PAGE_SIZE} counters, allocated when a duration first falls
+ * into them: durations of an operation usually span a few orders of magnitude, which only takes a
+ * few pages. Adding a duration is lock-free.
+ *
+ * <p>Quantiles are read from the bins, so the duration at any quantile is within the relative
+ * accuracy of the exact one. The bins are those of the agent's DDSketch logarithmic mapping, so
+ * sketches are sent to the agent as DDSketch protobuf messages, see {@link #encode()}.
+ */
+public final class LatencySketch {
+  static final double RELATIVE_ACCURACY = 0.01;
+  static final int PAGE_SIZE = 128;
+  // Durations up to about 6 hours get their own bin, longer ones are counted in the last bin.
+  static final int MAX_INDEX = 1535;
+
+  // DDSketch protobuf fields and wire types
+  private static final int SKETCH_MAPPING = 1;
+  private static final int SKETCH_POSITIVE_VALUES = 2;
+  private static final int SKETCH_NEGATIVE_VALUES = 3;
+  private static final int SKETCH_ZERO_COUNT = 4;
+  private static final int MAPPING_GAMMA = 1;
+  private static final int MAPPING_INDEX_OFFSET = 2;
+  private static final int MAPPING_INTERPOLATION = 3;
+  private static final int STORE_BIN_COUNTS = 1;
+  private static final int STORE_CONTIGUOUS_BIN_COUNTS = 2;
+  private static final int STORE_CONTIGUOUS_BIN_INDEX_OFFSET = 3;
+  private static final int ENTRY_KEY = 1;
+  private static final int ENTRY_VALUE = 2;
+  private static final int WIRE_VARINT = 0;
+  private static final int WIRE_FIXED64 = 1;
+  private static final int WIRE_LENGTH_DELIMITED = 2;
+  private static final int WIRE_FIXED32 = 5;
+
+  private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+  private static final double LOG_GAMMA = Math.log(GAMMA);
+  private static final int PAGES = (MAX_INDEX + PAGE_SIZE) / PAGE_SIZE;
+
+  private final AtomicReferenceArray<AtomicLongArray> pages = new AtomicReferenceArray<>(PAGES);
+  // Durations under a nanosecond, which can't be placed on a logarithmic scale.
+  private final AtomicLong zeroCount = new AtomicLong();
+  private final AtomicLong count = new AtomicLong();
+
+  /** @param durationNano a duration in nanoseconds */
+  public void add(final long durationNano) {
+    if (durationNano < 1) {
+      zeroCount.incrementAndGet();
+    } else {
+      final int index = index(durationNano);
+      page(index / PAGE_SIZE).incrementAndGet(index % PAGE_SIZE);
+    }
+    count.incrementAndGet();
+  }
+
+  /** Add the durations counted by another sketch to this one. */
+  public void merge(final LatencySketch other) {
+    zeroCount.addAndGet(other.zeroCount.get());
+    for (int p = 0; p < PAGES; p++) {
+      final AtomicLongArray otherPage = other.pages.get(p);
+      if (otherPage == null) {
+        continue;
+      }
+      for (int i = 0; i < PAGE_SIZE; i++) {
+        final long binCount = otherPage.get(i);
+        if (binCount != 0) {
+          page(p).addAndGet(i, binCount);
+        }
+      }
+    }
+    count.addAndGet(other.count.get());
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * Get the non empty bins of this sketch, keyed by the duration in nanoseconds they stand for.
+   * Durations under a nanosecond are keyed by 0.
+   */
+  public Map<Long, Long> getBins() {
+    final Map<Long, Long> bins = new LinkedHashMap<>();
+    final long zeros = zeroCount.get();
+    if (zeros != 0) {
+      bins.put(0L, zeros);
+    }
+    for (int p = 0; p < PAGES; p++) {
+      final AtomicLongArray page = pages.get(p);
+      if (page == null) {
+        continue;
+      }
+      for (int i = 0; i < PAGE_SIZE; i++) {
+        final long binCount = page.get(i);
+        if (binCount != 0) {
+          bins.put(value(p * PAGE_SIZE + i), binCount);
+        }
+      }
+    }
+    return bins;
+  }
+
+  /**
+   * Get the duration at a quantile of the durations added to this sketch, within the relative
+   * accuracy of the exact duration.
+   *
+   * @param quantile between 0 and 1
+   * @return the duration in nanoseconds, or 0 if the sketch is empty
+   */
+  public long getValueAtQuantile(final double quantile) {
+    if (quantile < 0 || quantile > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+    }
+    // bins and count aren't updated atomically together, so the total is taken from the bins
+    final long[] counts = snapshot();
+    final long zeros = zeroCount.get();
+    long total = zeros;
+    for (final long binCount : counts) {
+      total += binCount;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long rank = (long) (quantile * (total - 1));
+    long cumulative = zeros;
+    if (cumulative > rank) {
+      return 0;
+    }
+    for (int index = 0; index < counts.length; index++) {
+      cumulative += counts[index];
+      if (cumulative > rank) {
+        return value(index);
+      }
+    }
+    return value(MAX_INDEX);
+  }
+
+  /**
+   * Encode this sketch as a DDSketch protobuf message, the format of the summaries the agent takes
+   * in client stats: a logarithmic index mapping with this sketch's gamma and no offset, the bins
+   * as the positive value store, either contiguous or sparse, whichever is smaller, and the count
+   * of durations under a nanosecond as the zero count.
+   */
+  public byte[] encode() {
+    final long[] counts = snapshot();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+    // the index offset and interpolation are left to their default, 0 and none
+    writeTag(out, SKETCH_MAPPING, WIRE_LENGTH_DELIMITED);
+    writeVarint(out, 9);
+    writeTag(out, MAPPING_GAMMA, WIRE_FIXED64);
+    writeDouble(out, GAMMA);
+
+    int min = -1;
+    int max = -1;
+    int nonEmpty = 0;
+    int sparseSize = 0;
+    for (int index = 0; index < counts.length; index++) {
+      if (counts[index] != 0) {
+        if (min < 0) {
+          min = index;
+        }
+        max = index;
+        nonEmpty++;
+        sparseSize += 2 + sparseEntrySize(index);
+      }
+    }
+    if (nonEmpty > 0) {
+      final ByteArrayOutputStream store = new ByteArrayOutputStream(64);
+      final int contiguousSize = 1 + varintSize(8 * (max - min + 1)) + 8 * (max - min + 1);
+      if (contiguousSize <= sparseSize) {
+        writeTag(store, STORE_CONTIGUOUS_BIN_COUNTS, WIRE_LENGTH_DELIMITED);
+        writeVarint(store, 8 * (max - min + 1));
+        for (int index = min; index <= max; index++) {
+          writeDouble(store, counts[index]);
+        }
+        if (min != 0) {
+          writeTag(store, STORE_CONTIGUOUS_BIN_INDEX_OFFSET, WIRE_VARINT);
+          writeVarint(store, zigZag(min));
+        }
+      } else {
+        for (int index = min; index <= max; index++) {
+          if (counts[index] != 0) {
+            writeTag(store, STORE_BIN_COUNTS, WIRE_LENGTH_DELIMITED);
+            writeVarint(store, sparseEntrySize(index));
+            writeTag(store, ENTRY_KEY, WIRE_VARINT);
+            writeVarint(store, zigZag(index));
+            writeTag(store, ENTRY_VALUE, WIRE_FIXED64);
+            writeDouble(store, counts[index]);
+          }
+        }
+      }
+      writeTag(out, SKETCH_POSITIVE_VALUES, WIRE_LENGTH_DELIMITED);
+      writeVarint(out, store.size());
+      out.write(store.toByteArray(), 0, store.size());
+    }
+
+    final long zeros = zeroCount.get();
+    if (zeros != 0) {
+      writeTag(out, SKETCH_ZERO_COUNT, WIRE_FIXED64);
+      writeDouble(out, zeros);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Decode a DDSketch protobuf message with the index mapping of this class.
+   *
+   * @throws IllegalArgumentException if the message is malformed, has another index mapping,
+   *     negative values, or bins out of the range of this class
+   */
+  public static LatencySketch decode(final byte[] bytes) {
+    final LatencySketch sketch = new LatencySketch();
+    final ProtoReader reader = new ProtoReader(bytes, 0, bytes.length);
+    boolean mapped = false;
+    while (reader.hasRemaining()) {
+      final long tag = reader.readVarint();
+      final int field = (int) (tag >>> 3);
+      final int wireType = (int) (tag & 7);
+      if (field == SKETCH_MAPPING && wireType == WIRE_LENGTH_DELIMITED) {
+        checkMapping(reader.readMessage());
+        mapped = true;
+      } else if (field == SKETCH_POSITIVE_VALUES && wireType == WIRE_LENGTH_DELIMITED) {
+        sketch.readStore(reader.readMessage());
+      } else if (field == SKETCH_NEGATIVE_VALUES && wireType == WIRE_LENGTH_DELIMITED) {
+        if (new LatencySketch().readStore(reader.readMessage()) != 0) {
+          throw new IllegalArgumentException("Latency sketch with negative durations");
+        }
+      } else if (field == SKETCH_ZERO_COUNT && wireType == WIRE_FIXED64) {
+        final long zeros = toCount(reader.readDouble());
+        sketch.zeroCount.addAndGet(zeros);
+        sketch.count.addAndGet(zeros);
+      } else {
+        reader.skip(wireType);
+      }
+    }
+    if (!mapped) {
+      throw new IllegalArgumentException("Latency sketch without index mapping");
+    }
+    return sketch;
+  }
+
+  private static void checkMapping(final ProtoReader reader) {
+    double gamma = 0;
+    double indexOffset = 0;
+    long interpolation = 0;
+    while (reader.hasRemaining()) {
+      final long tag = reader.readVarint();
+      final int field = (int) (tag >>> 3);
+      final int wireType = (int) (tag & 7);
+      if (field == MAPPING_GAMMA && wireType == WIRE_FIXED64) {
+        gamma = reader.readDouble();
+      } else if (field == MAPPING_INDEX_OFFSET && wireType == WIRE_FIXED64) {
+        indexOffset = reader.readDouble();
+      } else if (field == MAPPING_INTERPOLATION && wireType == WIRE_VARINT) {
+        interpolation = reader.readVarint();
+      } else {
+        reader.skip(wireType);
+      }
+    }
+    if (Math.abs(gamma - GAMMA) > 1e-12 || indexOffset != 0 || interpolation != 0) {
+      throw new IllegalArgumentException("Unsupported latency sketch index mapping");
+    }
+  }
+
+  /** @return the number of durations read */
+  private long readStore(final ProtoReader reader) {
+    final ByteArrayOutputStream contiguous = new ByteArrayOutputStream();
+    long offset = 0;
+    long total = 0;
+    while (reader.hasRemaining()) {
+      final long tag = reader.readVarint();
+      final int field = (int) (tag >>> 3);
+      final int wireType = (int) (tag & 7);
+      if (field == STORE_BIN_COUNTS && wireType == WIRE_LENGTH_DELIMITED) {
+        final ProtoReader entry = reader.readMessage();
+        long index = 0;
+        double binCount = 0;
+        while (entry.hasRemaining()) {
+          final long entryTag = entry.readVarint();
+          if (entryTag == (ENTRY_KEY << 3 | WIRE_VARINT)) {
+            index = unZigZag(entry.readVarint());
+          } else if (entryTag == (ENTRY_VALUE << 3 | WIRE_FIXED64)) {
+            binCount = entry.readDouble();
+          } else {
+            entry.skip((int) (entryTag & 7));
+          }
+        }
+        total += addBin(index, binCount);
+      } else if (field == STORE_CONTIGUOUS_BIN_COUNTS && wireType == WIRE_LENGTH_DELIMITED) {
+        final ProtoReader packed = reader.readMessage();
+        while (packed.hasRemaining()) {
+          writeDouble(contiguous, packed.readDouble());
+        }
+      } else if (field == STORE_CONTIGUOUS_BIN_COUNTS && wireType == WIRE_FIXED64) {
+        writeDouble(contiguous, reader.readDouble());
+      } else if (field == STORE_CONTIGUOUS_BIN_INDEX_OFFSET && wireType == WIRE_VARINT) {
+        offset = unZigZag(reader.readVarint());
+      } else {
+        reader.skip(wireType);
+      }
+    }
+    // the offset may come after the counts
+    final byte[] counts = contiguous.toByteArray();
+    final ProtoReader packed = new ProtoReader(counts, 0, counts.length);
+    for (long index = offset; packed.hasRemaining(); index++) {
+      total += addBin(index, packed.readDouble());
+    }
+    return total;
+  }
+
+  private long addBin(final long index, final double binCount) {
+    final long counted = toCount(binCount);
+    if (counted == 0) {
+      return 0;
+    }
+    if (index < 0 || index > MAX_INDEX) {
+      throw new IllegalArgumentException("Latency sketch bin out of range: " + index);
+    }
+    page((int) index / PAGE_SIZE).addAndGet((int) index % PAGE_SIZE, counted);
+    count.addAndGet(counted);
+    return counted;
+  }
+
+  private static long toCount(final double count) {
+    if (!(count >= 0) || count > Long.MAX_VALUE) {
+      throw new IllegalArgumentException("Invalid latency sketch count: " + count);
+    }
+    return Math.round(count);
+  }
+
+  private long[] snapshot() {
+    final long[] counts = new long[MAX_INDEX + 1];
+    for (int p = 0; p < PAGES; p++) {
+      final AtomicLongArray page = pages.get(p);
+      if (page == null) {
+        continue;
+      }
+      for (int i = 0; i < PAGE_SIZE && p * PAGE_SIZE + i <= MAX_INDEX; i++) {
+        counts[p * PAGE_SIZE + i] = page.get(i);
+      }
+    }
+    return counts;
+  }
+
+  private static int sparseEntrySize(final int index) {
+    return 1 + varintSize(zigZag(index)) + 1 + 8;
+  }
+
+  private static long zigZag(final long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(final long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static int varintSize(long value) {
+    int size = 1;
+    while ((value & ~0x7FL) != 0) {
+      size++;
+      value >>>= 7;
+    }
+    return size;
+  }
+
+  private static void writeTag(final ByteArrayOutputStream out, final int field, final int type) {
+    writeVarint(out, field << 3 | type);
+  }
+
+  private static void writeVarint(final ByteArrayOutputStream out, long value) {
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.write((int) value);
+  }
+
+  private static void writeDouble(final ByteArrayOutputStream out, final double value) {
+    final long bits = Double.doubleToLongBits(value);
+    for (int shift = 0; shift < 64; shift += 8) {
+      out.write((int) (bits >>> shift));
+    }
+  }
+
+  /** Reads the fields of a protobuf message, rejecting truncated or malformed ones. */
+  private static final class ProtoReader {
+    private final byte[] bytes;
+    private int position;
+    private final int limit;
+
+    ProtoReader(final byte[] bytes, final int position, final int limit) {
+      this.bytes = bytes;
+      this.position = position;
+      this.limit = limit;
+    }
+
+    boolean hasRemaining() {
+      return position < limit;
+    }
+
+    long readVarint() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (position >= limit) {
+          throw new IllegalArgumentException("Truncated latency sketch encoding");
+        }
+        final byte b = bytes[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Malformed latency sketch encoding");
+    }
+
+    double readDouble() {
+      if (limit - position < 8) {
+        throw new IllegalArgumentException("Truncated latency sketch encoding");
+      }
+      long bits = 0;
+      for (int shift = 0; shift < 64; shift += 8) {
+        bits |= (bytes[position++] & 0xFFL) << shift;
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    ProtoReader readMessage() {
+      final int length = length(readVarint());
+      final ProtoReader message = new ProtoReader(bytes, position, position + length);
+      position += length;
+      return message;
+    }
+
+    void skip(final int wireType) {
+      switch (wireType) {
+        case WIRE_VARINT:
+          readVarint();
+          break;
+        case WIRE_FIXED64:
+          position += length(8);
+          break;
+        case WIRE_LENGTH_DELIMITED:
+          position += length(readVarint());
+          break;
+        case WIRE_FIXED32:
+          position += length(4);
+          break;
+        default:
+          throw new IllegalArgumentException("Malformed latency sketch encoding");
+      }
+    }
+
+    private int length(final long length) {
+      if (length < 0 || length > limit - position) {
+        throw new IllegalArgumentException("Truncated latency sketch encoding");
+      }
+      return (int) length;
+    }
+  }
+
+  static int index(final long durationNano) {
+    return Math.min((int) Math.ceil(Math.log(durationNano) / LOG_GAMMA), MAX_INDEX);
+  }
+
+  /** @return the duration within the relative accuracy of all durations of the bin */
+  static long value(final int index) {
+    return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+  }
+
+  private AtomicLongArray page(final int p) {
+    AtomicLongArray page = pages.get(p);
+    if (page == null) {
+      pages.compareAndSet(p, null, new AtomicLongArray(PAGE_SIZE));
+      page = pages.get(p);
+    }
+    return page;
+  }
+}
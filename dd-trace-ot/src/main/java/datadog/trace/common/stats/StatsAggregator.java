@@ -0,0 +1,171 @@
+package datadog.trace.common.stats;
+
+import datadog.opentracing.DDSpan;
+import datadog.trace.common.util.Clock;
+import io.opentracing.tag.Tags;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Aggregates the top level spans of finished traces into hit, error and latency stats, grouped by
+ * service, operation, resource, span type and http status code over 10 second buckets. Top level spans are
+ * the spans whose parent belongs to another service or to another process, that is where requests
+ * enter a service.
+ *
+ * <p>Spans are counted in the bucket of their end time. Spans ending in a bucket which may already
+ * have been flushed are counted in the oldest bucket still open instead, so that flushed buckets
+ * are not written to anymore. A span racing with the flush of its bucket is counted in the next
+ * bucket: spans are added under the read lock of their bucket, which the flush seals under its
+ * write lock before handing its groups out.
+ */
+public class StatsAggregator {
+  static final long BUCKET_DURATION_NANO = TimeUnit.SECONDS.toNanos(10);
+
+  private final ConcurrentMap<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+  public void add(final List<DDSpan> trace) {
+    add(trace, Clock.currentNanoTime());
+  }
+
+  void add(final List<DDSpan> trace, final long nowNano) {
+    final long oldestOpenBucket = align(nowNano) - BUCKET_DURATION_NANO;
+    Map<String, String> serviceBySpanId = null;
+    if (trace.size() > 1) {
+      serviceBySpanId = new HashMap<>(trace.size() * 2);
+      for (final DDSpan span : trace) {
+        serviceBySpanId.put(span.getSpanId(), span.getServiceName());
+      }
+    }
+    for (final DDSpan span : trace) {
+      if (serviceBySpanId != null && !isTopLevel(span, serviceBySpanId)) {
+        continue;
+      }
+      long start =
+          Math.max(align(span.getStartTime() + span.getDurationNano()), oldestOpenBucket);
+      while (!bucket(start).add(span)) {
+        start += BUCKET_DURATION_NANO;
+      }
+    }
+  }
+
+  /**
+   * Remove the buckets which are complete, spans ending in them are counted in later buckets.
+   *
+   * @return the removed buckets
+   */
+  public List<StatsBucket> flush() {
+    return flush(Clock.currentNanoTime(), false);
+  }
+
+  /** @param all true to also remove the buckets still open */
+  List<StatsBucket> flush(final long nowNano, final boolean all) {
+    final long oldestOpenBucket = align(nowNano) - BUCKET_DURATION_NANO;
+    final List<StatsBucket> flushed = new ArrayList<>();
+    for (final Long start : buckets.keySet()) {
+      if (all || start < oldestOpenBucket) {
+        final Bucket bucket = buckets.get(start);
+        if (bucket != null) {
+          bucket.seal();
+          buckets.remove(start, bucket);
+          flushed.add(
+              new StatsBucket(
+                  start, BUCKET_DURATION_NANO, new ArrayList<StatsGroup>(bucket.groups.values())));
+        }
+      }
+    }
+    return flushed;
+  }
+
+  private Bucket bucket(final long start) {
+    Bucket bucket = buckets.get(start);
+    if (bucket == null) {
+      final Bucket newBucket = new Bucket();
+      bucket = buckets.putIfAbsent(start, newBucket);
+      if (bucket == null) {
+        bucket = newBucket;
+      }
+    }
+    return bucket;
+  }
+
+  private static final class Bucket {
+    private final ConcurrentMap<StatsGroup.Key, StatsGroup> groups = new ConcurrentHashMap<>();
+    // shared by adding threads, exclusive when sealing
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean sealed;
+
+    /** @return false if the bucket is already flushed, the span was not counted */
+    boolean add(final DDSpan span) {
+      lock.readLock().lock();
+      try {
+        if (sealed) {
+          return false;
+        }
+        group(span).add(span.getDurationNano(), span.getError() != 0);
+        return true;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    /** Wait for the spans being added, and refuse any other. */
+    void seal() {
+      lock.writeLock().lock();
+      try {
+        sealed = true;
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+
+    private StatsGroup group(final DDSpan span) {
+      final StatsGroup.Key key =
+          new StatsGroup.Key(
+              span.getServiceName(),
+              span.getOperationName(),
+              span.getResourceName(),
+              span.getSpanType(),
+              httpStatusCode(span));
+      StatsGroup group = groups.get(key);
+      if (group == null) {
+        final StatsGroup newGroup = new StatsGroup(key);
+        group = groups.putIfAbsent(key, newGroup);
+        if (group == null) {
+          group = newGroup;
+        }
+      }
+      return group;
+    }
+  }
+
+  private static boolean isTopLevel(final DDSpan span, final Map<String, String> serviceBySpanId) {
+    final String parentService = serviceBySpanId.get(span.getParentId());
+    return parentService == null || !parentService.equals(span.getServiceName());
+  }
+
+  private static int httpStatusCode(final DDSpan span) {
+    final Object status = span.getTags().get(Tags.HTTP_STATUS.getKey());
+    if (status instanceof Number) {
+      return ((Number) status).intValue();
+    }
+    if (status instanceof String) {
+      try {
+        return Integer.parseInt((String) status);
+      } catch (final NumberFormatException e) {
+        return 0;
+      }
+    }
+    return 0;
+  }
+
+  private static long align(final long timeNano) {
+    return timeNano - timeNano % BUCKET_DURATION_NANO;
+  }
+}
@@ -0,0 +1,33 @@
+package datadog.trace.common.stats;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import java.util.List;
+
+/** Stats of the spans ending in a time window, serialized as the agent's ClientStatsBucket. */
+public class StatsBucket {
+  private final long startNano;
+  private final long durationNano;
+  private final List<StatsGroup> groups;
+
+  StatsBucket(final long startNano, final long durationNano, final List<StatsGroup> groups) {
+    this.startNano = startNano;
+    this.durationNano = durationNano;
+    this.groups = groups;
+  }
+
+  /** @return the start of the window, in nanoseconds since the epoch */
+  @JsonGetter("Start")
+  public long getStartNano() {
+    return startNano;
+  }
+
+  @JsonGetter("Duration")
+  public long getDurationNano() {
+    return durationNano;
+  }
+
+  @JsonGetter("Stats")
+  public List<StatsGroup> getGroups() {
+    return groups;
+  }
+}
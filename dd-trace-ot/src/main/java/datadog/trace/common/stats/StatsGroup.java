@@ -0,0 +1,115 @@
+package datadog.trace.common.stats;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Value;
+
+/**
+ * Stats of the top level spans of a service, operation, resource, span type and http status code,
+ * serialized as the agent's ClientGroupedStats.
+ */
+public class StatsGroup {
+  @Value
+  static class Key {
+    private final String service;
+    private final String operationName;
+    private final String resourceName;
+    private final String type;
+    private final int httpStatusCode;
+  }
+
+  private final Key key;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong errors = new AtomicLong();
+  private final AtomicLong durationNano = new AtomicLong();
+  private final LatencySketch okLatency = new LatencySketch();
+  private final LatencySketch errorLatency = new LatencySketch();
+
+  StatsGroup(final Key key) {
+    this.key = key;
+  }
+
+  void add(final long spanDurationNano, final boolean error) {
+    hits.incrementAndGet();
+    durationNano.addAndGet(spanDurationNano);
+    if (error) {
+      errors.incrementAndGet();
+      errorLatency.add(spanDurationNano);
+    } else {
+      okLatency.add(spanDurationNano);
+    }
+  }
+
+  @JsonGetter("Service")
+  public String getService() {
+    return key.getService();
+  }
+
+  @JsonGetter("Name")
+  public String getOperationName() {
+    return key.getOperationName();
+  }
+
+  @JsonGetter("Resource")
+  public String getResourceName() {
+    return key.getResourceName();
+  }
+
+  @JsonGetter("Type")
+  public String getType() {
+    return key.getType() == null ? "" : key.getType();
+  }
+
+  @JsonGetter("HTTPStatusCode")
+  public int getHttpStatusCode() {
+    return key.getHttpStatusCode();
+  }
+
+  @JsonGetter("Hits")
+  public long getHits() {
+    return hits.get();
+  }
+
+  /** @return the hits, which are all on top level spans */
+  @JsonGetter("TopLevelHits")
+  public long getTopLevelHits() {
+    return hits.get();
+  }
+
+  @JsonGetter("Synthetics")
+  public boolean isSynthetics() {
+    return false;
+  }
+
+  @JsonGetter("Errors")
+  public long getErrors() {
+    return errors.get();
+  }
+
+  /** @return the total duration of the spans in nanoseconds */
+  @JsonGetter("Duration")
+  public long getDurationNano() {
+    return durationNano.get();
+  }
+
+  @JsonGetter("OkSummary")
+  public byte[] getOkSummary() {
+    return okLatency.encode();
+  }
+
+  @JsonGetter("ErrorSummary")
+  public byte[] getErrorSummary() {
+    return errorLatency.encode();
+  }
+
+  @JsonIgnore
+  public LatencySketch getOkLatency() {
+    return okLatency;
+  }
+
+  @JsonIgnore
+  public LatencySketch getErrorLatency() {
+    return errorLatency;
+  }
+}
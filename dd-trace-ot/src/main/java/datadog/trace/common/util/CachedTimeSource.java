@@ -0,0 +1,64 @@
+package datadog.trace.common.util;
+
+import java.io.Closeable;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Clocks updated by a background thread once per tick, so reading them is a volatile read rather
+ * than a call to the system clocks, which costs a few microseconds on hosts without a usable TSC
+ * (e.g. the Xen clock source). Times are only as precise as the tick: spans shorter than a tick
+ * may have a duration of zero.
+ */
+public class CachedTimeSource implements Clock.TimeSource, Closeable {
+  private final long tickNanos;
+  private final Thread ticker;
+
+  private volatile long nanoTicks;
+  private volatile long epochMillis;
+  private volatile boolean closed = false;
+
+  public CachedTimeSource(final long tickNanos) {
+    this.tickNanos = tickNanos;
+    tick();
+    ticker =
+        new Thread(
+            new Runnable() {
+              @Override
+              public void run() {
+                while (!closed) {
+                  LockSupport.parkNanos(CachedTimeSource.this.tickNanos);
+                  tick();
+                }
+              }
+            },
+            "dd-clock-ticker");
+    ticker.setDaemon(true);
+    ticker.start();
+  }
+
+  private void tick() {
+    nanoTicks = System.nanoTime();
+    epochMillis = System.currentTimeMillis();
+  }
+
+  public long getTickNanos() {
+    return tickNanos;
+  }
+
+  @Override
+  public long nanoTicks() {
+    return nanoTicks;
+  }
+
+  @Override
+  public long epochMillis() {
+    return epochMillis;
+  }
+
+  /** Stop the ticker thread, the clocks are frozen afterwards. */
+  @Override
+  public void close() {
+    closed = true;
+    LockSupport.unpark(ticker);
+  }
+}
@@ -1,5 +1,6 @@
 package datadog.trace.common.util;
 
+import datadog.trace.api.Config;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -19,9 +20,58 @@ import java.util.concurrent.TimeUnit;
  *
  *     <p>At this time, we are using a millis precision (converted to micros) in order to guarantee
  *     consistency between the span start times and the durations
+ *
+ *     <p>Both clocks are read from a {@link TimeSource}, the system clocks by default. When the
+ *     {@link Config#CLOCK_TICK_MICROS} setting is positive, a {@link CachedTimeSource} reading
+ *     the system clocks once per tick is used instead, where reading them is expensive.
  */
 public class Clock {
 
+  /** Source of the clocks */
+  public interface TimeSource {
+    /** @return nano ticks, only usable for duration calculations */
+    long nanoTicks();
+
+    /** @return the epoch time in millis */
+    long epochMillis();
+  }
+
+  public static final TimeSource SYSTEM =
+      new TimeSource() {
+        @Override
+        public long nanoTicks() {
+          return System.nanoTime();
+        }
+
+        @Override
+        public long epochMillis() {
+          return System.currentTimeMillis();
+        }
+      };
+
+  private static volatile TimeSource timeSource = forConfig(Config.get());
+
+  static TimeSource forConfig(final Config config) {
+    final Integer tickMicros = config.getClockTickMicros();
+    if (tickMicros == null || tickMicros <= 0) {
+      return SYSTEM;
+    }
+    return new CachedTimeSource(TimeUnit.MICROSECONDS.toNanos(tickMicros));
+  }
+
+  public static TimeSource getTimeSource() {
+    return timeSource;
+  }
+
+  /** Read the clocks from another source. A replaced {@link CachedTimeSource} is closed. */
+  public static void setTimeSource(final TimeSource timeSource) {
+    final TimeSource previous = Clock.timeSource;
+    Clock.timeSource = timeSource;
+    if (previous instanceof CachedTimeSource && previous != timeSource) {
+      ((CachedTimeSource) previous).close();
+    }
+  }
+
   /**
    * Get the current nanos ticks, this method can't be use for date accuracy (only duration
    * calculations)
@@ -29,7 +79,7 @@ public class Clock {
    * @return The current nanos ticks
    */
   public static long currentNanoTicks() {
-    return System.nanoTime();
+    return timeSource.nanoTicks();
   }
 
   /**
@@ -38,7 +88,7 @@ public class Clock {
    * @return the current epoch time in micros
    */
   public static long currentMicroTime() {
-    return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    return TimeUnit.MILLISECONDS.toMicros(timeSource.epochMillis());
   }
 
   /**
@@ -48,6 +98,6 @@ public class Clock {
    * @return the current epoch time in nanos
    */
   public static long currentNanoTime() {
-    return TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+    return TimeUnit.MILLISECONDS.toNanos(timeSource.epochMillis());
   }
 }
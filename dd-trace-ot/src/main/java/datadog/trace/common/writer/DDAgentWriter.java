@@ -4,6 +4,12 @@ import static datadog.trace.api.Config.DEFAULT_AGENT_HOST;
 import static datadog.trace.api.Config.DEFAULT_TRACE_AGENT_PORT;
 
 import datadog.opentracing.DDSpan;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.common.metrics.HealthMetrics;
+import datadog.trace.common.metrics.HealthMetricsReporter;
+import datadog.trace.common.stats.StatsAggregator;
+import datadog.trace.common.stats.StatsBucket;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -37,6 +43,9 @@ public class DDAgentWriter implements Writer {
   /** Flush interval for the API in seconds */
   static final long FLUSH_TIME_SECONDS = 1;
 
+  /** Maximum number of stats buckets kept for a retry when the agent doesn't accept them */
+  static final int MAX_UNSENT_STATS_BUCKETS = 6;
+
   private final ThreadFactory agentWriterThreadFactory =
       new ThreadFactory() {
         @Override
@@ -61,6 +70,26 @@ public class DDAgentWriter implements Writer {
   /** In memory collection of traces waiting for departure */
   private final WriterQueue<List<DDSpan>> traces;
 
+  /** Stats of the written traces, null if stats are computed by the DD agent */
+  private final StatsAggregator stats;
+
+  /** Stats buckets the agent didn't accept yet, only used by the writer thread */
+  private final List<StatsBucket> unsentStats = new ArrayList<>();
+
+  /**
+   * Whether the agent accepted the last stats sent. Until it does, traces dropped by priority
+   * sampling are still sent, so that they are not lost if the agent doesn't take client stats.
+   */
+  private volatile boolean statsAccepted = false;
+
+  /** Sends the health metrics of the tracer, null if health metrics are disabled */
+  private final HealthMetricsReporter healthMetricsReporter;
+
+  /** Runs the trace interceptors on the traces of each flush, null if the tracer runs them */
+  private final InterceptorPipeline interceptorPipeline;
+
+  private final HealthMetrics healthMetrics = HealthMetrics.get();
+
   private boolean queueFullReported = false;
 
   public DDAgentWriter() {
@@ -72,9 +101,49 @@ public class DDAgentWriter implements Writer {
   }
 
   public DDAgentWriter(final DDApi api, final WriterQueue<List<DDSpan>> queue) {
+    this(api, queue, null);
+  }
+
+  /**
+   * @param stats if not null, stats of the written traces are computed in process and, once the
+   *     agent accepts them, traces dropped by priority sampling are discarded instead of being
+   *     sent
+   */
+  public DDAgentWriter(
+      final DDApi api, final WriterQueue<List<DDSpan>> queue, final StatsAggregator stats) {
+    this(api, queue, stats, null);
+  }
+
+  /** @param healthMetricsReporter if not null, reports the health metrics once started */
+  public DDAgentWriter(
+      final DDApi api,
+      final WriterQueue<List<DDSpan>> queue,
+      final StatsAggregator stats,
+      final HealthMetricsReporter healthMetricsReporter) {
+    this(api, queue, stats, healthMetricsReporter, null);
+  }
+
+  /**
+   * @param interceptorPipeline if not null, the tracer leaves its trace interceptors and sampler
+   *     to the writer, which runs them on the traces of each flush before computing stats and
+   *     sending them
+   */
+  public DDAgentWriter(
+      final DDApi api,
+      final WriterQueue<List<DDSpan>> queue,
+      final StatsAggregator stats,
+      final HealthMetricsReporter healthMetricsReporter,
+      final InterceptorPipeline interceptorPipeline) {
     super();
     this.api = api;
     traces = queue;
+    this.stats = stats;
+    this.healthMetricsReporter = healthMetricsReporter;
+    this.interceptorPipeline = interceptorPipeline;
+    if (stats != null) {
+      api.setClientComputedStats(true);
+    }
+    healthMetrics.monitorQueue(queue);
   }
 
   /* (non-Javadoc)
@@ -82,7 +151,16 @@ public class DDAgentWriter implements Writer {
    */
   @Override
   public void write(final List<DDSpan> trace) {
+    if (interceptorPipeline == null) {
+      if (!accept(trace)) {
+        return;
+      }
+      healthMetrics.onEnqueue(trace.size());
+    }
     final List<DDSpan> removed = traces.add(trace);
+    if (removed != null) {
+      healthMetrics.onDrop();
+    }
     if (removed != null && !queueFullReported) {
       log.debug("Queue is full, traces will be discarded, queue size: {}", DEFAULT_MAX_TRACES);
       queueFullReported = true;
@@ -91,6 +169,29 @@ public class DDAgentWriter implements Writer {
     queueFullReported = false;
   }
 
+  /**
+   * Adds the stats of a trace the interceptors and sampler kept.
+   *
+   * @return false if the trace is dropped instead of being sent
+   */
+  private boolean accept(final List<DDSpan> trace) {
+    if (stats != null) {
+      stats.add(trace);
+      if (statsAccepted && isDropped(trace)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isDropped(final List<DDSpan> trace) {
+    if (trace.isEmpty()) {
+      return false;
+    }
+    final Integer samplingPriority = trace.get(0).getSamplingPriority();
+    return samplingPriority != null && samplingPriority <= PrioritySampling.SAMPLER_DROP;
+  }
+
   /* (non-Javadoc)
    * @see Writer#start()
    */
@@ -98,6 +199,13 @@ public class DDAgentWriter implements Writer {
   public void start() {
     scheduledExecutor.scheduleAtFixedRate(
         new TracesSendingTask(), 0, FLUSH_TIME_SECONDS, TimeUnit.SECONDS);
+    if (healthMetricsReporter != null) {
+      scheduledExecutor.scheduleAtFixedRate(
+          healthMetricsReporter,
+          HealthMetricsReporter.REPORT_INTERVAL_SECONDS,
+          HealthMetricsReporter.REPORT_INTERVAL_SECONDS,
+          TimeUnit.SECONDS);
+    }
   }
 
   /* (non-Javadoc)
@@ -105,6 +213,7 @@ public class DDAgentWriter implements Writer {
    */
   @Override
   public void close() {
+    healthMetrics.unmonitorQueue(traces);
     scheduledExecutor.shutdownNow();
     executor.shutdownNow();
     try {
@@ -118,6 +227,13 @@ public class DDAgentWriter implements Writer {
     } catch (final InterruptedException e) {
       log.info("Writer properly closed and async writer interrupted.");
     }
+
+    if (healthMetricsReporter != null) {
+      healthMetricsReporter.close();
+    }
+    if (interceptorPipeline != null) {
+      interceptorPipeline.close();
+    }
   }
 
   @Override
@@ -129,6 +245,40 @@ public class DDAgentWriter implements Writer {
     return api;
   }
 
+  public InterceptorPipeline getInterceptorPipeline() {
+    return interceptorPipeline;
+  }
+
+  /** Send the complete stats buckets, with those the agent didn't accept before. */
+  void flushStats() {
+    unsentStats.addAll(stats.flush());
+    if (unsentStats.isEmpty()) {
+      return;
+    }
+    statsAccepted = api.sendStats(new ArrayList<>(unsentStats));
+    if (statsAccepted) {
+      unsentStats.clear();
+      return;
+    }
+    log.debug("Failing to send {} stats buckets to the API", unsentStats.size());
+    if (unsentStats.size() > MAX_UNSENT_STATS_BUCKETS) {
+      // oldest first, as flushed
+      unsentStats.subList(0, unsentStats.size() - MAX_UNSENT_STATS_BUCKETS).clear();
+    }
+  }
+
+  /** @return the traces of a flush that are sent, once the interceptors and sampler ran */
+  List<List<DDSpan>> accepted(final List<List<DDSpan>> traces) {
+    final List<List<DDSpan>> accepted = new ArrayList<>(traces.size());
+    for (final List<DDSpan> trace : traces) {
+      if (accept(trace)) {
+        healthMetrics.onEnqueue(trace.size());
+        accepted.add(trace);
+      }
+    }
+    return accepted;
+  }
+
   /** Infinite tasks blocking until some spans come in the blocking queue. */
   class TracesSendingTask implements Runnable {
 
@@ -151,11 +301,21 @@ public class DDAgentWriter implements Writer {
 
       @Override
       public Long call() throws Exception {
+        if (stats != null) {
+          flushStats();
+        }
+
         if (traces.isEmpty()) {
           return 0L;
         }
 
-        final List<List<DDSpan>> payload = traces.getAll();
+        List<List<DDSpan>> payload = traces.getAll();
+        if (interceptorPipeline != null) {
+          payload = accepted(interceptorPipeline.apply(payload));
+          if (payload.isEmpty()) {
+            return 0L;
+          }
+        }
 
         if (log.isDebugEnabled()) {
           int nbSpans = 0;
@@ -4,6 +4,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import datadog.opentracing.DDSpan;
 import datadog.opentracing.DDTraceOTInfo;
+import datadog.trace.api.Config;
+import datadog.trace.common.metrics.HealthMetrics;
+import datadog.trace.common.stats.ClientStatsPayload;
+import datadog.trace.common.stats.StatsBucket;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
@@ -14,8 +18,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.extern.slf4j.Slf4j;
 import org.msgpack.jackson.dataformat.MessagePackFactory;
 
@@ -27,15 +33,21 @@ public class DDApi {
   private static final String DATADOG_META_LANG_INTERPRETER = "Datadog-Meta-Lang-Interpreter";
   private static final String DATADOG_META_TRACER_VERSION = "Datadog-Meta-Tracer-Version";
   private static final String X_DATADOG_TRACE_COUNT = "X-Datadog-Trace-Count";
+  private static final String DATADOG_CLIENT_COMPUTED_STATS = "Datadog-Client-Computed-Stats";
 
   private static final String TRACES_ENDPOINT_V3 = "/v0.3/traces";
   private static final String TRACES_ENDPOINT_V4 = "/v0.4/traces";
+  private static final String STATS_ENDPOINT = "/v0.6/stats";
   private static final long MILLISECONDS_BETWEEN_ERROR_LOG = TimeUnit.MINUTES.toMillis(5);
 
   private final String tracesEndpoint;
+  private final String statsEndpoint;
   private final List<ResponseListener> responseListeners = new ArrayList<>();
+  private final HealthMetrics healthMetrics = HealthMetrics.get();
 
   private final AtomicInteger traceCount = new AtomicInteger(0);
+  private final AtomicLong statsSequence = new AtomicLong(0);
+  private volatile boolean clientComputedStats = false;
   private volatile long nextAllowedLogTime = 0;
 
   private static final ObjectMapper objectMapper = new ObjectMapper(new MessagePackFactory());
@@ -51,6 +63,7 @@ public class DDApi {
       log.debug("API v0.4 endpoints not available. Downgrading to v0.3");
       this.tracesEndpoint = "http://" + host + ":" + port + TRACES_ENDPOINT_V3;
     }
+    this.statsEndpoint = "http://" + host + ":" + port + STATS_ENDPOINT;
   }
 
   public void addResponseListener(final ResponseListener listener) {
@@ -63,6 +76,14 @@ public class DDApi {
     return traceCount;
   }
 
+  /**
+   * @param clientComputedStats true to tell the agent that stats of the traces sent are computed
+   *     by the tracer, so that it doesn't compute them too
+   */
+  public void setClientComputedStats(final boolean clientComputedStats) {
+    this.clientComputedStats = clientComputedStats;
+  }
+
   /**
    * Send traces to the DD agent
    *
@@ -71,12 +92,22 @@ public class DDApi {
    */
   public boolean sendTraces(final List<List<DDSpan>> traces) {
     final int totalSize = traceCount == null ? traces.size() : traceCount.getAndSet(0);
+    long sendStart = 0;
     try {
+      final long serializeStart = System.nanoTime();
+      final byte[] payload = objectMapper.writeValueAsBytes(traces);
+      sendStart = System.nanoTime();
+      healthMetrics.onSerialize(payload.length, sendStart - serializeStart);
+
       final HttpURLConnection httpCon = getHttpURLConnection(tracesEndpoint);
       httpCon.setRequestProperty(X_DATADOG_TRACE_COUNT, String.valueOf(totalSize));
+      if (clientComputedStats) {
+        httpCon.setRequestProperty(DATADOG_CLIENT_COMPUTED_STATS, "true");
+      }
+      httpCon.setFixedLengthStreamingMode(payload.length);
 
       final OutputStream out = httpCon.getOutputStream();
-      objectMapper.writeValue(out, traces);
+      out.write(payload);
       out.flush();
       out.close();
 
@@ -97,6 +128,7 @@ public class DDApi {
       }
 
       final int responseCode = httpCon.getResponseCode();
+      healthMetrics.onSend(traces.size(), responseCode, System.nanoTime() - sendStart);
       if (responseCode != 200) {
         if (log.isDebugEnabled()) {
           log.debug(
@@ -135,6 +167,7 @@ public class DDApi {
       return true;
 
     } catch (final IOException e) {
+      healthMetrics.onSendError(traces.size(), sendStart == 0 ? 0 : System.nanoTime() - sendStart);
       if (log.isDebugEnabled()) {
         log.debug(
             "Error while sending "
@@ -157,6 +190,49 @@ public class DDApi {
     }
   }
 
+  /**
+   * Send span stats to the DD agent
+   *
+   * @param buckets the stats to be sent
+   * @return true if the stats were accepted
+   */
+  public boolean sendStats(final List<StatsBucket> buckets) {
+    final Config config = Config.get();
+    final Map<String, String> tags = config.getMergedSpanTags();
+    final ClientStatsPayload payload =
+        new ClientStatsPayload(
+            tags.get("env"),
+            tags.get("version"),
+            config.getRuntimeId(),
+            statsSequence.getAndIncrement(),
+            buckets);
+    try {
+      final byte[] bytes = objectMapper.writeValueAsBytes(payload);
+      final HttpURLConnection httpCon = getHttpURLConnection(statsEndpoint);
+      httpCon.setFixedLengthStreamingMode(bytes.length);
+
+      final OutputStream out = httpCon.getOutputStream();
+      out.write(bytes);
+      out.flush();
+      out.close();
+
+      final int responseCode = httpCon.getResponseCode();
+      if (responseCode / 100 != 2) {
+        log.debug(
+            "Error while sending {} stats buckets to the DD agent. Status: {}, ResponseMessage: {}",
+            buckets.size(),
+            responseCode,
+            httpCon.getResponseMessage());
+        return false;
+      }
+      log.debug("Successfully sent {} stats buckets to the DD agent.", buckets.size());
+      return true;
+    } catch (final IOException e) {
+      log.debug("Error while sending " + buckets.size() + " stats buckets to the DD agent.", e);
+      return false;
+    }
+  }
+
   private static boolean traceEndpointAvailable(final String endpoint) {
     return endpointAvailable(endpoint, Collections.emptyList(), true);
   }
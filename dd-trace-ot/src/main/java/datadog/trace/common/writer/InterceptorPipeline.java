@@ -0,0 +1,176 @@
+package datadog.trace.common.writer;
+
+import datadog.opentracing.DDSpan;
+import datadog.trace.api.interceptor.MutableSpan;
+import datadog.trace.api.interceptor.ThreadSafeTraceInterceptor;
+import datadog.trace.api.interceptor.TraceInterceptor;
+import datadog.trace.common.metrics.HealthMetrics;
+import datadog.trace.common.sampling.Sampler;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the trace interceptors of a tracer over all the traces of a flush, on the writer thread
+ * rather than on the application thread finishing each trace. Interceptors run one after the other
+ * in priority order: a {@link ThreadSafeTraceInterceptor} processes the traces of the flush on up
+ * to {@code parallelism} threads, other interceptors process them on the writer thread.
+ *
+ * <p>The traces the interceptors keep are then sampled by the sampler of the tracer, so that
+ * sampling, and the stats the writer computes afterwards, see traces as the interceptors left them,
+ * as they do when the tracer runs the interceptors itself.
+ *
+ * <p>The time each interceptor takes on a flush is recorded in the {@link HealthMetrics}. An
+ * interceptor failing on a trace leaves that trace unchanged.
+ */
+@Slf4j
+public class InterceptorPipeline implements Closeable {
+
+  private final int parallelism;
+
+  /** Threads running the thread-safe interceptors, null if they run on the writer thread */
+  private final ExecutorService executor;
+
+  private final HealthMetrics healthMetrics = HealthMetrics.get();
+
+  private volatile Collection<TraceInterceptor> interceptors =
+      Collections.<TraceInterceptor>emptyList();
+
+  /** Sampler of the tracer, null to keep all the traces */
+  private volatile Sampler sampler;
+
+  public InterceptorPipeline(final int parallelism) {
+    this.parallelism = parallelism;
+    if (parallelism > 1) {
+      executor =
+          Executors.newFixedThreadPool(
+              parallelism,
+              new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                  final Thread thread = new Thread(r, "dd-trace-interceptor");
+                  thread.setDaemon(true);
+                  return thread;
+                }
+              });
+    } else {
+      executor = null;
+    }
+  }
+
+  /** @param interceptors the interceptors of the tracer, sorted by priority */
+  public void setInterceptors(final Collection<TraceInterceptor> interceptors) {
+    this.interceptors = interceptors;
+  }
+
+  /** @param sampler the sampler of the tracer, called on the first span of each trace */
+  public void setSampler(final Sampler sampler) {
+    this.sampler = sampler;
+  }
+
+  /**
+   * @param traces the traces of a flush
+   * @return the traces returned by the interceptors, without the discarded and unsampled ones
+   */
+  public List<List<DDSpan>> apply(final List<List<DDSpan>> traces) {
+    final Collection<TraceInterceptor> interceptors = this.interceptors;
+    final Sampler sampler = this.sampler;
+    if ((interceptors.isEmpty() && sampler == null) || traces.isEmpty()) {
+      return traces;
+    }
+    final List<Collection<? extends MutableSpan>> intercepted =
+        new ArrayList<Collection<? extends MutableSpan>>(traces);
+    for (final TraceInterceptor interceptor : interceptors) {
+      final long start = System.nanoTime();
+      if (executor != null
+          && interceptor instanceof ThreadSafeTraceInterceptor
+          && intercepted.size() > 1) {
+        interceptInParallel(interceptor, intercepted);
+      } else {
+        intercept(interceptor, intercepted, 0, intercepted.size());
+      }
+      healthMetrics.onIntercept(interceptor.getClass().getName(), System.nanoTime() - start);
+    }
+
+    final List<List<DDSpan>> written = new ArrayList<>(intercepted.size());
+    for (final Collection<? extends MutableSpan> trace : intercepted) {
+      final List<DDSpan> spans = new ArrayList<>(trace.size());
+      for (final MutableSpan span : trace) {
+        if (span instanceof DDSpan) {
+          spans.add((DDSpan) span);
+        }
+      }
+      // TODO: current trace implementation doesn't guarantee that first span is the root span
+      if (!spans.isEmpty() && (sampler == null || sampler.sample(spans.get(0)))) {
+        written.add(spans);
+      }
+    }
+    return written;
+  }
+
+  private void interceptInParallel(
+      final TraceInterceptor interceptor, final List<Collection<? extends MutableSpan>> traces) {
+    final int chunkSize = (traces.size() + parallelism - 1) / parallelism;
+    final List<Callable<Void>> chunks = new ArrayList<>(parallelism);
+    for (int from = 0; from < traces.size(); from += chunkSize) {
+      final int chunkStart = from;
+      final int chunkEnd = Math.min(from + chunkSize, traces.size());
+      chunks.add(
+          new Callable<Void>() {
+            @Override
+            public Void call() {
+              intercept(interceptor, traces, chunkStart, chunkEnd);
+              return null;
+            }
+          });
+    }
+    try {
+      // each chunk sets its own elements of the list, waiting for them publishes the results
+      executor.invokeAll(chunks);
+    } catch (final RejectedExecutionException e) {
+      intercept(interceptor, traces, 0, traces.size());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void intercept(
+      final TraceInterceptor interceptor,
+      final List<Collection<? extends MutableSpan>> traces,
+      final int from,
+      final int to) {
+    for (int i = from; i < to; i++) {
+      final Collection<? extends MutableSpan> trace = traces.get(i);
+      if (trace.isEmpty()) {
+        // discarded by a previous interceptor
+        continue;
+      }
+      try {
+        final Collection<? extends MutableSpan> result = interceptor.onTraceComplete(trace);
+        if (result == null) {
+          healthMetrics.onInterceptError();
+        } else {
+          traces.set(i, result);
+        }
+      } catch (final Throwable e) {
+        healthMetrics.onInterceptError();
+        log.debug("Trace interceptor {} failed", interceptor, e);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+}
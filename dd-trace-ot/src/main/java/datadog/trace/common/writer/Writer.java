@@ -1,7 +1,13 @@
 package datadog.trace.common.writer;
 
 import datadog.opentracing.DDSpan;
+import datadog.opentracing.DDTraceOTInfo;
 import datadog.trace.api.Config;
+import datadog.trace.common.metrics.HealthMetrics;
+import datadog.trace.common.metrics.HealthMetricsReporter;
+import datadog.trace.common.metrics.StatsDClient;
+import datadog.trace.common.stats.StatsAggregator;
+import java.net.SocketException;
 import java.util.List;
 import java.util.Properties;
 import lombok.extern.slf4j.Slf4j;
@@ -57,7 +63,35 @@ public interface Writer {
     }
 
     private static Writer createAgentWriter(final Config config) {
-      return new DDAgentWriter(new DDApi(config.getAgentHost(), config.getAgentPort()));
+      final DDApi api = new DDApi(config.getAgentHost(), config.getAgentPort());
+      return new DDAgentWriter(
+          api,
+          new WriterQueue<List<DDSpan>>(DDAgentWriter.DEFAULT_MAX_TRACES),
+          config.isStatsComputationEnabled() ? new StatsAggregator() : null,
+          config.isHealthMetricsEnabled() ? createHealthMetricsReporter(config) : null,
+          config.isTraceInterceptorsAsync()
+              ? new InterceptorPipeline(config.getTraceInterceptorsParallelism())
+              : null);
+    }
+
+    private static HealthMetricsReporter createHealthMetricsReporter(final Config config) {
+      final String host =
+          config.getHealthMetricsStatsdHost() == null
+              ? config.getAgentHost()
+              : config.getHealthMetricsStatsdHost();
+      try {
+        return new HealthMetricsReporter(
+            HealthMetrics.get(),
+            new StatsDClient(
+                host,
+                config.getHealthMetricsStatsdPort(),
+                "datadog.tracer",
+                "lang:java",
+                "tracer_version:" + DDTraceOTInfo.VERSION));
+      } catch (final SocketException e) {
+        log.warn("Failed to create the DogStatsD client, health metrics won't be reported", e);
+        return null;
+      }
     }
 
     private Builder() {}
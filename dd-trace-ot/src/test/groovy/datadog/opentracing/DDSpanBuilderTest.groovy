@@ -5,6 +5,7 @@ import datadog.opentracing.propagation.TagContext
 import datadog.trace.api.Config
 import datadog.trace.api.DDTags
 import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.common.sampling.AllSampler
 import datadog.trace.common.writer.ListWriter
 import spock.lang.Specification
 
@@ -117,6 +118,82 @@ class DDSpanBuilderTest extends Specification {
     "empty.tag" | ""
   }
 
+  def "each span gets its own builder"() {
+    setup:
+    def first = tracer.buildSpan("first").withTag("first.tag", "value").withErrorFlag()
+    def second = tracer.buildSpan("second")
+
+    expect:
+    !second.is(first)
+    second.start().tags["first.tag"] == null
+    first.start().tags["first.tag"] == "value"
+  }
+
+  def "tag storage is reused once a span is started"() {
+    setup:
+    def first = tracer.buildSpan("first").withTag("first.tag", "value")
+    def firstTags = first.tags
+
+    when:
+    def firstSpan = first.start()
+    def second = tracer.buildSpan("second").withTag("second.tag", "value")
+
+    then:
+    first.tags == null
+    second.tags.is(firstTags)
+    firstSpan.tags["first.tag"] == "value"
+
+    when:
+    def secondSpan = second.start()
+
+    then:
+    secondSpan.tags["second.tag"] == "value"
+    secondSpan.tags["first.tag"] == null
+  }
+
+  def "tag storage is not shared while a span is being built"() {
+    setup:
+    tracer.buildSpan("previous").start()
+    def outer = tracer.buildSpan("outer").withTag("outer.tag", "value")
+    def inner = tracer.buildSpan("inner").withTag("inner.tag", "value")
+
+    expect:
+    !inner.tags.is(outer.tags)
+    inner.start().tags["outer.tag"] == null
+    outer.start().tags["inner.tag"] == null
+  }
+
+  def "tags set after start only apply to the builder's next span"() {
+    setup:
+    def builder = tracer.buildSpan("op name").withTag("before", "value")
+    def first = builder.start()
+
+    when:
+    builder.withTag("after", "value")
+    def next = tracer.buildSpan("next").start()
+    def second = builder.start()
+
+    then:
+    first.tags["before"] == "value"
+    next.tags["after"] == null
+    second.operationName == "op name"
+    second.tags["after"] == "value"
+    second.tags["before"] == null
+  }
+
+  def "builder tags override default span tags"() {
+    setup:
+    tracer = new DDTracer("foo", writer, new AllSampler(), [:], [a: "x", b: "y", c: "z"], [:], [:], 0)
+
+    when:
+    def span = tracer.buildSpan("op name").withTag("a", "builder").withTag("b", (String) null).start()
+
+    then:
+    span.tags["a"] == "builder"
+    !span.tags.containsKey("b")
+    span.tags["c"] == "z"
+  }
+
   def "should build span timestamp in nano"() {
     setup:
     // time in micro
@@ -0,0 +1,92 @@
+package datadog.opentracing
+
+import datadog.trace.api.DDTags
+import datadog.trace.common.writer.ListWriter
+import spock.lang.Specification
+
+class ErrorStackTest extends Specification {
+  def writer = new ListWriter()
+  def tracer = new DDTracer(writer)
+
+  def "renders like printStackTrace"() {
+    setup:
+    def error = new IllegalStateException("outer", new IOException("inner"))
+    def printed = new StringWriter()
+    error.printStackTrace(new PrintWriter(printed))
+
+    expect:
+    ErrorStack.render(error, Integer.MAX_VALUE) == printed.toString().replace(System.lineSeparator(), "\n")
+  }
+
+  def "renders a bounded number of frames"() {
+    setup:
+    def error = new RuntimeException("boom")
+    def frames = error.stackTrace.length
+
+    when:
+    def lines = ErrorStack.render(error, 2).split("\n")
+
+    then:
+    lines.length == 4
+    lines[0] == "java.lang.RuntimeException: boom"
+    lines[1] == "\tat " + error.stackTrace[0]
+    lines[2] == "\tat " + error.stackTrace[1]
+    lines[3] == "\t... " + (frames - 2) + " more"
+  }
+
+  def "renders circular causes once"() {
+    setup:
+    def outer = new RuntimeException("outer")
+    def inner = new RuntimeException("inner", outer)
+    outer.initCause(inner)
+
+    expect:
+    ErrorStack.render(outer, 0).endsWith("\t[CIRCULAR REFERENCE:java.lang.RuntimeException: outer]\n")
+  }
+
+  def "error stack is rendered when the span is serialized"() {
+    setup:
+    def error = new RuntimeException("boom")
+    def span = tracer.buildSpan("test").start()
+
+    when:
+    span.setErrorMeta(error)
+
+    then:
+    span.context().@tags[DDTags.ERROR_STACK] instanceof ErrorStack
+    span.tags[DDTags.ERROR_STACK] == ErrorStack.render(error, ErrorStack.MAX_DEPTH)
+    span.tags.values().every { !(it instanceof ErrorStack) }
+    span.meta[DDTags.ERROR_STACK] == ErrorStack.render(error, ErrorStack.MAX_DEPTH)
+  }
+
+  def "repeated failures share rendered frames but not messages"() {
+    setup:
+    // created from the same call site, so with the same frames
+    def (first, second) = ["first", "second"].collect { failure(it) }
+
+    when:
+    def firstStack = new ErrorStack(first).toString()
+    def secondStack = new ErrorStack(second).toString()
+
+    then:
+    firstStack.startsWith("java.lang.IllegalStateException: first\n")
+    secondStack.startsWith("java.lang.IllegalStateException: second\n")
+    firstStack.substring(firstStack.indexOf("\n")) == secondStack.substring(secondStack.indexOf("\n"))
+    ErrorStack.CACHE.containsKey(new ErrorStack.Fingerprint(IllegalStateException.name, first.stackTrace, first.stackTrace.length))
+  }
+
+  def "fingerprints compare exception types and frames"() {
+    setup:
+    def frames = failure("first").stackTrace
+    def fingerprint = new ErrorStack.Fingerprint("a.Type", frames, frames.length)
+
+    expect:
+    fingerprint == new ErrorStack.Fingerprint("a.Type", frames.clone() as StackTraceElement[], frames.length)
+    fingerprint != new ErrorStack.Fingerprint("b.Type", frames, frames.length)
+    fingerprint != new ErrorStack.Fingerprint("a.Type", frames[1..-1] as StackTraceElement[], frames.length - 1)
+  }
+
+  def failure(String message) {
+    return new IllegalStateException(message)
+  }
+}
@@ -0,0 +1,138 @@
+package datadog.opentracing
+
+import datadog.trace.api.Config
+import datadog.trace.api.DDTags
+import datadog.trace.common.metrics.HealthMetrics
+import datadog.trace.common.sampling.AllSampler
+import datadog.trace.common.writer.ListWriter
+import spock.lang.Specification
+
+import static datadog.trace.api.Config.TRACE_SPANS_MAX
+import static datadog.trace.api.Config.TRACE_SPAN_TAGS_MAX
+import static datadog.trace.api.Config.TRACE_TAG_VALUE_MAX_LENGTH
+
+class SpanLimitsTest extends Specification {
+  def writer = new ListWriter()
+  def metrics = HealthMetrics.get()
+
+  def newTracer(SpanLimits limits) {
+    return new DDTracer("test", writer, new AllSampler(), [:], [:], [:], [:], 0, limits)
+  }
+
+  def "limits are read from the config"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(TRACE_TAG_VALUE_MAX_LENGTH, "100")
+    properties.setProperty(TRACE_SPAN_TAGS_MAX, "20")
+    properties.setProperty(TRACE_SPANS_MAX, "1000")
+
+    when:
+    def limits = SpanLimits.forConfig(Config.get(properties))
+
+    then:
+    limits.maxTagValueLength == 100
+    limits.maxTagsPerSpan == 20
+    limits.maxSpansPerTrace == 1000
+  }
+
+  def "long string tag values are truncated"() {
+    setup:
+    def truncated = metrics.tagsTruncated
+    def span = newTracer(new SpanLimits(5, 0, 0)).buildSpan("test").start()
+
+    when:
+    span.setTag("short", "abc")
+    span.setTag("long", "abcdefgh")
+    span.setTag("number", 1234567890)
+
+    then:
+    span.tags["short"] == "abc"
+    span.tags["long"] == "abcde"
+    span.tags["number"] == 1234567890
+    metrics.tagsTruncated == truncated + 1
+  }
+
+  def "tags set through decorators are truncated"() {
+    setup:
+    def span = newTracer(new SpanLimits(6, 0, 0)).buildSpan("test").start()
+
+    when:
+    span.setTag(DDTags.RESOURCE_NAME, "SELECT * FROM users")
+
+    then:
+    span.resourceName == "SELECT"
+  }
+
+  def "error stacks are truncated once rendered"() {
+    setup:
+    def truncated = metrics.tagsTruncated
+    // longer than the error type, shorter than its stack
+    def span = newTracer(new SpanLimits(30, 0, 0)).buildSpan("test").start()
+    def error = new RuntimeException("boom")
+
+    when:
+    span.setErrorMeta(error)
+
+    then:
+    span.tags[DDTags.ERROR_STACK] == ErrorStack.render(error, ErrorStack.MAX_DEPTH).substring(0, 30)
+    span.meta[DDTags.ERROR_STACK].length() == 30
+    metrics.tagsTruncated == truncated + 1
+  }
+
+  def "tags beyond the span limit are dropped"() {
+    setup:
+    def dropped = metrics.tagsDropped
+    def span = newTracer(new SpanLimits(0, 4, 0)).buildSpan("test").start()
+    // thread name and id are always set
+    def initialTags = span.tags.size()
+
+    when:
+    (1..5).each { span.setTag("tag" + it, "value") }
+    span.setTag("tag1", "updated")
+
+    then:
+    span.tags.size() == 4
+    span.tags["tag1"] == "updated"
+    metrics.tagsDropped == dropped + (5 - (4 - initialTags))
+  }
+
+  def "builder tags are bounded"() {
+    setup:
+    def span = newTracer(new SpanLimits(3, 0, 0)).buildSpan("test").withTag("url", "http://localhost").start()
+
+    expect:
+    span.tags["url"] == "htt"
+  }
+
+  def "spans beyond the trace limit are dropped except the root span"() {
+    setup:
+    def dropped = metrics.spansDropped
+    def tracer = newTracer(new SpanLimits(0, 0, 2))
+    def scope = tracer.buildSpan("root").startActive(true)
+    def root = scope.span()
+    def children = (1..4).collect { tracer.buildSpan("child").start() }
+
+    when:
+    children.each { it.finish() }
+    scope.close()
+    writer.waitForTraces(1)
+
+    then:
+    writer.firstTrace().size() == 3
+    writer.firstTrace().contains(root)
+    metrics.spansDropped == dropped + 2
+  }
+
+  def "no limits by default"() {
+    setup:
+    def span = newTracer(SpanLimits.NONE).buildSpan("test").start()
+    def value = "a" * 10000
+
+    when:
+    (1..100).each { span.setTag("tag" + it, value) }
+
+    then:
+    span.tags.size() >= 100
+    span.tags["tag100"] == value
+  }
+}
@@ -230,6 +230,22 @@ class SpanDecoratorTest extends Specification {
     "str" | [:]
   }
 
+  def "message batch #tag is a metric when numeric"() {
+    when:
+    span.setTag(tag, value)
+
+    then:
+    span.metrics[tag] == metric
+    span.tags[tag] == tagValue
+
+    where:
+    tag                                    | value | metric | tagValue
+    DDTags.MESSAGE_BATCH_SIZE              | 12    | 12     | null
+    DDTags.MESSAGE_BATCH_BYTES             | 2048L | 2048   | null
+    DDTags.MESSAGE_BATCH_MAX_LAG           | 1.5   | 1.5    | null
+    DDTags.MESSAGE_BATCH_UPSTREAM_CONTEXTS | "3"   | null   | "3"
+  }
+
   def "DBStatementAsResource should not interact on Mongo queries"() {
     when:
     span.setResourceName("not-change-me")
@@ -1,5 +1,6 @@
 package datadog.opentracing.propagation
 
+import datadog.trace.api.propagation.KeyedExtractAdapter
 import datadog.trace.api.sampling.PrioritySampling
 import io.opentracing.propagation.TextMapExtractAdapter
 import spock.lang.Specification
@@ -54,6 +55,64 @@ class DatadogHttpExtractorTest extends Specification {
     BIG_INTEGER_UINT64_MAX.toString() | BIG_INTEGER_UINT64_MAX.minus(1).toString() | PrioritySampling.SAMPLER_KEEP | "saipan"
   }
 
+  def "extract http headers with keyed lookups"() {
+    setup:
+    final Map<String, String> actual = [
+      (TRACE_ID_KEY.toUpperCase())            : "1",
+      (SPAN_ID_KEY.toUpperCase())             : "2",
+      (OT_BAGGAGE_PREFIX.toUpperCase() + "k1"): "v1",
+      (OT_BAGGAGE_PREFIX.toUpperCase() + "k2"): "v2",
+      SOME_HEADER                             : "my-interesting-info",
+      "ignored-header"                        : "ignored-value",
+      (SAMPLING_PRIORITY_KEY)                 : "1",
+      (ORIGIN_KEY)                            : "saipan",
+    ]
+    def carrier = new KeyedMap(actual)
+
+    when:
+    final ExtractedContext context = extractor.extract(carrier)
+
+    then:
+    context.traceId == "1"
+    context.spanId == "2"
+    context.baggage == ["k1": "v1", "k2": "v2"]
+    context.tags == ["some-tag": "my-interesting-info"]
+    context.samplingPriority == PrioritySampling.SAMPLER_KEEP
+    context.origin == "saipan"
+    !carrier.requested.contains("ignored-header")
+  }
+
+  def "extract keyed baggage from case sensitive carriers"() {
+    setup:
+    def carrier = new KeyedMap([
+      (TRACE_ID_KEY)  : "1",
+      (SPAN_ID_KEY)   : "2",
+      "Ot-Baggage-K1" : "v1",
+      "OT-BAGGAGE-K2" : "v2",
+    ], false)
+
+    when:
+    final ExtractedContext context = extractor.extract(carrier)
+
+    then:
+    context.baggage == ["k1": "v1", "k2": "v2"]
+    carrier.requested.containsAll(["Ot-Baggage-K1", "OT-BAGGAGE-K2"])
+  }
+
+  def "extract keyed header tags with no propagation"() {
+    when:
+    TagContext context = extractor.extract(new KeyedMap([SOME_HEADER: "my-interesting-info"]))
+
+    then:
+    !(context instanceof ExtractedContext)
+    context.getTags() == ["some-tag": "my-interesting-info"]
+  }
+
+  def "extract empty keyed headers returns null"() {
+    expect:
+    extractor.extract(new KeyedMap(["ignored-header": "ignored-value"])) == null
+  }
+
   def "extract header tags with no propagation"() {
     when:
     TagContext context = extractor.extract(new TextMapExtractAdapter(headers))
@@ -156,3 +215,24 @@ class DatadogHttpExtractorTest extends Specification {
     PrioritySampling.SAMPLER_KEEP | _
   }
 }
+
+class KeyedMap implements KeyedExtractAdapter {
+  final Map<String, String> headers
+  final Set<String> requested = []
+
+  KeyedMap(Map<String, String> headers, boolean caseInsensitive = true) {
+    this.headers = caseInsensitive ? new TreeMap<>(String.CASE_INSENSITIVE_ORDER) : new HashMap<>()
+    this.headers.putAll(headers)
+  }
+
+  @Override
+  String get(String key) {
+    requested.add(key)
+    return headers.get(key)
+  }
+
+  @Override
+  Iterable<String> keys() {
+    return headers.keySet()
+  }
+}
@@ -3,6 +3,7 @@ package datadog.opentracing.propagation
 import datadog.opentracing.DDSpanContext
 import datadog.opentracing.DDTracer
 import datadog.opentracing.PendingTrace
+import datadog.trace.api.propagation.BinaryInjectAdapter
 import datadog.trace.api.sampling.PrioritySampling
 import datadog.trace.common.writer.ListWriter
 import io.opentracing.propagation.TextMapInjectAdapter
@@ -70,4 +71,64 @@ class DatadogHttpInjectorTest extends Specification {
     "9523372036854775807"  | "15815582334751494918" | "15815582334751494914" | PrioritySampling.UNSET        | "saipan"
     "18446744073709551615" | "18446744073709551614" | "18446744073709551613" | PrioritySampling.SAMPLER_KEEP | null
   }
+
+  def "inject binary http headers"() {
+    setup:
+    def context = newContext(PrioritySampling.SAMPLER_KEEP, "saipan")
+    final BinaryInjectAdapter carrier = Mock()
+
+    when:
+    injector.inject(context, carrier)
+
+    then:
+    1 * carrier.put(TRACE_ID_KEY, "1".bytes)
+    1 * carrier.put(SPAN_ID_KEY, "2".bytes)
+    1 * carrier.put(SAMPLING_PRIORITY_KEY, "$PrioritySampling.SAMPLER_KEEP".bytes)
+    1 * carrier.put(ORIGIN_KEY, "saipan".bytes)
+    1 * carrier.put(OT_BAGGAGE_PREFIX + "k1", "v1".bytes)
+    1 * carrier.put(OT_BAGGAGE_PREFIX + "k2", "v%3D2".bytes)
+    0 * _
+  }
+
+  def "encoded headers are reused until baggage changes"() {
+    setup:
+    def context = newContext(PrioritySampling.SAMPLER_KEEP, null)
+    final Map<String, String> carrier = [:]
+
+    when:
+    injector.inject(context, new TextMapInjectAdapter(carrier))
+    def headers = context.injectedHeaders
+    injector.inject(context, new TextMapInjectAdapter(carrier))
+
+    then:
+    headers != null
+    context.injectedHeaders.is(headers)
+
+    when:
+    context.setBaggageItem("k3", "v3")
+    injector.inject(context, new TextMapInjectAdapter(carrier))
+
+    then:
+    !context.injectedHeaders.is(headers)
+    carrier[OT_BAGGAGE_PREFIX + "k3"] == "v3"
+  }
+
+  def newContext(int samplingPriority, String origin) {
+    def tracer = new DDTracer(new ListWriter())
+    return new DDSpanContext(
+      "1",
+      "2",
+      "0",
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      samplingPriority,
+      origin,
+      ["k1": "v1", "k2": "v=2"],
+      false,
+      "fakeType",
+      null,
+      new PendingTrace(tracer, "1", [:]),
+      tracer)
+  }
 }
@@ -183,6 +183,35 @@ class ScopeManagerTest extends Specification {
     false     | true
   }
 
+  def "unregistered continuation holds up the trace until its scope is closed"() {
+    setup:
+    def scope = (ContinuableScope) tracer.buildSpan("test").startActive(false)
+    scope.setAsyncPropagation(true)
+    def continuation = scope.captureUnregistered()
+    def trace = ((DDSpanContext) scope.span().context()).trace
+
+    expect:
+    continuation.ref == null
+
+    when:
+    scope.close()
+    scope.span().finish()
+
+    then:
+    trace.pendingReferenceCount.get() == 1
+    writer.empty
+
+    when:
+    def childScope = continuation.activate()
+    childScope.close()
+    writer.waitForTraces(1)
+
+    then:
+    trace.pendingReferenceCount.get() == 0
+    scopeManager.active() == null
+    writer == [[scope.span()]]
+  }
+
   def "Continuation.close closes parent scope"() {
     setup:
     def builder = tracer.buildSpan("test")
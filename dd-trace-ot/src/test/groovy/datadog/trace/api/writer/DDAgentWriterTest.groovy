@@ -1,6 +1,9 @@
 package datadog.trace.api.writer
 
 import datadog.opentracing.DDSpan
+import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.common.stats.StatsAggregator
+import datadog.trace.common.stats.StatsBucket
 import datadog.trace.common.writer.DDAgentWriter
 import datadog.trace.common.writer.DDApi
 import datadog.trace.common.writer.WriterQueue
@@ -87,4 +90,94 @@ class DDAgentWriterTest extends Specification {
     where:
     flush_time_wait = (int) (1.2 * (DDAgentWriter.FLUSH_TIME_SECONDS * 1_000))
   }
+
+  def "traces dropped by priority sampling are only counted in stats once the agent accepts them"() {
+    setup:
+    def traces = new WriterQueue<List<DDSpan>>(10)
+    def stats = Spy(StatsAggregator)
+    def api = Mock(DDApi)
+    def writer = new DDAgentWriter(api, traces, stats)
+    def kept = [newSpanOf(0)]
+    def dropped = [newSpanOf(0)]
+    kept[0].setSamplingPriority(PrioritySampling.SAMPLER_KEEP)
+    dropped[0].setSamplingPriority(PrioritySampling.SAMPLER_DROP)
+
+    when:
+    writer.write(kept)
+    writer.write(dropped)
+
+    then:
+    traces.getAll() == [kept, dropped]
+
+    when:
+    writer.flushStats()
+    writer.write(kept)
+    writer.write(dropped)
+
+    then:
+    1 * stats.flush() >> { stats.flush(Long.MAX_VALUE, true) }
+    1 * api.sendStats({ it*.groups.flatten()*.hits.sum() == 2 }) >> true
+    traces.getAll() == [kept]
+    stats.flush(Long.MAX_VALUE, true)*.groups.flatten()*.hits.sum() == 2
+  }
+
+  def "stats the agent doesn't accept are sent again with the next ones"() {
+    setup:
+    def stats = Mock(StatsAggregator)
+    def api = Mock(DDApi)
+    def writer = new DDAgentWriter(api, new WriterQueue<List<DDSpan>>(10), stats)
+    def first = Mock(StatsBucket)
+    def second = Mock(StatsBucket)
+
+    when:
+    writer.flushStats()
+
+    then:
+    1 * stats.flush() >> [first]
+    1 * api.sendStats([first]) >> false
+
+    when:
+    writer.flushStats()
+
+    then:
+    1 * stats.flush() >> [second]
+    1 * api.sendStats([first, second]) >> true
+
+    when:
+    writer.flushStats()
+
+    then:
+    1 * stats.flush() >> []
+    0 * api.sendStats(_)
+  }
+
+  def "unsent stats are bounded"() {
+    setup:
+    def stats = Mock(StatsAggregator)
+    def api = Mock(DDApi)
+    def writer = new DDAgentWriter(api, new WriterQueue<List<DDSpan>>(10), stats)
+    def buckets = (0..DDAgentWriter.MAX_UNSENT_STATS_BUCKETS).collect { Mock(StatsBucket) }
+    stats.flush() >>> buckets.collect { [it] } >> []
+    api.sendStats(_) >> false
+
+    when:
+    buckets.size().times {
+      writer.flushStats()
+    }
+    writer.flushStats()
+
+    then:
+    1 * api.sendStats(buckets.drop(1)) >> false
+  }
+
+  def "the api is told stats are computed by the tracer"() {
+    setup:
+    def api = Mock(DDApi)
+
+    when:
+    new DDAgentWriter(api, new WriterQueue<List<DDSpan>>(10), new StatsAggregator())
+
+    then:
+    1 * api.setClientComputedStats(true)
+  }
 }
@@ -4,6 +4,8 @@ import com.fasterxml.jackson.core.type.TypeReference
 import com.fasterxml.jackson.databind.JsonNode
 import com.fasterxml.jackson.databind.ObjectMapper
 import datadog.opentracing.SpanFactory
+import datadog.trace.common.metrics.HealthMetrics
+import datadog.trace.common.stats.StatsAggregator
 import datadog.trace.common.writer.DDApi
 import datadog.trace.common.writer.DDApi.ResponseListener
 import org.msgpack.jackson.dataformat.MessagePackFactory
@@ -114,6 +116,45 @@ class DDApiTest extends Specification {
     ])]
   }
 
+  def "sent payloads are recorded in the health metrics"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        // a failing v0.4 endpoint downgrades the api to v0.3
+        put("v0.4/traces") {
+          response.status(status).send()
+        }
+        put("v0.3/traces") {
+          response.status(status).send()
+        }
+      }
+    }
+    def client = new DDApi("localhost", agent.address.port)
+    def metrics = HealthMetrics.get()
+    def payloads = metrics.payloads
+    def payloadBytes = metrics.payloadBytesTotal
+    def responses = metrics.responses[status] ?: 0
+    def sent = metrics.tracesSent
+    def failed = metrics.tracesFailed
+    def traces = [[SpanFactory.newSpanOf(1L)], [SpanFactory.newSpanOf(1L)]]
+
+    when:
+    client.sendTraces(traces)
+
+    then:
+    metrics.payloads == payloads + 1
+    metrics.payloadBytesTotal - payloadBytes == agent.lastRequest.contentLength
+    metrics.responses[status] == responses + 1
+    metrics.tracesSent == sent + (status == 200 ? 2 : 0)
+    metrics.tracesFailed == failed + (status == 200 ? 0 : 2)
+
+    cleanup:
+    agent.close()
+
+    where:
+    status << [200, 500]
+  }
+
   def "Api ResponseListeners see 200 responses"() {
     setup:
     def agentResponse = new AtomicReference<String>(null)
@@ -200,6 +241,78 @@ class DDApiTest extends Specification {
     "v0.3"          | 30000      | false
   }
 
+  def "traces declare client computed stats"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.send()
+        }
+      }
+    }
+    def client = new DDApi("localhost", agent.address.port)
+    client.setClientComputedStats(computed)
+
+    when:
+    client.sendTraces([])
+
+    then:
+    agent.lastRequest.headers.get("Datadog-Client-Computed-Stats") == header
+
+    cleanup:
+    agent.close()
+
+    where:
+    computed | header
+    true     | "true"
+    false    | null
+  }
+
+  def "stats are sent as a client stats payload"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.send()
+        }
+        put("v0.6/stats") {
+          response.status(202).send()
+        }
+      }
+    }
+    def client = new DDApi("localhost", agent.address.port)
+    def aggregator = new StatsAggregator()
+    def span = SpanFactory.newSpanOf(0)
+    aggregator.add([span])
+    def buckets = aggregator.flush(Long.MAX_VALUE, true)
+
+    when:
+    def accepted = client.sendStats(buckets)
+    def payload = convertMap(agent.lastRequest.body)
+
+    then:
+    accepted
+    payload.keySet() == ["Env", "Hostname", "Lang", "RuntimeID", "Sequence", "Stats", "TracerVersion", "Version"] as Set
+    payload.Lang == "java"
+    payload.Sequence == 0
+    payload.Stats.size() == 1
+    payload.Stats[0].keySet() == ["Duration", "Start", "Stats"] as Set
+    payload.Stats[0].Stats[0].keySet() == ["Duration", "ErrorSummary", "Errors", "HTTPStatusCode", "Hits", "Name", "OkSummary",
+                                          "Resource", "Service", "Synthetics", "TopLevelHits", "Type"] as Set
+    payload.Stats[0].Stats[0].Service == span.serviceName
+    payload.Stats[0].Stats[0].Hits == 1
+    payload.Stats[0].Stats[0].TopLevelHits == 1
+
+    when:
+    client.sendStats(buckets)
+
+    then:
+    convertMap(agent.lastRequest.body).Sequence == 1
+
+    cleanup:
+    agent.close()
+  }
+
   static List<TreeMap<String, Object>> convertList(byte[] bytes) {
     return mapper.readValue(bytes, new TypeReference<List<TreeMap<String, Object>>>() {})
   }
@@ -0,0 +1,252 @@
+package datadog.trace.api.writer
+
+import datadog.opentracing.DDSpan
+import datadog.opentracing.DDTracer
+import datadog.trace.api.interceptor.MutableSpan
+import datadog.trace.api.interceptor.ThreadSafeTraceInterceptor
+import datadog.trace.api.interceptor.TraceInterceptor
+import datadog.trace.common.metrics.HealthMetrics
+import datadog.trace.common.sampling.Sampler
+import datadog.trace.common.stats.StatsAggregator
+import datadog.trace.common.writer.DDAgentWriter
+import datadog.trace.common.writer.DDApi
+import datadog.trace.common.writer.InterceptorPipeline
+import datadog.trace.common.writer.WriterQueue
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+import static datadog.opentracing.SpanFactory.newSpanOf
+
+class InterceptorPipelineTest extends Specification {
+  def pipeline = new InterceptorPipeline(4)
+
+  def cleanup() {
+    pipeline.close()
+  }
+
+  def "interceptors run in priority order on all the traces of a flush"() {
+    setup:
+    def calls = []
+    def first = new RecordingInterceptor(1, calls)
+    def second = new RecordingInterceptor(2, calls)
+    def interceptors = new TreeSet<TraceInterceptor>({ a, b -> a.priority() <=> b.priority() } as Comparator)
+    interceptors.addAll([second, first])
+    pipeline.setInterceptors(interceptors)
+    def traces = [[newSpanOf(0)], [newSpanOf(0)]]
+
+    when:
+    def written = pipeline.apply(traces)
+
+    then:
+    written == traces
+    calls == [1, 1, 2, 2]
+  }
+
+  def "discarded traces are not written"() {
+    setup:
+    pipeline.setInterceptors([new TraceInterceptor() {
+      @Override
+      Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+        return trace.first().operationName == "discarded" ? [] : trace
+      }
+
+      @Override
+      int priority() {
+        return 0
+      }
+    }])
+    def discarded = newSpanOf(0)
+    discarded.setOperationName("discarded")
+    def kept = [newSpanOf(0)]
+
+    expect:
+    pipeline.apply([[discarded], kept]) == [kept]
+  }
+
+  def "thread-safe interceptors run in parallel on the traces of a flush"() {
+    setup:
+    def threads = Collections.newSetFromMap(new ConcurrentHashMap())
+    def intercepted = Collections.newSetFromMap(new ConcurrentHashMap())
+    pipeline.setInterceptors([new ThreadSafeTraceInterceptor() {
+      @Override
+      Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+        threads.add(Thread.currentThread().name)
+        intercepted.add(trace)
+        return trace
+      }
+
+      @Override
+      int priority() {
+        return 0
+      }
+    }])
+    def traces = (1..100).collect { [newSpanOf(0)] }
+
+    when:
+    def written = pipeline.apply(traces)
+
+    then:
+    written == traces
+    intercepted.size() == 100
+    threads.every { it == "dd-trace-interceptor" }
+  }
+
+  def "a failing interceptor leaves the trace unchanged"() {
+    setup:
+    def errors = HealthMetrics.get().interceptorErrors
+    pipeline.setInterceptors([new TraceInterceptor() {
+      @Override
+      Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+        throw new IllegalStateException("boom")
+      }
+
+      @Override
+      int priority() {
+        return 0
+      }
+    }])
+    def traces = [[newSpanOf(0)]]
+
+    expect:
+    pipeline.apply(traces) == traces
+    HealthMetrics.get().interceptorErrors == errors + 1
+  }
+
+  def "interceptor time is recorded"() {
+    setup:
+    def interceptor = new RecordingInterceptor(0, [])
+    pipeline.setInterceptors([interceptor])
+
+    when:
+    pipeline.apply([[newSpanOf(0)]])
+
+    then:
+    HealthMetrics.get().interceptorNanosTotal.containsKey(RecordingInterceptor.name)
+  }
+
+  def "tracer leaves the interceptors to the writer"() {
+    setup:
+    def calls = []
+    def queue = new WriterQueue<List<DDSpan>>(10)
+    def writer = new DDAgentWriter(new DDApi("localhost", 8126, true), queue, null, null, pipeline) {
+      @Override
+      void start() {
+        // traces stay in the queue
+      }
+    }
+    def tracer = new DDTracer(writer)
+    tracer.addTraceInterceptor(new RecordingInterceptor(Integer.MIN_VALUE, calls))
+
+    when:
+    tracer.buildSpan("test").start().finish()
+
+    then:
+    calls.isEmpty()
+    queue.size() == 1
+
+    when:
+    def written = pipeline.apply(queue.getAll())
+
+    then:
+    calls == [Integer.MIN_VALUE]
+    written.size() == 1
+    written[0][0].operationName == "test"
+
+    cleanup:
+    writer.close()
+  }
+
+  def "traces are sampled once the interceptors ran"() {
+    setup:
+    def sampled = []
+    pipeline.setInterceptors([new TraceInterceptor() {
+      @Override
+      Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+        trace.first().setOperationName("intercepted")
+        return trace
+      }
+
+      @Override
+      int priority() {
+        return 0
+      }
+    }])
+    pipeline.setSampler(new Sampler() {
+      @Override
+      boolean sample(DDSpan span) {
+        sampled.add(span.operationName)
+        return span.serviceName != "unsampled"
+      }
+    })
+    def kept = [newSpanOf(0)]
+    def unsampled = newSpanOf(0)
+    unsampled.setServiceName("unsampled")
+
+    expect:
+    pipeline.apply([kept, [unsampled]]) == [kept]
+    sampled == ["intercepted", "intercepted"]
+  }
+
+  def "writer computes stats of the traces the interceptors return"() {
+    setup:
+    def stats = Mock(StatsAggregator)
+    def queue = new WriterQueue<List<DDSpan>>(10)
+    def writer = new DDAgentWriter(new DDApi("localhost", 8126, true), queue, stats, null, pipeline) {
+      @Override
+      void start() {
+        // traces stay in the queue
+      }
+    }
+    def tracer = new DDTracer(writer)
+    tracer.addTraceInterceptor(new TraceInterceptor() {
+      @Override
+      Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+        return []
+      }
+
+      @Override
+      int priority() {
+        return 0
+      }
+    })
+
+    when:
+    tracer.buildSpan("test").start().finish()
+
+    then:
+    0 * stats.add(_)
+    queue.size() == 1
+
+    when:
+    def sent = writer.accepted(pipeline.apply(queue.getAll()))
+
+    then:
+    sent.isEmpty()
+    0 * stats.add(_)
+
+    cleanup:
+    writer.close()
+  }
+
+  static class RecordingInterceptor implements TraceInterceptor {
+    final int priority
+    final List<Integer> calls
+
+    RecordingInterceptor(int priority, List<Integer> calls) {
+      this.priority = priority
+      this.calls = calls
+    }
+
+    @Override
+    Collection<? extends MutableSpan> onTraceComplete(Collection<? extends MutableSpan> trace) {
+      calls.add(priority)
+      return trace
+    }
+
+    @Override
+    int priority() {
+      return priority
+    }
+  }
+}
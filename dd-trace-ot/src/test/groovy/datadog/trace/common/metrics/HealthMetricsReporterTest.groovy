@@ -0,0 +1,88 @@
+package datadog.trace.common.metrics
+
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class HealthMetricsReporterTest extends Specification {
+  def listener = new DatagramSocket(0, InetAddress.getByName("localhost"))
+  def metrics = new HealthMetrics()
+  def statsd = new StatsDClient("localhost", listener.localPort, "datadog.tracer", "lang:java")
+  def reporter = new HealthMetricsReporter(metrics, statsd)
+
+  def setup() {
+    listener.soTimeout = 1000
+  }
+
+  def cleanup() {
+    reporter.close()
+    listener.close()
+  }
+
+  def "metrics are sent to DogStatsD"() {
+    setup:
+    metrics.onEnqueue(2)
+    metrics.onEnqueue(4)
+    metrics.onDrop()
+    metrics.onSerialize(1000, 2_000_000)
+    metrics.onSend(2, 200, 4_000_000)
+    metrics.onIntercept("Scrubber", 1_000_000)
+
+    when:
+    reporter.run()
+    def received = receive(22)
+
+    then:
+    received == [
+      "datadog.tracer.queue.enqueued.traces:2|c|#lang:java",
+      "datadog.tracer.queue.dropped.traces:1|c|#lang:java",
+      "datadog.tracer.api.sent.traces:2|c|#lang:java",
+      "datadog.tracer.api.failed.traces:0|c|#lang:java",
+      "datadog.tracer.cleaner.collected.traces:0|c|#lang:java",
+      "datadog.tracer.api.errors:0|c|#lang:java",
+      "datadog.tracer.interceptor.errors:0|c|#lang:java",
+      "datadog.tracer.span.tags.truncated:0|c|#lang:java",
+      "datadog.tracer.span.tags.dropped:0|c|#lang:java",
+      "datadog.tracer.trace.spans.dropped:0|c|#lang:java",
+      "datadog.tracer.queue.depth:0|g|#lang:java",
+      "datadog.tracer.queue.enqueued.spans_per_trace.avg:3.0|g|#lang:java",
+      "datadog.tracer.queue.enqueued.spans_per_trace.max:4.0|g|#lang:java",
+      "datadog.tracer.api.payload.bytes.avg:1000.0|g|#lang:java",
+      "datadog.tracer.api.payload.bytes.max:1000.0|g|#lang:java",
+      "datadog.tracer.api.serialize.time_ms.avg:2.0|g|#lang:java",
+      "datadog.tracer.api.serialize.time_ms.max:2.0|g|#lang:java",
+      "datadog.tracer.api.send.time_ms.avg:4.0|g|#lang:java",
+      "datadog.tracer.api.send.time_ms.max:4.0|g|#lang:java",
+      "datadog.tracer.interceptor.time_ms.avg:1.0|g|#lang:java,interceptor:Scrubber",
+      "datadog.tracer.interceptor.time_ms.max:1.0|g|#lang:java,interceptor:Scrubber",
+      "datadog.tracer.api.responses:1|c|#lang:java,status:200"
+    ]
+  }
+
+  def "counters are sent as the count since the previous report"() {
+    setup:
+    metrics.onEnqueue(2)
+    reporter.run()
+    receive(13)
+
+    when:
+    metrics.onEnqueue(2)
+    metrics.onEnqueue(2)
+    reporter.run()
+    def received = receive(13)
+
+    then:
+    received[0] == "datadog.tracer.queue.enqueued.traces:2|c|#lang:java"
+    received[11] == "datadog.tracer.queue.enqueued.spans_per_trace.avg:2.0|g|#lang:java"
+  }
+
+  def receive(int count) {
+    def messages = []
+    count.times {
+      def packet = new DatagramPacket(new byte[1024], 1024)
+      listener.receive(packet)
+      messages << new String(packet.data, 0, packet.length, StandardCharsets.UTF_8)
+    }
+    return messages
+  }
+}
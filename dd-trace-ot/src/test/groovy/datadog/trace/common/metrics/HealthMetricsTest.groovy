@@ -0,0 +1,98 @@
+package datadog.trace.common.metrics
+
+import datadog.trace.common.writer.WriterQueue
+import spock.lang.Specification
+
+import javax.management.ObjectName
+import java.lang.management.ManagementFactory
+
+class HealthMetricsTest extends Specification {
+  def metrics = new HealthMetrics()
+
+  def "histograms keep count, total and max since reset"() {
+    setup:
+    def histogram = new Histogram()
+
+    when:
+    [3L, 10L, 5L].each { histogram.record(it) }
+
+    then:
+    histogram.count == 3
+    histogram.total == 18
+    histogram.resetMax() == 10
+    histogram.max == 0
+  }
+
+  def "writer and api events are recorded"() {
+    setup:
+    def queue = new WriterQueue<Integer>(10)
+    metrics.monitorQueue(queue)
+    queue.add(1)
+    queue.add(2)
+
+    when:
+    metrics.onEnqueue(3)
+    metrics.onEnqueue(5)
+    metrics.onDrop()
+    metrics.onCollect()
+    metrics.onSerialize(100, 1000)
+    metrics.onSend(2, 200, 2000)
+    metrics.onSend(1, 400, 3000)
+    metrics.onSendError(4, 0)
+
+    then:
+    metrics.tracesEnqueued == 2
+    metrics.spansEnqueued == 8
+    metrics.tracesDropped == 1
+    metrics.tracesCollected == 1
+    metrics.queueDepth == 2
+    metrics.payloads == 1
+    metrics.payloadBytesTotal == 100
+    metrics.serializeNanosTotal == 1000
+    metrics.sendNanosTotal == 5000
+    metrics.tracesSent == 2
+    metrics.tracesFailed == 5
+    metrics.sendErrors == 1
+    metrics.responses == [200: 1L, 400: 1L]
+  }
+
+  def "queue depth sums the queues of all open writers"() {
+    setup:
+    def first = new WriterQueue<Integer>(10)
+    def second = new WriterQueue<Integer>(10)
+    metrics.monitorQueue(first)
+    metrics.monitorQueue(second)
+    first.add(1)
+    second.add(2)
+    second.add(3)
+
+    expect:
+    metrics.queueDepth == 3
+
+    when:
+    metrics.unmonitorQueue(first)
+
+    then:
+    metrics.queueDepth == 2
+  }
+
+  def "metrics are exposed through JMX"() {
+    setup:
+    def server = ManagementFactory.platformMBeanServer
+    def name = new ObjectName(HealthMetrics.MBEAN_NAME)
+    if (server.isRegistered(name)) {
+      server.unregisterMBean(name)
+    }
+    metrics.onEnqueue(1)
+
+    when:
+    metrics.registerMBean()
+
+    then:
+    server.getAttribute(name, "TracesEnqueued") == 1L
+    server.getAttribute(name, "QueueDepth") == 0
+
+    cleanup:
+    server.unregisterMBean(name)
+  }
+}
@@ -0,0 +1,200 @@
+package datadog.trace.common.stats
+
+import spock.lang.Specification
+
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+
+class LatencySketchTest extends Specification {
+
+  def "durations are counted within the relative accuracy"() {
+    setup:
+    def sketch = new LatencySketch()
+
+    when:
+    durations.each { sketch.add(it) }
+
+    then:
+    sketch.count == durations.size()
+    sketch.bins.size() == 1
+    def value = sketch.bins.keySet().first()
+    durations.every { Math.abs(value - it) <= it * LatencySketch.RELATIVE_ACCURACY }
+
+    where:
+    durations << [[1000], [1_000_000, 1_001_000], [5_000_000_000]]
+  }
+
+  def "durations under a nanosecond and over the last bin"() {
+    setup:
+    def sketch = new LatencySketch()
+
+    when:
+    sketch.add(0)
+    sketch.add(-5)
+    sketch.add(Long.MAX_VALUE)
+
+    then:
+    sketch.count == 3
+    sketch.bins == [0L: 2L, (LatencySketch.value(LatencySketch.MAX_INDEX)): 1L]
+  }
+
+  def "sketches merge"() {
+    setup:
+    def first = new LatencySketch()
+    def second = new LatencySketch()
+    [10, 1000, 1000].each { first.add(it) }
+    [1000, 100_000].each { second.add(it) }
+
+    when:
+    first.merge(second)
+
+    then:
+    first.count == 5
+    first.bins.values().toList() == [1L, 3L, 1L]
+    second.count == 2
+  }
+
+  def "quantiles are within the relative accuracy"() {
+    setup:
+    def sketch = new LatencySketch()
+    def durations = (1..10_000).collect { it * 1000L }
+    Collections.shuffle(durations, new Random(42))
+
+    when:
+    durations.each { sketch.add(it) }
+
+    then:
+    [(0.5d): 5_000_000L, (0.99d): 9_900_000L, (0.999d): 9_990_000L, (1d): 10_000_000L].every { quantile, expected ->
+      Math.abs(sketch.getValueAtQuantile(quantile) - expected) <= expected * LatencySketch.RELATIVE_ACCURACY
+    }
+    Math.abs(sketch.getValueAtQuantile(0) - 1000) <= 1000 * LatencySketch.RELATIVE_ACCURACY
+  }
+
+  def "quantiles of empty sketches and durations under a nanosecond"() {
+    setup:
+    def sketch = new LatencySketch()
+
+    expect:
+    sketch.getValueAtQuantile(0.5) == 0
+
+    when:
+    sketch.add(0)
+    sketch.add(0)
+    sketch.add(1000)
+
+    then:
+    sketch.getValueAtQuantile(0.5) == 0
+    sketch.getValueAtQuantile(1) == LatencySketch.value(LatencySketch.index(1000))
+  }
+
+  def "invalid quantiles are rejected"() {
+    when:
+    new LatencySketch().getValueAtQuantile(quantile)
+
+    then:
+    thrown IllegalArgumentException
+
+    where:
+    quantile << [-0.1d, 1.1d]
+  }
+
+  def "sketches round trip through the DDSketch encoding"() {
+    setup:
+    def sketch = new LatencySketch()
+    durations.each { sketch.add(it) }
+
+    when:
+    def decoded = LatencySketch.decode(sketch.encode())
+
+    then:
+    decoded.count == sketch.count
+    decoded.bins == sketch.bins
+
+    where:
+    durations << [
+      [0, 1, 10, 1000, 1000, 5_000_000_000, Long.MAX_VALUE], // sparse
+      (1000..1100).toList(), // contiguous
+      []
+    ]
+  }
+
+  def "sketches are encoded as DDSketch messages"() {
+    setup:
+    def sketch = new LatencySketch()
+    sketch.add(1)
+    sketch.add(1)
+    sketch.add(0)
+
+    expect:
+    sketch.encode() == concat(
+      message(1, concat(fixed64(1, LatencySketch.GAMMA))),
+      message(2, message(2, dbl(2))),
+      fixed64(4, 1))
+  }
+
+  def "sparse bins are encoded as a map"() {
+    setup:
+    def sketch = new LatencySketch()
+    sketch.add(1)
+    sketch.add(Long.MAX_VALUE)
+
+    expect:
+    sketch.encode() == concat(
+      message(1, concat(fixed64(1, LatencySketch.GAMMA))),
+      message(2, concat(
+        message(1, concat(varint(1 << 3), varint(0), fixed64(2, 1))),
+        message(1, concat(varint(1 << 3), varint(2 * LatencySketch.MAX_INDEX), fixed64(2, 1))))))
+  }
+
+  def "invalid encodings are rejected"() {
+    when:
+    LatencySketch.decode(bytes as byte[])
+
+    then:
+    thrown IllegalArgumentException
+
+    where:
+    bytes << [
+      [],
+      [0x0A, 0x09, 0x09, 0],
+      message(1, fixed64(1, 1.5d)),
+      concat(mapping(), message(2, concat(message(2, dbl(1)), varint(3 << 3), varint(2L * Integer.MAX_VALUE)))),
+      concat(mapping(), message(2, message(1, concat(varint(1 << 3), varint(-1L), fixed64(2, 1))))),
+      concat(mapping(), message(2, message(2, dbl(-1)))),
+      concat(mapping(), message(3, message(2, dbl(1)))),
+      concat(mapping(), [0x12, 0x7F] as byte[])
+    ]
+  }
+
+  byte[] mapping() {
+    return message(1, fixed64(1, LatencySketch.GAMMA))
+  }
+
+  byte[] message(int field, byte[] content) {
+    return concat(varint(field << 3 | 2), varint(content.length), content)
+  }
+
+  byte[] fixed64(int field, double value) {
+    return concat(varint(field << 3 | 1), dbl(value))
+  }
+
+  byte[] dbl(double value) {
+    return ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putDouble(value).array()
+  }
+
+  byte[] varint(long value) {
+    def out = new ByteArrayOutputStream()
+    while ((value & ~0x7FL) != 0) {
+      out.write((int) ((value & 0x7F) | 0x80))
+      value >>>= 7
+    }
+    out.write((int) value)
+    return out.toByteArray()
+  }
+
+  byte[] concat(byte[]... parts) {
+    def out = new ByteArrayOutputStream()
+    parts.each { out.write(it) }
+    return out.toByteArray()
+  }
+}
@@ -0,0 +1,129 @@
+package datadog.trace.common.stats
+
+import datadog.opentracing.DDSpan
+import datadog.opentracing.DDTracer
+import datadog.trace.common.writer.ListWriter
+import io.opentracing.tag.Tags
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class StatsAggregatorTest extends Specification {
+  static final long BUCKET = StatsAggregator.BUCKET_DURATION_NANO
+  static final long NOW = 100 * BUCKET
+
+  def tracer = new DDTracer(new ListWriter())
+  def aggregator = new StatsAggregator()
+
+  def "top level spans are grouped by service, operation, resource and status"() {
+    setup:
+    def root = span("web", "request", "GET /", NOW + 1000, 5000, null)
+    def local = span("web", "render", "render", NOW + 2000, 1000, root)
+    def client = span("db", "query", "SELECT ?", NOW + 3000, 2000, root)
+    Tags.HTTP_STATUS.set(root, 200)
+
+    when:
+    aggregator.add([root, local, client], NOW)
+    def buckets = aggregator.flush(NOW, true)
+
+    then:
+    buckets.size() == 1
+    buckets[0].startNano == NOW
+    buckets[0].groups.collect { [it.service, it.operationName, it.resourceName, it.httpStatusCode] }.toSet() ==
+      [["web", "request", "GET /", 200], ["db", "query", "SELECT ?", 0]].toSet()
+  }
+
+  def "hits, errors and durations are counted"() {
+    setup:
+    def ok = span("web", "request", "GET /", NOW + 1000, 100_000, null)
+    def error = span("web", "request", "GET /", NOW + 2000, 300_000, null)
+    error.setError(true)
+
+    when:
+    aggregator.add([ok], NOW)
+    aggregator.add([error], NOW)
+    def group = aggregator.flush(NOW, true)[0].groups[0]
+
+    then:
+    group.hits == 2
+    group.errors == 1
+    group.durationNano == 400_000
+    group.okLatency.count == 1
+    group.errorLatency.count == 1
+  }
+
+  def "complete buckets are flushed"() {
+    setup:
+    aggregator.add([span("web", "request", "GET /", NOW + 1000, 1000, null)], NOW)
+
+    expect:
+    aggregator.flush(NOW + BUCKET, false).empty
+    aggregator.flush(NOW + 2 * BUCKET, false)*.startNano == [NOW]
+    aggregator.flush(NOW + 2 * BUCKET, true).empty
+  }
+
+  def "late spans are counted in the oldest open bucket"() {
+    setup:
+    def late = span("web", "request", "GET /", NOW - 5 * BUCKET, 1000, null)
+
+    when:
+    aggregator.add([late], NOW)
+
+    then:
+    aggregator.flush(NOW, true)*.startNano == [NOW - BUCKET]
+  }
+
+  def "spans added while their bucket is flushed are not lost"() {
+    setup:
+    def span = span("web", "request", "GET /", NOW + 1000, 1000, null)
+    def threads = 4
+    def spansPerThread = 1000
+    def done = new CountDownLatch(threads)
+    def flushed = []
+
+    when:
+    threads.times {
+      Thread.start {
+        spansPerThread.times {
+          aggregator.add([span], NOW)
+        }
+        done.countDown()
+      }
+    }
+    while (done.count > 0) {
+      flushed.addAll(aggregator.flush(NOW + 2 * BUCKET, false))
+    }
+    flushed.addAll(aggregator.flush(NOW, true))
+
+    then:
+    flushed*.groups.flatten()*.hits.sum() == threads * spansPerThread
+  }
+
+  def "groups are keyed by span type"() {
+    setup:
+    def web = span("web", "request", "GET /", NOW + 1000, 1000, null)
+    def other = span("web", "request", "GET /", NOW + 1000, 1000, null)
+    web.setSpanType("web")
+
+    when:
+    aggregator.add([web], NOW)
+    aggregator.add([other], NOW)
+
+    then:
+    aggregator.flush(NOW, true)[0].groups*.type.toSet() == ["web", ""].toSet()
+  }
+
+  DDSpan span(String service, String operation, String resource, long startNano, long durationNano, DDSpan parent) {
+    def builder = tracer.buildSpan(operation)
+      .withServiceName(service)
+      .withResourceName(resource)
+      .withStartTimestamp(TimeUnit.NANOSECONDS.toMicros(startNano))
+    if (parent != null) {
+      builder.asChildOf(parent)
+    }
+    def span = (DDSpan) builder.start()
+    span.finish(TimeUnit.NANOSECONDS.toMicros(startNano + durationNano))
+    return span
+  }
+}
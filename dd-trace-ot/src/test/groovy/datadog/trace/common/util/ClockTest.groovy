@@ -0,0 +1,68 @@
+package datadog.trace.common.util
+
+import datadog.trace.api.Config
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static datadog.trace.api.Config.CLOCK_TICK_MICROS
+
+class ClockTest extends Specification {
+
+  def cleanup() {
+    Clock.setTimeSource(Clock.SYSTEM)
+  }
+
+  def "system clock is used by default"() {
+    expect:
+    Clock.forConfig(Config.get()) == Clock.SYSTEM
+  }
+
+  def "cached clock is used when a tick is configured"() {
+    setup:
+    def properties = new Properties()
+    properties.setProperty(CLOCK_TICK_MICROS, "500")
+
+    when:
+    def source = Clock.forConfig(Config.get(properties))
+
+    then:
+    source instanceof CachedTimeSource
+    ((CachedTimeSource) source).tickNanos == TimeUnit.MICROSECONDS.toNanos(500)
+
+    cleanup:
+    ((CachedTimeSource) source).close()
+  }
+
+  def "cached clock advances with the ticks"() {
+    setup:
+    def source = new CachedTimeSource(TimeUnit.MILLISECONDS.toNanos(1))
+    Clock.setTimeSource(source)
+    def startTicks = Clock.currentNanoTicks()
+    def startMicros = Clock.currentMicroTime()
+
+    when:
+    Thread.sleep(20)
+
+    then:
+    Clock.currentNanoTicks() > startTicks
+    Clock.currentMicroTime() > startMicros
+    Math.abs(Clock.currentMicroTime() - TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())) < TimeUnit.SECONDS.toMicros(1)
+  }
+
+  def "replaced cached clock is stopped"() {
+    setup:
+    def source = new CachedTimeSource(TimeUnit.MILLISECONDS.toNanos(1))
+    Clock.setTimeSource(source)
+
+    when:
+    Clock.setTimeSource(Clock.SYSTEM)
+    Thread.sleep(10)
+    def ticks = source.nanoTicks()
+    Thread.sleep(10)
+
+    then:
+    source.nanoTicks() == ticks
+    Clock.timeSource == Clock.SYSTEM
+  }
+}